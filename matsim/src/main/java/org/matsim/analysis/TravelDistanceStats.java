@@ -24,6 +24,7 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Locale;
 import java.util.Map;
@@ -36,9 +37,11 @@ import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.config.Config;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scoring.EventsToLegs.LegHandler;
 import org.matsim.core.utils.charts.XYLineChart;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.UncheckedIOException;
@@ -55,11 +58,15 @@ import org.matsim.pt.transitSchedule.api.TransitSchedule;
  * Is used by the standard Controler and fed the "really executed" "plans" which
  * are generated from Events during the simulation and which are also used by the scoring.
  * But you can also use it on other kinds of plans from your own code.
+ * <p></p>
+ * Alternatively, the executed legs can be streamed in as they happen (see {@link #handleLeg(Id, Leg)}),
+ * followed by {@link #addIteration(int, Population)} at the end of the iteration.  Then, the executed
+ * plans do not need to be kept in memory.
  *
  * @author anhorni, michaz
  */
 
-public class TravelDistanceStats {
+public class TravelDistanceStats implements LegHandler {
 
 	final private Config config;
 	final private Network network;
@@ -75,6 +82,9 @@ public class TravelDistanceStats {
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
 	private TransitSchedule transitSchedule;
 
+	private double[] legTravelDistanceSums = new double[0];
+	private int[] legTravelDistanceCounts = new int[0];
+
 	private final static Logger log = Logger.getLogger(TravelDistanceStats.class);
 
 	/**
@@ -152,12 +162,52 @@ public class TravelDistanceStats {
 		this.statsCalculators = null;
 		this.threads = null;
 
-		log.info("-- average of the average leg distance per plan (executed plans only): " + (sumAvgPlanLegTravelDistanceExecuted / nofLegTravelDistanceExecuted));
+		writeIteration(iteration, sumAvgPlanLegTravelDistanceExecuted / nofLegTravelDistanceExecuted);
+	}
+
+	@Override
+	public void handleLeg(Id<Person> agentId, Leg leg) {
+		double distance = getLegTravelDistance(leg);
+		if (Double.isNaN(distance)) {
+			return;
+		}
+		int index = agentId.index();
+		if (index >= this.legTravelDistanceSums.length) {
+			int size = Math.max(index + 1, Math.max(Id.getNumberOfIds(Person.class), 2 * this.legTravelDistanceSums.length));
+			this.legTravelDistanceSums = Arrays.copyOf(this.legTravelDistanceSums, size);
+			this.legTravelDistanceCounts = Arrays.copyOf(this.legTravelDistanceCounts, size);
+		}
+		this.legTravelDistanceSums[index] += distance;
+		this.legTravelDistanceCounts[index]++;
+	}
+
+	/**
+	 * Completes an iteration for which the executed legs were passed to {@link #handleLeg(Id, Leg)}.
+	 * The average is taken over all persons of the given population, as in {@link #addIteration(int, Map)}.
+	 */
+	public void addIteration(int iteration, Population population) {
+		double sumAvgPlanLegTravelDistanceExecuted = 0.0;
+		int nofLegTravelDistanceExecuted = 0;
+		for (Person person : population.getPersons().values()) {
+			int index = person.getId().index();
+			if (index < this.legTravelDistanceCounts.length && this.legTravelDistanceCounts[index] > 0) {
+				sumAvgPlanLegTravelDistanceExecuted += this.legTravelDistanceSums[index] / this.legTravelDistanceCounts[index];
+			}
+			nofLegTravelDistanceExecuted++;
+		}
+		Arrays.fill(this.legTravelDistanceSums, 0.0);
+		Arrays.fill(this.legTravelDistanceCounts, 0);
+
+		writeIteration(iteration, sumAvgPlanLegTravelDistanceExecuted / nofLegTravelDistanceExecuted);
+	}
+
+	private void writeIteration(int iteration, double avgLegTravelDistance) {
+		log.info("-- average of the average leg distance per plan (executed plans only): " + avgLegTravelDistance);
 		log.info("(TravelDistanceStats takes an average over all legs where the simulation reports travelled distances. These are car legs, pt legs,");
 		log.info("(and teleported legs whose route contains a distance.)");
 
 		try {
-			this.out.write(iteration + "\t" + (sumAvgPlanLegTravelDistanceExecuted / nofLegTravelDistanceExecuted) + "\t" + "\n");
+			this.out.write(iteration + "\t" + avgLegTravelDistance + "\t" + "\n");
 			this.out.flush();
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -165,7 +215,7 @@ public class TravelDistanceStats {
 
 		if (this.history != null) {
 			int index = iteration - config.controler().getFirstIteration();
-			this.history[index] = (sumAvgPlanLegTravelDistanceExecuted / nofLegTravelDistanceExecuted);
+			this.history[index] = avgLegTravelDistance;
 
 			if (iteration != config.controler().getFirstIteration()) {
 				// create chart when data of more than one iteration is available.
@@ -215,6 +265,19 @@ public class TravelDistanceStats {
 		}
 	}
 
+	/**
+	 * @return the travel distance of the leg, or NaN if it is not known
+	 */
+	private double getLegTravelDistance(final Leg leg) {
+		if (leg.getRoute() instanceof NetworkRoute) {
+			return RouteUtils.calcDistance((NetworkRoute) leg.getRoute(), network);
+		} else if (leg.getRoute() instanceof ExperimentalTransitRoute) {
+			return RouteUtils.calcDistance((ExperimentalTransitRoute) leg.getRoute(), transitSchedule, network);
+		} else {
+			return leg.getRoute().getDistance();
+		}
+	}
+
 	private class StatsCalculator implements Runnable {
 
 
@@ -243,19 +306,10 @@ public class TravelDistanceStats {
 
 			for (PlanElement pe : plan.getPlanElements()) {
 				if (pe instanceof Leg) {
-					final Leg leg = (Leg) pe;
-					if (leg.getRoute() instanceof NetworkRoute) {
-						planTravelDistance += RouteUtils.calcDistance((NetworkRoute) leg.getRoute(), network);
-						numberOfLegs++;
-					} else if (leg.getRoute() instanceof ExperimentalTransitRoute) {
-						planTravelDistance += RouteUtils.calcDistance((ExperimentalTransitRoute) leg.getRoute(), transitSchedule, network);
+					double distance = getLegTravelDistance((Leg) pe);
+					if (!Double.isNaN(distance)) {
+						planTravelDistance += distance;
 						numberOfLegs++;
-					} else {
-						double distance = leg.getRoute().getDistance();
-						if (!Double.isNaN(distance)) {
-							planTravelDistance += distance;
-							numberOfLegs++;
-						}
 					}
 				}
 			}
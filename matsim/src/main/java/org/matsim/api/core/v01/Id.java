@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -39,8 +40,23 @@ import org.matsim.api.core.v01.population.Person;
 public abstract class Id<T> implements Comparable<Id<T>> {
 
 	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
-	
-	
+
+	private final static Map<Class<?>, IdsOfType<?>> idsOfTypes = new ConcurrentHashMap<Class<?>, IdsOfType<?>>();
+
+	private final int index;
+
+	/**
+	 * For implementations of ids other than the ones created by {@link #create(String, Class)}.  These ids have no
+	 * {@link #index()}.
+	 */
+	protected Id() {
+		this(-1);
+	}
+
+	private Id(final int index) {
+		this.index = index;
+	}
+
 	public static <T> Id<T> create(final long key, final Class<T> type) {
 		return create(Long.toString(key), type);
 	}
@@ -54,21 +70,85 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	
 	/**
 	 * This method supports a cache where ids are stored and re-used per type.   
+	 * Every new id gets the next free {@link #index()} of its type.
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
 		Map<String, Id<?>> map = cache.get(type);
 		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
+			synchronized (cache) {
+				map = cache.get(type);
+				if (map == null) {
+					map = new ConcurrentHashMap<String, Id<?>>();
+					cache.put(type, map);
+				}
+			}
 		}
 		Id<?> id = map.get(key);
 		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+			synchronized (map) {
+				id = map.get(key);
+				if (id == null) {
+					id = getIdsOfType(type).add(key);
+					map.put(key, id);
+				}
+			}
 		}
 		
 		return (Id<T>) id;
 	}
+
+	/**
+	 * @return the already existing id of the given type, or <code>null</code> if no such id was created so far
+	 */
+	public static <T> Id<T> get(final String key, final Class<T> type) {
+		Map<String, Id<?>> map = cache.get(type);
+		return map == null ? null : (Id<T>) map.get(key);
+	}
+
+	/**
+	 * @return the id of the given type with the given {@link #index()}, or <code>null</code> if there is no such id (yet).
+	 * Looks up the ids of the type first; code doing this often should keep the result of {@link #getIdsOfType(Class)}
+	 * instead.
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		IdsOfType<?> ids = idsOfTypes.get(type);
+		return ids == null ? null : (Id<T>) ids.get(index);
+	}
+
+	/**
+	 * @return the number of ids of the given type created so far; all of them have an {@link #index()} below this value
+	 */
+	public static int getNumberOfIds(final Class<?> type) {
+		IdsOfType<?> ids = idsOfTypes.get(type);
+		return ids == null ? 0 : ids.size();
+	}
+
+	/**
+	 * @return all ids of the given type by their {@link #index()}, including the ones created later on.  The returned
+	 * object stays the same for a type, so it can be kept to get ids by their index without looking up the type.
+	 */
+	public static <T> IdsOfType<T> getIdsOfType(final Class<T> type) {
+		IdsOfType<?> ids = idsOfTypes.get(type);
+		if (ids == null) {
+			synchronized (idsOfTypes) {
+				ids = idsOfTypes.get(type);
+				if (ids == null) {
+					ids = new IdsOfType<T>();
+					idsOfTypes.put(type, ids);
+				}
+			}
+		}
+		return (IdsOfType<T>) ids;
+	}
+
+	/**
+	 * @return a dense, per-type index of this id, starting at 0 and assigned in the order in which the ids were created.
+	 * Can be used to store data per id in arrays instead of hash maps, see e.g. {@link org.matsim.core.utils.collections.IdMap}.
+	 * Ids not created by {@link #create(String, Class)} have the index -1.
+	 */
+	public final int index() {
+		return this.index;
+	}
 	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
@@ -111,7 +191,8 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 
 		private final String id; 
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
+			super(index);
 			this.id = id;
 		}
 
@@ -126,6 +207,52 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		}
 	}
 
+	/**
+	 * The ids of one type, at the position of their {@link Id#index()}.  The array is replaced by a larger copy when
+	 * it is full, so readers never see a partially filled array without the lock.
+	 */
+	public static final class IdsOfType<T> {
+
+		@SuppressWarnings("unchecked")
+		private volatile Id<T>[] ids = (Id<T>[]) new Id<?>[16];
+		private volatile int size = 0;
+
+		private IdsOfType() {
+		}
+
+		/**
+		 * @return the id with the given {@link Id#index()}, or <code>null</code> if there is no such id (yet)
+		 */
+		public Id<T> get(final int index) {
+			Id<T>[] array = this.ids;
+			if (index < 0 || index >= array.length) {
+				return null;
+			}
+			return array[index];
+		}
+
+		/**
+		 * @return the number of ids of this type created so far
+		 */
+		public int size() {
+			return this.size;
+		}
+
+		/* only called while holding the lock on the cache of this type, see create(String, Class) */
+		private Id<T> add(final String key) {
+			int index = this.size;
+			Id<T>[] array = this.ids;
+			if (index == array.length) {
+				array = Arrays.copyOf(array, array.length * 2);
+			}
+			Id<T> id = new IdImpl<T>(key, index);
+			array[index] = id;
+			this.ids = array;
+			this.size = index + 1;
+			return id;
+		}
+	}
+
 	// helper classes for some common cases:
 	public static Id<Person> createPersonId( final long key ) {
 		return create( key, Person.class ) ;
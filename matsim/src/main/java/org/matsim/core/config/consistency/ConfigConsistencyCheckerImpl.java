@@ -19,6 +19,8 @@
  * *********************************************************************** */
 package org.matsim.core.config.consistency;
 
+import java.util.Set;
+
 import org.apache.log4j.Logger;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup.EventsFileFormat;
@@ -111,9 +113,10 @@ public final class ConfigConsistencyCheckerImpl implements ConfigConsistencyChec
 
 	private void checkEventsFormatLanesSignals(final Config c) {
 		if (c.qsim().isUseLanes()) {
-			if (!c.controler().getEventsFileFormats().contains(EventsFileFormat.xml)){
-				log.error("Xml events are not enabled, but lanes and possibly signal systems" +
-						"are enalbed. Events from this features will only be written to the xml format, consider" +
+			Set<EventsFileFormat> formats = c.controler().getEventsFileFormats();
+			if (!formats.contains(EventsFileFormat.xml) && !formats.contains(EventsFileFormat.bin)){
+				log.error("Neither xml nor bin events are enabled, but lanes and possibly signal systems" +
+						"are enalbed. Events from this features will only be written to the xml or bin format, consider" +
 						"to add xml events in the controler config module");
 			}
 		}
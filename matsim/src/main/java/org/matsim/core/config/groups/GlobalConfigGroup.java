@@ -30,6 +30,8 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 
 	public static final String GROUP_NAME = "global";
 
+	public static enum ReplanningScheduling { roundRobin, dynamic }
+
 	public GlobalConfigGroup() {
 		super(GROUP_NAME);
 	}
@@ -37,10 +39,14 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String REPLANNING_SCHEDULING = "replanningScheduling";
+	private static final String FAST_XML_PARSING = "fastXmlParsing";
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
 	private String coordinateSystem = "Atlantis";
+	private ReplanningScheduling replanningScheduling = ReplanningScheduling.roundRobin;
+	private boolean fastXmlParsing = false;
 	
 	@Override
 	public Map<String, String> getComments() {
@@ -48,6 +54,12 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(REPLANNING_SCHEDULING, "How multi-threaded replanning modules distribute plans to their threads.  "
+				+ ReplanningScheduling.roundRobin + ": plans are assigned round-robin and only handled after all plans are collected, which gives reproducible runs.  "
+				+ ReplanningScheduling.dynamic + ": threads take the next plans from a shared queue as soon as they are handed to the module, "
+				+ "which avoids waiting for a thread that got the expensive plans, but results depend on thread timing.") ;
+		map.put(FAST_XML_PARSING, "If true, the network, facilities and population are read with a non-validating streaming parser, "
+				+ "and split into chunks which are parsed with numberOfThreads threads.  Use this for large files which are known to be valid.") ;
 		return map ;
 	}
 
@@ -72,6 +84,24 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 
+	@StringGetter( REPLANNING_SCHEDULING )
+	public ReplanningScheduling getReplanningScheduling() {
+		return this.replanningScheduling;
+	}
+	@StringSetter( REPLANNING_SCHEDULING )
+	public void setReplanningScheduling(final ReplanningScheduling replanningScheduling) {
+		this.replanningScheduling = replanningScheduling;
+	}
+
+	@StringGetter( FAST_XML_PARSING )
+	public boolean isFastXmlParsing() {
+		return this.fastXmlParsing;
+	}
+	@StringSetter( FAST_XML_PARSING )
+	public void setFastXmlParsing(final boolean fastXmlParsing) {
+		this.fastXmlParsing = fastXmlParsing;
+	}
+
 	@StringGetter( COORDINATE_SYSTEM )
 	public String getCoordinateSystem() {
 		return this.coordinateSystem;
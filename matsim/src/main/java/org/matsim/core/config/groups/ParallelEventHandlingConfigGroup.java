@@ -40,6 +40,9 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 
 	private final static String SYNCHRONIZE_ON_SIMSTEPS = "synchronizeOnSimSteps"; 
 	private Boolean synchronizeOnSimSteps = true;
+
+	private final static String RING_BUFFER_SIZE = "ringBufferSize";
+	private Integer ringBufferSize = null;
 	
 	private boolean locked = false;
 
@@ -52,6 +55,9 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		Map<String, String> comments = super.getComments();
 		comments.put(NUMBER_OF_THREADS, "Number of threads for parallel events handler. 0 or null means the framework decides by itself.");
 		comments.put(ESTIMATED_NUMBER_OF_EVENTS, "Estimated number of events during mobsim run. An optional optimization hint for the framework.");
+		comments.put(RING_BUFFER_SIZE, "Only used together with numberOfThreads and synchronizeOnSimSteps. If set, events are passed to the "
+				+ "events handling threads through a preallocated ring buffer of this size (rounded up to a power of two, e.g. 65536) "
+				+ "instead of blocking queues.");
 		return comments;
 	}
 
@@ -97,6 +103,20 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 
+	@StringGetter( RING_BUFFER_SIZE )
+	public Integer getRingBufferSize() {
+		return this.ringBufferSize;
+	}
+
+	@StringSetter( RING_BUFFER_SIZE )
+	public void setRingBufferSize(Integer ringBufferSize) {
+		if ( !this.locked ) {
+			this.ringBufferSize = ringBufferSize;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
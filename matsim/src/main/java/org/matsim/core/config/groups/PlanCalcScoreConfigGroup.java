@@ -75,6 +75,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 	private static final String WRITE_EXPERIENCED_PLANS = "writeExperiencedPlans";
 
+	private static final String FINISH_SCORING_FUNCTIONS_IN_PARALLEL = "finishScoringFunctionsInParallel";
+
 	private static final String MARGINAL_UTL_OF_DISTANCE_CAR = "marginalUtlOfDistanceCar";
 
 	private static final String MARGINAL_UTL_OF_DISTANCE_PT = "marginalUtlOfDistancePt";
@@ -306,6 +308,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		map.put(UTL_OF_LINE_SWITCH, "[utils] utility of switching a line (= transfer penalty).  Normally negative") ;
 		map.put(MARGINAL_UTL_OF_MONEY, "[utils/unit_of_money] conversion of money (e.g. toll, distance cost) into utils. Normall positive (i.e. toll/cost/fare are processed as negative amounts of money)." ) ;
 		map.put(WRITE_EXPERIENCED_PLANS, "write a plans file in each iteration directory which contains what each agent actually did, and the score it received.");
+		map.put(FINISH_SCORING_FUNCTIONS_IN_PARALLEL, "if true, the scoring functions are finished at the end of the iteration with global.numberOfThreads threads. " +
+				"Only switch this on if the scoring functions of different agents do not share any state.");
 
 		return map;
 	}
@@ -964,6 +968,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 		private boolean writeExperiencedPlans = false;
 
+		private boolean finishScoringFunctionsInParallel = false;
+
 		private Double fractionOfIterationsToStartScoreMSA = null ;
 
 		@StringGetter(FRACTION_OF_ITERATIONS_TO_START_SCORE_MSA)
@@ -1088,6 +1094,17 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 			this.writeExperiencedPlans = writeExperiencedPlans;
 		}
 
+		@StringGetter( FINISH_SCORING_FUNCTIONS_IN_PARALLEL )
+		public boolean isFinishScoringFunctionsInParallel() {
+			return finishScoringFunctionsInParallel;
+		}
+
+		@StringSetter( FINISH_SCORING_FUNCTIONS_IN_PARALLEL )
+		public void setFinishScoringFunctionsInParallel(boolean finishScoringFunctionsInParallel) {
+			testForLocked() ;
+			this.finishScoringFunctionsInParallel = finishScoringFunctionsInParallel;
+		}
+
 		private static int setWaitingCnt=0 ;
 
 		@StringGetter( WAITING )
@@ -1188,6 +1205,14 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		delegate.setWriteExperiencedPlans(writeExperiencedPlans);
 	}
 
+	public boolean isFinishScoringFunctionsInParallel() {
+		return delegate.isFinishScoringFunctionsInParallel();
+	}
+
+	public void setFinishScoringFunctionsInParallel(boolean finishScoringFunctionsInParallel) {
+		delegate.setFinishScoringFunctionsInParallel(finishScoringFunctionsInParallel);
+	}
+
 	public double getMarginalUtlOfWaiting_utils_hr() {
 		return delegate.getMarginalUtlOfWaiting_utils_hr();
 	}
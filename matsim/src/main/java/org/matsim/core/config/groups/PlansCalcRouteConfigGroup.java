@@ -49,6 +49,9 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	private static final String NETWORK_MODES = "networkModes";
 	private static final String TELEPORTED_MODE_SPEEDS = "teleportedModeSpeed_";
 	private static final String TELEPORTED_MODE_FREESPEED_FACTORS = "teleportedModeFreespeedFactor_";
+	private static final String ROUTE_CACHE_TIME_BIN_SIZE = "routeCacheTimeBinSize";
+	private static final String ROUTE_CACHE_MAX_SIZE = "routeCacheMaxSize";
+	private static final String USE_TRAVEL_DISUTILITY_SNAPSHOT = "useTravelDisutilitySnapshot";
 
 	public static final String UNDEFINED = "undefined";
 	
@@ -66,6 +69,12 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	
 	private Double beelineDistanceFactor = 1.3 ;
 
+	private double routeCacheTimeBinSize = 0.0;
+
+	private int routeCacheMaxSize = 100000;
+
+	private boolean useTravelDisutilitySnapshot = false;
+
 	public static class ModeRoutingParams extends ReflectiveConfigGroup implements MatsimParameters {
 		public static final String SET_TYPE = "teleportedModeParameters";
 
@@ -309,6 +318,12 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 			setTeleportedModeSpeed(UNDEFINED, Double.parseDouble(value));
 		} else if (NETWORK_MODES.equals(key)) {
 			setNetworkModes(Arrays.asList(CollectionUtils.stringToArray(value)));
+		} else if (ROUTE_CACHE_TIME_BIN_SIZE.equals(key)) {
+			setRouteCacheTimeBinSize(Double.parseDouble(value));
+		} else if (ROUTE_CACHE_MAX_SIZE.equals(key)) {
+			setRouteCacheMaxSize(Integer.parseInt(value));
+		} else if (USE_TRAVEL_DISUTILITY_SNAPSHOT.equals(key)) {
+			setUseTravelDisutilitySnapshot(Boolean.parseBoolean(value));
 		} else if (key.startsWith(TELEPORTED_MODE_SPEEDS)) {
 			setTeleportedModeSpeed(key.substring(TELEPORTED_MODE_SPEEDS.length()), Double.parseDouble(value));
 		} else if (key.startsWith(TELEPORTED_MODE_FREESPEED_FACTORS)) {
@@ -322,6 +337,9 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	public final Map<String, String> getParams() {
 		Map<String, String> map = super.getParams();
 		map.put( NETWORK_MODES, CollectionUtils.arrayToString(this.networkModes.toArray(new String[this.networkModes.size()])));
+		map.put( ROUTE_CACHE_TIME_BIN_SIZE, Double.toString(this.routeCacheTimeBinSize) );
+		map.put( ROUTE_CACHE_MAX_SIZE, Integer.toString(this.routeCacheMaxSize) );
+		map.put( USE_TRAVEL_DISUTILITY_SNAPSHOT, Boolean.toString(this.useTravelDisutilitySnapshot) );
 
 		//		map.put( BEELINE_DISTANCE_FACTOR, Double.toString(this.getBeelineDistanceFactor()) );
 
@@ -344,6 +362,14 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		map.put(BEELINE_DISTANCE_FACTOR, "factor with which beeline distances (and therefore times) " +
 				"are multiplied in order to obtain an estimate of the network distances/times.  Default is something like 1.3") ;
 		map.put(NETWORK_MODES, "All the modes for which the router is supposed to generate network routes (like car)") ;
+		map.put(ROUTE_CACHE_TIME_BIN_SIZE, "If > 0, network routes are cached between two mobsim runs, keyed by from and to node, mode, "
+				+ "departure time bin of this size (in seconds) and class of the travel disutility.  Trips departing in the same bin "
+				+ "get the same route.  Not used for travel disutilities depending on the person (routing randomness), nor for "
+				+ "within-day replanning while the mobsim runs.  Default is 0 (no cache).") ;
+		map.put(ROUTE_CACHE_MAX_SIZE, "Maximal number of routes in the route cache.  When full, no more routes are added until the next mobsim run.") ;
+		map.put(USE_TRAVEL_DISUTILITY_SNAPSHOT, "If true, the travel times and the default time and distance based travel disutility are "
+				+ "computed once per iteration for every link and travel time bin (see travelTimeCalculator), and the routers read them "
+				+ "from these tables.  Faster routing at the cost of memory (8 bytes per link and time bin).  Default is false.") ;
 
 		return map;
 	}
@@ -356,6 +382,33 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		this.networkModes = networkModes;
 	}
 
+	public double getRouteCacheTimeBinSize() {
+		return this.routeCacheTimeBinSize;
+	}
+
+	public void setRouteCacheTimeBinSize(double routeCacheTimeBinSize) {
+		testForLocked() ;
+		this.routeCacheTimeBinSize = routeCacheTimeBinSize;
+	}
+
+	public int getRouteCacheMaxSize() {
+		return this.routeCacheMaxSize;
+	}
+
+	public void setRouteCacheMaxSize(int routeCacheMaxSize) {
+		testForLocked() ;
+		this.routeCacheMaxSize = routeCacheMaxSize;
+	}
+
+	public boolean isUseTravelDisutilitySnapshot() {
+		return this.useTravelDisutilitySnapshot;
+	}
+
+	public void setUseTravelDisutilitySnapshot(boolean useTravelDisutilitySnapshot) {
+		testForLocked() ;
+		this.useTravelDisutilitySnapshot = useTravelDisutilitySnapshot;
+	}
+
 	public Map<String, Double> getTeleportedModeSpeeds() {
 		final Map<String, Double> map = new LinkedHashMap< >();
 		for ( ModeRoutingParams pars : getModeRoutingParams().values() ) {
@@ -232,7 +232,25 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup implements Mobs
 		map.put(FAST_CAPACITY_UPDATE, "normally, the qsim accumulates fractional flows up to one flow unit.  This is impractical with "
 				+ " with smaller PCEs.  If this switch is set to true, cars can enter a link if the accumulated flow is >=0, and the accumulated flow can go "
 				+ "into negative.  Will probably become the default eventually.") ;
+		map.put(SKIP_IDLE_TIME_STEPS, "If true, the qsim jumps over time steps in which no engine has anything to do, e.g. at night "
+				+ "when no link is active and no activity ends.  Mobsim listeners are not called for skipped time steps, so this should not be "
+				+ "used together with listeners that need every time step (e.g. snapshot writers or signals).  Only has an effect if all "
+				+ "mobsim engines report their next wake up time; the WithinDayEngine does not.  Default: false.") ;
+		map.put(PARALLEL_DEPARTURES, "If true and numberOfThreads > 1, the activity ends of a time step and the departures that directly follow "
+				+ "them are processed in parallel, distributed over the threads by the link of the agent.  The events stay the same, but event handlers "
+				+ "receive the events of the activity ends of a time step only after all of them are processed.  Assumes that agents that leave in the same "
+				+ "time step do not share vehicles.  Default: false.") ;
 		map.put(USE_LANES, "Set this parameter to true if lanes should be used, false if not.");
+		{
+			StringBuilder stb = new StringBuilder() ;
+			for ( NetworkPartitioning np : NetworkPartitioning.values() ) {
+				stb.append(" ").append( np.toString() ) ;
+			}
+			map.put( NETWORK_PARTITIONING, "How nodes and links are distributed over the qsim threads.  `roundRobin' ignores locality; "
+					+ "`spaceFillingCurve' keeps neighbouring nodes together and balances the threads by expected load.  Possible values:" + stb );
+		}
+		map.put(DYNAMIC_LOAD_BALANCING_THRESHOLD, "If the wall time of the slowest qsim thread exceeds this multiple of the average wall time "
+				+ "(e.g. 1.2), nodes and links are moved from the slowest to the fastest thread during the simulation.  0 (default) switches this off.") ;
 		{	
 			StringBuilder stb = new StringBuilder() ;
 			for ( VehiclesSource src : VehiclesSource.values() ) {
@@ -496,6 +514,29 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup implements Mobs
 		this.usingThreadpool = val ;
 	}
 
+	private static final String NETWORK_PARTITIONING = "networkPartitioning" ;
+	public static enum NetworkPartitioning { roundRobin, spaceFillingCurve } ;
+	private NetworkPartitioning networkPartitioning = NetworkPartitioning.roundRobin ;
+	@StringGetter(NETWORK_PARTITIONING)
+	public NetworkPartitioning getNetworkPartitioning() {
+		return this.networkPartitioning ;
+	}
+	@StringSetter(NETWORK_PARTITIONING)
+	public void setNetworkPartitioning( NetworkPartitioning val ) {
+		this.networkPartitioning = val ;
+	}
+
+	private static final String DYNAMIC_LOAD_BALANCING_THRESHOLD = "dynamicLoadBalancingThreshold" ;
+	private double dynamicLoadBalancingThreshold = 0. ;
+	@StringGetter(DYNAMIC_LOAD_BALANCING_THRESHOLD)
+	public double getDynamicLoadBalancingThreshold() {
+		return this.dynamicLoadBalancingThreshold ;
+	}
+	@StringSetter(DYNAMIC_LOAD_BALANCING_THRESHOLD)
+	public void setDynamicLoadBalancingThreshold( double val ) {
+		this.dynamicLoadBalancingThreshold = val ;
+	}
+
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 	@StringGetter(USE_LANES)
@@ -507,4 +548,26 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup implements Mobs
 		this.useLanes = useLanes;
 	}
 
+	private static final String SKIP_IDLE_TIME_STEPS = "skippingIdleTimeSteps" ;
+	private boolean skippingIdleTimeSteps = false ;
+	@StringGetter(SKIP_IDLE_TIME_STEPS)
+	public boolean isSkippingIdleTimeSteps() {
+		return this.skippingIdleTimeSteps;
+	}
+	@StringSetter(SKIP_IDLE_TIME_STEPS)
+	public void setSkippingIdleTimeSteps(final boolean skippingIdleTimeSteps) {
+		this.skippingIdleTimeSteps = skippingIdleTimeSteps;
+	}
+
+	private static final String PARALLEL_DEPARTURES = "usingParallelDepartures" ;
+	private boolean usingParallelDepartures = false ;
+	@StringGetter(PARALLEL_DEPARTURES)
+	public boolean isUsingParallelDepartures() {
+		return this.usingParallelDepartures;
+	}
+	@StringSetter(PARALLEL_DEPARTURES)
+	public void setUsingParallelDepartures(final boolean usingParallelDepartures) {
+		this.usingParallelDepartures = usingParallelDepartures;
+	}
+
 }
@@ -34,10 +34,11 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 
 	public static final String GROUPNAME = "travelTimeCalculator";
 	
-	public static enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap} ;
+	public static enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap,TravelTimeCalculatorMatrix} ;
 	
 	private static final String TRAVEL_TIME_CALCULATOR = "travelTimeCalculator";
 	private static final String TRAVEL_TIME_BIN_SIZE = "travelTimeBinSize";
+	private static final String MAX_TIME = "maxTime";
 	private static final String TRAVEL_TIME_AGGREGATOR = "travelTimeAggregator";
 	private static final String TRAVEL_TIME_GETTER = "travelTimeGetter";
 
@@ -51,6 +52,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private String travelTimeAggregator = "optimistic";
 	private String travelTimeGetter = "average";
 	private int traveltimeBinSize = 15 * 60; // use a default of 15min time-bins for analyzing the travel times
+	private int maxTime = 30 * 3600; // default: 30 hours at most
 
 	private boolean calculateLinkTravelTimes = true;
 	private boolean calculateLinkToLinkTravelTimes = false;
@@ -67,6 +69,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 		Map<String,String> map = super.getComments();
 		map.put(TRAVEL_TIME_BIN_SIZE, "The size of the time bin (in sec) into which the link travel times are aggregated for " +
 				"the router") ;
+		map.put(MAX_TIME, "The end of the last time bin (in sec). Link travel times after this time are aggregated into the last bin.") ;
 		map.put(TRAVEL_TIME_GETTER, "How to deal with link entry times at different positions during the time bin. Currently " +
 				"supported: average, linearinterpolation");
 		map.put(TRAVEL_TIME_AGGREGATOR, "How to deal with congested time bins that have no link entry events. `optimistic' " +
@@ -134,6 +137,21 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 		return this.traveltimeBinSize;
 	}
 
+	@StringSetter( MAX_TIME )
+	public final void setMaxTime(final int maxTime) {
+		this.maxTime = maxTime;
+	}
+
+	/**
+	 * Returns the end of the last time bin; later link travel times are aggregated into the last bin.
+	 *
+	 * @return The end of the last time bin in seconds.
+	 */
+	@StringGetter( MAX_TIME )
+	public final int getMaxTime() {
+		return this.maxTime;
+	}
+
 	@StringGetter( CALCULATE_LINK_TRAVELTIMES )
 	public boolean isCalculateLinkTravelTimes() {
 		return this.calculateLinkTravelTimes;
@@ -20,6 +20,8 @@
 
 package org.matsim.core.controler.corelisteners;
 
+import java.util.Map;
+
 import org.matsim.analysis.TravelDistanceStats;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
@@ -78,10 +80,21 @@ final class PlansScoringImpl implements PlansScoring, ScoringListener, Iteration
 
 	@Override
 	public void notifyIterationStarts(final IterationStartsEvent event) {
-		this.eventsToScore = new EventsToScore( this.sc, this.scoringFunctionFactory, this.sc.getConfig().planCalcScore().getLearningRate() );
+		this.eventsToScore = new EventsToScore( this.sc, this.scoringFunctionFactory, this.sc.getConfig().planCalcScore().getLearningRate(), isRecordingExperiencedPlans(event.getIteration()) );
+		this.eventsToScore.addLegHandler(this.travelDistanceStats);
 		this.events.addHandler(this.eventsToScore);
 	}
 
+	private boolean isWritingExperiencedPlans(int iteration) {
+		final int writePlansInterval = sc.getConfig().controler().getWritePlansInterval();
+		return sc.getConfig().planCalcScore().isWriteExperiencedPlans() && writePlansInterval > 0 && iteration % writePlansInterval == 0;
+	}
+
+	private boolean isRecordingExperiencedPlans(int iteration) {
+		// the experienced plans of all agents take a lot of memory, so only record them when they are needed.
+		return isWritingExperiencedPlans(iteration) || sc.getConfig().planCalcScore().isMemorizingExperiencedPlans();
+	}
+
 	@Override
 	public void notifyScoring(final ScoringEvent event) {
 		this.eventsToScore.finish();
@@ -90,16 +103,14 @@ final class PlansScoringImpl implements PlansScoring, ScoringListener, Iteration
 	@Override
 	public void notifyIterationEnds(final IterationEndsEvent event) {
 		this.events.removeHandler(this.eventsToScore);
-		if(sc.getConfig().planCalcScore().isWriteExperiencedPlans()) {
-			final int writePlansInterval = sc.getConfig().controler().getWritePlansInterval();
-			if (writePlansInterval > 0 && event.getIteration() % writePlansInterval == 0) {
-				this.eventsToScore.writeExperiencedPlans(controlerIO.getIterationFilename(event.getIteration(), "experienced_plans"));
-			}
+		if (isWritingExperiencedPlans(event.getIteration())) {
+			this.eventsToScore.writeExperiencedPlans(controlerIO.getIterationFilename(event.getIteration(), "experienced_plans"));
 		}
-		this.travelDistanceStats.addIteration(event.getIteration(), eventsToScore.getAgentRecords());
+		this.travelDistanceStats.addIteration(event.getIteration(), this.sc.getPopulation());
 		if ( sc.getConfig().planCalcScore().isMemorizingExperiencedPlans() ) {
+			Map<Id<Person>, Plan> agentRecords = eventsToScore.getAgentRecords() ;
 			for ( Person person : this.sc.getPopulation().getPersons().values() ) {
-				Plan experiencedPlan = eventsToScore.getAgentRecords().get( person.getId() ) ;
+				Plan experiencedPlan = agentRecords.get( person.getId() ) ;
 				if ( experiencedPlan==null ) {
 					throw new RuntimeException("experienced plan is null; I don't think this should happen") ;
 				}
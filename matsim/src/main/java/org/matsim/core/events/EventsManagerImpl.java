@@ -20,6 +20,9 @@
 
 package org.matsim.core.events;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -64,6 +67,7 @@ import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityE
 import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
 import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.events.handler.SingleThreadedEventHandler;
 
 /**
  * EventHandling
@@ -73,9 +77,16 @@ import org.matsim.core.events.handler.EventHandler;
  * <li>add method public void handleEvent(MyEvent event) to it</li>
  * <li>ready to go, just implement the interface somewhere and add a
  * HandlerObject with a call to <code>Events.addHandler(HandlerObject)</code></li>
- * <li>(optional) add an appropriate line in callHandlerFast() for speeding
- * up execution!</li>
+ * <li>(optional) add an appropriate line in createHandlerCall() for speeding
+ * up execution a bit further</li>
  * </ol>
+ * 
+ * For every combination of event class and handler, a direct call site is set up once when the handlers for that
+ * event class are first needed.  For the core event types, this is a plain cast-and-call; all other event types
+ * (e.g. from contribs) are dispatched through a {@link MethodHandle} bound to the handler.  No reflection takes place
+ * while events are processed.
+ * <p></p>
+ * Handlers are called while holding a lock on them, unless they implement {@link SingleThreadedEventHandler}.
  *
  * @author dstrippgen
  * @author mrieser
@@ -101,15 +112,24 @@ public class EventsManagerImpl implements EventsManager {
 	static private class HandlerInfo {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
-		protected final Method method;
+		protected final HandlerCall call;
+		protected final boolean synchronize;
 
 		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
-			this.method = method;
+			this.call = createHandlerCall(eventClass, eventHandler, method);
+			this.synchronize = !(eventHandler instanceof SingleThreadedEventHandler);
 		}
 	}
 
+	/**
+	 * One pre-resolved call site: calls one handler for one event class.
+	 */
+	static private abstract class HandlerCall {
+		abstract void call(Event event) throws Exception;
+	}
+
 	private final List<HandlerData> handlerData = new ArrayList<HandlerData>();
 
 	private final Map<Class<?>, HandlerInfo[]> cacheHandlers = new ConcurrentHashMap<Class<?>, HandlerInfo[]>(15);
@@ -218,23 +238,26 @@ public class EventsManagerImpl implements EventsManager {
 
 	private void computeEvent(final Event event) {
 		for (HandlerInfo info : getHandlersForClass(event.getClass())) {
-			synchronized(info.eventHandler) {
-				if (callHandlerFast(info.eventClass, event, info.eventHandler)) {
-					continue;
-				}
-				try {
-					info.method.invoke(info.eventHandler, event);
-				} catch (IllegalArgumentException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (IllegalAccessException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (InvocationTargetException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
+			if (info.synchronize) {
+				synchronized(info.eventHandler) {
+					callHandler(info, event);
 				}
+			} else {
+				callHandler(info, event);
 			}
 		}
 	}
 
+	private static void callHandler(final HandlerInfo info, final Event event) {
+		try {
+			info.call.call(event);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
+		}
+	}
+
 	private HandlerInfo[] getHandlersForClass(final Class<?> eventClass) {
 		Class<?> klass = eventClass;
 		HandlerInfo[] cache = this.cacheHandlers.get(eventClass);
@@ -284,58 +307,168 @@ public class EventsManagerImpl implements EventsManager {
 		return intfs;
 	}
 
-	// this method is purely for performance reasons and need not be implemented
-	private boolean callHandlerFast(final Class<?> klass, final Event ev, final EventHandler handler) {
+	/*
+	 * Sets up the call of the handler for the given event class.  The explicit cases are purely for performance
+	 * reasons and need not be implemented; all other event classes are dispatched through a method handle.
+	 */
+	private static HandlerCall createHandlerCall(final Class<?> klass, final EventHandler handler, final Method method) {
 		if (klass == LinkLeaveEvent.class) {
-			((LinkLeaveEventHandler)handler).handleEvent((LinkLeaveEvent)ev);
-			return true;
+			final LinkLeaveEventHandler h = (LinkLeaveEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((LinkLeaveEvent) ev);
+				}
+			};
 		} else if (klass == LinkEnterEvent.class) {
-			((LinkEnterEventHandler)handler).handleEvent((LinkEnterEvent)ev);
-			return true;
+			final LinkEnterEventHandler h = (LinkEnterEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((LinkEnterEvent) ev);
+				}
+			};
 		} else if (klass == Wait2LinkEvent.class) {
-			((Wait2LinkEventHandler)handler).handleEvent((Wait2LinkEvent)ev);
-			return true;
+			final Wait2LinkEventHandler h = (Wait2LinkEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((Wait2LinkEvent) ev);
+				}
+			};
 		} else if (klass == PersonArrivalEvent.class) {
-			((PersonArrivalEventHandler)handler).handleEvent((PersonArrivalEvent)ev);
-			return true;
+			final PersonArrivalEventHandler h = (PersonArrivalEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((PersonArrivalEvent) ev);
+				}
+			};
 		} else if (klass == PersonDepartureEvent.class) {
-			((PersonDepartureEventHandler)handler).handleEvent((PersonDepartureEvent)ev);
-			return true;
+			final PersonDepartureEventHandler h = (PersonDepartureEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((PersonDepartureEvent) ev);
+				}
+			};
 		} else if (klass == ActivityEndEvent.class) {
-			((ActivityEndEventHandler)handler).handleEvent((ActivityEndEvent)ev);
-			return true;
+			final ActivityEndEventHandler h = (ActivityEndEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((ActivityEndEvent) ev);
+				}
+			};
 		} else if (klass == ActivityStartEvent.class) {
-			((ActivityStartEventHandler)handler).handleEvent((ActivityStartEvent)ev);
-			return true;
+			final ActivityStartEventHandler h = (ActivityStartEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((ActivityStartEvent) ev);
+				}
+			};
 		} else if (klass == TransitDriverStartsEvent.class) {
-			((TransitDriverStartsEventHandler) handler).handleEvent((TransitDriverStartsEvent) ev);
-			return true;
+			final TransitDriverStartsEventHandler h = (TransitDriverStartsEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((TransitDriverStartsEvent) ev);
+				}
+			};
 		} else if (klass == PersonStuckEvent.class) {
-			((PersonStuckEventHandler)handler).handleEvent((PersonStuckEvent)ev);
-			return true;
+			final PersonStuckEventHandler h = (PersonStuckEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((PersonStuckEvent) ev);
+				}
+			};
 		} else if (klass == PersonMoneyEvent.class) {
-			((PersonMoneyEventHandler)handler).handleEvent((PersonMoneyEvent)ev);
-			return true;
+			final PersonMoneyEventHandler h = (PersonMoneyEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((PersonMoneyEvent) ev);
+				}
+			};
 		} else if (klass == AgentWaitingForPtEvent.class) {
-			((AgentWaitingForPtEventHandler)handler).handleEvent((AgentWaitingForPtEvent)ev);
-			return true;
+			final AgentWaitingForPtEventHandler h = (AgentWaitingForPtEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((AgentWaitingForPtEvent) ev);
+				}
+			};
 		} else if (klass == PersonEntersVehicleEvent.class) {
-			((PersonEntersVehicleEventHandler)handler).handleEvent((PersonEntersVehicleEvent)ev);
-			return true;
+			final PersonEntersVehicleEventHandler h = (PersonEntersVehicleEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((PersonEntersVehicleEvent) ev);
+				}
+			};
 		} else if (klass == PersonLeavesVehicleEvent.class) {
-			((PersonLeavesVehicleEventHandler)handler).handleEvent((PersonLeavesVehicleEvent)ev);
-			return true;
+			final PersonLeavesVehicleEventHandler h = (PersonLeavesVehicleEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((PersonLeavesVehicleEvent) ev);
+				}
+			};
 		} else if (klass == VehicleDepartsAtFacilityEvent.class) {
-			((VehicleDepartsAtFacilityEventHandler) handler).handleEvent((VehicleDepartsAtFacilityEvent) ev);
-			return true;
+			final VehicleDepartsAtFacilityEventHandler h = (VehicleDepartsAtFacilityEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((VehicleDepartsAtFacilityEvent) ev);
+				}
+			};
 		} else if (klass == VehicleArrivesAtFacilityEvent.class) {
-			((VehicleArrivesAtFacilityEventHandler) handler).handleEvent((VehicleArrivesAtFacilityEvent) ev);
-			return true;
+			final VehicleArrivesAtFacilityEventHandler h = (VehicleArrivesAtFacilityEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent((VehicleArrivesAtFacilityEvent) ev);
+				}
+			};
 		} else if (klass == Event.class) {
-			((BasicEventHandler)handler).handleEvent(ev);
-			return true;
+			final BasicEventHandler h = (BasicEventHandler) handler;
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) {
+					h.handleEvent(ev);
+				}
+			};
+		}
+
+		/*
+		 * Exceptions of the handler are wrapped into an InvocationTargetException, as it was the case when all these
+		 * calls went through reflection.
+		 */
+		try {
+			method.setAccessible(true); // the handler interface need not be public
+			final MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(handler)
+					.asType(MethodType.methodType(void.class, Event.class));
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) throws InvocationTargetException {
+					try {
+						handle.invokeExact(ev);
+					} catch (Throwable e) {
+						throw new InvocationTargetException(e);
+					}
+				}
+			};
+		} catch (IllegalAccessException | SecurityException e) {
+			log.warn("cannot create a direct call to " + method + "; using reflection instead.");
+			return new HandlerCall() {
+				@Override
+				void call(final Event ev) throws Exception {
+					method.invoke(handler, ev);
+				}
+			};
 		}
-		return false;
 	}
 
 	public void printEventHandlers() {
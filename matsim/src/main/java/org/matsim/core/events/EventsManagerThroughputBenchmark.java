@@ -0,0 +1,164 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsManagerThroughputBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.BasicEventHandler;
+
+/**
+ * Replays a recorded events file through the sim-step synchronized events managers with 1 to N handler threads
+ * and reports the throughput, as a way to compare the queue based and the ring buffer based implementation.
+ * The events are read into memory first, so that only the events handling is measured.  Time steps end whenever
+ * the time of the events changes, as it is the case in the mobsim.
+ * <p></p>
+ * Usage: <code>EventsManagerThroughputBenchmark eventsFile [maxNumberOfThreads [numberOfHandlers [repetitions]]]</code>
+ */
+public final class EventsManagerThroughputBenchmark {
+
+	private static final Logger log = Logger.getLogger(EventsManagerThroughputBenchmark.class);
+
+	private EventsManagerThroughputBenchmark() {
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.out.println("Usage: EventsManagerThroughputBenchmark eventsFile [maxNumberOfThreads [numberOfHandlers [repetitions]]]");
+			return;
+		}
+		String eventsFile = args[0];
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int nofHandlers = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+		int repetitions = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+		final List<Event> events = new ArrayList<>();
+		EventsManager collector = new EventsManagerImpl();
+		collector.addHandler(new BasicEventHandler() {
+			@Override
+			public void reset(int iteration) {
+			}
+			@Override
+			public void handleEvent(Event event) {
+				events.add(event);
+			}
+		});
+		new MatsimEventsReader(collector).readFile(eventsFile);
+		log.info("read " + events.size() + " events.");
+
+		for (int threads = 1; threads <= maxThreads; threads++) {
+			for (int rep = 0; rep < repetitions; rep++) {
+				run("queues", new SimStepParallelEventsManagerImpl(threads), threads, nofHandlers, events);
+				run("ring buffer", new SimStepRingBufferEventsManagerImpl(threads), threads, nofHandlers, events);
+			}
+		}
+	}
+
+	private static void run(String name, EventsManager manager, int threads, int nofHandlers, List<Event> events) {
+		for (int i = 0; i < nofHandlers; i++) {
+			manager.addHandler(i % 2 == 0 ? new LinkVolumesHandler() : new TripsHandler());
+		}
+		manager.resetHandlers(0);
+		long start = System.nanoTime();
+		manager.initProcessing();
+		double time = events.isEmpty() ? 0.0 : events.get(0).getTime();
+		for (Event event : events) {
+			if (event.getTime() != time) {
+				manager.afterSimStep(time);
+				time = event.getTime();
+			}
+			manager.processEvent(event);
+		}
+		manager.afterSimStep(time);
+		manager.finishProcessing();
+		long nanos = System.nanoTime() - start;
+		log.info(name + " with " + threads + " threads: " + (nanos / 1000000) + " ms, "
+				+ (long) (events.size() / (nanos / 1e9)) + " events/s.");
+	}
+
+	/*
+	 * Typical analysis handler: counts link volumes per hour.
+	 */
+	private static class LinkVolumesHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		private final Map<Id<Link>, int[]> volumes = new HashMap<>();
+		@Override
+		public void reset(int iteration) {
+			this.volumes.clear();
+		}
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			int[] vols = this.volumes.get(event.getLinkId());
+			if (vols == null) {
+				vols = new int[36];
+				this.volumes.put(event.getLinkId(), vols);
+			}
+			vols[Math.min((int) (event.getTime() / 3600), 35)]++;
+		}
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			if (!this.volumes.containsKey(event.getLinkId())) {
+				this.volumes.put(event.getLinkId(), new int[36]);
+			}
+		}
+	}
+
+	/*
+	 * Typical analysis handler: sums up the travel times per mode.
+	 */
+	private static class TripsHandler implements PersonDepartureEventHandler, PersonArrivalEventHandler {
+		private final Map<Id<Person>, Double> departures = new HashMap<>();
+		private final Map<String, Double> travelTimes = new HashMap<>();
+		@Override
+		public void reset(int iteration) {
+			this.departures.clear();
+			this.travelTimes.clear();
+		}
+		@Override
+		public void handleEvent(PersonDepartureEvent event) {
+			this.departures.put(event.getPersonId(), event.getTime());
+		}
+		@Override
+		public void handleEvent(PersonArrivalEvent event) {
+			Double departure = this.departures.remove(event.getPersonId());
+			if (departure != null) {
+				Double sum = this.travelTimes.get(event.getLegMode());
+				this.travelTimes.put(event.getLegMode(), (sum == null ? 0.0 : sum) + event.getTime() - departure);
+			}
+		}
+	}
+
+}
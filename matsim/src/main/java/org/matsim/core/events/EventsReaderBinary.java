@@ -0,0 +1,283 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimSomeReader;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.Attributes;
+
+/**
+ * Reads events files written by {@link EventWriterBinary}. The file is memory-mapped and decoded block by block;
+ * the events themselves are created the same way as by {@link EventsReaderXMLv1}, so custom event mappers
+ * registered with {@link #addCustomEventMapper(String, EventsReaderXMLv1.CustomEventMapper)} behave identically.
+ *
+ * @see EventWriterBinary for a description of the file format
+ */
+public class EventsReaderBinary implements MatsimSomeReader {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final long MAX_MAPPED_WINDOW = Integer.MAX_VALUE;
+
+	private final EventsReaderXMLv1 delegate;
+
+	private final List<String> strings = new ArrayList<>();
+	private final List<Schema> schemas = new ArrayList<>();
+	private Inflater inflater = null;
+	private byte[] compressed = new byte[0];
+	private byte[] raw = new byte[0];
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.delegate = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(final String eventType, final EventsReaderXMLv1.CustomEventMapper cem) {
+		this.delegate.addCustomEventMapper(eventType, cem);
+	}
+
+	public void readFile(final String filename) {
+		this.strings.clear();
+		this.schemas.clear();
+		this.inflater = new Inflater();
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			long windowStart = 0;
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_MAPPED_WINDOW));
+			if (window.remaining() < 8 || window.getInt() != EventWriterBinary.MAGIC) {
+				throw new UncheckedIOException("File " + filename + " is not a binary events file.");
+			}
+			int version = window.getInt();
+			if (version != EventWriterBinary.VERSION) {
+				throw new UncheckedIOException("Unsupported version " + version + " of binary events file " + filename);
+			}
+			while (true) {
+				if (window.remaining() < 8) {
+					// a block header may straddle the end of the current window
+					windowStart += window.position();
+					window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - windowStart, MAX_MAPPED_WINDOW));
+				}
+				if (window.remaining() < 4) {
+					throw new UncheckedIOException("Binary events file " + filename + " is truncated.");
+				}
+				int rawLength = window.getInt();
+				if (rawLength == EventWriterBinary.END_OF_BLOCKS) {
+					break;
+				}
+				int compressedLength = window.getInt();
+				if (window.remaining() < compressedLength) {
+					windowStart += window.position();
+					window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - windowStart, MAX_MAPPED_WINDOW));
+					if (window.remaining() < compressedLength) {
+						throw new UncheckedIOException("Binary events file " + filename + " is truncated.");
+					}
+				}
+				if (this.compressed.length < compressedLength) {
+					this.compressed = new byte[compressedLength];
+				}
+				window.get(this.compressed, 0, compressedLength);
+				inflate(compressedLength, rawLength);
+				readBlock(ByteBuffer.wrap(this.raw, 0, rawLength));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (DataFormatException e) {
+			throw new UncheckedIOException("Corrupt block in binary events file " + filename, e);
+		} finally {
+			this.inflater.end();
+			this.inflater = null;
+		}
+	}
+
+	private void inflate(final int compressedLength, final int rawLength) throws DataFormatException {
+		if (this.raw.length < rawLength) {
+			this.raw = new byte[rawLength];
+		}
+		this.inflater.reset();
+		this.inflater.setInput(this.compressed, 0, compressedLength);
+		int length = 0;
+		while (length < rawLength && !this.inflater.finished()) {
+			length += this.inflater.inflate(this.raw, length, rawLength - length);
+		}
+		if (length != rawLength) {
+			throw new DataFormatException("expected " + rawLength + " bytes, got " + length);
+		}
+	}
+
+	private void readBlock(final ByteBuffer buffer) {
+		int nNewStrings = buffer.getInt();
+		for (int i = 0; i < nNewStrings; i++) {
+			int length = buffer.getInt();
+			this.strings.add(new String(buffer.array(), buffer.position(), length, UTF8));
+			buffer.position(buffer.position() + length);
+		}
+
+		int nNewSchemas = buffer.getInt();
+		for (int i = 0; i < nNewSchemas; i++) {
+			String type = this.strings.get(buffer.getInt());
+			String[] keys = new String[buffer.getInt()];
+			for (int k = 0; k < keys.length; k++) {
+				keys[k] = this.strings.get(buffer.getInt());
+			}
+			this.schemas.add(new Schema(type, keys));
+		}
+
+		int nEvents = buffer.getInt();
+		int[] eventSchemas = new int[nEvents];
+		buffer.asIntBuffer().get(eventSchemas);
+		buffer.position(buffer.position() + 4 * nEvents);
+		double[] eventTimes = new double[nEvents];
+		buffer.asDoubleBuffer().get(eventTimes);
+		buffer.position(buffer.position() + 8 * nEvents);
+
+		int nSchemasInBlock = buffer.getInt();
+		for (int i = 0; i < nSchemasInBlock; i++) {
+			Schema schema = this.schemas.get(buffer.getInt());
+			schema.count = buffer.getInt();
+			schema.row = -1;
+			int nValues = schema.count * schema.keys.length;
+			if (schema.values.length < nValues) {
+				schema.values = new int[nValues];
+				schema.numbers = new double[nValues];
+			}
+			for (int k = 0; k < schema.keys.length; k++) {
+				schema.numeric[k] = buffer.get() != 0;
+				if (schema.numeric[k]) {
+					buffer.asDoubleBuffer().get(schema.numbers, k * schema.count, schema.count);
+					buffer.position(buffer.position() + 8 * schema.count);
+				} else {
+					buffer.asIntBuffer().get(schema.values, k * schema.count, schema.count);
+					buffer.position(buffer.position() + 4 * schema.count);
+				}
+			}
+		}
+
+		for (int i = 0; i < nEvents; i++) {
+			Schema schema = this.schemas.get(eventSchemas[i]);
+			schema.row++;
+			this.delegate.processEvent(eventTimes[i], schema.type, schema);
+		}
+	}
+
+	/**
+	 * The columns of one schema within the current block; as {@link Attributes}, it represents the current row.
+	 */
+	private final class Schema implements Attributes {
+		final String type;
+		final String[] keys;
+		final boolean[] numeric;
+		int[] values = new int[0];
+		double[] numbers = new double[0];
+		int count = 0;
+		int row = -1;
+
+		Schema(final String type, final String[] keys) {
+			this.type = type;
+			this.keys = keys;
+			this.numeric = new boolean[keys.length];
+		}
+
+		@Override
+		public int getLength() {
+			return this.keys.length;
+		}
+
+		@Override
+		public String getURI(final int index) {
+			return "";
+		}
+
+		@Override
+		public String getLocalName(final int index) {
+			return index >= 0 && index < this.keys.length ? this.keys[index] : null;
+		}
+
+		@Override
+		public String getQName(final int index) {
+			return getLocalName(index);
+		}
+
+		@Override
+		public String getType(final int index) {
+			return index >= 0 && index < this.keys.length ? "CDATA" : null;
+		}
+
+		@Override
+		public String getValue(final int index) {
+			if (index < 0 || index >= this.keys.length) {
+				return null;
+			}
+			if (this.numeric[index]) {
+				return Double.toString(this.numbers[index * this.count + this.row]);
+			}
+			int string = this.values[index * this.count + this.row];
+			return string < 0 ? null : EventsReaderBinary.this.strings.get(string);
+		}
+
+		@Override
+		public int getIndex(final String uri, final String localName) {
+			return getIndex(localName);
+		}
+
+		@Override
+		public int getIndex(final String qName) {
+			for (int k = 0; k < this.keys.length; k++) {
+				if (this.keys[k].equals(qName)) {
+					return k;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public String getType(final String uri, final String localName) {
+			return getType(getIndex(localName));
+		}
+
+		@Override
+		public String getType(final String qName) {
+			return getType(getIndex(qName));
+		}
+
+		@Override
+		public String getValue(final String uri, final String localName) {
+			return getValue(getIndex(localName));
+		}
+
+		@Override
+		public String getValue(final String qName) {
+			return getValue(getIndex(qName));
+		}
+	}
+
+}
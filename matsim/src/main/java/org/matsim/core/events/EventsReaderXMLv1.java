@@ -83,7 +83,15 @@ public class EventsReaderXMLv1 extends MatsimXmlParser {
 	private void startEvent(final Attributes atts) {
 		double time = Double.parseDouble(atts.getValue("time"));
 		String eventType = atts.getValue("type");
+		processEvent(time, eventType, atts);
+	}
 
+	/**
+	 * Creates the event of the given type from its attributes and passes it on to the events manager.
+	 * Also used by {@link EventsReaderBinary}, which is why <code>time</code> and <code>type</code>
+	 * are passed separately; attributes with these names are ignored.
+	 */
+	/*package*/ void processEvent(final double time, final String eventType, final Attributes atts) {
 		if (LinkLeaveEvent.EVENT_TYPE.equals(eventType)) {
 			this.events.processEvent(new LinkLeaveEvent(time, Id.create(atts.getValue(LinkLeaveEvent.ATTRIBUTE_PERSON), Person.class), Id.create(atts.getValue(LinkLeaveEvent.ATTRIBUTE_LINK), Link.class), atts.getValue(LinkLeaveEvent.ATTRIBUTE_VEHICLE) == null ? null : Id.create(atts.getValue(LinkLeaveEvent.ATTRIBUTE_VEHICLE), Vehicle.class)));
 		} else if (LinkEnterEvent.EVENT_TYPE.equals(eventType)) {
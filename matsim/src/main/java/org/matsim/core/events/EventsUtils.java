@@ -13,8 +13,12 @@ public class EventsUtils {
         Integer numberOfThreads = config.parallelEventHandling().getNumberOfThreads();
         Long estimatedNumberOfEvents = config.parallelEventHandling().getEstimatedNumberOfEvents();
         Boolean synchronizeOnSimSteps = config.parallelEventHandling().getSynchronizeOnSimSteps();
+        Integer ringBufferSize = config.parallelEventHandling().getRingBufferSize();
         if (numberOfThreads != null) {
             if (synchronizeOnSimSteps != null && synchronizeOnSimSteps) {
+                if (ringBufferSize != null) {
+                    return new SimStepRingBufferEventsManagerImpl(numberOfThreads, ringBufferSize);
+                }
                 return new SimStepParallelEventsManagerImpl(numberOfThreads);
             } else {
                 if (estimatedNumberOfEvents != null) {
@@ -28,13 +32,15 @@ public class EventsUtils {
     }
 
     /**
-     * The SimStepParallelEventsManagerImpl can handle events from multiple threads.
+     * The SimStepParallelEventsManagerImpl and the SimStepRingBufferEventsManagerImpl can handle events from multiple threads.
      * The (Parallel)EventsMangerImpl cannot, therefore it has to be wrapped into a
      * SynchronizedEventsManagerImpl.
      */
     public static EventsManager getParallelFeedableInstance(EventsManager events) {
         if (events instanceof SimStepParallelEventsManagerImpl) {
             return events;
+        } else if (events instanceof SimStepRingBufferEventsManagerImpl) {
+            return events;
         } else if (events instanceof SynchronizedEventsManagerImpl) {
             return events;
         } else {
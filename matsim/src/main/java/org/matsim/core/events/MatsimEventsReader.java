@@ -62,6 +62,8 @@ public class MatsimEventsReader implements MatsimSomeReader {
 			new EventsReaderTXTv1(this.events).readFile(filename);
 		} else if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
 			new XmlEventsReader(this.events).readFile(filename);
+		} else if (lcFilename.endsWith(".bin")) {
+			new EventsReaderBinary(this.events).readFile(filename);
 		} else {
 			throw new IllegalArgumentException("Cannot recognize the format of the events-file " + filename);
 		}
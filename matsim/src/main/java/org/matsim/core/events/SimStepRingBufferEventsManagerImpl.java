@@ -0,0 +1,381 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SimStepRingBufferEventsManagerImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+/**
+ * Same contract as {@link SimStepParallelEventsManagerImpl}: the event handlers are distributed over several threads,
+ * and when a time step of the mobsim ends, all events of that time step have been processed before the mobsim goes on.
+ * <p></p>
+ * Instead of a chain of blocking queues, all events are written into one preallocated ring buffer.  Every thread
+ * (i.e. every group of handlers) reads the buffer at its own cursor, so events are neither copied from thread to
+ * thread nor wrapped into queue nodes.  Producers (the mobsim threads, but also event handlers creating events
+ * themselves) only wait if the buffer is full.  At the end of a time step, the mobsim only waits if one of the
+ * threads has not yet caught up; there are no barriers.
+ */
+final class SimStepRingBufferEventsManagerImpl implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(SimStepRingBufferEventsManagerImpl.class);
+
+	/*package*/ static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = 200;
+	private static final long PARK_NANOS = 50000;
+	private static final long NOT_WAITING = Long.MIN_VALUE;
+
+	private final int numOfThreads;
+	private final int mask;
+	private final Event[] entries;
+	/** the sequence that was last written into each slot; a slot may only be read once it holds the expected sequence */
+	private final AtomicLongArray published;
+	/** the sequence that was last claimed by a producer */
+	private final AtomicLong claimed = new AtomicLong(-1);
+	/** a recent minimum of the consumers' cursors; producers only look at all consumers if they wrap past it */
+	private volatile long gatingSequenceCache = -1;
+
+	private final EventsManagerImpl delegate;
+	private final EventsManagerImpl[] eventsManagers;
+	private Consumer[] consumers;
+	private int handlerCount = 0;
+
+	private volatile boolean parallelMode = false;
+	private final AtomicLong counter = new AtomicLong(0);
+	private final AtomicBoolean hadException = new AtomicBoolean(false);
+
+	public SimStepRingBufferEventsManagerImpl(int numOfThreads) {
+		this(numOfThreads, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize the number of events the ring buffer can hold; rounded up to the next power of two
+	 */
+	public SimStepRingBufferEventsManagerImpl(int numOfThreads, int bufferSize) {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("Number of threads must be strictly positive, got " + numOfThreads);
+		}
+		this.numOfThreads = numOfThreads;
+		int size = Integer.highestOneBit(Math.max(bufferSize, 2) - 1) << 1;
+		this.mask = size - 1;
+		this.entries = new Event[size];
+		this.published = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			this.published.set(i, -1);
+		}
+
+		this.delegate = new EventsManagerImpl();
+		this.eventsManagers = new EventsManagerImpl[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		this.counter.incrementAndGet();
+
+		if (this.parallelMode) {
+			publish(event);
+		} else this.delegate.processEvent(event);
+	}
+
+	private void publish(final Event event) {
+		long sequence = this.claimed.incrementAndGet();
+		long wrapPoint = sequence - this.entries.length;
+		if (wrapPoint > this.gatingSequenceCache) {
+			waitForCapacity(wrapPoint);
+		}
+		int index = (int) sequence & this.mask;
+		this.entries[index] = event;
+		this.published.lazySet(index, sequence);
+	}
+
+	/*
+	 * Waits until all consumers have read the given sequence, so that its slot can be overwritten.
+	 */
+	private void waitForCapacity(final long sequence) {
+		Consumer self = null;
+		for (Consumer consumer : this.consumers) {
+			if (consumer.thread == Thread.currentThread()) self = consumer;
+		}
+		if (self != null) {
+			if (self.current < sequence) {
+				// an event handler creates events while its own thread is the one that is behind; waiting would never end.
+				throw new RuntimeException("The events ring buffer is too small for the events created by event handlers. "
+						+ "Use a larger buffer.");
+			}
+			/*
+			 * The event this consumer currently processes has already been taken from the buffer, so its slot is free.
+			 * Other consumers blocked in this method may be waiting for exactly that slot.
+			 */
+			self.cursor.set(self.current);
+			self.waitingFor = sequence;
+		}
+		try {
+			int tries = 0;
+			while (true) {
+				long minimum = getMinimumCursor();
+				if (minimum >= sequence) {
+					this.gatingSequenceCache = minimum;
+					return;
+				}
+				if (this.hadException.get()) {
+					throw new RuntimeException("Exception while processing events. Cannot add further events.");
+				}
+				if (self != null && isDeadlocked()) {
+					// all consumers wait for each other's slots.
+					throw new RuntimeException("The events ring buffer is too small for the events created by event handlers. "
+							+ "Use a larger buffer.");
+				}
+				idle(tries++);
+			}
+		} finally {
+			if (self != null) self.waitingFor = NOT_WAITING;
+		}
+	}
+
+	/*
+	 * True if every consumer is blocked in waitForCapacity and none of them can go on.  While a consumer is blocked,
+	 * its cursor does not move, so in that case nothing will ever move again.
+	 */
+	private boolean isDeadlocked() {
+		long[] waitingFor = new long[this.consumers.length];
+		long minimumWaitingFor = Long.MAX_VALUE;
+		for (int i = 0; i < this.consumers.length; i++) {
+			waitingFor[i] = this.consumers[i].waitingFor;
+			if (waitingFor[i] == NOT_WAITING) return false;
+			minimumWaitingFor = Math.min(minimumWaitingFor, waitingFor[i]);
+		}
+		long minimum = getMinimumCursor();
+		// a consumer that stopped waiting in the meantime may already have moved its cursor:
+		for (int i = 0; i < this.consumers.length; i++) {
+			if (this.consumers[i].waitingFor != waitingFor[i]) return false;
+		}
+		return minimum < minimumWaitingFor;
+	}
+
+	private long getMinimumCursor() {
+		long min = Long.MAX_VALUE;
+		for (Consumer consumer : this.consumers) {
+			min = Math.min(min, consumer.cursor.get());
+		}
+		return min;
+	}
+
+	/*
+	 * Waits until all threads have processed all events claimed so far, including the events that event handlers
+	 * create while this method waits.
+	 */
+	private void waitUntilProcessed() {
+		int tries = 0;
+		while (!this.hadException.get()) {
+			long target = this.claimed.get();
+			if (getMinimumCursor() >= target) {
+				if (this.claimed.get() == target) {
+					return;
+				}
+				continue;
+			}
+			if (tries == 0) {
+				for (Consumer consumer : this.consumers) LockSupport.unpark(consumer.thread);
+			}
+			idle(tries++);
+		}
+	}
+
+	private static void idle(final int tries) {
+		if (tries < SPIN_TRIES) {
+			return;
+		} else if (tries < YIELD_TRIES) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		this.delegate.addHandler(handler);
+
+		this.eventsManagers[this.handlerCount % this.numOfThreads].addHandler(handler);
+		this.handlerCount++;
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		this.delegate.removeHandler(handler);
+
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+		this.counter.set(0);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
+
+		this.hadException.set(false);
+		long start = this.claimed.get();
+		this.gatingSequenceCache = start;
+		this.consumers = new Consumer[this.numOfThreads];
+		for (int i = 0; i < this.numOfThreads; i++) {
+			this.consumers[i] = new Consumer(this.eventsManagers[i], start);
+		}
+		for (int i = 0; i < this.numOfThreads; i++) {
+			Thread thread = new Thread(this.consumers[i]);
+			thread.setDaemon(true);
+			thread.setName(Consumer.class.toString() + i);
+			this.consumers[i].thread = thread;
+			thread.start();
+		}
+
+		/*
+		 * During the simulation Events are processed in
+		 * the Consumer threads.
+		 */
+		this.parallelMode = true;
+	}
+
+	@Override
+	public synchronized void finishProcessing() {
+		waitUntilProcessed();
+
+		/*
+		 * Events created after this point are processed in the calling thread.
+		 */
+		this.parallelMode = false;
+		for (Consumer consumer : this.consumers) {
+			consumer.running = false;
+			LockSupport.unpark(consumer.thread);
+		}
+		for (Consumer consumer : this.consumers) {
+			try {
+				consumer.thread.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		this.delegate.finishProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
+
+		if (this.hadException.get()) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.");
+		}
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		/*
+		 * If an exception occurred, at least one of the events processing threads
+		 * has crashed and will never catch up.
+		 */
+		if (this.hadException.get()) {
+			return;
+		}
+		waitUntilProcessed();
+	}
+
+	private class Consumer implements Runnable {
+
+		private static final int MAX_BATCH_SIZE = 1024;
+
+		private final EventsManager eventsManager;
+		/**
+		 * the sequence that was last processed by this consumer; while it waits for capacity, the sequence it currently
+		 * processes
+		 */
+		private final AtomicLong cursor;
+		/** the sequence that is currently processed; only used by this consumer's thread */
+		private long current;
+		/** the sequence this consumer waits for while one of its handlers is blocked in waitForCapacity */
+		private volatile long waitingFor = NOT_WAITING;
+		private volatile boolean running = true;
+		private Thread thread;
+		private double lastEventTime = Double.NEGATIVE_INFINITY;
+
+		Consumer(final EventsManager eventsManager, final long start) {
+			this.eventsManager = eventsManager;
+			this.cursor = new AtomicLong(start);
+			this.current = start;
+		}
+
+		@Override
+		public void run() {
+			try {
+				long next = this.cursor.get() + 1;
+				int tries = 0;
+				while (true) {
+					int batch = 0;
+					while (batch < MAX_BATCH_SIZE && published.get((int) next & mask) == next) {
+						this.current = next;
+						process(entries[(int) next & mask]);
+						next++;
+						batch++;
+					}
+					if (batch > 0) {
+						this.cursor.lazySet(next - 1);
+						tries = 0;
+					} else if (!this.running) {
+						break;
+					} else {
+						idle(tries++);
+					}
+				}
+			} catch (Throwable e) {
+				hadException.set(true);
+				log.error("Thread " + Thread.currentThread().getName() + " died with exception while handling events.", e);
+				// do not block anyone waiting for this consumer:
+				this.cursor.set(Long.MAX_VALUE);
+				return;
+			}
+			Gbl.printCurrentThreadCpuTime();
+		}
+
+		private void process(final Event event) {
+			/*
+			 * Check whether the events are ordered chronologically.
+			 */
+			if (event.getTime() < this.lastEventTime) {
+				throw new RuntimeException("Events in the ring buffer are not ordered chronologically. " +
+						"This should never happen. Is the events manager registered " +
+						"as a MobsimAfterSimStepListener?");
+			}
+			this.lastEventTime = event.getTime();
+			this.eventsManager.processEvent(event);
+		}
+
+	}
+
+}
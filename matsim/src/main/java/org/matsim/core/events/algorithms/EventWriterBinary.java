@@ -0,0 +1,370 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in a compact binary format that can be read back with
+ * {@link org.matsim.core.events.EventsReaderBinary} (or {@link org.matsim.core.events.MatsimEventsReader}
+ * if the file name ends with <code>.bin</code>).
+ * <p></p>
+ * Events are collected into blocks. Within a block, events are grouped by their <em>schema</em>, i.e. the
+ * event type together with the ordered list of attribute names, and the attribute values of each schema are
+ * stored column by column. Event types, attribute names and the values of id, mode or activity type like attributes
+ * are replaced by indices into a dictionary that is shared by the whole file, so every link, person or vehicle id is
+ * only written once. Attributes whose values are numbers (e.g. amounts or distances) are written as doubles instead,
+ * so they do not fill the dictionary with values that hardly ever repeat. A column is numeric as long as all its
+ * values are exactly what {@link Double#toString(double)} writes, so the reader can restore the same strings; once
+ * another value shows up, the column is a dictionary column for the rest of the file. Each block is compressed on
+ * its own, so the file can be streamed while the simulation runs.
+ * <p></p>
+ * File layout (all numbers big-endian, as written by {@link DataOutputStream}):
+ * <pre>
+ * file   := MAGIC VERSION block* END_OF_BLOCKS
+ * block  := rawLength compressedLength deflate(raw)
+ * raw    := nNewStrings (byteLength utf8Bytes)*
+ *           nNewSchemas (typeString nKeys keyString*)*
+ *           nEvents schemaId[nEvents] time[nEvents]
+ *           nSchemasInBlock (schemaId count column[nKeys])*
+ * column := 0 valueString[count] | 1 valueDouble[count]
+ * </pre>
+ * A value string of <code>-1</code> denotes a <code>null</code> attribute value. The attributes "time" and "type"
+ * are not part of a schema's keys; they are stored in the time column and the schema itself.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final int MAGIC = 0x4d534556; // "MSEV"
+	public static final int VERSION = 2;
+	public static final int END_OF_BLOCKS = -1;
+
+	/*package*/ static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final int blockSize;
+	private DataOutputStream out = null;
+
+	private final Map<String, Integer> strings = new HashMap<>();
+	private final List<String> newStrings = new ArrayList<>();
+	private final Map<String, List<Schema>> schemasByType = new HashMap<>();
+	private final List<Schema> schemas = new ArrayList<>();
+	private int firstNewSchema = 0;
+
+	private int nEvents = 0;
+	private int[] eventSchemas;
+	private double[] eventTimes;
+
+	private final ByteArrayOutputStream rawBytes = new ByteArrayOutputStream();
+	private final DataOutputStream raw = new DataOutputStream(this.rawBytes);
+	private Deflater deflater = null;
+	private byte[] compressed = new byte[1024];
+
+	public EventWriterBinary(final String filename) {
+		this(filename, DEFAULT_BLOCK_SIZE);
+	}
+
+	/*package*/ EventWriterBinary(final String filename, final int blockSize) {
+		this.blockSize = blockSize;
+		this.eventSchemas = new int[blockSize];
+		this.eventTimes = new double[blockSize];
+		init(filename);
+	}
+
+	public void init(final String filename) {
+		closeFile();
+		try {
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16));
+			this.out.writeInt(MAGIC);
+			this.out.writeInt(VERSION);
+			this.deflater = new Deflater(Deflater.BEST_SPEED);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.strings.clear();
+		this.newStrings.clear();
+		this.schemasByType.clear();
+		this.schemas.clear();
+		this.firstNewSchema = 0;
+		this.nEvents = 0;
+	}
+
+	@Override
+	public void closeFile() {
+		if (this.out != null) {
+			try {
+				writeBlock();
+				this.out.writeInt(END_OF_BLOCKS);
+				this.out.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} finally {
+				this.out = null;
+				this.deflater.end();
+				this.deflater = null;
+			}
+		}
+	}
+
+	@Override
+	public void reset(final int iteration) {
+		closeFile();
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		Map<String, String> attributes = event.getAttributes();
+		Schema schema = getSchema(event.getEventType(), attributes);
+		int nKeys = schema.keys.length;
+		int pos = schema.count * nKeys;
+		if (pos + nKeys > schema.values.length) {
+			int length = Math.max(2 * schema.values.length, pos + nKeys);
+			schema.values = Arrays.copyOf(schema.values, length);
+			schema.numbers = Arrays.copyOf(schema.numbers, length);
+		}
+		int k = 0;
+		for (Map.Entry<String, String> e : attributes.entrySet()) {
+			if (!isImplicit(e.getKey())) {
+				String value = e.getValue();
+				double number = schema.numeric[k] ? parseNumber(value) : Double.NaN;
+				if (!Double.isNaN(number)) {
+					schema.numbers[pos] = number;
+				} else {
+					if (schema.numeric[k]) {
+						toDictionaryColumn(schema, k);
+					}
+					schema.values[pos] = getString(value);
+				}
+				pos++;
+				k++;
+			}
+		}
+		schema.count++;
+		this.eventSchemas[this.nEvents] = schema.id;
+		this.eventTimes[this.nEvents] = event.getTime();
+		this.nEvents++;
+		if (this.nEvents == this.blockSize) {
+			try {
+				writeBlock();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private static boolean isImplicit(final String key) {
+		return Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key);
+	}
+
+	/**
+	 * @return the value as a number if it is written exactly as {@link Double#toString(double)} would write it, so
+	 * that the reader can restore the string; <code>NaN</code> otherwise, e.g. for ids, modes and activity types.
+	 */
+	private static double parseNumber(final String value) {
+		if (value == null || value.isEmpty() || value.indexOf('.') < 0) {
+			return Double.NaN;
+		}
+		char c = value.charAt(0);
+		if (c != '-' && (c < '0' || c > '9')) {
+			return Double.NaN;
+		}
+		double number;
+		try {
+			number = Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+		return Double.toString(number).equals(value) ? number : Double.NaN;
+	}
+
+	private void toDictionaryColumn(final Schema schema, final int k) {
+		int nKeys = schema.keys.length;
+		for (int row = 0; row < schema.count; row++) {
+			int pos = row * nKeys + k;
+			schema.values[pos] = getString(Double.toString(schema.numbers[pos]));
+		}
+		schema.numeric[k] = false;
+	}
+
+	private int getString(final String s) {
+		if (s == null) {
+			return -1;
+		}
+		Integer index = this.strings.get(s);
+		if (index == null) {
+			index = this.strings.size();
+			this.strings.put(s, index);
+			this.newStrings.add(s);
+		}
+		return index;
+	}
+
+	private Schema getSchema(final String type, final Map<String, String> attributes) {
+		List<Schema> candidates = this.schemasByType.get(type);
+		if (candidates == null) {
+			candidates = new ArrayList<>(1);
+			this.schemasByType.put(type, candidates);
+		}
+		for (Schema schema : candidates) {
+			if (schema.matches(attributes)) {
+				return schema;
+			}
+		}
+		List<String> keys = new ArrayList<>(attributes.size());
+		for (String key : attributes.keySet()) {
+			if (!isImplicit(key)) {
+				keys.add(key);
+			}
+		}
+		Schema schema = new Schema(this.schemas.size(), type, keys.toArray(new String[keys.size()]));
+		getString(type);
+		for (String key : schema.keys) {
+			getString(key);
+		}
+		this.schemas.add(schema);
+		candidates.add(schema);
+		return schema;
+	}
+
+	private void writeBlock() throws IOException {
+		if (this.nEvents == 0) {
+			return;
+		}
+		this.rawBytes.reset();
+		this.raw.writeInt(this.newStrings.size());
+		for (String s : this.newStrings) {
+			byte[] bytes = s.getBytes(UTF8);
+			this.raw.writeInt(bytes.length);
+			this.raw.write(bytes);
+		}
+		this.newStrings.clear();
+
+		this.raw.writeInt(this.schemas.size() - this.firstNewSchema);
+		for (int i = this.firstNewSchema; i < this.schemas.size(); i++) {
+			Schema schema = this.schemas.get(i);
+			this.raw.writeInt(this.strings.get(schema.type));
+			this.raw.writeInt(schema.keys.length);
+			for (String key : schema.keys) {
+				this.raw.writeInt(this.strings.get(key));
+			}
+		}
+		this.firstNewSchema = this.schemas.size();
+
+		this.raw.writeInt(this.nEvents);
+		for (int i = 0; i < this.nEvents; i++) {
+			this.raw.writeInt(this.eventSchemas[i]);
+		}
+		for (int i = 0; i < this.nEvents; i++) {
+			this.raw.writeDouble(this.eventTimes[i]);
+		}
+
+		int nUsed = 0;
+		for (Schema schema : this.schemas) {
+			if (schema.count > 0) {
+				nUsed++;
+			}
+		}
+		this.raw.writeInt(nUsed);
+		for (Schema schema : this.schemas) {
+			if (schema.count > 0) {
+				this.raw.writeInt(schema.id);
+				this.raw.writeInt(schema.count);
+				int nKeys = schema.keys.length;
+				for (int k = 0; k < nKeys; k++) {
+					this.raw.writeBoolean(schema.numeric[k]);
+					for (int row = 0; row < schema.count; row++) {
+						if (schema.numeric[k]) {
+							this.raw.writeDouble(schema.numbers[row * nKeys + k]);
+						} else {
+							this.raw.writeInt(schema.values[row * nKeys + k]);
+						}
+					}
+				}
+				schema.count = 0;
+			}
+		}
+		this.nEvents = 0;
+
+		this.raw.flush();
+		byte[] rawData = this.rawBytes.toByteArray();
+		this.deflater.reset();
+		this.deflater.setInput(rawData);
+		this.deflater.finish();
+		int length = 0;
+		while (!this.deflater.finished()) {
+			if (length == this.compressed.length) {
+				this.compressed = Arrays.copyOf(this.compressed, 2 * this.compressed.length);
+			}
+			length += this.deflater.deflate(this.compressed, length, this.compressed.length - length);
+		}
+		this.out.writeInt(rawData.length);
+		this.out.writeInt(length);
+		this.out.write(this.compressed, 0, length);
+	}
+
+	private static final class Schema {
+		final int id;
+		final String type;
+		final String[] keys;
+		final boolean[] numeric;
+		int[] values = new int[16];
+		double[] numbers = new double[16];
+		int count = 0;
+
+		Schema(final int id, final String type, final String[] keys) {
+			this.id = id;
+			this.type = type;
+			this.keys = keys;
+			this.numeric = new boolean[keys.length];
+			Arrays.fill(this.numeric, true);
+		}
+
+		boolean matches(final Map<String, String> attributes) {
+			int k = 0;
+			for (String key : attributes.keySet()) {
+				if (isImplicit(key)) {
+					continue;
+				}
+				if (k == this.keys.length || !this.keys[k].equals(key)) {
+					return false;
+				}
+				k++;
+			}
+			return k == this.keys.length;
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SingleThreadedEventHandler.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.handler;
+
+/**
+ * Marker interface for event handlers which are only ever called from one thread at a time, e.g. because they are only
+ * added to an events manager that is fed by a single thread, or because they are thread-safe by themselves.
+ * {@link org.matsim.core.events.EventsManagerImpl} then calls them without locking on the handler.
+ * <p></p>
+ * Do not implement this interface if the same handler instance may receive events from several threads concurrently
+ * and relies on the events manager for synchronization.
+ */
+public interface SingleThreadedEventHandler extends EventHandler {
+
+}
@@ -42,17 +42,28 @@ import org.matsim.core.population.ActivityImpl;
  * @author rashid_waraich
  */
 public class EndLegMessage extends EventMessage {
-	private final PlansConfigGroup.ActivityDurationInterpretation activityDurationInterpretation ;
+	private PlansConfigGroup.ActivityDurationInterpretation activityDurationInterpretation ;
 	public EndLegMessage(final Scheduler scheduler, final Vehicle vehicle) {
 		// need the time interpretation info here.  Attaching it to the message feels weird.  The scheduler seems a pure simulation object.
 		// Consequence: attach it to Vehicle
 		super(scheduler, vehicle);
 		this.priority = SimulationParameters.PRIORITY_ARRIVAL_MESSAGE;
+		this.activityDurationInterpretation = getActivityDurationInterpretation(vehicle) ;
+	}
+
+	@Override
+	public void resetMessage(Scheduler scheduler, Vehicle vehicle) {
+		super.resetMessage(scheduler, vehicle);
+		// a recycled message may have belonged to a vehicle of an earlier simulation run
+		this.activityDurationInterpretation = getActivityDurationInterpretation(vehicle) ;
+	}
+
+	private static ActivityDurationInterpretation getActivityDurationInterpretation(final Vehicle vehicle) {
 		if ( vehicle == null ) {
-			this.activityDurationInterpretation = PlansConfigGroup.ActivityDurationInterpretation.minOfDurationAndEndTime ;
+			return PlansConfigGroup.ActivityDurationInterpretation.minOfDurationAndEndTime ;
 			// need this for some test cases. kai, nov'13
 		} else {
-			this.activityDurationInterpretation = vehicle.getActivityEndTimeInterpretation() ;
+			return vehicle.getActivityEndTimeInterpretation() ;
 		}
 	}
 
@@ -37,6 +37,8 @@ public abstract class EventMessage extends Message {
 	public void resetMessage(Scheduler scheduler, Vehicle vehicle) {
 		this.scheduler = scheduler;
 		this.vehicle = vehicle;
+		// recycled messages may have been killed (unscheduled) in their earlier use
+		reviveMessage();
 	}
 
 }
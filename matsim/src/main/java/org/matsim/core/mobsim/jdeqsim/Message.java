@@ -31,6 +31,8 @@ public abstract class Message implements Comparable<Message> {
 	private SimUnit receivingUnit;
 	protected int priority = 0;
 	private boolean isAlive = true;
+	// set by the MessageQueue, so that messages with the same time and priority keep their order
+	long sequenceNumber = 0;
 
 	public Message() {
 	}
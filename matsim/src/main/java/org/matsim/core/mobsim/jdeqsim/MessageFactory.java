@@ -19,61 +19,95 @@
 
 package org.matsim.core.mobsim.jdeqsim;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 
 /**
  * The message factory is used for creating and disposing messages - mainly for
  * performance gain to have lesser garbage collection.
+ * <p></p>
+ * Every {@link MessageQueue} owns one message factory (see {@link Scheduler#getMessageFactory()}), and the scheduler
+ * and the message queue return every handled or killed message to it.  The pools are not synchronized; they are only
+ * used by the thread that runs the scheduler of the queue.
  * 
  * @author rashid_waraich
  */
 public class MessageFactory {
 
-	private static LinkedList<EndLegMessage> endLegMessageQueue = new LinkedList<EndLegMessage>();
-	private static LinkedList<EnterRoadMessage> enterRoadMessageQueue = new LinkedList<EnterRoadMessage>();
-	private static LinkedList<StartingLegMessage> startingLegMessageQueue = new LinkedList<StartingLegMessage>();
-	private static LinkedList<LeaveRoadMessage> leaveRoadMessageQueue = new LinkedList<LeaveRoadMessage>();
-	private static LinkedList<EndRoadMessage> endRoadMessageQueue = new LinkedList<EndRoadMessage>();
+	private ArrayDeque<EndLegMessage> endLegMessageQueue = new ArrayDeque<EndLegMessage>();
+	private ArrayDeque<EnterRoadMessage> enterRoadMessageQueue = new ArrayDeque<EnterRoadMessage>();
+	private ArrayDeque<StartingLegMessage> startingLegMessageQueue = new ArrayDeque<StartingLegMessage>();
+	private ArrayDeque<LeaveRoadMessage> leaveRoadMessageQueue = new ArrayDeque<LeaveRoadMessage>();
+	private ArrayDeque<EndRoadMessage> endRoadMessageQueue = new ArrayDeque<EndRoadMessage>();
 
-	private static LinkedList<DeadlockPreventionMessage> deadlockPreventionMessageQueue = new LinkedList<DeadlockPreventionMessage>();
+	private ArrayDeque<DeadlockPreventionMessage> deadlockPreventionMessageQueue = new ArrayDeque<DeadlockPreventionMessage>();
 
-	public static void disposeEndLegMessage(EndLegMessage message) {
+	public void disposeEndLegMessage(EndLegMessage message) {
 		if (!SimulationParameters.isGC_MESSAGES()) {
 			endLegMessageQueue.add(message);
 		}
 	}
 
-	public static void disposeEnterRoadMessage(EnterRoadMessage message) {
+	public void disposeEnterRoadMessage(EnterRoadMessage message) {
 		if (!SimulationParameters.isGC_MESSAGES()) {
 			enterRoadMessageQueue.add(message);
 		}
 	}
 
-	public static void disposeStartingLegMessage(StartingLegMessage message) {
+	public void disposeStartingLegMessage(StartingLegMessage message) {
 		if (!SimulationParameters.isGC_MESSAGES()) {
 			startingLegMessageQueue.add(message);
 		}
 	}
 
-	public static void disposeLeaveRoadMessage(LeaveRoadMessage message) {
+	public void disposeLeaveRoadMessage(LeaveRoadMessage message) {
 		if (!SimulationParameters.isGC_MESSAGES()) {
 			leaveRoadMessageQueue.add(message);
 		}
 	}
 
-	public static void disposeEndRoadMessage(EndRoadMessage message) {
+	public void disposeEndRoadMessage(EndRoadMessage message) {
 		if (!SimulationParameters.isGC_MESSAGES()) {
 			endRoadMessageQueue.add(message);
 		}
 	}
 
-	public static void disposeDeadlockPreventionMessage(DeadlockPreventionMessage message) {
+	public void disposeDeadlockPreventionMessage(DeadlockPreventionMessage message) {
 		if (!SimulationParameters.isGC_MESSAGES()) {
 			deadlockPreventionMessageQueue.add(message);
 		}
 	}
 
-	public static EndLegMessage getEndLegMessage(Scheduler scheduler, Vehicle vehicle) {
+	/**
+	 * Returns a message, which has been removed from the message queue and is not referenced anymore, for re-use.
+	 * Messages of other classes than those created by this factory (e.g. subclasses) are left to the garbage collector.
+	 */
+	public void disposeMessage(Message message) {
+		if (SimulationParameters.isGC_MESSAGES()) {
+			return;
+		}
+		Class<?> messageClass = message.getClass();
+		if (messageClass == EndRoadMessage.class) {
+			endRoadMessageQueue.add(clear((EndRoadMessage) message));
+		} else if (messageClass == EnterRoadMessage.class) {
+			enterRoadMessageQueue.add(clear((EnterRoadMessage) message));
+		} else if (messageClass == LeaveRoadMessage.class) {
+			leaveRoadMessageQueue.add(clear((LeaveRoadMessage) message));
+		} else if (messageClass == DeadlockPreventionMessage.class) {
+			deadlockPreventionMessageQueue.add(clear((DeadlockPreventionMessage) message));
+		} else if (messageClass == EndLegMessage.class) {
+			endLegMessageQueue.add(clear((EndLegMessage) message));
+		} else if (messageClass == StartingLegMessage.class) {
+			startingLegMessageQueue.add(clear((StartingLegMessage) message));
+		}
+	}
+
+	private static <T extends EventMessage> T clear(T message) {
+		// do not keep vehicles (and thus persons) of a finished simulation alive through the pool
+		message.resetMessage(null, null);
+		return message;
+	}
+
+	public EndLegMessage getEndLegMessage(Scheduler scheduler, Vehicle vehicle) {
 		if (endLegMessageQueue.size() == 0) {
 			return new EndLegMessage(scheduler, vehicle);
 		} else {
@@ -83,7 +117,7 @@ public class MessageFactory {
 		}
 	}
 
-	public static EnterRoadMessage getEnterRoadMessage(Scheduler scheduler, Vehicle vehicle) {
+	public EnterRoadMessage getEnterRoadMessage(Scheduler scheduler, Vehicle vehicle) {
 		if (enterRoadMessageQueue.size() == 0) {
 			return new EnterRoadMessage(scheduler, vehicle);
 		} else {
@@ -93,7 +127,7 @@ public class MessageFactory {
 		}
 	}
 
-	public static StartingLegMessage getStartingLegMessage(Scheduler scheduler, Vehicle vehicle) {
+	public StartingLegMessage getStartingLegMessage(Scheduler scheduler, Vehicle vehicle) {
 		if (startingLegMessageQueue.size() == 0) {
 			return new StartingLegMessage(scheduler, vehicle);
 		} else {
@@ -103,7 +137,7 @@ public class MessageFactory {
 		}
 	}
 
-	public static LeaveRoadMessage getLeaveRoadMessage(Scheduler scheduler, Vehicle vehicle) {
+	public LeaveRoadMessage getLeaveRoadMessage(Scheduler scheduler, Vehicle vehicle) {
 		if (leaveRoadMessageQueue.size() == 0) {
 			return new LeaveRoadMessage(scheduler, vehicle);
 		} else {
@@ -113,7 +147,7 @@ public class MessageFactory {
 		}
 	}
 
-	public static EndRoadMessage getEndRoadMessage(Scheduler scheduler, Vehicle vehicle) {
+	public EndRoadMessage getEndRoadMessage(Scheduler scheduler, Vehicle vehicle) {
 		if (endRoadMessageQueue.size() == 0) {
 			return new EndRoadMessage(scheduler, vehicle);
 		} else {
@@ -123,7 +157,7 @@ public class MessageFactory {
 		}
 	}
 
-	public static DeadlockPreventionMessage getDeadlockPreventionMessage(Scheduler scheduler, Vehicle vehicle) {
+	public DeadlockPreventionMessage getDeadlockPreventionMessage(Scheduler scheduler, Vehicle vehicle) {
 		if (deadlockPreventionMessageQueue.size() == 0) {
 			return new DeadlockPreventionMessage(scheduler, vehicle);
 		} else {
@@ -133,37 +167,37 @@ public class MessageFactory {
 		}
 	}
 
-	public static void GC_ALL_MESSAGES() {
-		endLegMessageQueue = new LinkedList<EndLegMessage>();
-		enterRoadMessageQueue = new LinkedList<EnterRoadMessage>();
-		startingLegMessageQueue = new LinkedList<StartingLegMessage>();
-		leaveRoadMessageQueue = new LinkedList<LeaveRoadMessage>();
-		endRoadMessageQueue = new LinkedList<EndRoadMessage>();
+	public void GC_ALL_MESSAGES() {
+		endLegMessageQueue = new ArrayDeque<EndLegMessage>();
+		enterRoadMessageQueue = new ArrayDeque<EnterRoadMessage>();
+		startingLegMessageQueue = new ArrayDeque<StartingLegMessage>();
+		leaveRoadMessageQueue = new ArrayDeque<LeaveRoadMessage>();
+		endRoadMessageQueue = new ArrayDeque<EndRoadMessage>();
 
-		deadlockPreventionMessageQueue = new LinkedList<DeadlockPreventionMessage>();
+		deadlockPreventionMessageQueue = new ArrayDeque<DeadlockPreventionMessage>();
 	}
 
-	public static LinkedList<EndLegMessage> getEndLegMessageQueue() {
+	public ArrayDeque<EndLegMessage> getEndLegMessageQueue() {
 		return endLegMessageQueue;
 	}
 
-	public static LinkedList<EnterRoadMessage> getEnterRoadMessageQueue() {
+	public ArrayDeque<EnterRoadMessage> getEnterRoadMessageQueue() {
 		return enterRoadMessageQueue;
 	}
 
-	public static LinkedList<StartingLegMessage> getStartingLegMessageQueue() {
+	public ArrayDeque<StartingLegMessage> getStartingLegMessageQueue() {
 		return startingLegMessageQueue;
 	}
 
-	public static LinkedList<LeaveRoadMessage> getLeaveRoadMessageQueue() {
+	public ArrayDeque<LeaveRoadMessage> getLeaveRoadMessageQueue() {
 		return leaveRoadMessageQueue;
 	}
 
-	public static LinkedList<EndRoadMessage> getEndRoadMessageQueue() {
+	public ArrayDeque<EndRoadMessage> getEndRoadMessageQueue() {
 		return endRoadMessageQueue;
 	}
 
-	public static LinkedList<DeadlockPreventionMessage> getDeadlockPreventionMessageQueue() {
+	public ArrayDeque<DeadlockPreventionMessage> getDeadlockPreventionMessageQueue() {
 		return deadlockPreventionMessageQueue;
 	}
 
@@ -19,17 +19,57 @@
 
 package org.matsim.core.mobsim.jdeqsim;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.PriorityQueue;
 
 /**
  * The message queue of the micro-simulation.
+ * <p></p>
+ * Implemented as a calendar queue: messages are put unsorted into buckets of one second each, and only the bucket of the
+ * current simulation time is kept sorted (in a small heap).  Messages which are further in the future than the calendar
+ * reaches wait in an overflow heap until the calendar gets close to them.  Messages with the same time stamp and
+ * priority are returned in the order in which they were put into the queue.
  *
  * @author rashid_waraich
  */
 public class MessageQueue {
-	private PriorityQueue<Message> queue1 = new PriorityQueue<Message>();
+
+	private static final double BUCKET_WIDTH = 1.0; // in s
+	private static final int NUMBER_OF_BUCKETS = 1 << 12;
+	private static final int BUCKET_MASK = NUMBER_OF_BUCKETS - 1;
+
+	private static final Comparator<Message> ORDER = new Comparator<Message>() {
+		@Override
+		public int compare(Message m1, Message m2) {
+			int cmp = m1.compareTo(m2);
+			if (cmp != 0) {
+				return cmp;
+			}
+			return Long.compare(m1.sequenceNumber, m2.sequenceNumber);
+		}
+	};
+
+	// the messages of the current bucket (and of all earlier ones), sorted
+	private final PriorityQueue<Message> currentMessages = new PriorityQueue<Message>(64, ORDER);
+	// the messages of the following buckets, unsorted
+	private final ArrayList<ArrayList<Message>> buckets = new ArrayList<ArrayList<Message>>(NUMBER_OF_BUCKETS);
+	private int messagesInBuckets = 0;
+	// the messages beyond the last bucket, sorted
+	private final PriorityQueue<Message> overflowMessages = new PriorityQueue<Message>(64, ORDER);
+	private long currentBucket = 0;
+	private long nextSequenceNumber = 0;
+
 	private int queueSize = 0;
 
+	private final MessageFactory messageFactory = new MessageFactory();
+
+	public MessageQueue() {
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			this.buckets.add(new ArrayList<Message>());
+		}
+	}
+
 	/**
 	 * 
 	 * Putting a message into the queue
@@ -37,7 +77,8 @@ public class MessageQueue {
 	 * @param m
 	 */
 	public void putMessage(Message m) {
-		queue1.add(m);
+		m.sequenceNumber = this.nextSequenceNumber++;
+		insert(m);
 		queueSize++;
 	}
 
@@ -66,26 +107,73 @@ public class MessageQueue {
 	 */
 	public Message getNextMessage() {
 		Message m = null;
-		if (queue1.peek() != null) {
-			// skip over dead messages
-			while ((m = queue1.poll()) != null && !m.isAlive()) {
-
-			}
-			// only decrement, if message fetched
-			if (m != null) {
-				queueSize--;
-			}
+		// skip over dead messages
+		while ((m = poll()) != null && !m.isAlive()) {
+			// the message is not referenced anywhere anymore
+			this.messageFactory.disposeMessage(m);
+		}
+		// only decrement, if message fetched
+		if (m != null) {
+			queueSize--;
 		}
-
 		return m;
 	}
 
 	public boolean isEmpty() {
-		return queue1.size() == 0;
+		return this.currentMessages.isEmpty() && this.messagesInBuckets == 0 && this.overflowMessages.isEmpty();
 	}
 
 	public int getQueueSize() {
 		return queueSize;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @return the factory which recycles the messages of this queue
+	 */
+	public MessageFactory getMessageFactory() {
+		return this.messageFactory;
+	}
+
+	private void insert(Message m) {
+		long bucket = getBucket(m);
+		if (bucket <= this.currentBucket) {
+			this.currentMessages.add(m);
+		} else if (bucket - this.currentBucket < NUMBER_OF_BUCKETS) {
+			this.buckets.get((int) (bucket & BUCKET_MASK)).add(m);
+			this.messagesInBuckets++;
+		} else {
+			this.overflowMessages.add(m);
+		}
+	}
+
+	private Message poll() {
+		while (this.currentMessages.isEmpty()) {
+			if (this.messagesInBuckets > 0) {
+				this.currentBucket++;
+			} else if (!this.overflowMessages.isEmpty()) {
+				// nothing in the calendar: jump to the next message
+				this.currentBucket = getBucket(this.overflowMessages.peek());
+			} else {
+				return null;
+			}
+			ArrayList<Message> bucket = this.buckets.get((int) (this.currentBucket & BUCKET_MASK));
+			for (int i = 0, n = bucket.size(); i < n; i++) {
+				this.currentMessages.add(bucket.get(i));
+			}
+			this.messagesInBuckets -= bucket.size();
+			bucket.clear();
+			// the calendar now reaches one bucket further:
+			while (!this.overflowMessages.isEmpty()
+					&& getBucket(this.overflowMessages.peek()) - this.currentBucket < NUMBER_OF_BUCKETS) {
+				insert(this.overflowMessages.poll());
+			}
+		}
+		return this.currentMessages.poll();
+	}
+
+	private static long getBucket(Message m) {
+		// (long) of a huge or infinite time saturates; stay clear of overflows when adding NUMBER_OF_BUCKETS
+		return Math.min((long) Math.floor(m.getMessageArrivalTime() / BUCKET_WIDTH), Long.MAX_VALUE / 2);
+	}
+
+}
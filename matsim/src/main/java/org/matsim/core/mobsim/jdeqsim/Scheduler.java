@@ -56,11 +56,17 @@ public class Scheduler {
 				simTime = m.getMessageArrivalTime();
 				m.processEvent();
 				m.handleMessage();
+				// the message has been removed from the queue and is not needed anymore
+				queue.getMessageFactory().disposeMessage(m);
 			}
 			printLog();
 		}
 	}
 
+	public MessageFactory getMessageFactory() {
+		return queue.getMessageFactory();
+	}
+
 	public double getSimTime() {
 		return simTime;
 	}
@@ -268,27 +268,27 @@ public class Vehicle extends SimUnit {
 	}
 
 	protected void _scheduleEnterRoadMessage(double scheduleTime, Road road) {
-		sendMessage(MessageFactory.getEnterRoadMessage(road.scheduler, this), road, scheduleTime);
+		sendMessage(road.scheduler.getMessageFactory().getEnterRoadMessage(road.scheduler, this), road, scheduleTime);
 	}
 
 	public void scheduleEndRoadMessage(double scheduleTime, Road road) {
-		sendMessage(MessageFactory.getEndRoadMessage(road.scheduler, this), road, scheduleTime);
+		sendMessage(road.scheduler.getMessageFactory().getEndRoadMessage(road.scheduler, this), road, scheduleTime);
 	}
 
 	public void scheduleLeaveRoadMessage(double scheduleTime, Road road) {
-		sendMessage(MessageFactory.getLeaveRoadMessage(road.scheduler, this), road, scheduleTime);
+		sendMessage(road.scheduler.getMessageFactory().getLeaveRoadMessage(road.scheduler, this), road, scheduleTime);
 	}
 
 	public void scheduleEndLegMessage(double scheduleTime, Road road) {
-		sendMessage(MessageFactory.getEndLegMessage(road.scheduler, this), road, scheduleTime);
+		sendMessage(road.scheduler.getMessageFactory().getEndLegMessage(road.scheduler, this), road, scheduleTime);
 	}
 
 	public void scheduleStartingLegMessage(double scheduleTime, Road road) {
-		sendMessage(MessageFactory.getStartingLegMessage(road.scheduler, this), road, scheduleTime);
+		sendMessage(road.scheduler.getMessageFactory().getStartingLegMessage(road.scheduler, this), road, scheduleTime);
 	}
 
 	public DeadlockPreventionMessage scheduleDeadlockPreventionMessage(double scheduleTime, Road road) {
-		DeadlockPreventionMessage dpMessage = MessageFactory.getDeadlockPreventionMessage(road.scheduler, this);
+		DeadlockPreventionMessage dpMessage = road.scheduler.getMessageFactory().getDeadlockPreventionMessage(road.scheduler, this);
 		sendMessage(dpMessage, road, scheduleTime);
 		return dpMessage;
 	}
@@ -20,9 +20,9 @@
 package org.matsim.core.mobsim.qsim;
 
 import java.util.Comparator;
-import java.util.Iterator;
-import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
@@ -33,9 +33,10 @@ import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.interfaces.ActivityHandler;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
+import org.matsim.core.mobsim.qsim.interfaces.WakeUpTimeProvider;
 import org.matsim.core.utils.misc.Time;
 
-public class ActivityEngine implements MobsimEngine, ActivityHandler {
+public class ActivityEngine implements MobsimEngine, ActivityHandler, WakeUpTimeProvider {
 
 	private EventsManager eventsManager;
 	private AgentCounter agentCounter;
@@ -45,52 +46,35 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 		this.agentCounter = agentCounter;
 	}
 
-	/**
-	 * Agents cannot be added directly to the activityEndsList since that would
-	 * not be thread-safe when within-day replanning is used. There, an agent's
-	 * activity end time can be modified. As a result, the agent is located at
-	 * the wrong position in the activityEndsList until it is updated by using
-	 * rescheduleActivityEnd(...). However, if another agent is added to the list
-	 * in the mean time, it might be inserted at the wrong position.
-	 * cdobler, apr'12
-	 */
-	private static class AgentEntry {
-		public AgentEntry(MobsimAgent agent, double activityEndTime) {
-			this.agent = agent;
-			this.activityEndTime = activityEndTime;
-		}
-		final MobsimAgent agent;
-		final double activityEndTime;
-	}
-
 	private InternalInterface internalInterface;
-	
+
 	/**
-	 * This list needs to be a "blocking" queue since this is needed for
-	 * thread-safety in the parallel qsim. cdobler, oct'10
+	 * The activity end time is stored in the queue entry when the agent is added.  The agent's activity end time may be
+	 * modified by within-day replanning; the agent is then at the wrong position until rescheduleActivityEnd(...) is
+	 * called.
+	 * <p/>
+	 * The entries of the agents are kept so that rescheduling does not need to search the queue.  Access needs to be
+	 * synchronized since this is needed for thread-safety in the parallel qsim and with within-day replanning.
 	 */
-	private final Queue<AgentEntry> activityEndsList = new PriorityBlockingQueue<>(500, new Comparator<AgentEntry>() {
-
+	private final CalendarQueue<MobsimAgent> activityEndsList = new CalendarQueue<>(new Comparator<MobsimAgent>() {
 		@Override
-		public int compare(AgentEntry arg0, AgentEntry arg1) {
-			int cmp = Double.compare(arg0.activityEndTime, arg1.activityEndTime);
-			if (cmp == 0) {
-				// Both depart at the same time -> let the one with the larger id be first (=smaller)
-				//
-				// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
-				// to say that the agent with the larger ID should be "smaller" one in the comparison.
-				// In practice, it seems
-				// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
-				// It is unclear why this convention is supposed to be helpful.
-				// kai & dominik, jul'12
-				//
-				return arg1.agent.getId().compareTo(arg0.agent.getId());
-			}
-			return cmp;
+		public int compare(MobsimAgent arg0, MobsimAgent arg1) {
+			// Both depart at the same time -> let the one with the larger id be first (=smaller)
+			//
+			// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
+			// to say that the agent with the larger ID should be "smaller" one in the comparison.
+			// In practice, it seems
+			// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
+			// It is unclear why this convention is supposed to be helpful.
+			// kai & dominik, jul'12
+			//
+			return arg1.getId().compareTo(arg0.getId());
 		}
-
 	});
+	private final Map<MobsimAgent, CalendarQueue.Entry<MobsimAgent>> activityEndsEntries = new IdentityHashMap<>();
 	
+	private ParallelActivityEnds parallelActivityEnds = null;
+
 	// See handleActivity for the reason for this.
 	private boolean beforeFirstSimStep = true;
 
@@ -102,29 +86,44 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 	@Override
 	public void doSimStep(double time) {
 		beforeFirstSimStep = false;
-		while (activityEndsList.peek() != null) {
-			if (activityEndsList.peek().activityEndTime <= time) {
-				MobsimAgent agent = activityEndsList.poll().agent;
+		int numberOfActivityEnds;
+		// the polled agents stay available until the next call of pollActivityEnds, which only happens here.  Activity
+		// ends that are added while the agents are processed and are already due are polled in the next round.
+		while ((numberOfActivityEnds = pollActivityEnds(time)) > 0) {
+			if (parallelActivityEnds != null && numberOfActivityEnds >= ParallelActivityEnds.MIN_NUMBER_OF_AGENTS) {
+				parallelActivityEnds.endActivities(activityEndsList, numberOfActivityEnds, time);
+				continue;
+			}
+			for (int i = 0; i < numberOfActivityEnds; i++) {
+				MobsimAgent agent = activityEndsList.getDue(i);
 				unregisterAgentAtActivityLocation(agent);
 				agent.endActivityAndComputeNextState(time);
 				internalInterface.arrangeNextAgentState(agent);
-			} else {
-				return;
 			}
 		}
 	}
 
+	@Override
+	public synchronized double getNextWakeUpTime() {
+		return activityEndsList.getEarliestTime();
+	}
+
 	@Override
 	public void afterSim() {
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (AgentEntry entry : activityEndsList) {
-			if (entry.activityEndTime!=Double.POSITIVE_INFINITY && entry.activityEndTime!=Time.UNDEFINED_TIME) {
+		List<CalendarQueue.Entry<MobsimAgent>> entries;
+		synchronized (this) {
+			entries = activityEndsList.getEntries();
+			activityEndsList.clear();
+			activityEndsEntries.clear();
+		}
+		for (CalendarQueue.Entry<MobsimAgent> entry : entries) {
+			if (entry.getTime()!=Double.POSITIVE_INFINITY && entry.getTime()!=Time.UNDEFINED_TIME) {
 				// since we are at an activity, it is not plausible to assume that the agents know mode or destination
 				// link id.  Thus generating the event with ``null'' in the corresponding entries.  kai, mar'12
-				eventsManager.processEvent(new PersonStuckEvent(now, entry.agent.getId(), null, null));
+				eventsManager.processEvent(new PersonStuckEvent(now, entry.getElement().getId(), null, null));
 			}
 		}
-		activityEndsList.clear();
 	}
 
 	@Override
@@ -132,6 +131,13 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 		this.internalInterface = internalInterface;
 	}
 
+	/**
+	 * Set by the QSim if activity ends and departures are to be processed in parallel.
+	 */
+	/*package*/ void setParallelActivityEnds(ParallelActivityEnds parallelActivityEnds) {
+		this.parallelActivityEnds = parallelActivityEnds;
+	}
+
 	
 	/**
 	 * 
@@ -156,7 +162,7 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 			internalInterface.arrangeNextAgentState(agent) ;
 		} else {
 			// The agent commences an activity on this link.
-			activityEndsList.add(new AgentEntry(agent, agent.getActivityEndTime()));
+			addActivityEnd(agent, agent.getActivityEndTime());
 			internalInterface.registerAdditionalAgentOnLink(agent);
 		}
 		// Why beforeFirstSimStep matters:
@@ -182,16 +188,16 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 	 */
 	void rescheduleActivityEnd(final MobsimAgent agent) {
 		double newActivityEndTime = agent.getActivityEndTime();
-		AgentEntry oldEntry = removeAgentFromQueue(agent);
+		boolean wasQueued = removeActivityEnd(agent);
 
 		// The intention in the following is that an agent that is no longer alive has an activity end time of infinity.  The number of
 		// alive agents is only modified when an activity end time is changed between a finite time and infinite.  kai, jun'11
-		if (oldEntry == null) {
+		if (!wasQueued) {
 			if (newActivityEndTime == Double.POSITIVE_INFINITY) {
 				// agent was de-activated and still should be de-activated - nothing to do here
 			} else {
 				// re-activate the agent
-				activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+				addActivityEnd(agent, newActivityEndTime);
 				internalInterface.registerAdditionalAgentOnLink(agent);
 				((org.matsim.core.mobsim.qsim.AgentCounter) agentCounter).incLiving();
 			}
@@ -206,20 +212,25 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 			/*
 			 *  The activity is just rescheduled during the day, so we keep the agent active. cdobler, oct'11
 			 */
-			activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+			addActivityEnd(agent, newActivityEndTime);
 		}
 	}
 
-	private AgentEntry removeAgentFromQueue(MobsimAgent agent) {
-		Iterator<AgentEntry> iterator = activityEndsList.iterator();
-		while (iterator.hasNext()) {
-			AgentEntry entry = iterator.next();
-			if (entry.agent == agent) {
-				iterator.remove();
-				return entry;
-			}
+	private synchronized void addActivityEnd(MobsimAgent agent, double activityEndTime) {
+		activityEndsEntries.put(agent, activityEndsList.add(agent, activityEndTime));
+	}
+
+	private synchronized boolean removeActivityEnd(MobsimAgent agent) {
+		CalendarQueue.Entry<MobsimAgent> entry = activityEndsEntries.remove(agent);
+		return entry != null && activityEndsList.remove(entry);
+	}
+
+	private synchronized int pollActivityEnds(double time) {
+		int numberOfActivityEnds = activityEndsList.pollDue(time);
+		for (int i = 0; i < numberOfActivityEnds; i++) {
+			activityEndsEntries.remove(activityEndsList.getDue(i));
 		}
-		return null;
+		return numberOfActivityEnds;
 	}
 
 	private void unregisterAgentAtActivityLocation(final MobsimAgent agent) {
@@ -0,0 +1,324 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A calendar queue (timing wheel) for elements that are due at a certain simulation time, e.g. activity ends or
+ * teleportation arrivals.  Elements are kept in buckets of one second each, so adding and removing an element is O(1),
+ * and removing the due elements of a time step only touches the buckets of that step.  In contrast to a priority queue,
+ * an element can be removed through the entry that is returned when it is added.
+ * <p/>
+ * The elements that are due in the same time step are returned ordered by their time, and by the given comparator if
+ * the times are equal.  This is the same order as with the priority queues used before.
+ * <p/>
+ * Not thread-safe.
+ */
+final class CalendarQueue<E> {
+
+	/**
+	 * The handle of an element in the queue.
+	 */
+	static final class Entry<E> {
+		private final double time;
+		private final E element;
+		private long bucket;
+		private Entry<E> prev;
+		private Entry<E> next;
+		private boolean queued = false;
+
+		private Entry(final double time, final E element) {
+			this.time = time;
+			this.element = element;
+		}
+
+		double getTime() {
+			return this.time;
+		}
+
+		E getElement() {
+			return this.element;
+		}
+	}
+
+	/*package*/ static final int DEFAULT_NUMBER_OF_BUCKETS = 1 << 15; // a bit more than 9 hours
+
+	private final Entry<E>[] buckets;
+	private final int mask;
+	private final Comparator<Entry<E>> entryComparator;
+
+	private int size = 0;
+	// the first bucket that may contain entries; entries before are put into this one
+	private long cursor = 0;
+	// no entry is in a bucket before this one
+	private long earliestBucketHint = 0;
+
+	private Entry<E>[] due;
+	private Entry<E>[] sortBuffer;
+	private int numberOfDue = 0;
+
+	CalendarQueue(final Comparator<? super E> tieBreaker) {
+		this(tieBreaker, DEFAULT_NUMBER_OF_BUCKETS);
+	}
+
+	/**
+	 * @param tieBreaker orders elements with the same time
+	 * @param numberOfBuckets the number of one-second buckets; rounded up to a power of two.  Elements that are due more
+	 * than this many seconds in the future share the bucket with earlier ones and are looked at once per round.
+	 */
+	CalendarQueue(final Comparator<? super E> tieBreaker, final int numberOfBuckets) {
+		int n = Integer.highestOneBit(Math.max(numberOfBuckets - 1, 1)) << 1;
+		this.buckets = newArray(n);
+		this.mask = n - 1;
+		this.entryComparator = new Comparator<Entry<E>>() {
+			@Override
+			public int compare(Entry<E> o1, Entry<E> o2) {
+				int cmp = Double.compare(o1.time, o2.time);
+				if (cmp == 0) {
+					cmp = tieBreaker.compare(o1.element, o2.element);
+				}
+				return cmp;
+			}
+		};
+		this.due = newArray(64);
+		this.sortBuffer = newArray(64);
+	}
+
+	Entry<E> add(final E element, final double time) {
+		Entry<E> entry = new Entry<>(time, element);
+		link(entry, Math.max(bucketOf(time), this.cursor));
+		this.size++;
+		return entry;
+	}
+
+	/**
+	 * @return false if the entry was not in the queue (any more)
+	 */
+	boolean remove(final Entry<E> entry) {
+		if (!entry.queued) {
+			return false;
+		}
+		unlink(entry);
+		this.size--;
+		return true;
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Removes all entries with a time not after the given time from the queue.  They can be obtained with
+	 * {@link #getDue(int)} until this method is called the next time, in the order described in the class comment.
+	 * Does not allocate memory once the internal arrays are large enough.
+	 *
+	 * @return the number of due entries
+	 */
+	int pollDue(final double time) {
+		for (int i = 0; i < this.numberOfDue; i++) {
+			this.due[i] = null;
+		}
+		this.numberOfDue = 0;
+		if (this.size == 0) {
+			this.cursor = Math.max(this.cursor, bucketOf(time));
+			return 0;
+		}
+		final long last = Math.max(this.cursor, bucketOf(time));
+		final long numberOfBucketsToScan = Math.min(last - this.cursor + 1, this.buckets.length);
+		for (long b = this.cursor; b < this.cursor + numberOfBucketsToScan; b++) {
+			Entry<E> entry = this.buckets[(int) (b & this.mask)];
+			while (entry != null) {
+				Entry<E> next = entry.next;
+				if (entry.bucket <= last) {
+					if (entry.time <= time) {
+						unlink(entry);
+						this.size--;
+						addDue(entry);
+					} else {
+						// due later in the last bucket (the time step is shorter than a bucket); look at it again next time
+						unlink(entry);
+						link(entry, last + 1);
+					}
+				}
+				entry = next;
+			}
+		}
+		this.cursor = last + 1;
+		this.earliestBucketHint = Math.max(this.earliestBucketHint, this.cursor);
+		sortDue();
+		return this.numberOfDue;
+	}
+
+	E getDue(final int index) {
+		return this.due[index].element;
+	}
+
+	/**
+	 * @return the earliest time of all entries, or Double.POSITIVE_INFINITY if the queue is empty
+	 */
+	double getEarliestTime() {
+		if (this.size == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		long start = Math.max(this.earliestBucketHint, this.cursor);
+		for (long b = start; b < start + this.buckets.length; b++) {
+			double earliest = Double.POSITIVE_INFINITY;
+			for (Entry<E> entry = this.buckets[(int) (b & this.mask)]; entry != null; entry = entry.next) {
+				if (entry.bucket == b) {
+					earliest = Math.min(earliest, entry.time);
+				}
+			}
+			if (earliest != Double.POSITIVE_INFINITY) {
+				this.earliestBucketHint = b;
+				return earliest;
+			}
+		}
+		// nothing within one round; only far-future entries are left
+		double earliest = Double.POSITIVE_INFINITY;
+		for (Entry<E> head : this.buckets) {
+			for (Entry<E> entry = head; entry != null; entry = entry.next) {
+				earliest = Math.min(earliest, entry.time);
+			}
+		}
+		return earliest;
+	}
+
+	/**
+	 * @return all entries in the queue, in the order in which they would become due
+	 */
+	List<Entry<E>> getEntries() {
+		List<Entry<E>> entries = new ArrayList<>(this.size);
+		for (Entry<E> head : this.buckets) {
+			for (Entry<E> entry = head; entry != null; entry = entry.next) {
+				entries.add(entry);
+			}
+		}
+		Collections.sort(entries, this.entryComparator);
+		return entries;
+	}
+
+	void clear() {
+		for (int i = 0; i < this.buckets.length; i++) {
+			Entry<E> entry = this.buckets[i];
+			while (entry != null) {
+				Entry<E> next = entry.next;
+				entry.prev = null;
+				entry.next = null;
+				entry.queued = false;
+				entry = next;
+			}
+			this.buckets[i] = null;
+		}
+		this.size = 0;
+	}
+
+	private static long bucketOf(final double time) {
+		// NaN and -infinity end up in the current bucket, +infinity in one that never becomes due
+		return time > Long.MIN_VALUE ? (long) Math.floor(time) : Long.MIN_VALUE;
+	}
+
+	private void link(final Entry<E> entry, final long bucket) {
+		int index = (int) (bucket & this.mask);
+		entry.bucket = bucket;
+		entry.prev = null;
+		entry.next = this.buckets[index];
+		if (entry.next != null) {
+			entry.next.prev = entry;
+		}
+		this.buckets[index] = entry;
+		entry.queued = true;
+		if (bucket < this.earliestBucketHint) {
+			this.earliestBucketHint = bucket;
+		}
+	}
+
+	private void unlink(final Entry<E> entry) {
+		if (entry.prev == null) {
+			this.buckets[(int) (entry.bucket & this.mask)] = entry.next;
+		} else {
+			entry.prev.next = entry.next;
+		}
+		if (entry.next != null) {
+			entry.next.prev = entry.prev;
+		}
+		entry.prev = null;
+		entry.next = null;
+		entry.queued = false;
+	}
+
+	private void addDue(final Entry<E> entry) {
+		if (this.numberOfDue == this.due.length) {
+			Entry<E>[] newDue = newArray(2 * this.due.length);
+			System.arraycopy(this.due, 0, newDue, 0, this.numberOfDue);
+			this.due = newDue;
+			this.sortBuffer = newArray(newDue.length);
+		}
+		this.due[this.numberOfDue++] = entry;
+	}
+
+	/*
+	 * Bottom-up merge sort with a buffer that is kept between the calls.  Arrays.sort would allocate its own buffer
+	 * for larger arrays.
+	 */
+	private void sortDue() {
+		Entry<E>[] src = this.due;
+		Entry<E>[] dst = this.sortBuffer;
+		final int n = this.numberOfDue;
+		for (int width = 1; width < n; width *= 2) {
+			for (int lo = 0; lo < n; lo += 2 * width) {
+				int mid = Math.min(lo + width, n);
+				int hi = Math.min(lo + 2 * width, n);
+				int i = lo;
+				int j = mid;
+				for (int k = lo; k < hi; k++) {
+					if (i < mid && (j >= hi || this.entryComparator.compare(src[i], src[j]) <= 0)) {
+						dst[k] = src[i++];
+					} else {
+						dst[k] = src[j++];
+					}
+				}
+			}
+			Entry<E>[] tmp = src;
+			src = dst;
+			dst = tmp;
+		}
+		if (src != this.due) {
+			System.arraycopy(src, 0, this.due, 0, n);
+		}
+		for (int i = 0; i < n; i++) {
+			this.sortBuffer[i] = null;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E> Entry<E>[] newArray(final int length) {
+		return new Entry[length];
+	}
+
+}
@@ -0,0 +1,287 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelActivityEnds.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine;
+
+/**
+ * Ends the activities of one time step in parallel, together with the departures that directly follow them.
+ * <ul>
+ * <li> The agents are distributed over the runners of the {@link QNetsimEngine} by the link they are on, so that each
+ * task only touches the links of one runner.  The netsim runners are idle while the activity engine is stepped.
+ * <li> A departure is handled in parallel if it is on a network mode with a vehicle that is parked on the link.  All
+ * other next states (teleported legs, further activities, vehicles that are not there, ...) are arranged sequentially
+ * afterwards, in the original order.  Once an agent on a link needs this, all later agents on the same link follow
+ * sequentially as well, so the order of the vehicles entering a link does not change.
+ * <li> The events of the parallel part are buffered per agent and passed on in the original order of the agents.  The
+ * events are thus the same as without parallelization.  However, event handlers see the events only after all agents
+ * of the time step have ended their activities.
+ * </ul>
+ * Assumes that no two agents that leave in the same time step share a vehicle.
+ */
+final class ParallelActivityEnds {
+
+	// below this, the overhead of the threads is not worth it
+	/*package*/ static final int MIN_NUMBER_OF_AGENTS = 64;
+
+	/**
+	 * Collects the events of a thread while it works on activity ends in parallel, and passes all other events on.
+	 */
+	static final class EventsBuffer implements EventsManager {
+
+		private final EventsManager delegate;
+		private final ThreadLocal<List<Event>> buffer = new ThreadLocal<>();
+
+		EventsBuffer(EventsManager delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void processEvent(Event event) {
+			List<Event> list = this.buffer.get();
+			if (list == null) {
+				this.delegate.processEvent(event);
+			} else {
+				list.add(event);
+			}
+		}
+
+		@Override
+		public void addHandler(EventHandler handler) {
+			this.delegate.addHandler(handler);
+		}
+
+		@Override
+		public void removeHandler(EventHandler handler) {
+			this.delegate.removeHandler(handler);
+		}
+
+		@Override
+		public void resetHandlers(int iteration) {
+			this.delegate.resetHandlers(iteration);
+		}
+
+		@Override
+		public void initProcessing() {
+			this.delegate.initProcessing();
+		}
+
+		@Override
+		public void afterSimStep(double time) {
+			this.delegate.afterSimStep(time);
+		}
+
+		@Override
+		public void finishProcessing() {
+			this.delegate.finishProcessing();
+		}
+
+		void startBuffering(List<Event> list) {
+			this.buffer.set(list);
+		}
+
+		void stopBuffering() {
+			this.buffer.remove();
+		}
+	}
+
+	private final class Partition implements Callable<Void> {
+		private int[] agentIndices = new int[64];
+		private int numberOfAgents = 0;
+		private final List<Event> bufferedEvents = new ArrayList<>();
+		private final Set<Id<Link>> sequentialLinks = new HashSet<>();
+		private double time;
+
+		void add(int agentIndex) {
+			if (this.numberOfAgents == this.agentIndices.length) {
+				int[] newIndices = new int[2 * this.agentIndices.length];
+				System.arraycopy(this.agentIndices, 0, newIndices, 0, this.numberOfAgents);
+				this.agentIndices = newIndices;
+			}
+			this.agentIndices[this.numberOfAgents++] = agentIndex;
+		}
+
+		void clear() {
+			this.numberOfAgents = 0;
+			this.bufferedEvents.clear();
+			this.sequentialLinks.clear();
+		}
+
+		@Override
+		public Void call() {
+			events.startBuffering(this.bufferedEvents);
+			try {
+				for (int j = 0; j < this.numberOfAgents; j++) {
+					endActivity(this.agentIndices[j]);
+				}
+			} finally {
+				events.stopBuffering();
+			}
+			return null;
+		}
+
+		private void endActivity(int i) {
+			MobsimAgent agent = agents[i];
+			eventsFrom[i] = this.bufferedEvents.size();
+			Id<Link> linkId = agent.getCurrentLinkId();
+			// directly at the netsim engine; the internal interface would serialize all partitions on one lock
+			netEngine.unregisterAdditionalAgentOnLink(agent.getId(), linkId);
+			agent.endActivityAndComputeNextState(this.time);
+			if (agent.getState() == MobsimAgent.State.LEG && !this.sequentialLinks.contains(linkId)
+					&& linkId.equals(agent.getCurrentLinkId()) && netEngine.isDepartureWithParkedVehicle(agent, linkId)) {
+				// this is what QSim.arrangeAgentDeparture does, knowing that the netsim engine handles the departure
+				events.processEvent(new PersonDepartureEvent(this.time, agent.getId(), linkId, agent.getMode()));
+				netEngine.getDepartureHandler().handleDeparture(this.time, agent, linkId);
+				departed[i] = true;
+			} else {
+				this.sequentialLinks.add(linkId);
+				departed[i] = false;
+			}
+			eventsTo[i] = this.bufferedEvents.size();
+		}
+	}
+
+	private final InternalInterface internalInterface;
+	private final QNetsimEngine netEngine;
+	private final EventsBuffer events;
+	private final ExecutorService executor;
+	private final List<Partition> partitions = new ArrayList<>();
+
+	// per agent of the current time step
+	private MobsimAgent[] agents = new MobsimAgent[0];
+	private Partition[] partitionOfAgent = new Partition[0];
+	private int[] eventsFrom = new int[0];
+	private int[] eventsTo = new int[0];
+	private boolean[] departed = new boolean[0];
+
+	ParallelActivityEnds(InternalInterface internalInterface, QNetsimEngine netEngine, EventsBuffer events, int numberOfThreads) {
+		this.internalInterface = internalInterface;
+		this.netEngine = netEngine;
+		this.events = events;
+		for (int i = 0; i < netEngine.getNumberOfRunners(); i++) {
+			this.partitions.add(new Partition());
+		}
+		this.executor = Executors.newFixedThreadPool(numberOfThreads, new ThreadFactory() {
+			private int cnt = 0;
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ParallelActivityEnds_" + this.cnt++);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Ends the activities of the first numberOfAgents due agents of the queue.
+	 */
+	void endActivities(CalendarQueue<MobsimAgent> dueAgents, int numberOfAgents, double time) {
+		ensureCapacity(numberOfAgents);
+		for (int i = 0; i < numberOfAgents; i++) {
+			MobsimAgent agent = dueAgents.getDue(i);
+			Id<Link> linkId = agent.getCurrentLinkId();
+			int runner = linkId == null ? -1 : this.netEngine.getRunnerIndex(linkId);
+			Partition partition = null;
+			if (runner >= 0) {
+				partition = this.partitions.get(runner);
+				partition.add(i);
+			}
+			// else (e.g. bushwhacking): completely sequential
+			this.agents[i] = agent;
+			this.partitionOfAgent[i] = partition;
+		}
+
+		List<Future<Void>> futures = new ArrayList<>(this.partitions.size());
+		for (Partition partition : this.partitions) {
+			partition.time = time;
+			if (partition.numberOfAgents > 0) {
+				futures.add(this.executor.submit(partition));
+			}
+		}
+		try {
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		for (int i = 0; i < numberOfAgents; i++) {
+			MobsimAgent agent = this.agents[i];
+			Partition partition = this.partitionOfAgent[i];
+			if (partition == null) {
+				if (agent.getCurrentLinkId() != null) {
+					this.internalInterface.unregisterAdditionalAgentOnLink(agent.getId(), agent.getCurrentLinkId());
+				}
+				agent.endActivityAndComputeNextState(time);
+				this.internalInterface.arrangeNextAgentState(agent);
+			} else {
+				for (int e = this.eventsFrom[i]; e < this.eventsTo[i]; e++) {
+					this.events.processEvent(partition.bufferedEvents.get(e));
+				}
+				if (!this.departed[i]) {
+					this.internalInterface.arrangeNextAgentState(agent);
+				}
+			}
+			this.agents[i] = null;
+			this.partitionOfAgent[i] = null;
+		}
+		for (Partition partition : this.partitions) {
+			partition.clear();
+		}
+	}
+
+	void shutdown() {
+		this.executor.shutdown();
+	}
+
+	private void ensureCapacity(int numberOfAgents) {
+		if (this.agents.length < numberOfAgents) {
+			int n = Math.max(numberOfAgents, 2 * this.agents.length);
+			this.agents = new MobsimAgent[n];
+			this.partitionOfAgent = new Partition[n];
+			this.eventsFrom = new int[n];
+			this.eventsTo = new int[n];
+			this.departed = new boolean[n];
+		}
+	}
+
+}
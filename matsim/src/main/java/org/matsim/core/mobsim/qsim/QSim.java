@@ -49,6 +49,7 @@ import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.Netsim;
+import org.matsim.core.mobsim.qsim.interfaces.WakeUpTimeProvider;
 import org.matsim.core.mobsim.qsim.pt.TransitQSimEngine;
 import org.matsim.core.mobsim.qsim.qnetsimengine.NetsimNetwork;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine;
@@ -102,6 +103,10 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 	private final EventsManager events;
 
+	// only with parallel departures
+	private final ParallelActivityEnds.EventsBuffer eventsBuffer;
+	private ParallelActivityEnds parallelActivityEnds = null;
+
 	private QNetsimEngine netEngine;
 
 	private final Collection<MobsimEngine> mobsimEngines = new ArrayList<>();
@@ -116,6 +121,7 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 	private final Date realWorldStarttime = new Date();
 	private double stopTime = 100 * 3600;
+	private final boolean skippingIdleTimeSteps;
 	private final MobsimListenerManager listenerManager;
 	private final Scenario scenario;
 	private final List<ActivityHandler> activityHandlers = new ArrayList<>();
@@ -186,13 +192,21 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	public QSim(final Scenario sc, EventsManager events) {
 		this.scenario = sc;
 		if (sc.getConfig().qsim().getNumberOfThreads() > 1) {
-			this.events = EventsUtils.getParallelFeedableInstance(events);
+			if (sc.getConfig().qsim().isUsingParallelDepartures()) {
+				this.eventsBuffer = new ParallelActivityEnds.EventsBuffer(EventsUtils.getParallelFeedableInstance(events));
+				this.events = this.eventsBuffer;
+			} else {
+				this.eventsBuffer = null;
+				this.events = EventsUtils.getParallelFeedableInstance(events);
+			}
 		} else {
+			this.eventsBuffer = null;
 			this.events = events;
 		}
 		this.listenerManager = new MobsimListenerManager(this);
 		this.agentCounter = new org.matsim.core.mobsim.qsim.AgentCounter();
 		this.simTimer = new MobsimTimer(sc.getConfig().qsim().getTimeStepSize());
+		this.skippingIdleTimeSteps = sc.getConfig().qsim().isSkippingIdleTimeSteps();
 	}
 
 	// ============================================================================================================================
@@ -249,6 +263,25 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		for (MobsimEngine mobsimEngine : mobsimEngines) {
 			mobsimEngine.onPrepareSim();
 		}
+
+		if (this.eventsBuffer != null) {
+			initParallelActivityEnds();
+		}
+	}
+
+	private void initParallelActivityEnds() {
+		if (this.activityEngine == null || this.netEngine == null) {
+			log.warn("parallel departures need the activity engine and the netsim engine; continuing without.");
+			return;
+		}
+		if (this.departureHandlers.isEmpty() || this.departureHandlers.get(0) != this.netEngine.getDepartureHandler()) {
+			// otherwise, another handler might want the departures that are handled in parallel
+			log.warn("parallel departures need the netsim engine to be the first departure handler; continuing without.");
+			return;
+		}
+		this.parallelActivityEnds = new ParallelActivityEnds(this.internalInterface, this.netEngine, this.eventsBuffer,
+				this.scenario.getConfig().qsim().getNumberOfThreads());
+		this.activityEngine.setParallelActivityEnds(this.parallelActivityEnds);
 	}
 
 	private void createAgents() {
@@ -291,6 +324,9 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		for (MobsimEngine mobsimEngine : mobsimEngines) {
 			mobsimEngine.afterSim();
 		}
+		if (this.parallelActivityEnds != null) {
+			this.parallelActivityEnds.shutdown();
+		}
 	}
 
 	/**
@@ -324,11 +360,43 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		this.events.afterSimStep(time);
 		this.listenerManager.fireQueueSimulationAfterSimStepEvent(time);
 		if (doContinue) {
-			this.simTimer.incrementTime();
+			if (this.skippingIdleTimeSteps) {
+				this.simTimer.setTime(getNextSimStepTime(time));
+			} else {
+				this.simTimer.incrementTime();
+			}
 		}
 		return doContinue ;
 	}
 
+	/*
+	 * Asked only after the afterSimStep listeners, since they may still hand agents to the engines.  The result stays on the
+	 * grid of time steps, and is capped such that the last time step (the first one not before the stop time) is the same as
+	 * without skipping.
+	 */
+	private double getNextSimStepTime(final double time) {
+		final double stepSize = this.simTimer.getSimTimestepSize();
+		double wakeUpTime = Double.POSITIVE_INFINITY;
+		for (MobsimEngine mobsimEngine : mobsimEngines) {
+			if (!(mobsimEngine instanceof WakeUpTimeProvider)) {
+				// e.g. the WithinDayEngine, which may replan at any time step
+				return time + stepSize;
+			}
+			wakeUpTime = Math.min(wakeUpTime, ((WakeUpTimeProvider) mobsimEngine).getNextWakeUpTime());
+			if (wakeUpTime <= time + stepSize) {
+				return time + stepSize;
+			}
+		}
+		if (this.stopTime < wakeUpTime) {
+			if (this.stopTime == Double.MAX_VALUE) {
+				// no end time configured; keep stepping as before rather than jumping to the end of time
+				return time + stepSize;
+			}
+			wakeUpTime = this.stopTime;
+		}
+		return time + Math.ceil((wakeUpTime - time) / stepSize) * stepSize;
+	}
+
 	public void insertAgentIntoMobsim( MobsimAgent agent ) {
 		if ( this.agents.containsKey( agent.getId() ) ) {
 			throw new RuntimeException( "agent with same ID already in mobsim; aborting ... ") ;
@@ -434,7 +502,8 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private void printSimLog(final double time) {
 		if (time >= this.infoTime) {
 			//		if(true){
-			this.infoTime += INFO_PERIOD;
+			// more than one period may have passed when idle time steps are skipped
+			this.infoTime = (Math.floor(time / INFO_PERIOD) + 1) * INFO_PERIOD;
 			Date endtime = new Date();
 			long diffreal = (endtime.getTime() - this.realWorldStarttime
 					.getTime()) / 1000;
@@ -12,7 +12,7 @@ import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
-import org.matsim.core.utils.collections.Tuple;
+import org.matsim.core.mobsim.qsim.interfaces.WakeUpTimeProvider;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
 import org.matsim.vis.snapshotwriters.TeleportationVisData;
@@ -21,21 +21,17 @@ import org.matsim.vis.snapshotwriters.VisData;
 import java.util.*;
 
 public final class TeleportationEngine implements DepartureHandler, MobsimEngine,
-VisData {
+VisData, WakeUpTimeProvider {
 	/**
 	 * Includes all agents that have transportation modes unknown to the
 	 * QueueSimulation (i.e. != "car") or have two activities on the same link
 	 */
-	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
-			30, new Comparator<Tuple<Double, MobsimAgent>>() {
+	private final CalendarQueue<MobsimAgent> teleportationList = new CalendarQueue<>(new Comparator<MobsimAgent>() {
 
 		@Override
-		public int compare(Tuple<Double, MobsimAgent> o1, Tuple<Double, MobsimAgent> o2) {
-			int ret = o1.getFirst().compareTo(o2.getFirst()); // first compare time information
-			if (ret == 0) {
-				ret = o2.getSecond().getId().compareTo(o1.getSecond().getId()); // if they're equal, compare the Ids: the one with the larger Id should be first
-			}
-			return ret;
+		public int compare(MobsimAgent o1, MobsimAgent o2) {
+			// same arrival time: the one with the larger Id should be first
+			return o2.getId().compareTo(o1.getId());
 		}
 	});
 	private final LinkedHashMap<Id<Person>, TeleportationVisData> teleportationData = new LinkedHashMap<>();
@@ -56,8 +52,7 @@ VisData {
     				+ " since otherwise mode choice optimization will eventually lead to all legs teleported.  kai/mz, apr'15") ;
     	}
 		double arrivalTime = now + agent.getExpectedTravelTime();
-		this.teleportationList.add(new Tuple<>(arrivalTime,
-				agent));
+		this.teleportationList.add(agent, arrivalTime);
 		Id<Person> agentId = agent.getId();
 		Link currLink = this.scenario
 				.getNetwork().getLinks().get(linkId);
@@ -89,11 +84,11 @@ VisData {
 
 	private void handleTeleportationArrivals() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		while (teleportationList.peek() != null) {
-			Tuple<Double, MobsimAgent> entry = teleportationList.peek();
-			if (entry.getFirst() <= now) {
-				teleportationList.poll();
-				MobsimAgent personAgent = entry.getSecond();
+		int numberOfArrivals;
+		// arrangeNextAgentState may add teleportations that arrive right away; they are polled in the next round
+		while ((numberOfArrivals = teleportationList.pollDue(now)) > 0) {
+			for (int i = 0; i < numberOfArrivals; i++) {
+				MobsimAgent personAgent = teleportationList.getDue(i);
 				personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent
 						.getDestinationLinkId());
 				double distance = personAgent.getExpectedTravelDistance();
@@ -101,12 +96,15 @@ VisData {
 				personAgent.endLegAndComputeNextState(now);
 				this.teleportationData.remove(personAgent.getId());
 				internalInterface.arrangeNextAgentState(personAgent);
-			} else {
-				break;
 			}
 		}
 	}
 
+	@Override
+	public double getNextWakeUpTime() {
+		return teleportationList.getEarliestTime();
+	}
+
 	@Override
 	public void onPrepareSim() {
 
@@ -115,8 +113,8 @@ VisData {
 	@Override
 	public void afterSim() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (Tuple<Double, MobsimAgent> entry : teleportationList) {
-			MobsimAgent agent = entry.getSecond();
+		for (CalendarQueue.Entry<MobsimAgent> entry : teleportationList.getEntries()) {
+			MobsimAgent agent = entry.getElement();
 			eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), agent.getDestinationLinkId(), agent.getMode()));
 		}
 		teleportationList.clear();
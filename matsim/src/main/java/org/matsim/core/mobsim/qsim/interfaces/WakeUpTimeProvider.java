@@ -0,0 +1,38 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * WakeUpTimeProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.interfaces;
+
+/**
+ * Implemented by {@link MobsimEngine}s that know when they next have something to do.  If all engines of a QSim implement
+ * this and time skipping is switched on in the qsim config group, the QSim jumps over time steps in which no engine would
+ * do anything.  An engine that does not implement this interface is assumed to need every time step.
+ */
+public interface WakeUpTimeProvider {
+
+	/**
+	 * Called between two time steps, i.e. never concurrently with doSimStep.
+	 *
+	 * @return the earliest time at which the engine has something to do.  A time that is not after the current time means
+	 * that the engine is busy and needs the next time step.  Double.POSITIVE_INFINITY means that nothing is scheduled.
+	 */
+	double getNextWakeUpTime();
+
+}
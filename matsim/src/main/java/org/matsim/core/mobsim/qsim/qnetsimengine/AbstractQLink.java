@@ -363,6 +363,10 @@ abstract class AbstractQLink extends QLinkInternalI {
 		this.netElementActivator = qSimEngineRunner;
 	}
 
+	/*package*/ NetElementActivator getNetElementActivator() {
+		return this.netElementActivator;
+	}
+
 	@Override
 	/*package*/ void registerDriverAgentWaitingForCar(final MobsimDriverAgent agent) {
 		final Id<Vehicle> vehicleId = agent.getPlannedVehicleId() ;
@@ -19,12 +19,27 @@
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import java.util.AbstractQueue;
+import java.util.ArrayDeque;
 import java.util.Iterator;
-import java.util.LinkedList;
 
+/**
+ * First-in-first-out vehicle queue.  Backed by an array ring buffer, so that adding and removing vehicles does not allocate
+ * list nodes; the buffer only grows when more vehicles than ever before are on the lane.
+ */
 public final class FIFOVehicleQ extends AbstractQueue<QVehicle> implements VehicleQ<QVehicle>  {
 	
-	private final LinkedList<QVehicle> vehicleQueue = new LinkedList<>();
+	private final ArrayDeque<QVehicle> vehicleQueue;
+
+	public FIFOVehicleQ() {
+		this.vehicleQueue = new ArrayDeque<>();
+	}
+
+	/**
+	 * @param initialCapacity -- number of vehicles the queue can hold before it needs to grow, e.g. the storage capacity of the lane.
+	 */
+	public FIFOVehicleQ(int initialCapacity) {
+		this.vehicleQueue = new ArrayDeque<>(initialCapacity);
+	}
 
 	@Override
 	public boolean offer(QVehicle e) {
@@ -51,6 +66,22 @@ public final class FIFOVehicleQ extends AbstractQueue<QVehicle> implements Vehic
 		return vehicleQueue.size();
 	}
 
+	@Override
+	public boolean isEmpty() {
+		return vehicleQueue.isEmpty();
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		// usually the head of the queue, which the ring buffer removes without shifting elements
+		return vehicleQueue.removeFirstOccurrence(o);
+	}
+
+	@Override
+	public void clear() {
+		vehicleQueue.clear();
+	}
+
 	@Override
 	public void addFirst(QVehicle e) {
 		vehicleQueue.addFirst(e);
@@ -0,0 +1,43 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Decides which {@link QNetsimEngineRunner} is responsible for which node.  The out-links of a node are always
+ * handled by the runner of that node, since it is the node that activates them.
+ * 
+ * @see RoundRobinNetworkPartitioner
+ * @see SpaceFillingCurveNetworkPartitioner
+ */
+public interface NetworkPartitioner {
+
+	/**
+	 * @param nodes the nodes to distribute; the iteration order is the same as the one of the returned array
+	 * @param numberOfPartitions the number of runners
+	 * @return for every node (same index as in <code>nodes</code>) the partition in [0, numberOfPartitions) it belongs to
+	 */
+	int[] partition(List<? extends Node> nodes, int numberOfPartitions);
+
+}
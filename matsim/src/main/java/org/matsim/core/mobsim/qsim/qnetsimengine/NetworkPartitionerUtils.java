@@ -0,0 +1,48 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkPartitionerUtils.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Helpers shared by the {@link NetworkPartitioner} implementations and the statistics of the {@link QNetsimEngine}.
+ */
+public final class NetworkPartitionerUtils {
+
+	private NetworkPartitionerUtils() {
+		// static helpers only
+	}
+
+	/**
+	 * Approximates the work a runner has with a node by the number and the capacity of its out-links, since these
+	 * are moved by the same runner.
+	 */
+	public static double getExpectedLoad(Node node) {
+		double load = 1.0;
+		for (Link outLink : node.getOutLinks().values()) {
+			// every active link costs something, high capacity links tend to be active more often:
+			load += 1.0 + outLink.getCapacity() / 1000.0;
+		}
+		return load;
+	}
+
+}
@@ -6,14 +6,17 @@ final class PassingVehicleQ extends AbstractQueue<QVehicle> implements VehicleQ<
 
 	public PassingVehicleQ() {} // to find calls 
 	
-	private final Queue<QVehicle> delegate = new PriorityQueue<>(11, new Comparator<QVehicle>() {
+	// one comparator for all links; it has no state
+	private static final Comparator<QVehicle> BY_EARLIEST_LINK_EXIT_TIME = new Comparator<QVehicle>() {
 
 		@Override
 		public int compare(QVehicle arg0, QVehicle arg1) {
 			return Double.compare(arg0.getEarliestLinkExitTime(), arg1.getEarliestLinkExitTime());
 		}
 
-	});
+	};
+
+	private final Queue<QVehicle> delegate = new PriorityQueue<>(11, BY_EARLIEST_LINK_EXIT_TIME);
 
 	@Override
 	public boolean offer(QVehicle e) {
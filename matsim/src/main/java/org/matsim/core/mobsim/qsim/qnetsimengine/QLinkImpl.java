@@ -77,7 +77,12 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 	 * Initializes a QueueLink with one QueueLane.
 	 */
 	public QLinkImpl(final Link link2, QNetwork network, final QNode toNode) {
-		this(link2, network, toNode, new FIFOVehicleQ());
+		super(link2, network) ;
+		// the builder sizes its default FIFOVehicleQ from the storage capacity of the link:
+		this.road = new QueueWithBuffer.Builder(this).build() ;
+		this.toQueueNode = toNode;
+		this.visdata = this.new VisDataImpl() ; // instantiating this here and not earlier so we can cache some things
+	  super.transitQLink = new TransitQLink(this.road);
 	}
 
 	/** 
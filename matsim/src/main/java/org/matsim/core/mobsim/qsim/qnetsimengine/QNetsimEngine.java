@@ -49,6 +49,8 @@ import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
+import org.matsim.core.mobsim.qsim.interfaces.WakeUpTimeProvider;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.lanes.data.v20.LaneDefinitions20;
 import org.matsim.vehicles.Vehicle;
@@ -60,7 +62,7 @@ import org.matsim.vehicles.Vehicle;
  * @author dgrether
  * @author dstrippgen
  */
-public class QNetsimEngine implements MobsimEngine {
+public class QNetsimEngine implements MobsimEngine, WakeUpTimeProvider {
 
 	private static final Logger log = Logger.getLogger(QNetsimEngine.class);
 
@@ -68,14 +70,14 @@ public class QNetsimEngine implements MobsimEngine {
 
 	/*package*/   QNetwork network;
 
-	private final Map<Id<Vehicle>, QVehicle> vehicles = new HashMap<>();
+	private final Map<Id<Vehicle>, QVehicle> vehicles = new IdMap<>(Vehicle.class);
 
 	private final QSim qsim;
 
 	private final AbstractAgentSnapshotInfoBuilder positionInfoBuilder;
 
 	private final double stucktimeCache;
-	private final DepartureHandler dpHandler;
+	private final VehicularDepartureHandler dpHandler;
 
 	private double infoTime = 0;
 
@@ -83,6 +85,12 @@ public class QNetsimEngine implements MobsimEngine {
 
 	private LinkSpeedCalculator linkSpeedCalculator = new DefaultLinkSpeedCalculator();
 
+	private NetworkPartitioner networkPartitioner;
+
+	private final double loadBalancingThreshold;
+
+	private QNetsimEngineLoadBalancer loadBalancer = null;
+
 	private List<QNetsimEngineRunner> engines ;
 
 	private Phaser startBarrier;
@@ -194,6 +202,19 @@ public class QNetsimEngine implements MobsimEngine {
 
 
 		this.numOfThreads = this.getMobsim().getScenario().getConfig().qsim().getNumberOfThreads();
+		this.loadBalancingThreshold = qsimConfigGroup.getDynamicLoadBalancingThreshold();
+
+		switch( qsimConfigGroup.getNetworkPartitioning() ) {
+		case roundRobin:
+			this.networkPartitioner = new RoundRobinNetworkPartitioner();
+			break;
+		case spaceFillingCurve:
+			this.networkPartitioner = new SpaceFillingCurveNetworkPartitioner();
+			break;
+		default:
+			throw new RuntimeException("networkPartitioning defined in config that does not exist: "
+					+ qsimConfigGroup.getNetworkPartitioning() ) ;
+		}
 	}
 
 	private static int wrnCnt = 0 ;
@@ -243,6 +264,8 @@ public class QNetsimEngine implements MobsimEngine {
 	@Override
 	public void afterSim() {
 
+		printRunnerStatistics();
+
 		/*
 		 * Calling the afterSim Method of the QSimEngineThreads
 		 * will set their simulationRunning flag to false.
@@ -328,6 +351,11 @@ public class QNetsimEngine implements MobsimEngine {
 
 		//        try {
 		// set current Time
+		if (this.loadBalancer != null) {
+			// safe point: no runner is moving nodes or links right now
+			this.loadBalancer.rebalanceIfNecessary(time);
+		}
+
 		for (QNetsimEngineRunner engine : this.engines) {
 			engine.setTime(time);
 		}
@@ -364,7 +392,8 @@ public class QNetsimEngine implements MobsimEngine {
 
 	/*package*/ void printSimLog(double time) {
 		if (time >= this.infoTime) {
-			this.infoTime += INFO_PERIOD;
+			// more than one period may have passed when idle time steps are skipped
+			this.infoTime = (Math.floor(time / INFO_PERIOD) + 1) * INFO_PERIOD;
 			int nofActiveLinks = this.getNumberOfSimulatedLinks();
 			int nofActiveNodes = this.getNumberOfSimulatedNodes();
 			log.info("SIMULATION (QNetsimEngine) AT " + Time.writeTime(time)
@@ -373,6 +402,20 @@ public class QNetsimEngine implements MobsimEngine {
 		}
 	}
 
+	/**
+	 * @return the current time if there is any active link or node, Double.POSITIVE_INFINITY otherwise.  Vehicles and agents only
+	 * enter the network through other engines, which report their own wake up times.
+	 */
+	@Override
+	public double getNextWakeUpTime() {
+		for (QNetsimEngineRunner engine : this.engines) {
+			if (engine.hasActiveElements()) {
+				return this.qsim.getSimTimer().getTimeOfDay();
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	public int getNumberOfSimulatedLinks() {
 
 		int numLinks = 0;
@@ -419,6 +462,36 @@ public class QNetsimEngine implements MobsimEngine {
 		return dpHandler;
 	}
 
+	/**
+	 * @return the number of runners the nodes and links are distributed over; only valid after {@link #onPrepareSim()}
+	 */
+	public int getNumberOfRunners() {
+		return this.engines.size();
+	}
+
+	/**
+	 * Departures from a link and agents at activities on it only touch the data of the runner that moves the link.  Thus,
+	 * they can be handled concurrently for links of different runners, as long as no runner is moving nodes or links.
+	 * The assignment may change from one time step to the next with dynamic load balancing.
+	 *
+	 * @return the index of the runner the link is assigned to, or -1 if the link is not in the netsim network
+	 */
+	public int getRunnerIndex(Id<Link> linkId) {
+		AbstractQLink qLink = (AbstractQLink) this.network.getNetsimLink(linkId);
+		if (qLink == null) {
+			return -1;
+		}
+		return this.engines.indexOf(qLink.getNetElementActivator());
+	}
+
+	/**
+	 * @return true if the departure handler of this engine would handle the departure of the agent from the link with a
+	 * vehicle that is parked there.  Such a departure only touches the data of that link and its runner.
+	 */
+	public boolean isDepartureWithParkedVehicle(MobsimAgent agent, Id<Link> linkId) {
+		return this.dpHandler.isDepartureWithParkedVehicle(agent, linkId);
+	}
+
 	public final Map<Id<Vehicle>, QVehicle> getVehicles() {
 		return Collections.unmodifiableMap(this.vehicles);
 	}
@@ -457,6 +530,14 @@ public class QNetsimEngine implements MobsimEngine {
 		return this.linkSpeedCalculator;
 	}
 
+	/**
+	 * Needs to be called before the simulation is prepared, since the nodes are assigned to the runners in
+	 * {@link #onPrepareSim()}.
+	 */
+	public void setNetworkPartitioner(NetworkPartitioner networkPartitioner) {
+		this.networkPartitioner = networkPartitioner;
+	}
+
 	private void initQSimEngineThreads() {
 
 		this.engines = new ArrayList<>() ;
@@ -493,6 +574,10 @@ public class QNetsimEngine implements MobsimEngine {
 		 *  should become obsolete.
 		 */
 		assignNetElementActivators();
+
+		if (this.loadBalancingThreshold > 0. && this.engines.size() > 1) {
+			this.loadBalancer = new QNetsimEngineLoadBalancer(this.network, this.engines, this.loadBalancingThreshold);
+		}
 	}
 
 	/*
@@ -505,12 +590,21 @@ public class QNetsimEngine implements MobsimEngine {
 		// only for statistics
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
+		double load[] = new double[numOfRunners];
 
-		int roundRobin = 0;
-		for (QNode node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+		List<QNode> qNodes = new ArrayList<>(network.getNetsimNodes().values());
+		List<Node> plainNodes = new ArrayList<>(qNodes.size());
+		for (QNode node : qNodes) {
+			plainNodes.add(node.getNode());
+		}
+		int[] partitions = this.networkPartitioner.partition(plainNodes, this.numOfRunners);
+
+		for (int n = 0; n < qNodes.size(); n++) {
+			QNode node = qNodes.get(n);
+			int i = partitions[n];
 			node.setNetElementActivator(this.engines.get(i));
 			nodes[i]++;
+			load[i] += NetworkPartitionerUtils.getExpectedLoad(node.getNode());
 
 			// set activator for out links
 			for (Link outLink : node.getNode().getOutLinks().values()) {
@@ -531,16 +625,63 @@ public class QNetsimEngine implements MobsimEngine {
 				links[i]++;
 
 			}
+		}
 
-			roundRobin++;
+		// links whose toNode is handled by a different runner than their fromNode; vehicles crossing them touch the data of two runners:
+		Map<Id<Node>, Integer> partitionOfNode = new HashMap<>();
+		for (int n = 0; n < qNodes.size(); n++) {
+			partitionOfNode.put(qNodes.get(n).getNode().getId(), partitions[n]);
+		}
+		int cutLinks = 0;
+		for (QNode node : qNodes) {
+			for (Link outLink : node.getNode().getOutLinks().values()) {
+				if (!partitionOfNode.get(outLink.getFromNode().getId()).equals(partitionOfNode.get(outLink.getToNode().getId()))) {
+					cutLinks++;
+				}
+			}
 		}
 
 		// print some statistics
 		for (int i = 0; i < this.engines.size(); i++) {
-			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
+			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links (expected load " + (int) load[i] + ") to QSimEngineRunner #" + i);
 		}
+		log.info(cutLinks + " links connect nodes of different QSimEngineRunners (" + this.networkPartitioner.getClass().getSimpleName() + ").");
 
 		this.linksToActivateInitially.clear();
 	}
 
+	private void printRunnerStatistics() {
+		long totalNodeSteps = 0;
+		long totalLinkSteps = 0;
+		for (QNetsimEngineRunner engine : this.engines) {
+			totalNodeSteps += engine.getNumberOfNodeSimSteps();
+			totalLinkSteps += engine.getNumberOfLinkSimSteps();
+		}
+		for (int i = 0; i < this.engines.size(); i++) {
+			QNetsimEngineRunner engine = this.engines.get(i);
+			log.info("QSimEngineRunner #" + i + " moved nodes " + engine.getNumberOfNodeSimSteps() + " times ("
+					+ share(engine.getNumberOfNodeSimSteps(), totalNodeSteps) + "%) and links " + engine.getNumberOfLinkSimSteps()
+					+ " times (" + share(engine.getNumberOfLinkSimSteps(), totalLinkSteps) + "%); busy for "
+					+ engine.getTotalBusyTime() / 1000000 + " ms, waiting at barriers for " + engine.getBarrierWaitTime() / 1000000 + " ms.");
+		}
+		if (this.loadBalancer != null) {
+			log.info(this.loadBalancer.getNumberOfMigrations() + " load balancing migrations between QSimEngineRunners.");
+		}
+	}
+
+	/**
+	 * @return the summed wall time (in ns) the runners spent waiting for each other at the barriers within the time steps
+	 */
+	public long getBarrierWaitTime() {
+		long nanos = 0;
+		for (QNetsimEngineRunner engine : this.engines) {
+			nanos += engine.getBarrierWaitTime();
+		}
+		return nanos;
+	}
+
+	private static long share(long part, long total) {
+		return total == 0 ? 0 : Math.round(100. * part / total);
+	}
+
 }
@@ -0,0 +1,198 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineLoadBalancer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.utils.misc.Time;
+
+/**
+ * Moves nodes (together with their out-links) from the busiest to the least busy {@link QNetsimEngineRunner} when
+ * the measured wall times of the runners differ too much.  The static assignment at startup cannot know that, say,
+ * the CBD is crowded during the morning peak but empty at night.
+ * <p></p>
+ * Nodes are migrated across the border between the two runners, i.e. starting with nodes of the busiest runner that
+ * are adjacent to nodes of the least busy runner, so that partitions stay contiguous.  As before, a link is always
+ * handled by the runner of its from-node, since that is where it gets activated.
+ * <p></p>
+ * Must only be called between two time steps, i.e. when no runner is moving nodes or links.
+ */
+final class QNetsimEngineLoadBalancer {
+
+	private static final Logger log = Logger.getLogger(QNetsimEngineLoadBalancer.class);
+
+	/**
+	 * Number of time steps over which the wall times are aggregated before deciding on a migration.
+	 */
+	/*package*/ static final int CHECK_PERIOD = 300;
+
+	private final QNetwork network;
+	private final List<QNetsimEngineRunner> runners;
+	private final double threshold;
+
+	private int stepsSinceLastCheck = 0;
+	private int nofMigrations = 0;
+
+	QNetsimEngineLoadBalancer(QNetwork network, List<QNetsimEngineRunner> runners, double threshold) {
+		this.network = network;
+		this.runners = runners;
+		this.threshold = threshold;
+	}
+
+	/*package*/ void rebalanceIfNecessary(double time) {
+		this.stepsSinceLastCheck++;
+		if (this.stepsSinceLastCheck < CHECK_PERIOD) {
+			return;
+		}
+		this.stepsSinceLastCheck = 0;
+
+		long[] busy = new long[this.runners.size()];
+		long sum = 0;
+		int busiest = 0;
+		int laziest = 0;
+		for (int i = 0; i < busy.length; i++) {
+			busy[i] = this.runners.get(i).getAndResetBusyTime();
+			sum += busy[i];
+			if (busy[i] > busy[busiest]) busiest = i;
+			if (busy[i] < busy[laziest]) laziest = i;
+		}
+		double mean = (double) sum / busy.length;
+		if (busiest == laziest || busy[busiest] == 0 || busy[busiest] <= this.threshold * mean) {
+			resetCounters();
+			return;
+		}
+
+		// shift as much work as brings one of the two runners to the average, but not more:
+		double nanosToShift = Math.min(busy[busiest] - mean, mean - busy[laziest]);
+		double fractionToShift = nanosToShift / busy[busiest];
+
+		QNetsimEngineRunner source = this.runners.get(busiest);
+		QNetsimEngineRunner target = this.runners.get(laziest);
+		Set<QNode> nodesToMove = selectNodes(source, target, fractionToShift);
+		if (!nodesToMove.isEmpty()) {
+			migrate(nodesToMove, source, target);
+			this.nofMigrations++;
+			log.info("At " + Time.writeTime(time) + ": moved " + nodesToMove.size() + " nodes from QSimEngineRunner #" + busiest
+					+ " to QSimEngineRunner #" + laziest + " (busiest runner at " + Math.round(100. * busy[busiest] / mean)
+					+ "% of the average wall time).");
+		}
+		resetCounters();
+	}
+
+	/*
+	 * Grows a region of nodes of the source runner, starting at its border to the target runner, until the region
+	 * accounts for the given fraction of the node sim steps of the source runner.
+	 */
+	private Set<QNode> selectNodes(QNetsimEngineRunner source, QNetsimEngineRunner target, double fractionToShift) {
+		long sourceSteps = 0;
+		List<QNode> sourceNodes = new ArrayList<>();
+		Queue<QNode> queue = new LinkedList<>();
+		for (QNode node : this.network.getNetsimNodes().values()) {
+			if (node.getNetElementActivator() == source) {
+				sourceNodes.add(node);
+				sourceSteps += node.simStepsCounter;
+				if (isAdjacentTo(node, target)) {
+					queue.add(node);
+				}
+			}
+		}
+		Set<QNode> selected = new HashSet<>();
+		if (sourceSteps == 0 || sourceNodes.size() <= 1) {
+			return selected;
+		}
+		if (queue.isEmpty()) {
+			// the two runners do not share a border; start anywhere
+			queue.add(sourceNodes.get(0));
+		}
+
+		long stepsToShift = (long) (fractionToShift * sourceSteps);
+		long shifted = 0;
+		while (!queue.isEmpty() && shifted < stepsToShift && selected.size() < sourceNodes.size() - 1) {
+			QNode node = queue.poll();
+			if (!selected.add(node)) {
+				continue;
+			}
+			shifted += node.simStepsCounter;
+			for (Link link : node.getNode().getOutLinks().values()) {
+				addIfOwnedBy(link.getToNode().getId(), source, selected, queue);
+			}
+			for (Link link : node.getNode().getInLinks().values()) {
+				addIfOwnedBy(link.getFromNode().getId(), source, selected, queue);
+			}
+		}
+		return selected;
+	}
+
+	private void addIfOwnedBy(Id<Node> nodeId, QNetsimEngineRunner owner,
+			Set<QNode> selected, Queue<QNode> queue) {
+		QNode neighbour = this.network.getNetsimNodes().get(nodeId);
+		if (neighbour.getNetElementActivator() == owner && !selected.contains(neighbour)) {
+			queue.add(neighbour);
+		}
+	}
+
+	private boolean isAdjacentTo(QNode node, QNetsimEngineRunner runner) {
+		for (Link link : node.getNode().getOutLinks().values()) {
+			if (this.network.getNetsimNodes().get(link.getToNode().getId()).getNetElementActivator() == runner) {
+				return true;
+			}
+		}
+		for (Link link : node.getNode().getInLinks().values()) {
+			if (this.network.getNetsimNodes().get(link.getFromNode().getId()).getNetElementActivator() == runner) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void migrate(Set<QNode> nodes, QNetsimEngineRunner source, QNetsimEngineRunner target) {
+		Set<QLinkInternalI> links = new HashSet<>();
+		for (QNode node : nodes) {
+			node.setNetElementActivator(target);
+			for (Link outLink : node.getNode().getOutLinks().values()) {
+				AbstractQLink qLink = (AbstractQLink) this.network.getNetsimLink(outLink.getId());
+				qLink.setNetElementActivator(target);
+				links.add(qLink);
+			}
+		}
+		source.transferActiveElements(nodes, links, target);
+	}
+
+	private void resetCounters() {
+		for (QNode node : this.network.getNetsimNodes().values()) {
+			node.simStepsCounter = 0;
+		}
+	}
+
+	/*package*/ int getNumberOfMigrations() {
+		return this.nofMigrations;
+	}
+
+}
@@ -76,6 +76,16 @@ class QNetsimEngineRunner extends NetElementActivator implements Runnable, Calla
 
 	private boolean movingNodes;
 
+	// only for statistics
+	private long nodeSimSteps = 0;
+	private long linkSimSteps = 0;
+
+	// wall time spent moving nodes and links; the first is reset by the load balancer
+	private long busyNanos = 0;
+	private long totalBusyNanos = 0;
+	// wall time spent waiting for the other runners at the separation and end barriers
+	private long barrierWaitNanos = 0;
+
 	/*package*/ QNetsimEngineRunner(Phaser startBarrier, Phaser separationBarrier, Phaser endBarrier) {
 		this.startBarrier = startBarrier;
 		this.separationBarrier = separationBarrier;
@@ -109,11 +119,13 @@ class QNetsimEngineRunner extends NetElementActivator implements Runnable, Calla
 			return false;
 		}
 
+		long start = System.nanoTime();
 		if ( this.movingNodes ) {
 			moveNodes();
 		} else {
 			moveLinks();
 		}
+		addBusyTime(System.nanoTime() - start);
 		return true ;
 	}
 
@@ -135,18 +147,26 @@ class QNetsimEngineRunner extends NetElementActivator implements Runnable, Calla
 				return;
 			}
 
+			long start = System.nanoTime();
 			moveNodes();
+			long end = System.nanoTime();
+			addBusyTime(end - start);
 
 			// After moving the QNodes all we use a Phaser to synchronize the threads.
 			this.separationBarrier.arriveAndAwaitAdvance();
 
+			start = System.nanoTime();
+			this.barrierWaitNanos += start - end;
 			moveLinks();
+			end = System.nanoTime();
+			addBusyTime(end - start);
 
 			/*
 			 * The end of moving is synchronized with the endBarrier. If all threads 
 			 * reach this barrier the main thread can go on.
 			 */
 			this.endBarrier.arriveAndAwaitAdvance();
+			this.barrierWaitNanos += System.nanoTime() - end;
 		}
 	}
 	private void moveNodes() {
@@ -156,6 +176,8 @@ class QNetsimEngineRunner extends NetElementActivator implements Runnable, Calla
 		Iterator<QNode> simNodes = this.nodesQueue.iterator();
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
+			nodeSimSteps++;
+			node.simStepsCounter++;
 			remainsActive = node.doSimStep(time);
 			if (!remainsActive) simNodes.remove();
 		}
@@ -168,6 +190,7 @@ class QNetsimEngineRunner extends NetElementActivator implements Runnable, Calla
 		ListIterator<QLinkInternalI> simLinks = this.linksList.listIterator();
 		while (simLinks.hasNext()) {
 			link = simLinks.next();
+			linkSimSteps++;
 
 			remainsActive = link.doSimStep(time);
 
@@ -214,6 +237,69 @@ class QNetsimEngineRunner extends NetElementActivator implements Runnable, Calla
 		return this.nodesQueue.size();
 	}
 
+	/*
+	 * Uses isEmpty() rather than the sizes since that is O(1) also for the nodesQueue.
+	 */
+	/*package*/ boolean hasActiveElements() {
+		return !this.linksList.isEmpty() || !this.nodesQueue.isEmpty();
+	}
+
+	private void addBusyTime(long nanos) {
+		this.busyNanos += nanos;
+		this.totalBusyNanos += nanos;
+	}
+
+	/**
+	 * Only to be called while the runner is not moving nodes or links.
+	 * 
+	 * @return the wall time (in ns) spent moving nodes and links since the last call of this method
+	 */
+	/*package*/ long getAndResetBusyTime() {
+		long nanos = this.busyNanos;
+		this.busyNanos = 0;
+		return nanos;
+	}
+
+	/*package*/ long getTotalBusyTime() {
+		return this.totalBusyNanos;
+	}
+
+	/*package*/ long getBarrierWaitTime() {
+		return this.barrierWaitNanos;
+	}
+
+	/*
+	 * Hands the given nodes and links over to another runner, including their activation state.  Only allowed while
+	 * no runner is moving nodes or links, i.e. between two time steps.  The activators of the elements themselves
+	 * need to be changed by the caller.
+	 */
+	/*package*/ void transferActiveElements(Set<QNode> nodes, Set<QLinkInternalI> links, QNetsimEngineRunner target) {
+		Iterator<QNode> nodeIter = this.nodesQueue.iterator();
+		while (nodeIter.hasNext()) {
+			QNode node = nodeIter.next();
+			if (nodes.contains(node)) {
+				nodeIter.remove();
+				target.nodesQueue.add(node);
+			}
+		}
+		Iterator<QLinkInternalI> linkIter = this.linksList.iterator();
+		while (linkIter.hasNext()) {
+			QLinkInternalI link = linkIter.next();
+			if (links.contains(link)) {
+				linkIter.remove();
+				target.linksList.add(link);
+			}
+		}
+	}
+
+	/*package*/ long getNumberOfNodeSimSteps() {
+		return this.nodeSimSteps;
+	}
+
+	/*package*/ long getNumberOfLinkSimSteps() {
+		return this.linkSimSteps;
+	}
+
 	public void setMovingNodes(boolean movingNodes) {
 		this.movingNodes = movingNodes;
 	}
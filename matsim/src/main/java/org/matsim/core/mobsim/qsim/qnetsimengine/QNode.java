@@ -55,6 +55,9 @@ public class QNode implements NetsimNode {
 	// necessary if Nodes are (de)activated
 	private NetElementActivator activator = null;
 
+	// number of sim steps since the last load balancing; only touched by the runner that owns this node
+	/*package*/ int simStepsCounter = 0;
+
 	// for Customizable
 	private final Map<String, Object> customAttributes = new HashMap<>();
 
@@ -115,6 +118,10 @@ public class QNode implements NetsimNode {
 		this.activator = activator;
 	}
 
+	/*package*/ NetElementActivator getNetElementActivator() {
+		return this.activator;
+	}
+
 	/*
 	 * This method is called from QueueWithBuffer.addToBuffer(...) which is triggered at 
 	 * some placed, but always initially by a QLink's doSomStep(...) method. I.e. QNodes
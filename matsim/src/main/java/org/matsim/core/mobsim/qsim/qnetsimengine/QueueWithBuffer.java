@@ -22,6 +22,7 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
@@ -61,6 +62,8 @@ import java.util.*;
 final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 	private static final Logger log = Logger.getLogger( QueueWithBuffer.class ) ;
 
+	static final int MAX_INITIAL_CAPACITY = 128 ;
+
 	/**
 	 * The remaining integer part of the flow capacity available in one time step to move vehicles into the
 	 * buffer. This value is updated each time step by a call to
@@ -109,7 +112,11 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 	private double usedBufferStorageCapacity = 0.0 ;
 	private double remainingHolesStorageCapacity = 0.0 ;
 
-	private final Queue<QueueWithBuffer.Hole> holes = new LinkedList<QueueWithBuffer.Hole>();
+	private final Queue<QueueWithBuffer.Hole> holes;
+	/**
+	 * Holes that have arrived upstream, kept for re-use so that leaving vehicles do not allocate a new hole every time.
+	 */
+	private final Queue<QueueWithBuffer.Hole> unusedHoles;
 
 	private double freespeedTravelTime = Double.NaN;
 	/** the last timestep the front-most vehicle in the buffer was moved. Used for detecting dead-locks. */
@@ -125,7 +132,7 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 	/**
 	 * Holds all vehicles that are ready to cross the outgoing intersection
 	 */
-	private final Queue<QVehicle> buffer = new LinkedList<>() ;
+	private final Queue<QVehicle> buffer;
 	/**
 	 * null if the link is not signalized
 	 */
@@ -173,9 +180,6 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 			this.qLink = qLink ;
 		}
 		QueueWithBuffer build() {
-			if ( vehicleQueue == null ) {
-				vehicleQueue = new FIFOVehicleQ() ;
-			}
 			if ( id==null ) {
 				id = Id.create( qLink.getLink().getId() , Lane.class ) ;
 			}
@@ -188,6 +192,13 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 			if ( flowCapacity_s==null ) {
 				flowCapacity_s = ((LinkImpl)qLink.getLink()).getFlowCapacity() ;
 			}
+			if ( vehicleQueue == null ) {
+				// size the ring buffer from a first guess at the storage capacity (see calculateStorageCapacity()):
+				Scenario scenario = qLink.network.simEngine.getMobsim().getScenario() ;
+				double storageCapacity = length * effectiveNumberOfLanes / ((NetworkImpl) scenario.getNetwork()).getEffectiveCellSize()
+						* scenario.getConfig().qsim().getStorageCapFactor() ;
+				vehicleQueue = new FIFOVehicleQ( initialCapacity( storageCapacity ) ) ;
+			}
 			return new QueueWithBuffer( qLink, vehicleQueue, id, length, effectiveNumberOfLanes, flowCapacity_s ) ;
 		}
 		/**
@@ -279,6 +290,15 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		this.calculateFlowCapacity();
 		this.calculateStorageCapacity();
 
+		this.buffer = new ArrayDeque<>( initialCapacity( bufferStorageCapacity ) ) ;
+		if ( QueueWithBuffer.HOLES ) {
+			this.holes = new ArrayDeque<>( initialCapacity( storageCapacity ) ) ;
+			this.unusedHoles = new ArrayDeque<>( initialCapacity( storageCapacity ) ) ;
+		} else {
+			this.holes = new ArrayDeque<>() ;
+			this.unusedHoles = new ArrayDeque<>() ;
+		}
+
 		if(this.fastCapacityUpdate){
 			flowcap_accumulate.setValue(flowCapacityPerTimeStep);
 		} else {
@@ -398,6 +418,17 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		flowCapacityPerTimeStepFractionalPart = flowCapacityPerTimeStep - (int) flowCapacityPerTimeStep;
 	}
 
+	/**
+	 * @return initial capacity for the vehicle and hole ring buffers of a lane that can hold the given number of vehicles.  Capped
+	 * at {@link #MAX_INITIAL_CAPACITY} so that long links do not reserve memory they may never need; the buffers grow if necessary.
+	 */
+	static int initialCapacity( final double numberOfVehicles ) {
+		if ( !(numberOfVehicles < MAX_INITIAL_CAPACITY) ) { // also catches infinite storage capacities
+			return MAX_INITIAL_CAPACITY ;
+		}
+		return Math.max( 1, (int) Math.ceil( numberOfVehicles ) ) ;
+	}
+
 	private void calculateStorageCapacity() {
 		double storageCapFactor = network.simEngine.getMobsim().getScenario().getConfig().qsim().getStorageCapFactor();
 		bufferStorageCapacity = (int) Math.ceil(flowCapacityPerTimeStep);
@@ -447,6 +478,7 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		while ( this.holes.size()>0 && this.holes.peek().getEarliestLinkExitTime() < now ) {
 			Hole hole = this.holes.poll() ; // ???
 			this.remainingHolesStorageCapacity += hole.getSizeInEquivalents() ;
+			this.unusedHoles.add( hole ) ;
 		}
 	}
 	
@@ -517,7 +549,10 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		}
 
 		if ( QueueWithBuffer.HOLES ) {
-			QueueWithBuffer.Hole hole = new QueueWithBuffer.Hole() ;
+			QueueWithBuffer.Hole hole = unusedHoles.poll() ;
+			if ( hole == null ) {
+				hole = new QueueWithBuffer.Hole() ;
+			}
 			double offset = length*3600./hole_speed/1000. ;
 			hole.setEarliestLinkExitTime( now + 1.0*offset + 0.0*MatsimRandom.getRandom().nextDouble()*offset ) ;
 			hole.setSizeInEquivalents(veh2Remove.getSizeInEquivalents());
@@ -539,6 +574,16 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 		return vehQueue.size();
 	}
 
+	final int holesInQueueCount() {
+		// called by test cases
+		return holes.size();
+	}
+
+	final int unusedHolesCount() {
+		// called by test cases
+		return unusedHoles.size();
+	}
+
 	@Override
 	public final boolean isActive() {
 		if(this.fastCapacityUpdate){
@@ -881,26 +926,14 @@ final class QueueWithBuffer extends QLaneI implements SignalizeableItem {
 			//driver is present in veh and driving seep mode
 			return vehQueue.peek();
 		} else {
-			QVehicle returnVeh = null;
-			boolean foundSeepMode = false;
-			VehicleQ<QVehicle> newVehQueue = new PassingVehicleQ();
-			Iterator<QVehicle> it = vehQueue.iterator();
-
-			while(it.hasNext()){
-				QVehicle veh = vehQueue.poll(); 
-				if(veh.getDriver()==null) {
-				} else if(veh.getEarliestLinkExitTime()<=now && veh.getDriver().getMode().equals(seepMode) && !foundSeepMode) {
-					returnVeh = veh;
-					newVehQueue.add(veh);
-					foundSeepMode=true;
-				} else {
-					newVehQueue.add(veh);
+			// the first vehicle of the seep mode that may leave seeps through; it is removed from the queue by
+			// removeVehicleFromQueue(...), so the queue does not need to be re-built (which allocated a new queue every time)
+			for (QVehicle veh : vehQueue) {
+				if(veh.getDriver()!=null && veh.getEarliestLinkExitTime()<=now && veh.getDriver().getMode().equals(seepMode)) {
+					return veh;
 				}
 			}
-			if(!vehQueue.isEmpty()) throw new RuntimeException("This queue should be empty at this point.");
-			vehQueue.addAll(newVehQueue);
-			if(returnVeh==null) return vehQueue.peek();
-			else return returnVeh;
+			return vehQueue.peek();
 		}
 
 	}
@@ -0,0 +1,170 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QueueWithBufferBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.population.ActivityImpl;
+import org.matsim.core.population.LegImpl;
+import org.matsim.core.population.PersonImpl;
+import org.matsim.core.population.PlanImpl;
+import org.matsim.core.population.routes.LinkNetworkRouteImpl;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.CoordImpl;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleImpl;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleTypeImpl;
+
+/**
+ * Measures the two steps of {@link QueueWithBuffer} that every vehicle passes on every link, without the rest of the
+ * mobsim: moving vehicles from the lane into the buffer ({@link QLinkImpl#doSimStep(double)}) and taking them out of
+ * the buffer onto the next lane ({@link QLinkImpl#popFirstVehicle()} and {@link QLinkImpl#addFromUpstream(QVehicle)},
+ * as done by the node).  The next lane is the same link again, so that the link stays full and the vehicles circulate
+ * without agents, nodes or other links being simulated.  Both traffic dynamics are measured, since only
+ * <code>withHoles</code> sends holes upstream.
+ * <p></p>
+ * Usage: <code>QueueWithBufferBenchmark [numberOfTimeSteps [numberOfRuns]]</code>
+ */
+public final class QueueWithBufferBenchmark {
+
+	private static final Logger log = Logger.getLogger(QueueWithBufferBenchmark.class);
+
+	// 7500m with 5 lanes hold 5000 vehicles; 36000 veh/h let 10 vehicles leave per time step
+	private static final double LENGTH = 7500.0;
+	private static final double NUMBER_OF_LANES = 5.0;
+	private static final double CAPACITY = 36000.0;
+	private static final int NUMBER_OF_VEHICLES = 5000;
+
+	private QueueWithBufferBenchmark() {
+	}
+
+	public static void main(String[] args) {
+		int numberOfTimeSteps = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int numberOfRuns = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+		for (TrafficDynamics trafficDynamics : new TrafficDynamics[] { TrafficDynamics.queue, TrafficDynamics.withHoles }) {
+			for (int run = 0; run < numberOfRuns; run++) {
+				run(trafficDynamics, run, numberOfTimeSteps);
+			}
+		}
+	}
+
+	private static void run(final TrafficDynamics trafficDynamics, final int run, final int numberOfTimeSteps) {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		scenario.getConfig().qsim().setTrafficDynamics(trafficDynamics);
+		NetworkImpl network = (NetworkImpl) scenario.getNetwork();
+		network.setCapacityPeriod(3600.0);
+		Node node1 = network.createAndAddNode(Id.create(1, Node.class), new CoordImpl(0, 0));
+		Node node2 = network.createAndAddNode(Id.create(2, Node.class), new CoordImpl(LENGTH, 0));
+		Link link = network.createAndAddLink(Id.create(1, Link.class), node1, node2, LENGTH, 15.0, CAPACITY, NUMBER_OF_LANES);
+		Link nextLink = network.createAndAddLink(Id.create(2, Link.class), node2, node1, LENGTH, 15.0, CAPACITY, NUMBER_OF_LANES);
+
+		QSim sim = (QSim) QSimUtils.createDefaultQSim(scenario, EventsUtils.createEventsManager());
+		QNetwork qnetwork = (QNetwork) sim.getNetsimNetwork();
+		QLinkImpl qlink = (QLinkImpl) qnetwork.getNetsimLink(link.getId());
+		ignoreActivation(qnetwork);
+
+		// the drivers never move on, so they always want to leave the link towards the next link
+		sim.getSimTimer().setTime(0.0);
+		VehicleType type = new VehicleTypeImpl(Id.create("defaultVehicleType", VehicleType.class));
+		for (int i = 0; i < NUMBER_OF_VEHICLES && qlink.isAcceptingFromUpstream(); i++) {
+			PersonImpl person = new PersonImpl(Id.create(i, Person.class));
+			PlanImpl plan = new PlanImpl();
+			person.addPlan(plan);
+			plan.addActivity(new ActivityImpl("h", link.getId()));
+			Leg leg = new LegImpl(TransportMode.car);
+			leg.setRoute(new LinkNetworkRouteImpl(link.getId(), nextLink.getId()));
+			plan.addLeg(leg);
+			plan.addActivity(new ActivityImpl("w", nextLink.getId()));
+			PersonDriverAgentImpl driver = new PersonDriverAgentImpl(plan, sim);
+			sim.insertAgentIntoMobsim(driver);
+			driver.endActivityAndComputeNextState(0.0);
+			QVehicle veh = new QVehicle(new VehicleImpl(Id.create(i, Vehicle.class), type));
+			veh.setDriver(driver);
+			qlink.addFromUpstream(veh);
+		}
+
+		long laneToBufferNanos = 0;
+		long bufferToNextLaneNanos = 0;
+		long moved = 0;
+		for (int step = 1; step <= numberOfTimeSteps; step++) {
+			double now = step;
+			sim.getSimTimer().setTime(now);
+
+			long start = System.nanoTime();
+			qlink.doSimStep(now);
+			long middle = System.nanoTime();
+			while (!qlink.isNotOfferingVehicle() && qlink.isAcceptingFromUpstream()) {
+				qlink.addFromUpstream(qlink.popFirstVehicle());
+				moved++;
+			}
+			long end = System.nanoTime();
+
+			laneToBufferNanos += middle - start;
+			bufferToNextLaneNanos += end - middle;
+		}
+
+		log.info(trafficDynamics + ", run " + run + ": " + moved + " vehicles moved in " + numberOfTimeSteps + " time steps; "
+				+ "lane to buffer: " + (laneToBufferNanos / Math.max(moved, 1)) + " ns per vehicle, "
+				+ "buffer to next lane: " + (bufferToNextLaneNanos / Math.max(moved, 1)) + " ns per vehicle.");
+	}
+
+	private static void ignoreActivation(final QNetwork qnetwork) {
+		NetElementActivator activator = new NetElementActivator() {
+			@Override
+			protected void activateNode(QNode node) {
+			}
+			@Override
+			int getNumberOfSimulatedNodes() {
+				return 0;
+			}
+			@Override
+			protected void activateLink(QLinkInternalI link) {
+			}
+			@Override
+			int getNumberOfSimulatedLinks() {
+				return 0;
+			}
+		};
+		for (QNode node : qnetwork.getNetsimNodes().values()) {
+			node.setNetElementActivator(activator);
+		}
+		for (QLinkInternalI link : qnetwork.getNetsimLinks().values()) {
+			((QLinkImpl) link).setNetElementActivator(activator);
+		}
+	}
+
+}
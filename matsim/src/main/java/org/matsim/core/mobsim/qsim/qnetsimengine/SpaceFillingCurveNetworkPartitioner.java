@@ -0,0 +1,118 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpaceFillingCurveNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Sorts the nodes along a Hilbert curve over their coordinates and cuts the resulting sequence into contiguous
+ * pieces of (approximately) equal expected load.  Neighbouring nodes thus mostly end up in the same runner, which
+ * reduces the number of links crossing partitions and keeps the data touched by one runner together.
+ * <p></p>
+ * The expected load of a node is taken from {@link NetworkPartitionerUtils#getExpectedLoad(Node)}.
+ */
+public final class SpaceFillingCurveNetworkPartitioner implements NetworkPartitioner {
+
+	private static final int ORDER = 16;
+	private static final int GRID_SIZE = 1 << ORDER;
+
+	@Override
+	public int[] partition(List<? extends Node> nodes, int numberOfPartitions) {
+		final int nofNodes = nodes.size();
+		int[] partitions = new int[nofNodes];
+		if (nofNodes == 0) {
+			return partitions;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (Node node : nodes) {
+			Coord coord = node.getCoord();
+			minX = Math.min(minX, coord.getX());
+			minY = Math.min(minY, coord.getY());
+			maxX = Math.max(maxX, coord.getX());
+			maxY = Math.max(maxY, coord.getY());
+		}
+		final double scale = (GRID_SIZE - 1) / Math.max(Math.max(maxX - minX, maxY - minY), 1e-9);
+
+		final long[] curveIndex = new long[nofNodes];
+		final double[] weights = new double[nofNodes];
+		double totalWeight = 0.0;
+		Integer[] order = new Integer[nofNodes];
+		for (int i = 0; i < nofNodes; i++) {
+			Node node = nodes.get(i);
+			int x = (int) ((node.getCoord().getX() - minX) * scale);
+			int y = (int) ((node.getCoord().getY() - minY) * scale);
+			curveIndex[i] = hilbertIndex(x, y);
+			weights[i] = NetworkPartitionerUtils.getExpectedLoad(node);
+			totalWeight += weights[i];
+			order[i] = i;
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int cmp = Long.compare(curveIndex[o1], curveIndex[o2]);
+				return cmp != 0 ? cmp : Integer.compare(o1, o2);
+			}
+		});
+
+		// cut the curve into pieces of equal weight:
+		double cumulatedWeight = 0.0;
+		for (Integer idx : order) {
+			int partition = (int) (cumulatedWeight * numberOfPartitions / totalWeight);
+			partitions[idx] = Math.min(partition, numberOfPartitions - 1);
+			cumulatedWeight += weights[idx];
+		}
+		return partitions;
+	}
+
+	/**
+	 * Position of (x,y) on a Hilbert curve filling a square of size {@link #GRID_SIZE}.
+	 */
+	/*package*/ static long hilbertIndex(int x, int y) {
+		long d = 0;
+		for (int s = GRID_SIZE / 2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			// rotate the quadrant:
+			if (ry == 0) {
+				if (rx == 1) {
+					x = GRID_SIZE - 1 - x;
+					y = GRID_SIZE - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+
+}
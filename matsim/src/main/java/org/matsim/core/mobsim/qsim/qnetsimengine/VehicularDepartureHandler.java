@@ -61,6 +61,18 @@ class VehicularDepartureHandler implements DepartureHandler {
 		return false;
 	}
 
+	/*
+	 * True if handleDeparture would let the agent depart with a vehicle that is parked on the departure link.  Such a
+	 * departure only touches the data of that link.
+	 */
+	boolean isDepartureWithParkedVehicle(MobsimAgent agent, Id<Link> linkId) {
+		if (!this.transportModes.contains(agent.getMode()) || !(agent instanceof MobsimDriverAgent)) {
+			return false;
+		}
+		QLinkInternalI qlink = (QLinkInternalI) qNetsimEngine.getNetsimNetwork().getNetsimLink(linkId);
+		return qlink != null && qlink.getParkedVehicle(((MobsimDriverAgent) agent).getPlannedVehicleId()) != null;
+	}
+
 	private void handleCarDeparture(double now, MobsimDriverAgent agent, Id<Link> linkId) {
 		// The situation where a leg starts and ends at the same link used to be
 		// handled specially, for all agents except AbstractTransitDriverAgents.
@@ -23,6 +23,7 @@ package org.matsim.core.network;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -34,7 +35,9 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.collections.PackedKDTree;
+import org.matsim.core.utils.collections.PackedSegmentTree;
+import org.matsim.core.utils.geometry.CoordUtils;
 
 /**
  * Design thoughts:<ul>
@@ -62,9 +65,19 @@ public final class NetworkImpl implements Network {
 
 	private final Map<Id<Link>, Link> links = new LinkedHashMap<>();
 
-	private QuadTree<Node> nodeQuadTree = null;
-	
-	private LinkQuadTree linkQuadTree = null;
+	/* the spatial indices are built when first needed. The link index is discarded whenever links are added or
+	 * removed. Nodes added to an existing node index are kept aside in addedNodes and searched linearly, so that
+	 * alternating addNode and getNearestNode does not rebuild the index every time; the node index is only discarded
+	 * once enough nodes have been added, or when a node in it is removed. addedNodes is only non-empty while there
+	 * is a node index.
+	 */
+	private PackedKDTree<Node> nodeIndex = null;
+
+	private List<Node> addedNodes = new ArrayList<>();
+
+	private PackedSegmentTree<Link> linkIndex = null;
+
+	private static final int MIN_ADDED_NODES_BEFORE_REBUILD = 64;
 
 	private static final double DEFAULT_EFFECTIVE_CELL_SIZE = 7.5;
 
@@ -117,6 +130,7 @@ public final class NetworkImpl implements Network {
 		toNode.addInLink(link);
 
 		links.put(link.getId(), link);
+		this.linkIndex = null;
 		
 		// show counter
 		this.counter++;
@@ -148,18 +162,11 @@ public final class NetworkImpl implements Network {
 					".\nNode is not added to the network.");
 		}
 		this.nodes.put(id, nn);
-		if (this.nodeQuadTree != null) {
-			if (Double.isInfinite(this.nodeQuadTree.getMinEasting())) {
-				// looks like the quad tree was initialized with infinite bounds, see MATSIM-278.
-				this.nodeQuadTree.clear();
-				this.nodeQuadTree = null;
-			} else if (this.nodeQuadTree.getMinEasting() <= nn.getCoord().getX() && this.nodeQuadTree.getMaxEasting() > nn.getCoord().getX()
-					&& this.nodeQuadTree.getMinNorthing() <= nn.getCoord().getY() && this.nodeQuadTree.getMaxNorthing() > nn.getCoord().getY()) {
-				this.nodeQuadTree.put(nn.getCoord().getX(), nn.getCoord().getY(), nn);
+		if (this.nodeIndex != null) {
+			if (this.addedNodes.size() < getMaxAddedNodes()) {
+				this.addedNodes.add(nn);
 			} else {
-				// we add a node outside the current bounds, invalidate it
-				this.nodeQuadTree.clear();
-				this.nodeQuadTree = null;
+				invalidateNodeIndex();
 			}
 		}
 
@@ -186,8 +193,8 @@ public final class NetworkImpl implements Network {
 		for (Link l : links1) {
 			removeLink(l.getId());
 		}
-		if (this.nodeQuadTree != null) {
-			this.nodeQuadTree.remove(n.getCoord().getX(),n.getCoord().getY(),n);
+		if (!this.addedNodes.remove(n)) {
+			invalidateNodeIndex();
 		}
 		return n;
 	}
@@ -200,6 +207,7 @@ public final class NetworkImpl implements Network {
 		}
 		l.getFromNode().getOutLinks().remove(l.getId());
 		l.getToNode().getInLinks().remove(l.getId());
+		this.linkIndex = null;
 		return l;
 	}
 
@@ -288,11 +296,19 @@ public final class NetworkImpl implements Network {
 		return this.nodes;
 	}
 
-    public Link getNearestLinkExactly(final Coord coord) {
-		if (this.linkQuadTree == null) {
-			buildLinkQuadTree();
+	/**
+	 * finds the link nearest to <code>coord</code>, measured as the distance to the line segment between
+	 * the link's from- and to-node
+	 *
+	 * @param coord the coordinate to which the closest link should be found
+	 * @return the closest link found, null if none
+	 */
+	public Link getNearestLinkExactly(final Coord coord) {
+		PackedSegmentTree<Link> index = this.linkIndex;
+		if (index == null) {
+			index = buildLinkIndex();
 		}
-		return this.linkQuadTree.getNearest(coord.getX(), coord.getY());
+		return index.getNearest(coord.getX(), coord.getY());
 	}
 
     /**
@@ -302,8 +318,17 @@ public final class NetworkImpl implements Network {
 	 * @return the closest node found, null if none
 	 */
 	public Node getNearestNode(final Coord coord) {
-		if (this.nodeQuadTree == null) { buildQuadTree(); }
-		return this.nodeQuadTree.get(coord.getX(), coord.getY());
+		List<Node> added = this.addedNodes;
+		Node nearest = getBuiltNodeIndex().getNearest(coord.getX(), coord.getY());
+		double nearestDistance = nearest == null ? Double.POSITIVE_INFINITY : CoordUtils.calcDistance(nearest.getCoord(), coord);
+		for (Node n : added) {
+			double distance = CoordUtils.calcDistance(n.getCoord(), coord);
+			if (distance < nearestDistance) {
+				nearest = n;
+				nearestDistance = distance;
+			}
+		}
+		return nearest;
 	}
 
 	/**
@@ -314,8 +339,71 @@ public final class NetworkImpl implements Network {
 	 * @return all nodes within distance to <code>coord</code>
 	 */
 	public Collection<Node> getNearestNodes(final Coord coord, final double distance) {
-		if (this.nodeQuadTree == null) { buildQuadTree(); }
-		return this.nodeQuadTree.get(coord.getX(), coord.getY(), distance);
+		List<Node> added = this.addedNodes;
+		Collection<Node> result = getBuiltNodeIndex().get(coord.getX(), coord.getY(), distance);
+		for (Node n : added) {
+			if (CoordUtils.calcDistance(n.getCoord(), coord) <= distance) {
+				result.add(n);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * finds the <code>k</code> nodes nearest to <code>coord</code>
+	 *
+	 * @param coord the coordinate to which the closest nodes should be found
+	 * @param k the number of nodes to be found
+	 * @return the closest nodes, ordered by increasing distance to <code>coord</code>
+	 */
+	public List<Node> getKNearestNodes(final Coord coord, final int k) {
+		List<Node> added = this.addedNodes;
+		List<Node> result = getBuiltNodeIndex().getKNearest(coord.getX(), coord.getY(), k);
+		if (added.isEmpty()) {
+			return result;
+		}
+		result = new ArrayList<>(result);
+		result.addAll(added);
+		Collections.sort(result, new Comparator<Node>() {
+			@Override
+			public int compare(final Node n1, final Node n2) {
+				return Double.compare(CoordUtils.calcDistance(n1.getCoord(), coord), CoordUtils.calcDistance(n2.getCoord(), coord));
+			}
+		});
+		return result.size() > k ? result.subList(0, k) : result;
+	}
+
+	/**
+	 * @return the spatial index of the nodes, for queries not offered by the network itself. Do not keep it
+	 * if the network might still be modified.
+	 */
+	public PackedKDTree<Node> getNodeIndex() {
+		if (!this.addedNodes.isEmpty()) {
+			invalidateNodeIndex();
+		}
+		return getBuiltNodeIndex();
+	}
+
+	/* does not contain the addedNodes */
+	private PackedKDTree<Node> getBuiltNodeIndex() {
+		PackedKDTree<Node> index = this.nodeIndex;
+		if (index == null) {
+			index = buildNodeIndex();
+		}
+		return index;
+	}
+
+	private int getMaxAddedNodes() {
+		/* every query searches the added nodes linearly, while a rebuild costs about as much as a linear search over
+		 * all nodes. Keeping up to sqrt(n) nodes aside balances the two when adds and queries alternate.
+		 */
+		return Math.max(MIN_ADDED_NODES_BEFORE_REBUILD, (int) Math.sqrt(this.nodes.size()));
+	}
+
+	private void invalidateNodeIndex() {
+		this.nodeIndex = null;
+		/* replace rather than clear the list, in case some query is still iterating over it */
+		this.addedNodes = new ArrayList<>();
 	}
 
 
@@ -340,69 +428,43 @@ public final class NetworkImpl implements Network {
 	}
 
 	public void connect() {
-		buildQuadTree();
+		getNodeIndex();
 	}
 
-	synchronized private void buildQuadTree() {
-		/* the method must be synchronized to ensure we only build one quadTree
-		 * in case that multiple threads call a method that requires the quadTree.
+	synchronized private PackedKDTree<Node> buildNodeIndex() {
+		/* the method must be synchronized to ensure we only build one index
+		 * in case that multiple threads call a method that requires the index.
 		 */
-		if (this.nodeQuadTree != null) {
-			return;
+		if (this.nodeIndex != null) {
+			return this.nodeIndex;
 		}
 		double startTime = System.currentTimeMillis();
-		double minx = Double.POSITIVE_INFINITY;
-		double miny = Double.POSITIVE_INFINITY;
-		double maxx = Double.NEGATIVE_INFINITY;
-		double maxy = Double.NEGATIVE_INFINITY;
-		for (Node n : this.nodes.values()) {
-			if (n.getCoord().getX() < minx) { minx = n.getCoord().getX(); }
-			if (n.getCoord().getY() < miny) { miny = n.getCoord().getY(); }
-			if (n.getCoord().getX() > maxx) { maxx = n.getCoord().getX(); }
-			if (n.getCoord().getY() > maxy) { maxy = n.getCoord().getY(); }
-		}
-		minx -= 1.0;
-		miny -= 1.0;
-		maxx += 1.0;
-		maxy += 1.0;
-		log.info("building QuadTree for nodes: xrange(" + minx + "," + maxx + "); yrange(" + miny + "," + maxy + ")");
-		QuadTree<Node> quadTree = new QuadTree<>(minx, miny, maxx, maxy);
+		PackedKDTree.Builder<Node> builder = new PackedKDTree.Builder<>();
 		for (Node n : this.nodes.values()) {
-			quadTree.put(n.getCoord().getX(), n.getCoord().getY(), n);
+			builder.put(n.getCoord().getX(), n.getCoord().getY(), n);
 		}
-		/* assign the quadTree at the very end, when it is complete.
-		 * otherwise, other threads may already start working on an incomplete quadtree
+		/* assign the index at the very end, when it is complete.
+		 * otherwise, other threads may already start working on an incomplete index
 		 */
-		this.nodeQuadTree = quadTree;
-		log.info("Building QuadTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+		this.nodeIndex = builder.build();
+		log.info("Building spatial index for " + this.nodes.size() + " nodes took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+		return this.nodeIndex;
 	}
-	
-	synchronized private void buildLinkQuadTree() {
-		if (this.linkQuadTree != null) {
-			return;
+
+	synchronized private PackedSegmentTree<Link> buildLinkIndex() {
+		if (this.linkIndex != null) {
+			return this.linkIndex;
 		}
 		double startTime = System.currentTimeMillis();
-		double minx = Double.POSITIVE_INFINITY;
-		double miny = Double.POSITIVE_INFINITY;
-		double maxx = Double.NEGATIVE_INFINITY;
-		double maxy = Double.NEGATIVE_INFINITY;
-		for (Node n : this.nodes.values()) {
-			if (n.getCoord().getX() < minx) { minx = n.getCoord().getX(); }
-			if (n.getCoord().getY() < miny) { miny = n.getCoord().getY(); }
-			if (n.getCoord().getX() > maxx) { maxx = n.getCoord().getX(); }
-			if (n.getCoord().getY() > maxy) { maxy = n.getCoord().getY(); }
-		}
-		minx -= 1.0;
-		miny -= 1.0;
-		maxx += 1.0;
-		maxy += 1.0;
-		log.info("building LinkQuadTree for nodes: xrange(" + minx + "," + maxx + "); yrange(" + miny + "," + maxy + ")");
-		LinkQuadTree qt = new LinkQuadTree(minx, miny, maxx, maxy);
+		PackedSegmentTree.Builder<Link> builder = new PackedSegmentTree.Builder<>();
 		for (Link l : this.links.values()) {
-			qt.put(l);
+			Coord from = l.getFromNode().getCoord();
+			Coord to = l.getToNode().getCoord();
+			builder.put(from.getX(), from.getY(), to.getX(), to.getY(), l);
 		}
-		this.linkQuadTree = qt;
-		log.info("Building LinkQuadTree took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+		this.linkIndex = builder.build();
+		log.info("Building spatial index for " + this.links.size() + " links took " + ((System.currentTimeMillis() - startTime) / 1000.0) + " seconds.");
+		return this.linkIndex;
 	}
 
 	@Override
@@ -0,0 +1,184 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkSpatialIndexBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.collections.PackedKDTree;
+import org.matsim.core.utils.collections.PackedSegmentTree;
+import org.matsim.core.utils.collections.QuadTree;
+
+/**
+ * Compares {@link QuadTree} with {@link PackedKDTree} for node queries, and {@link LinkQuadTree} with
+ * {@link PackedSegmentTree} for nearest link queries, on the nodes and links of a network.  Reports the time
+ * needed to build each index and to answer the same random queries, as well as the number of queries where the
+ * results differ.
+ * <p></p>
+ * Usage: <code>NetworkSpatialIndexBenchmark networkFile [numberOfQueries [searchRadius]]</code>
+ */
+public final class NetworkSpatialIndexBenchmark {
+
+	private static final Logger log = Logger.getLogger(NetworkSpatialIndexBenchmark.class);
+
+	private static final int K = 10;
+
+	private NetworkSpatialIndexBenchmark() {
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.out.println("Usage: NetworkSpatialIndexBenchmark networkFile [numberOfQueries [searchRadius]]");
+			return;
+		}
+		int numberOfQueries = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		double searchRadius = args.length > 2 ? Double.parseDouble(args[2]) : 500.0;
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario).readFile(args[0]);
+		Network network = scenario.getNetwork();
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (Node n : network.getNodes().values()) {
+			minX = Math.min(minX, n.getCoord().getX());
+			minY = Math.min(minY, n.getCoord().getY());
+			maxX = Math.max(maxX, n.getCoord().getX());
+			maxY = Math.max(maxY, n.getCoord().getY());
+		}
+
+		Random random = new Random(4711);
+		double[] xs = new double[numberOfQueries];
+		double[] ys = new double[numberOfQueries];
+		for (int i = 0; i < numberOfQueries; i++) {
+			xs[i] = minX + (maxX - minX) * random.nextDouble();
+			ys[i] = minY + (maxY - minY) * random.nextDouble();
+		}
+
+		// nodes
+
+		long start = System.nanoTime();
+		QuadTree<Node> quadTree = new QuadTree<Node>(minX, minY, maxX, maxY);
+		for (Node n : network.getNodes().values()) {
+			quadTree.put(n.getCoord().getX(), n.getCoord().getY(), n);
+		}
+		log.info("QuadTree: build " + seconds(start));
+
+		start = System.nanoTime();
+		PackedKDTree.Builder<Node> kdBuilder = new PackedKDTree.Builder<Node>();
+		for (Node n : network.getNodes().values()) {
+			kdBuilder.put(n.getCoord().getX(), n.getCoord().getY(), n);
+		}
+		PackedKDTree<Node> kdTree = kdBuilder.build();
+		log.info("PackedKDTree: build " + seconds(start));
+
+		Node[] nearest = new Node[numberOfQueries];
+		start = System.nanoTime();
+		for (int i = 0; i < numberOfQueries; i++) {
+			nearest[i] = quadTree.get(xs[i], ys[i]);
+		}
+		log.info("QuadTree: nearest " + seconds(start));
+		int differences = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < numberOfQueries; i++) {
+			if (kdTree.getNearest(xs[i], ys[i]) != nearest[i]) {
+				differences++;
+			}
+		}
+		log.info("PackedKDTree: nearest " + seconds(start) + ", " + differences + " results differ (equal distances).");
+
+		long found = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < numberOfQueries; i++) {
+			found += quadTree.get(xs[i], ys[i], searchRadius).size();
+		}
+		log.info("QuadTree: radius " + seconds(start) + ", " + found + " nodes found.");
+		found = 0;
+		NoopExecutor executor = new NoopExecutor();
+		start = System.nanoTime();
+		for (int i = 0; i < numberOfQueries; i++) {
+			found += kdTree.execute(xs[i], ys[i], searchRadius, executor);
+		}
+		log.info("PackedKDTree: radius " + seconds(start) + ", " + found + " nodes found.");
+
+		int[] positions = new int[K];
+		double[] distances = new double[K];
+		start = System.nanoTime();
+		for (int i = 0; i < numberOfQueries; i++) {
+			kdTree.getKNearest(xs[i], ys[i], K, positions, distances);
+		}
+		log.info("PackedKDTree: " + K + " nearest " + seconds(start));
+
+		// links
+
+		start = System.nanoTime();
+		LinkQuadTree linkQuadTree = new LinkQuadTree(minX, minY, maxX, maxY);
+		for (Link l : network.getLinks().values()) {
+			linkQuadTree.put(l);
+		}
+		log.info("LinkQuadTree: build " + seconds(start));
+
+		start = System.nanoTime();
+		PackedSegmentTree.Builder<Link> segmentBuilder = new PackedSegmentTree.Builder<Link>();
+		for (Link l : network.getLinks().values()) {
+			Coord from = l.getFromNode().getCoord();
+			Coord to = l.getToNode().getCoord();
+			segmentBuilder.put(from.getX(), from.getY(), to.getX(), to.getY(), l);
+		}
+		PackedSegmentTree<Link> segmentTree = segmentBuilder.build();
+		log.info("PackedSegmentTree: build " + seconds(start));
+
+		Link[] nearestLinks = new Link[numberOfQueries];
+		start = System.nanoTime();
+		for (int i = 0; i < numberOfQueries; i++) {
+			nearestLinks[i] = linkQuadTree.getNearest(xs[i], ys[i]);
+		}
+		log.info("LinkQuadTree: nearest " + seconds(start));
+		differences = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < numberOfQueries; i++) {
+			if (segmentTree.getNearest(xs[i], ys[i]) != nearestLinks[i]) {
+				differences++;
+			}
+		}
+		log.info("PackedSegmentTree: nearest " + seconds(start) + ", " + differences + " results differ (equal distances).");
+	}
+
+	private static String seconds(final long start) {
+		return "took " + ((System.nanoTime() - start) / 1e9) + " seconds";
+	}
+
+	private static final class NoopExecutor implements QuadTree.Executor<Node> {
+		@Override
+		public void execute(final double x, final double y, final Node object) {
+		}
+	}
+
+}
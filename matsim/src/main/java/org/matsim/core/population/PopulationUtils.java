@@ -82,6 +82,8 @@ public final class PopulationUtils {
             factory = new LinkNetworkRouteFactory();
         } else if (PlansConfigGroup.NetworkRouteType.CompressedNetworkRoute.equals(networkRouteType) && network != null) {
             factory = new CompressedNetworkRouteFactory(network);
+        } else if (PlansConfigGroup.NetworkRouteType.ArrayNetworkRoute.equals(networkRouteType)) {
+            factory = new ArrayNetworkRouteFactory();
         } else {
             throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
         }
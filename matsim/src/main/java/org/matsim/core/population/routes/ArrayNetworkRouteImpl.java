@@ -0,0 +1,141 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrayNetworkRouteImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Implementation of {@link NetworkRoute} which stores the links of the route as an array of their
+ * {@link Id#index() id indices}, instead of a list of {@link Id}s.  The arrays are interned in a
+ * {@link LinkIdSequencePool}, so all routes with the same links share one array.  This needs considerably
+ * less memory than {@link LinkNetworkRouteImpl} for large populations with several plans per agent, while
+ * {@link #getLinkIds()} stays a cheap, unmodifiable view with random access.
+ */
+public class ArrayNetworkRouteImpl extends AbstractRoute implements NetworkRoute, Cloneable {
+
+	private final LinkIdSequencePool pool;
+	private LinkIdSequence route = LinkIdSequence.EMPTY;
+	private double travelCost = Double.NaN;
+	private Id<Vehicle> vehicleId = null;
+
+	public ArrayNetworkRouteImpl(final Id<Link> startLinkId, final Id<Link> endLinkId, final LinkIdSequencePool pool) {
+		super(startLinkId, endLinkId);
+		this.pool = pool;
+	}
+
+	@Override
+	public ArrayNetworkRouteImpl clone() {
+		// the link sequence is immutable and can be shared
+		return (ArrayNetworkRouteImpl) super.clone();
+	}
+
+	@Override
+	public List<Id<Link>> getLinkIds() {
+		return this.route.asList();
+	}
+
+	@Override
+	public NetworkRoute getSubRoute(final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		// same logic as LinkNetworkRouteImpl, see there
+		int fromIndex = -1;
+		int toIndex = -1;
+		int from = fromLinkId.index();
+		int to = toLinkId.index();
+		int n = this.route.size();
+
+		if (fromLinkId.equals(this.getStartLinkId())) {
+			fromIndex = 0;
+		} else {
+			for (int i = 0; (i < n) && (fromIndex < 0); i++) {
+				if (from == this.route.get(i)) {
+					fromIndex = i+1;
+				}
+			}
+			if (fromIndex < 0 && fromLinkId.equals(this.getEndLinkId())) {
+				fromIndex = n;
+			}
+			if (fromIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because fromLinkId is not part of the route.");
+			}
+		}
+
+		if (fromLinkId.equals(toLinkId)) {
+			toIndex = fromIndex - 1;
+		} else {
+			for (int i = fromIndex; (i < n) && (toIndex < 0); i++) {
+				if (from == this.route.get(i)) {
+					fromIndex = i+1; // in case of a loop, cut it short
+				}
+				if (to == this.route.get(i)) {
+					toIndex = i;
+				}
+			}
+			if (toIndex < 0 && toLinkId.equals(this.getEndLinkId())) {
+				toIndex = n;
+			}
+			if (toIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because toLinkId is not part of the route.");
+			}
+		}
+		ArrayNetworkRouteImpl ret = new ArrayNetworkRouteImpl(fromLinkId, toLinkId, this.pool);
+		ret.route = this.pool.intern(this.route.subSequence(fromIndex, toIndex));
+		return ret;
+	}
+
+	@Override
+	public double getTravelCost() {
+		return this.travelCost;
+	}
+
+	@Override
+	public void setTravelCost(final double travelCost) {
+		this.travelCost = travelCost;
+	}
+
+	@Override
+	public void setLinkIds(final Id<Link> startLinkId, final List<Id<Link>> srcRoute, final Id<Link> endLinkId) {
+		setStartLinkId(startLinkId);
+		setEndLinkId(endLinkId);
+		this.route = this.pool.intern(srcRoute);
+	}
+
+	@Override
+	public Id<Vehicle> getVehicleId() {
+		return this.vehicleId;
+	}
+
+	@Override
+	public void setVehicleId(final Id<Vehicle> vehicleId) {
+		this.vehicleId = vehicleId;
+	}
+
+	@Override
+	public String toString() {
+		String str = super.toString();
+		str += " linkIds=" + this.getLinkIds() ;
+		str += " travelCost=" + this.getTravelCost() ;
+		return str ;
+	}
+}
@@ -0,0 +1,124 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkIdSequence.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * An immutable sequence of link ids, stored as the {@link Id#index()} of every link.  Instances are
+ * shared between routes by the {@link LinkIdSequencePool}, so they must never be modified.
+ *
+ * @see ArrayNetworkRouteImpl
+ */
+/*package*/ final class LinkIdSequence {
+
+	/*package*/ static final LinkIdSequence EMPTY = new LinkIdSequence(new int[0]);
+
+	private static final Id.IdsOfType<Link> LINK_IDS = Id.getIdsOfType(Link.class);
+
+	private final int[] indices;
+	private final int hashCode;
+	private List<Id<Link>> view = null;
+
+	/*package*/ LinkIdSequence(final int[] indices) {
+		this.indices = indices;
+		this.hashCode = Arrays.hashCode(indices);
+	}
+
+	/*package*/ static LinkIdSequence create(final List<Id<Link>> linkIds) {
+		int[] indices = new int[linkIds.size()];
+		int i = 0;
+		for (Id<Link> linkId : linkIds) {
+			indices[i++] = linkId.index();
+		}
+		return new LinkIdSequence(indices);
+	}
+
+	/*package*/ int size() {
+		return this.indices.length;
+	}
+
+	/*package*/ int get(final int i) {
+		return this.indices[i];
+	}
+
+	/*package*/ LinkIdSequence subSequence(final int from, final int to) {
+		if (from >= to) {
+			return EMPTY;
+		}
+		return new LinkIdSequence(Arrays.copyOfRange(this.indices, from, to));
+	}
+
+	/**
+	 * @return an unmodifiable list view of the link ids, resolving the indices on access.
+	 */
+	/*package*/ List<Id<Link>> asList() {
+		List<Id<Link>> v = this.view;
+		if (v == null) {
+			// a race only creates an additional, equal view
+			v = new IdListView(this.indices);
+			this.view = v;
+		}
+		return v;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof LinkIdSequence)) {
+			return false;
+		}
+		LinkIdSequence other = (LinkIdSequence) obj;
+		return this.hashCode == other.hashCode && Arrays.equals(this.indices, other.indices);
+	}
+
+	private static final class IdListView extends AbstractList<Id<Link>> implements RandomAccess {
+		private final int[] indices;
+
+		IdListView(final int[] indices) {
+			this.indices = indices;
+		}
+
+		@Override
+		public Id<Link> get(final int index) {
+			return LINK_IDS.get(this.indices[index]);
+		}
+
+		@Override
+		public int size() {
+			return this.indices.length;
+		}
+	}
+
+}
@@ -0,0 +1,101 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkIdSequencePool.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * Interns the link sequences of {@link ArrayNetworkRouteImpl}s, so that routes with the same links (e.g. the
+ * same route in several plans of an agent, or of agents with the same origin and destination) share one array.
+ * The pool only holds weak references, so sequences no longer used by any route are garbage collected.
+ * <p></p>
+ * Thread-safe.  The pool is split into segments with their own lock, so that parallel replanning threads rarely
+ * wait for each other.
+ */
+public final class LinkIdSequencePool {
+
+	private static final int SEGMENTS = 64;
+
+	private static final LinkIdSequencePool DEFAULT = new LinkIdSequencePool();
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+
+	public LinkIdSequencePool() {
+		for (int i = 0; i < SEGMENTS; i++) {
+			this.segments[i] = new Segment();
+		}
+	}
+
+	/**
+	 * @return the pool shared by all routes created by an {@link ArrayNetworkRouteFactory} with its default constructor.
+	 */
+	public static LinkIdSequencePool getDefault() {
+		return DEFAULT;
+	}
+
+	/*package*/ LinkIdSequence intern(final List<Id<Link>> linkIds) {
+		if (linkIds == null || linkIds.isEmpty()) {
+			return LinkIdSequence.EMPTY;
+		}
+		return intern(LinkIdSequence.create(linkIds));
+	}
+
+	/*package*/ LinkIdSequence intern(final LinkIdSequence sequence) {
+		if (sequence.size() == 0) {
+			return LinkIdSequence.EMPTY;
+		}
+		int h = sequence.hashCode();
+		Segment segment = this.segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+		synchronized (segment) {
+			WeakReference<LinkIdSequence> ref = segment.map.get(sequence);
+			LinkIdSequence existing = ref == null ? null : ref.get();
+			if (existing != null) {
+				return existing;
+			}
+			segment.map.put(sequence, new WeakReference<LinkIdSequence>(sequence));
+			return sequence;
+		}
+	}
+
+	/**
+	 * @return the number of different link sequences currently in the pool.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : this.segments) {
+			synchronized (segment) {
+				size += segment.map.size();
+			}
+		}
+		return size;
+	}
+
+	private static final class Segment {
+		final Map<LinkIdSequence, WeakReference<LinkIdSequence>> map = new WeakHashMap<LinkIdSequence, WeakReference<LinkIdSequence>>();
+	}
+
+}
@@ -24,13 +24,19 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningScheduling;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.population.algorithms.PlanAlgorithm;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -50,6 +56,15 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p/>
+ * With {@link ReplanningScheduling#dynamic}, the threads are already started in <code>prepareReplanning()</code>
+ * and take small batches of plans from a shared queue while <code>handlePlan(Plan)</code> is still being called,
+ * so an idle thread always takes the next plans instead of waiting for a thread that got the expensive ones.
+ * Each thread still has its own plan algorithm instance, but which plans it handles depends on timing, so runs
+ * are in general not reproducible anymore.  Note that the threads of the first modules of different strategies
+ * then run at the same time.
+ * <p/>
+ * In both modes, <code>finishReplanning()</code> logs the throughput of the module and the time per plan.
+ * <p/>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -58,7 +73,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * @author mrieser
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
+	private static final int BATCH_SIZE = 8;
+
 	private final int numOfThreads;
+	private final ReplanningScheduling scheduling;
 
 	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
@@ -67,6 +85,11 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	private int count = 0;
 
+	private BlockingQueue<List<Plan>> planQueue = null;
+	private List<Plan> batch = null;
+	private PlanTimes directTimes = null;
+	private long startTime;
+
 	private final AtomicBoolean hadException = new AtomicBoolean(false);
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
 
@@ -83,11 +106,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.getReplanningScheduling());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, ReplanningScheduling.roundRobin);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final ReplanningScheduling scheduling) {
 		this.numOfThreads = numOfThreads;
+		this.scheduling = scheduling;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -102,11 +130,20 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	public final void prepareReplanning(ReplanningContext replanningContextTmp) {
 		this.beforePrepareReplanningHook(replanningContextTmp);
 		this.replanningContext = replanningContextTmp;
+		this.startTime = System.nanoTime();
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
+			this.name = this.directAlgo.getClass().getSimpleName();
+			this.directTimes = new PlanTimes();
 		} else {
 			initThreads();
+			if (this.planQueue != null) {
+				log.info("[" + this.name + "] starting " + this.threads.length + " threads, plans are handled as they come in");
+				for (Thread thread : this.threads) {
+					thread.start();
+				}
+			}
 		}
 		this.afterPrepareReplanningHook(replanningContextTmp);
 	}
@@ -117,11 +154,21 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	@Override
 	public final void handlePlan(final Plan plan) {
-		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+		if (this.directAlgo != null) {
+			long start = System.nanoTime();
+			this.directAlgo.run(plan);
+			this.directTimes.add(System.nanoTime() - start);
+			this.count++;
+		} else if (this.planQueue != null) {
+			this.batch.add(plan);
+			if (this.batch.size() == BATCH_SIZE) {
+				this.planQueue.add(this.batch);
+				this.batch = new ArrayList<>(BATCH_SIZE);
+			}
 			this.count++;
 		} else {
-			this.directAlgo.run(plan);
+			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			this.count++;
 		}
 	}
 
@@ -136,13 +183,26 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	public final void finishReplanning() {
 		this.beforeFinishReplanningHook();
 		
+		PlanTimes times = this.directTimes;
 		if (this.directAlgo == null) {
-			// only try to start threads if we did not directly work on all the plans
-			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
+			if (this.planQueue != null) {
+				// hand over the last plans and tell each thread that there are no more
+				if (!this.batch.isEmpty()) {
+					this.planQueue.add(this.batch);
+				}
+				for (int i = 0; i < this.threads.length; i++) {
+					this.planQueue.add(Collections.<Plan>emptyList());
+				}
+				log.info("[" + this.name + "] waiting for " + this.threads.length + " threads, handling " + this.count + " plans");
+			} else {
+				// only try to start threads if we did not directly work on all the plans
+				log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
+				this.startTime = System.nanoTime();
 
-			// start threads
-			for (Thread thread : this.threads) {
-				thread.start();
+				// start threads
+				for (Thread thread : this.threads) {
+					thread.start();
+				}
 			}
 
 			// wait until each thread is finished
@@ -157,10 +217,20 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 			if (this.hadException.get()) {
 				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.");
 			}
+			times = new PlanTimes();
+			for (PlanAlgoThread algothread : this.algothreads) {
+				times.addAll(algothread.times);
+			}
 		}
+		// without threads, the time between the calls to handlePlan() is spent outside this module
+		logThroughput(times, this.directAlgo == null ? System.nanoTime() - this.startTime : -1);
+
 		// reset
 		this.algothreads = null;
 		this.threads = null;
+		this.directTimes = this.directAlgo == null ? null : new PlanTimes();
+		this.planQueue = null;
+		this.batch = null;
 		this.replanningContext = null;
 		this.count = 0;
 		
@@ -175,6 +245,10 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.hadException.set(false);
 		this.threads = new Thread[this.numOfThreads];
 		this.algothreads = new PlanAlgoThread[this.numOfThreads];
+		if (this.scheduling == ReplanningScheduling.dynamic) {
+			this.planQueue = new LinkedBlockingQueue<>();
+			this.batch = new ArrayList<>(BATCH_SIZE);
+		}
 
 		Counter counter = null;
 		// setup threads
@@ -184,7 +258,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 				this.name = algo.getClass().getSimpleName();
 				counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
+			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter, this.planQueue);
 			Thread thread = new Thread(algothread, this.name + "." + i);
 			thread.setUncaughtExceptionHandler(this.exceptionHandler);
 			this.threads[i] = thread;
@@ -192,6 +266,25 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
+	/**
+	 * @param wallTime the elapsed time in nanoseconds, or a negative value to use the sum of the times per plan
+	 */
+	private void logThroughput(final PlanTimes times, final long wallTime) {
+		if (times.size == 0) {
+			return;
+		}
+		long[] sorted = Arrays.copyOf(times.nanos, times.size);
+		Arrays.sort(sorted);
+		long sum = 0;
+		for (long t : sorted) {
+			sum += t;
+		}
+		double seconds = (wallTime < 0 ? sum : wallTime) / 1e9;
+		log.info(String.format("[%s] handled %d plans in %.1f s (%.1f plans/s); time per plan: avg %.2f ms, p99 %.2f ms, max %.2f ms",
+				this.name, times.size, seconds, times.size / Math.max(seconds, 1e-9),
+				sum / 1e6 / times.size, sorted[(int) Math.ceil(0.99 * times.size) - 1] / 1e6, sorted[times.size - 1] / 1e6));
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
@@ -212,15 +305,45 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	}
 
+	/**
+	 * The time it took to handle each plan, in nanoseconds.
+	 */
+	private final static class PlanTimes {
+		long[] nanos = new long[1024];
+		int size = 0;
+
+		void add(final long time) {
+			if (this.size == this.nanos.length) {
+				this.nanos = Arrays.copyOf(this.nanos, 2 * this.size);
+			}
+			this.nanos[this.size++] = time;
+		}
+
+		void addAll(final PlanTimes other) {
+			if (this.size + other.size > this.nanos.length) {
+				this.nanos = Arrays.copyOf(this.nanos, Math.max(2 * this.nanos.length, this.size + other.size));
+			}
+			System.arraycopy(other.nanos, 0, this.nanos, this.size, other.size);
+			this.size += other.size;
+		}
+	}
+
 	private final static class PlanAlgoThread implements Runnable {
 
 		private final PlanAlgorithm planAlgo;
 		private final List<Plan> plans = new LinkedList<>();
+		private final BlockingQueue<List<Plan>> planQueue;
 		private final Counter counter;
+		/*package*/ final PlanTimes times = new PlanTimes();
 
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		/**
+		 * @param planQueue the queue to take the plans from, or <code>null</code> if the plans are added with
+		 * {@link #addPlanToThread(Plan)} before the thread is started.
+		 */
+		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter, final BlockingQueue<List<Plan>> planQueue) {
 			this.planAlgo = algo;
 			this.counter = counter;
+			this.planQueue = planQueue;
 		}
 
 		public void addPlanToThread(final Plan plan) {
@@ -229,10 +352,32 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 		@Override
 		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
-				this.counter.incCounter();
+			if (this.planQueue == null) {
+				for (Plan plan : this.plans) {
+					handlePlan(plan);
+				}
+				return;
+			}
+			try {
+				while (true) {
+					List<Plan> batch = this.planQueue.take();
+					if (batch.isEmpty()) {
+						return; // no more plans
+					}
+					for (Plan plan : batch) {
+						handlePlan(plan);
+					}
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
 			}
 		}
+
+		private void handlePlan(final Plan plan) {
+			long start = System.nanoTime();
+			this.planAlgo.run(plan);
+			this.times.add(System.nanoTime() - start);
+			this.counter.incCounter();
+		}
 	}
 }
@@ -126,11 +126,21 @@ public class AStarEuclidean extends Dijkstra {
 	public AStarEuclidean(final Network network,
 			final PreProcessEuclidean preProcessData,
 			final TravelDisutility costFunction, final TravelTime timeFunction, final double overdoFactor) {
-		super(network, costFunction, timeFunction, preProcessData);
+		this(network, preProcessData, costFunction, timeFunction, overdoFactor, (int) (network.getNodes().size() * 1.1));
+	}
+
+	/*
+	 * Sub classes which keep the node data elsewhere pass a capacity of 0 for the nodeData maps.
+	 */
+	/*package*/ AStarEuclidean(final Network network,
+			final PreProcessEuclidean preProcessData,
+			final TravelDisutility costFunction, final TravelTime timeFunction, final double overdoFactor,
+			final int nodeDataCapacity) {
+		super(network, costFunction, timeFunction, preProcessData, nodeDataCapacity);
 
 		setMinTravelCostPerLength(preProcessData.getMinTravelCostPerLength());
 
-		this.nodeData = new HashMap<>((int)(network.getNodes().size() * 1.1), 0.95f);
+		this.nodeData = new HashMap<>(nodeDataCapacity, 0.95f);
 		this.overdoFactor = overdoFactor;
 	}
 
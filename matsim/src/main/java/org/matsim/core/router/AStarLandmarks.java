@@ -114,6 +114,17 @@ public class AStarLandmarks extends AStarEuclidean {
 		this.landmarks = preProcessData.getLandmarks();
 	}
 
+	/*
+	 * Sub classes which keep the node data elsewhere pass a capacity of 0 for the nodeData maps.
+	 */
+	/*package*/ AStarLandmarks(final Network network, final PreProcessLandmarks preProcessData,
+			final TravelDisutility costFunction, final TravelTime timeFunction, final double overdoFactor,
+			final int nodeDataCapacity) {
+		super(network, preProcessData, costFunction, timeFunction, overdoFactor, nodeDataCapacity);
+
+		this.landmarks = preProcessData.getLandmarks();
+	}
+
 	@Override
 	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
 		if (this.landmarks.length >= 2) {
@@ -0,0 +1,227 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator based on {@link ContractionHierarchy contraction hierarchies}.  A query consists of
+ * two Dijkstra searches, one from the start node and one (backwards) from the end node, which only use edges leading
+ * to more important nodes.  They typically settle only a few hundred nodes, even on large networks.
+ * <p></p>
+ * The hierarchies are provided by the {@link ContractionHierarchiesFactory}, one per time slice: the path is the
+ * least cost path for the travel disutilities at the beginning of the time slice in which the trip starts, and does
+ * not take into account that the disutilities change during the trip.  The travel disutilities are evaluated without
+ * person and vehicle when building the hierarchy.  The travel time and cost of the returned path are calculated
+ * along the path, with the departure time, person and vehicle, as {@link Dijkstra} does.
+ * <p></p>
+ * The hierarchies are shared, but instances of this class are not thread-safe: each thread needs its own instance
+ * for the state of the searches.
+ *
+ * @see ContractionHierarchiesFactory
+ */
+public class ContractionHierarchies implements IntermodalLeastCostPathCalculator {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private final Network network;
+	private final TravelDisutility travelDisutility;
+	private final TravelTime travelTime;
+	private final Object travelDisutilityKey;
+	private final ContractionHierarchiesFactory hierarchies;
+	private Set<String> modeRestriction = null;
+
+	/* state of the searches, re-used for all queries */
+	private int stamp = 0;
+	private int[] forwardStamp = new int[0];
+	private double[] forwardCost;
+	private int[] forwardEdge;
+	private int[] backwardStamp = new int[0];
+	private double[] backwardCost;
+	private int[] backwardEdge;
+	private final ContractionHierarchy.MinHeap forwardHeap = new ContractionHierarchy.MinHeap(256);
+	private final ContractionHierarchy.MinHeap backwardHeap = new ContractionHierarchy.MinHeap(256);
+
+	public ContractionHierarchies(final Network network, final TravelDisutility travelDisutility, final TravelTime travelTime,
+			final Object travelDisutilityKey, final ContractionHierarchiesFactory hierarchies) {
+		this.network = network;
+		this.travelDisutility = travelDisutility;
+		this.travelTime = travelTime;
+		this.travelDisutilityKey = travelDisutilityKey;
+		this.hierarchies = hierarchies;
+	}
+
+	@Override
+	public void setModeRestriction(final Set<String> modeRestriction) {
+		this.modeRestriction = modeRestriction == null ? null : new TreeSet<>(modeRestriction);
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		ContractionHierarchy ch = this.hierarchies.getHierarchy(this.network, this.travelDisutility, this.travelTime, this.travelDisutilityKey, this.modeRestriction, starttime);
+		int source = ch.getNodeIndex(fromNode);
+		int target = ch.getNodeIndex(toNode);
+		if (source < 0 || target < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		prepareSearch(ch.getNumberOfNodes());
+
+		this.forwardStamp[source] = this.stamp;
+		this.forwardCost[source] = 0;
+		this.forwardEdge[source] = -1;
+		this.forwardHeap.add(source, 0);
+		this.backwardStamp[target] = this.stamp;
+		this.backwardCost[target] = 0;
+		this.backwardEdge[target] = -1;
+		this.backwardHeap.add(target, 0);
+
+		double best = source == target ? 0 : Double.POSITIVE_INFINITY;
+		int meetingNode = source == target ? source : -1;
+		while (true) {
+			boolean forward = !this.forwardHeap.isEmpty() && this.forwardHeap.peekKey() < best;
+			boolean backward = !this.backwardHeap.isEmpty() && this.backwardHeap.peekKey() < best;
+			if (forward && backward) {
+				forward = this.forwardHeap.peekKey() <= this.backwardHeap.peekKey();
+			} else if (!forward && !backward) {
+				break;
+			}
+			if (forward) {
+				double cost = this.forwardHeap.peekKey();
+				int node = this.forwardHeap.poll();
+				if (cost > this.forwardCost[node]) {
+					continue; // outdated entry
+				}
+				for (int i = ch.upStart[node], end = ch.upStart[node + 1]; i < end; i++) {
+					int edge = ch.upEdge[i];
+					int next = ch.edgeTo[edge];
+					double newCost = cost + ch.upWeight[i];
+					if (this.forwardStamp[next] != this.stamp || newCost < this.forwardCost[next]) {
+						this.forwardStamp[next] = this.stamp;
+						this.forwardCost[next] = newCost;
+						this.forwardEdge[next] = edge;
+						this.forwardHeap.add(next, newCost);
+						if (this.backwardStamp[next] == this.stamp && newCost + this.backwardCost[next] < best) {
+							best = newCost + this.backwardCost[next];
+							meetingNode = next;
+						}
+					}
+				}
+			} else {
+				double cost = this.backwardHeap.peekKey();
+				int node = this.backwardHeap.poll();
+				if (cost > this.backwardCost[node]) {
+					continue;
+				}
+				for (int i = ch.downStart[node], end = ch.downStart[node + 1]; i < end; i++) {
+					int edge = ch.downEdge[i];
+					int previous = ch.edgeFrom[edge];
+					double newCost = cost + ch.downWeight[i];
+					if (this.backwardStamp[previous] != this.stamp || newCost < this.backwardCost[previous]) {
+						this.backwardStamp[previous] = this.stamp;
+						this.backwardCost[previous] = newCost;
+						this.backwardEdge[previous] = edge;
+						this.backwardHeap.add(previous, newCost);
+						if (this.forwardStamp[previous] == this.stamp && newCost + this.forwardCost[previous] < best) {
+							best = newCost + this.forwardCost[previous];
+							meetingNode = previous;
+						}
+					}
+				}
+			}
+		}
+
+		if (meetingNode < 0) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId());
+			return null;
+		}
+		return constructPath(ch, fromNode, meetingNode, starttime, person, vehicle);
+	}
+
+	private void prepareSearch(final int numberOfNodes) {
+		if (this.forwardStamp.length < numberOfNodes) {
+			this.forwardStamp = new int[numberOfNodes];
+			this.forwardCost = new double[numberOfNodes];
+			this.forwardEdge = new int[numberOfNodes];
+			this.backwardStamp = new int[numberOfNodes];
+			this.backwardCost = new double[numberOfNodes];
+			this.backwardEdge = new int[numberOfNodes];
+			this.stamp = 0;
+		}
+		this.stamp++;
+		this.forwardHeap.clear();
+		this.backwardHeap.clear();
+	}
+
+	private Path constructPath(final ContractionHierarchy ch, final Node fromNode, final int meetingNode, final double startTime,
+			final Person person, final Vehicle vehicle) {
+		// collect the edges from the start to the meeting node (in reverse order) and on to the end node
+		List<Integer> edges = new ArrayList<>();
+		for (int edge = this.forwardEdge[meetingNode]; edge >= 0; edge = this.forwardEdge[ch.edgeFrom[edge]]) {
+			edges.add(edge);
+		}
+		List<Link> links = new ArrayList<>();
+		for (int i = edges.size() - 1; i >= 0; i--) {
+			unpack(ch, edges.get(i), links);
+		}
+		for (int edge = this.backwardEdge[meetingNode]; edge >= 0; edge = this.backwardEdge[ch.edgeTo[edge]]) {
+			unpack(ch, edge, links);
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = startTime;
+		double cost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - startTime, cost);
+	}
+
+	/**
+	 * Adds the links represented by an edge to the list, replacing shortcuts by the edges they skip.
+	 */
+	private static void unpack(final ContractionHierarchy ch, final int edge, final List<Link> links) {
+		int link = ch.edgeLink[edge];
+		if (link >= 0) {
+			links.add(ch.links[link]);
+		} else {
+			unpack(ch, ch.edgeSkipped1[edge], links);
+			unpack(ch, ch.edgeSkipped2[edge], links);
+		}
+	}
+
+}
@@ -0,0 +1,496 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchy.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * A contraction hierarchy of a network for one (static) travel disutility.  The nodes are contracted one after
+ * the other, in the order of their importance; shortcuts are inserted between the neighbors of a contracted node
+ * whenever the path over that node is the only shortest path between them.  Afterwards, a least cost path between
+ * any two nodes can be found by two searches that only go "upwards" in the hierarchy, see {@link ContractionHierarchies}.
+ * <p></p>
+ * Instances are immutable after {@link #build} and may be used by several threads at the same time.  The arrays are
+ * kept in the compressed sparse row format: the edges leaving node <code>i</code> upwards are stored at the positions
+ * <code>upStart[i]</code> to <code>upStart[i+1]-1</code>.
+ */
+public final class ContractionHierarchy {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchy.class);
+
+	/** number of settled nodes after which a witness search gives up; a failed search only costs an additional shortcut */
+	private static final int WITNESS_SEARCH_LIMIT = 200;
+
+	final Node[] nodes;
+	final Link[] links;
+	private final int[] nodeIndexById;
+
+	/* for every edge: its end nodes, and either the link it represents or the two edges it is a shortcut of */
+	final int[] edgeFrom;
+	final int[] edgeTo;
+	final int[] edgeLink;
+	final int[] edgeSkipped1;
+	final int[] edgeSkipped2;
+
+	/* edges leaving a node towards more important nodes, for the forward search */
+	final int[] upStart;
+	final int[] upEdge;
+	final double[] upWeight;
+	/* edges reaching a node from more important nodes, for the backward search */
+	final int[] downStart;
+	final int[] downEdge;
+	final double[] downWeight;
+
+	private ContractionHierarchy(final Node[] nodes, final Link[] links, final int[] nodeIndexById, final Graph graph, final int[] rank) {
+		this.nodes = nodes;
+		this.links = links;
+		this.nodeIndexById = nodeIndexById;
+		int m = graph.edgeCount;
+		this.edgeFrom = Arrays.copyOf(graph.edgeFrom, m);
+		this.edgeTo = Arrays.copyOf(graph.edgeTo, m);
+		this.edgeLink = Arrays.copyOf(graph.edgeLink, m);
+		this.edgeSkipped1 = Arrays.copyOf(graph.edgeSkipped1, m);
+		this.edgeSkipped2 = Arrays.copyOf(graph.edgeSkipped2, m);
+
+		int n = nodes.length;
+		this.upStart = new int[n + 1];
+		this.downStart = new int[n + 1];
+		for (int e = 0; e < m; e++) {
+			if (rank[this.edgeTo[e]] > rank[this.edgeFrom[e]]) {
+				this.upStart[this.edgeFrom[e] + 1]++;
+			} else {
+				this.downStart[this.edgeTo[e] + 1]++;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			this.upStart[i + 1] += this.upStart[i];
+			this.downStart[i + 1] += this.downStart[i];
+		}
+		this.upEdge = new int[this.upStart[n]];
+		this.upWeight = new double[this.upStart[n]];
+		this.downEdge = new int[this.downStart[n]];
+		this.downWeight = new double[this.downStart[n]];
+		int[] upPos = Arrays.copyOf(this.upStart, n);
+		int[] downPos = Arrays.copyOf(this.downStart, n);
+		for (int e = 0; e < m; e++) {
+			if (rank[this.edgeTo[e]] > rank[this.edgeFrom[e]]) {
+				int pos = upPos[this.edgeFrom[e]]++;
+				this.upEdge[pos] = e;
+				this.upWeight[pos] = graph.edgeWeight[e];
+			} else {
+				int pos = downPos[this.edgeTo[e]]++;
+				this.downEdge[pos] = e;
+				this.downWeight[pos] = graph.edgeWeight[e];
+			}
+		}
+	}
+
+	/**
+	 * Builds the hierarchy for the disutilities of the links at the given time.  The disutilities are requested
+	 * without person and vehicle, as the hierarchy is shared by all agents.
+	 *
+	 * @param modeRestriction if not <code>null</code>, only links allowing at least one of the modes are used
+	 */
+	public static ContractionHierarchy build(final Network network, final TravelDisutility travelDisutility, final double time, final Set<String> modeRestriction) {
+		long start = System.currentTimeMillis();
+		int n = network.getNodes().size();
+		Node[] nodes = network.getNodes().values().toArray(new Node[n]);
+		int[] nodeIndexById = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(nodeIndexById, -1);
+		for (int i = 0; i < n; i++) {
+			nodeIndexById[nodes[i].getId().index()] = i;
+		}
+
+		Graph graph = new Graph(n, network.getLinks().size());
+		Link[] links = new Link[network.getLinks().size()];
+		int linkCount = 0;
+		for (Link link : network.getLinks().values()) {
+			if (!isAllowed(link, modeRestriction)) {
+				continue;
+			}
+			double weight = travelDisutility.getLinkTravelDisutility(link, time, null, null);
+			if (Double.isInfinite(weight) || Double.isNaN(weight)) {
+				continue;
+			}
+			if (weight < 0) {
+				throw new IllegalArgumentException("Link " + link.getId() + " has a negative travel disutility, "
+						+ "contraction hierarchies only work with non-negative disutilities.");
+			}
+			int from = nodeIndexById[link.getFromNode().getId().index()];
+			int to = nodeIndexById[link.getToNode().getId().index()];
+			if (from == to) {
+				continue;
+			}
+			links[linkCount] = link;
+			graph.addOrImproveEdge(from, to, weight, linkCount, -1, -1);
+			linkCount++;
+		}
+
+		int[] rank = new Contractor(graph).contract();
+		ContractionHierarchy hierarchy = new ContractionHierarchy(nodes, Arrays.copyOf(links, linkCount), nodeIndexById, graph, rank);
+		log.info("built contraction hierarchy for time " + time + " with " + n + " nodes, " + linkCount + " links and "
+				+ (graph.edgeCount - linkCount) + " shortcuts in " + (System.currentTimeMillis() - start) / 1000.0 + "s.");
+		return hierarchy;
+	}
+
+	private static boolean isAllowed(final Link link, final Set<String> modeRestriction) {
+		if (modeRestriction == null) {
+			return true;
+		}
+		for (String mode : modeRestriction) {
+			if (link.getAllowedModes().contains(mode)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the index of the node in this hierarchy, or -1 if the node is not part of the network the hierarchy was built for.
+	 */
+	int getNodeIndex(final Node node) {
+		int idIndex = node.getId().index();
+		if (idIndex >= this.nodeIndexById.length) {
+			return -1;
+		}
+		int index = this.nodeIndexById[idIndex];
+		return (index >= 0 && this.nodes[index] == node) ? index : -1;
+	}
+
+	int getNumberOfNodes() {
+		return this.nodes.length;
+	}
+
+	/**
+	 * The graph while contracting it: edges are added as shortcuts, and removed from the adjacency lists of the
+	 * remaining nodes when one of their end nodes gets contracted.
+	 */
+	private static final class Graph {
+		int edgeCount = 0;
+		int[] edgeFrom;
+		int[] edgeTo;
+		double[] edgeWeight;
+		int[] edgeLink;
+		int[] edgeSkipped1;
+		int[] edgeSkipped2;
+
+		final int[][] outEdges;
+		final int[] outCount;
+		final int[][] inEdges;
+		final int[] inCount;
+
+		Graph(final int numberOfNodes, final int expectedEdges) {
+			int capacity = Math.max(16, 2 * expectedEdges);
+			this.edgeFrom = new int[capacity];
+			this.edgeTo = new int[capacity];
+			this.edgeWeight = new double[capacity];
+			this.edgeLink = new int[capacity];
+			this.edgeSkipped1 = new int[capacity];
+			this.edgeSkipped2 = new int[capacity];
+			this.outEdges = new int[numberOfNodes][];
+			this.outCount = new int[numberOfNodes];
+			this.inEdges = new int[numberOfNodes][];
+			this.inCount = new int[numberOfNodes];
+		}
+
+		/**
+		 * Adds an edge, or reduces the weight of an existing edge between the same nodes.
+		 */
+		void addOrImproveEdge(final int from, final int to, final double weight, final int link, final int skipped1, final int skipped2) {
+			for (int i = 0; i < this.outCount[from]; i++) {
+				int e = this.outEdges[from][i];
+				if (this.edgeTo[e] == to) {
+					if (weight < this.edgeWeight[e]) {
+						this.edgeWeight[e] = weight;
+						this.edgeLink[e] = link;
+						this.edgeSkipped1[e] = skipped1;
+						this.edgeSkipped2[e] = skipped2;
+					}
+					return;
+				}
+			}
+			if (this.edgeCount == this.edgeFrom.length) {
+				int capacity = this.edgeCount * 3 / 2;
+				this.edgeFrom = Arrays.copyOf(this.edgeFrom, capacity);
+				this.edgeTo = Arrays.copyOf(this.edgeTo, capacity);
+				this.edgeWeight = Arrays.copyOf(this.edgeWeight, capacity);
+				this.edgeLink = Arrays.copyOf(this.edgeLink, capacity);
+				this.edgeSkipped1 = Arrays.copyOf(this.edgeSkipped1, capacity);
+				this.edgeSkipped2 = Arrays.copyOf(this.edgeSkipped2, capacity);
+			}
+			int e = this.edgeCount++;
+			this.edgeFrom[e] = from;
+			this.edgeTo[e] = to;
+			this.edgeWeight[e] = weight;
+			this.edgeLink[e] = link;
+			this.edgeSkipped1[e] = skipped1;
+			this.edgeSkipped2[e] = skipped2;
+			add(this.outEdges, this.outCount, from, e);
+			add(this.inEdges, this.inCount, to, e);
+		}
+
+		private static void add(final int[][] lists, final int[] counts, final int node, final int edge) {
+			if (lists[node] == null) {
+				lists[node] = new int[4];
+			} else if (counts[node] == lists[node].length) {
+				lists[node] = Arrays.copyOf(lists[node], 2 * counts[node]);
+			}
+			lists[node][counts[node]++] = edge;
+		}
+
+		static void remove(final int[][] lists, final int[] counts, final int node, final int edge) {
+			int[] list = lists[node];
+			for (int i = 0; i < counts[node]; i++) {
+				if (list[i] == edge) {
+					list[i] = list[--counts[node]];
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Contracts the nodes in the order of their priorities, using the number of added shortcuts minus the number of
+	 * removed edges plus the number of already contracted neighbors (to spread the contraction over the network).
+	 * Priorities are updated lazily: a node is only contracted if its recomputed priority is still the smallest.
+	 */
+	private static final class Contractor {
+		private final Graph graph;
+		private final int n;
+		private final int[] contractedNeighbors;
+		private final boolean[] contracted;
+		private final MinHeap queue;
+
+		/* state of the witness searches */
+		private final MinHeap witnessHeap;
+		private final double[] witnessDist;
+		private final int[] witnessStamp;
+		private int stamp = 0;
+
+		Contractor(final Graph graph) {
+			this.graph = graph;
+			this.n = graph.outCount.length;
+			this.contractedNeighbors = new int[this.n];
+			this.contracted = new boolean[this.n];
+			this.queue = new MinHeap(this.n);
+			this.witnessHeap = new MinHeap(64);
+			this.witnessDist = new double[this.n];
+			this.witnessStamp = new int[this.n];
+		}
+
+		int[] contract() {
+			for (int v = 0; v < this.n; v++) {
+				this.queue.add(v, priority(v));
+			}
+			int[] rank = new int[this.n];
+			int next = 0;
+			while (!this.queue.isEmpty()) {
+				int v = this.queue.poll();
+				double priority = priority(v);
+				if (!this.queue.isEmpty() && priority > this.queue.peekKey()) {
+					this.queue.add(v, priority);
+					continue;
+				}
+				contractNode(v, false);
+				rank[v] = next++;
+			}
+			return rank;
+		}
+
+		private double priority(final int v) {
+			int shortcuts = contractNode(v, true);
+			int removed = this.graph.inCount[v] + this.graph.outCount[v];
+			return shortcuts - removed + this.contractedNeighbors[v];
+		}
+
+		/**
+		 * @return the number of shortcuts that are (or, if only simulating, would be) added
+		 */
+		private int contractNode(final int v, final boolean simulate) {
+			Graph g = this.graph;
+			int shortcuts = 0;
+			double maxOutWeight = 0;
+			for (int j = 0; j < g.outCount[v]; j++) {
+				maxOutWeight = Math.max(maxOutWeight, g.edgeWeight[g.outEdges[v][j]]);
+			}
+			for (int i = 0; i < g.inCount[v]; i++) {
+				int inEdge = g.inEdges[v][i];
+				int u = g.edgeFrom[inEdge];
+				double inWeight = g.edgeWeight[inEdge];
+				witnessSearch(u, v, inWeight + maxOutWeight);
+				for (int j = 0; j < g.outCount[v]; j++) {
+					int outEdge = g.outEdges[v][j];
+					int x = g.edgeTo[outEdge];
+					if (x == u) {
+						continue;
+					}
+					double weight = inWeight + g.edgeWeight[outEdge];
+					if (this.witnessStamp[x] == this.stamp && this.witnessDist[x] <= weight) {
+						continue;
+					}
+					shortcuts++;
+					if (!simulate) {
+						g.addOrImproveEdge(u, x, weight, -1, inEdge, outEdge);
+					}
+				}
+			}
+			if (!simulate) {
+				this.contracted[v] = true;
+				for (int i = 0; i < g.inCount[v]; i++) {
+					int e = g.inEdges[v][i];
+					Graph.remove(g.outEdges, g.outCount, g.edgeFrom[e], e);
+					this.contractedNeighbors[g.edgeFrom[e]]++;
+				}
+				for (int j = 0; j < g.outCount[v]; j++) {
+					int e = g.outEdges[v][j];
+					Graph.remove(g.inEdges, g.inCount, g.edgeTo[e], e);
+					this.contractedNeighbors[g.edgeTo[e]]++;
+				}
+				g.inCount[v] = 0;
+				g.outCount[v] = 0;
+				g.inEdges[v] = null;
+				g.outEdges[v] = null;
+			}
+			return shortcuts;
+		}
+
+		/**
+		 * Dijkstra search from <code>source</code> on the remaining graph without <code>ignored</code>, up to the
+		 * given cost or the search limit.  The results are in witnessDist, valid where witnessStamp equals stamp.
+		 */
+		private void witnessSearch(final int source, final int ignored, final double maxCost) {
+			Graph g = this.graph;
+			this.stamp++;
+			this.witnessHeap.clear();
+			this.witnessDist[source] = 0;
+			this.witnessStamp[source] = this.stamp;
+			this.witnessHeap.add(source, 0);
+			int settled = 0;
+			while (!this.witnessHeap.isEmpty() && settled < WITNESS_SEARCH_LIMIT) {
+				double dist = this.witnessHeap.peekKey();
+				int node = this.witnessHeap.poll();
+				if (dist > this.witnessDist[node]) {
+					continue; // outdated entry
+				}
+				if (dist > maxCost) {
+					break;
+				}
+				settled++;
+				for (int j = 0; j < g.outCount[node]; j++) {
+					int e = g.outEdges[node][j];
+					int to = g.edgeTo[e];
+					if (to == ignored) {
+						continue;
+					}
+					double newDist = dist + g.edgeWeight[e];
+					if (this.witnessStamp[to] != this.stamp || newDist < this.witnessDist[to]) {
+						this.witnessStamp[to] = this.stamp;
+						this.witnessDist[to] = newDist;
+						this.witnessHeap.add(to, newDist);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Binary min-heap of int values with double keys.  Does not support decrease-key: entries are added again
+	 * with the lower key, and outdated entries have to be skipped by the caller.
+	 */
+	static final class MinHeap {
+		private int[] values;
+		private double[] keys;
+		private int size = 0;
+
+		MinHeap(final int capacity) {
+			this.values = new int[Math.max(capacity, 16)];
+			this.keys = new double[this.values.length];
+		}
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		void clear() {
+			this.size = 0;
+		}
+
+		double peekKey() {
+			return this.keys[0];
+		}
+
+		void add(final int value, final double key) {
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, 2 * this.size);
+				this.keys = Arrays.copyOf(this.keys, 2 * this.size);
+			}
+			int i = this.size++;
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (this.keys[parent] <= key) {
+					break;
+				}
+				this.values[i] = this.values[parent];
+				this.keys[i] = this.keys[parent];
+				i = parent;
+			}
+			this.values[i] = value;
+			this.keys[i] = key;
+		}
+
+		int poll() {
+			int result = this.values[0];
+			this.size--;
+			if (this.size > 0) {
+				int value = this.values[this.size];
+				double key = this.keys[this.size];
+				int i = 0;
+				while (true) {
+					int child = 2 * i + 1;
+					if (child >= this.size) {
+						break;
+					}
+					if (child + 1 < this.size && this.keys[child + 1] < this.keys[child]) {
+						child++;
+					}
+					if (this.keys[child] >= key) {
+						break;
+					}
+					this.values[i] = this.values[child];
+					this.keys[i] = this.keys[child];
+					i = child;
+				}
+				this.values[i] = value;
+				this.keys[i] = key;
+			}
+			return result;
+		}
+	}
+
+}
@@ -8,9 +8,13 @@ import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.Injector;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.TabulatedTravelDisutility;
 import org.matsim.core.router.old.DefaultRoutingModules;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
 import org.matsim.pt.router.TransitRouter;
 
 import javax.inject.Inject;
@@ -21,6 +25,10 @@ public class DefaultTripRouterFactoryImpl implements TripRouterFactory {
 
     private static Logger log = Logger.getLogger(DefaultTripRouterFactoryImpl.class);
 
+    // has no state, so one instance is enough for all trip routers, and their routers can share data built from it
+    private static final FreespeedTravelTimeAndDisutility PT_FREE_FLOW_TIME_AND_DISUTILITY =
+            new FreespeedTravelTimeAndDisutility(-1.0, 0.0, 0.0);
+
     public static TripRouterFactory createRichTripRouterFactoryImpl(final Scenario scenario) {
         return Injector.createInjector(scenario.getConfig(),
                 new TripRouterFactoryModule(),
@@ -36,12 +44,21 @@ public class DefaultTripRouterFactoryImpl implements TripRouterFactory {
 	private final LeastCostPathCalculatorFactory leastCostPathCalculatorFactory;
     private final Provider<TransitRouter> transitRouterFactory;
     private final Scenario scenario;
+    private final RouteCache routeCache;
 
-    @Inject
     public DefaultTripRouterFactoryImpl(Scenario scenario, LeastCostPathCalculatorFactory leastCostPathCalculatorFactory, Provider<TransitRouter> transitRouterFactory) {
+    	this(scenario, leastCostPathCalculatorFactory, transitRouterFactory, null);
+    }
+
+    /**
+     * @param routeCache if not null and enabled, the network routes are taken from this cache if possible.
+     */
+    @Inject
+    public DefaultTripRouterFactoryImpl(Scenario scenario, LeastCostPathCalculatorFactory leastCostPathCalculatorFactory, Provider<TransitRouter> transitRouterFactory, RouteCache routeCache) {
     	this.scenario = scenario;
     	this.transitRouterFactory = transitRouterFactory;
     	this.leastCostPathCalculatorFactory = leastCostPathCalculatorFactory;
+    	this.routeCache = routeCache;
     }
     
     @Override
@@ -51,19 +68,33 @@ public class DefaultTripRouterFactoryImpl implements TripRouterFactory {
 
         PlansCalcRouteConfigGroup routeConfigGroup = scenario.getConfig().plansCalcRoute();
 
-        LeastCostPathCalculator routeAlgo =
-                leastCostPathCalculatorFactory.createPathCalculator(
-                        scenario.getNetwork(),
-                        routingContext.getTravelDisutility(),
-                        routingContext.getTravelTime());
+        TravelDisutility travelDisutility = routingContext.getTravelDisutility();
+        TravelTime travelTime = routingContext.getTravelTime();
+        if (travelDisutility instanceof TabulatedTravelDisutility) {
+            // read the travel times from the same snapshot as the disutilities
+            travelTime = ((TabulatedTravelDisutility) travelDisutility).getTravelTime();
+        }
+        LeastCostPathCalculator routeAlgo;
+        if (leastCostPathCalculatorFactory instanceof ContractionHierarchiesFactory
+                && routingContext instanceof DisutilityFactoryRoutingContext) {
+            // every trip router has its own travel disutility, so let the routers share hierarchies by the factory instead
+            routeAlgo = ((ContractionHierarchiesFactory) leastCostPathCalculatorFactory).createPathCalculator(
+                    scenario.getNetwork(),
+                    ((DisutilityFactoryRoutingContext) routingContext).getTravelDisutilityFactory(),
+                    travelDisutility,
+                    travelTime);
+        } else {
+            routeAlgo = leastCostPathCalculatorFactory.createPathCalculator(
+                    scenario.getNetwork(),
+                    travelDisutility,
+                    travelTime);
+        }
 
-        FreespeedTravelTimeAndDisutility ptTimeCostCalc =
-                new FreespeedTravelTimeAndDisutility(-1.0, 0.0, 0.0);
         LeastCostPathCalculator routeAlgoPtFreeFlow =
                 leastCostPathCalculatorFactory.createPathCalculator(
                         scenario.getNetwork(),
-                        ptTimeCostCalc,
-                        ptTimeCostCalc);
+                        PT_FREE_FLOW_TIME_AND_DISUTILITY,
+                        PT_FREE_FLOW_TIME_AND_DISUTILITY);
 
         final boolean networkIsMultimodal = NetworkUtils.isMultimodal(scenario.getNetwork());
         if ( networkIsMultimodal ) {
@@ -105,8 +136,10 @@ public class DefaultTripRouterFactoryImpl implements TripRouterFactory {
         }
 
         for ( String mode : routeConfigGroup.getNetworkModes() ) {
+            LeastCostPathCalculator modeRouteAlgo = routeCache == null ? routeAlgo :
+                    routeCache.createCachingPathCalculator(routeAlgo, mode, scenario.getNetwork(), travelDisutility);
             final RoutingModule routingModule = DefaultRoutingModules.createNetworkRouter(mode, scenario.getPopulation().getFactory(), 
-			        scenario.getNetwork(), routeAlgo);
+			        scenario.getNetwork(), modeRouteAlgo);
 			final RoutingModule result = tripRouter.setRoutingModule( mode, routingModule);
 
 			if ( result != null ) {
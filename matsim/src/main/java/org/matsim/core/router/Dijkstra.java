@@ -161,13 +161,21 @@ public class Dijkstra implements IntermodalLeastCostPathCalculator {
 	 */
 	public Dijkstra(final Network network, final TravelDisutility costFunction, final TravelTime timeFunction,
 			final PreProcessDijkstra preProcessData) {
+		this(network, costFunction, timeFunction, preProcessData, (int) (network.getNodes().size() * 1.1));
+	}
+
+	/*
+	 * Sub classes which keep the node data elsewhere pass a capacity of 0 for the nodeData map.
+	 */
+	/*package*/ Dijkstra(final Network network, final TravelDisutility costFunction, final TravelTime timeFunction,
+			final PreProcessDijkstra preProcessData, final int nodeDataCapacity) {
 
 		this.network = network;
 		this.costFunction = costFunction;
 		this.timeFunction = timeFunction;
 		this.preProcessData = preProcessData;
 
-		this.nodeData = new HashMap<>((int)(network.getNodes().size() * 1.1), 0.95f);
+		this.nodeData = new HashMap<>(nodeDataCapacity, 0.95f);
 
 		if (preProcessData != null) {
 			if (!preProcessData.containsData()) {
@@ -0,0 +1,34 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * DisutilityFactoryRoutingContext.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+
+/**
+ * A routing context which creates the travel disutility of each trip router with the same factory from the travel
+ * time of the context.  Trip routers of such a context can share data which only depends on the disutilities, see
+ * {@link org.matsim.core.router.util.ContractionHierarchiesFactory}.
+ */
+/*package*/ interface DisutilityFactoryRoutingContext extends RoutingContext {
+
+	TravelDisutilityFactory getTravelDisutilityFactory();
+
+}
@@ -20,6 +20,8 @@
 
 package org.matsim.core.router;
 
+import java.util.Set;
+
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.router.priorityqueue.BinaryMinHeap;
@@ -29,6 +31,7 @@ import org.matsim.core.router.util.ArrayRoutingNetwork;
 import org.matsim.core.router.util.ArrayRoutingNetworkNode;
 import org.matsim.core.router.util.PreProcessDijkstra;
 import org.matsim.core.router.util.PreProcessEuclidean;
+import org.matsim.core.router.util.RoutingGraph;
 import org.matsim.core.router.util.RoutingNetwork;
 import org.matsim.core.router.util.RoutingNetworkNode;
 import org.matsim.core.router.util.TravelDisutility;
@@ -50,6 +53,7 @@ public class FastAStarEuclidean extends AStarEuclidean {
 
 	private final RoutingNetwork routingNetwork;
 	private final FastRouterDelegate fastRouter;
+	private final GraphSearch graphSearch;
 	
 	public FastAStarEuclidean(final RoutingNetwork routingNetwork, final PreProcessEuclidean preProcessData,
 			final TravelDisutility costFunction, final TravelTime timeFunction, final double overdoFactor,
@@ -58,9 +62,33 @@ public class FastAStarEuclidean extends AStarEuclidean {
 
 		this.routingNetwork = routingNetwork;
 		this.fastRouter = fastRouterFactory.createFastRouterDelegate(this, new AStarNodeDataFactory(), routingNetwork);
+		this.graphSearch = null;
 
 		this.nodeData.clear();
 	}
+
+	/*
+	 * Route on a routing graph which is shared with other instances. Only the state
+	 * of the search is kept per instance.
+	 */
+	public FastAStarEuclidean(final RoutingGraph routingGraph, final PreProcessEuclidean preProcessData,
+			final TravelDisutility costFunction, final TravelTime timeFunction, final double overdoFactor) {
+		// the node data is kept by the graph search, so do not allocate the nodeData maps
+		super(routingGraph.getNetwork(), preProcessData, costFunction, timeFunction, overdoFactor, 0);
+
+		this.routingNetwork = null;
+		this.fastRouter = null;
+		this.graphSearch = new GraphSearch(routingGraph, costFunction, timeFunction, this.pruneDeadEnds,
+				GraphSearch.Estimate.EUCLIDEAN, getMinTravelCostPerLength(), overdoFactor);
+	}
+
+	@Override
+	public void setModeRestriction(final Set<String> modeRestriction) {
+		super.setModeRestriction(modeRestriction);
+		if (this.graphSearch != null) {
+			this.graphSearch.setModeRestriction(modeRestriction);
+		}
+	}
 	
 	/*
 	 * Replace the references to the from and to nodes with their corresponding
@@ -69,6 +97,10 @@ public class FastAStarEuclidean extends AStarEuclidean {
 	@Override
 	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
 		
+		if (this.graphSearch != null) {
+			return this.graphSearch.calcLeastCostPath(fromNode, toNode, startTime, person, vehicle);
+		}
+
 		this.fastRouter.initialize();
 		this.routingNetwork.initialize();
 		
@@ -20,6 +20,8 @@
 
 package org.matsim.core.router;
 
+import java.util.Set;
+
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.router.priorityqueue.BinaryMinHeap;
@@ -28,6 +30,7 @@ import org.matsim.core.router.util.AStarNodeDataFactory;
 import org.matsim.core.router.util.ArrayRoutingNetwork;
 import org.matsim.core.router.util.ArrayRoutingNetworkNode;
 import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.router.util.RoutingGraph;
 import org.matsim.core.router.util.RoutingNetwork;
 import org.matsim.core.router.util.RoutingNetworkNode;
 import org.matsim.core.router.util.TravelDisutility;
@@ -49,6 +52,7 @@ public class FastAStarLandmarks extends AStarLandmarks {
 
 	private final RoutingNetwork routingNetwork;
 	private final FastRouterDelegate fastRouter;
+	private final GraphSearch graphSearch;
 
 	public FastAStarLandmarks(final RoutingNetwork routingNetwork, final PreProcessLandmarks preProcessData,
 			final TravelDisutility costFunction, final TravelTime timeFunction, final double overdoFactor,
@@ -57,10 +61,35 @@ public class FastAStarLandmarks extends AStarLandmarks {
 
 		this.routingNetwork = routingNetwork;
 		this.fastRouter = fastRouterFactory.createFastRouterDelegate(this, new AStarNodeDataFactory(), routingNetwork);
+		this.graphSearch = null;
 		
 		this.nodeData.clear();
 	}
 
+	/*
+	 * Route on a routing graph which is shared with other instances. Only the state
+	 * of the search is kept per instance. The landmark costs are taken from the graph,
+	 * which thus has to be created with the same preProcessData.
+	 */
+	public FastAStarLandmarks(final RoutingGraph routingGraph, final PreProcessLandmarks preProcessData,
+			final TravelDisutility costFunction, final TravelTime timeFunction, final double overdoFactor) {
+		// the node data is kept by the graph search, so do not allocate the nodeData maps
+		super(routingGraph.getNetwork(), preProcessData, costFunction, timeFunction, overdoFactor, 0);
+
+		this.routingNetwork = null;
+		this.fastRouter = null;
+		this.graphSearch = new GraphSearch(routingGraph, costFunction, timeFunction, false,
+				GraphSearch.Estimate.LANDMARKS, getMinTravelCostPerLength(), overdoFactor);
+	}
+
+	@Override
+	public void setModeRestriction(final Set<String> modeRestriction) {
+		super.setModeRestriction(modeRestriction);
+		if (this.graphSearch != null) {
+			this.graphSearch.setModeRestriction(modeRestriction);
+		}
+	}
+
 	/*
 	 * Replace the references to the from and to nodes with their corresponding
 	 * nodes in the routing network.
@@ -68,6 +97,10 @@ public class FastAStarLandmarks extends AStarLandmarks {
 	@Override
 	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
 		
+		if (this.graphSearch != null) {
+			return this.graphSearch.calcLeastCostPath(fromNode, toNode, startTime, person, vehicle);
+		}
+
 		this.fastRouter.initialize();
 		this.routingNetwork.initialize();
 		
@@ -20,6 +20,8 @@
 
 package org.matsim.core.router;
 
+import java.util.Set;
+
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.router.priorityqueue.BinaryMinHeap;
@@ -28,6 +30,7 @@ import org.matsim.core.router.util.ArrayRoutingNetworkNode;
 import org.matsim.core.router.util.DijkstraNodeData;
 import org.matsim.core.router.util.DijkstraNodeDataFactory;
 import org.matsim.core.router.util.PreProcessDijkstra;
+import org.matsim.core.router.util.RoutingGraph;
 import org.matsim.core.router.util.RoutingNetwork;
 import org.matsim.core.router.util.RoutingNetworkNode;
 import org.matsim.core.router.util.TravelDisutility;
@@ -49,6 +52,7 @@ public class FastDijkstra extends Dijkstra {
 
 	private final RoutingNetwork routingNetwork;
 	private final FastRouterDelegate fastRouter;
+	private final GraphSearch graphSearch;
 	
 	/*
 	 * Create the routing network here and clear the nodeData map 
@@ -60,9 +64,33 @@ public class FastDijkstra extends Dijkstra {
 		
 		this.routingNetwork = routingNetwork;
 		this.fastRouter = fastRouterFactory.createFastRouterDelegate(this, new DijkstraNodeDataFactory(), routingNetwork);
+		this.graphSearch = null;
 
 		this.nodeData.clear();
 	}
+
+	/*
+	 * Route on a routing graph which is shared with other instances. Only the state
+	 * of the search is kept per instance.
+	 */
+	public FastDijkstra(final RoutingGraph routingGraph, final TravelDisutility costFunction, final TravelTime timeFunction,
+			final PreProcessDijkstra preProcessData) {
+		// the node data is kept by the graph search, so do not allocate the nodeData map
+		super(routingGraph.getNetwork(), costFunction, timeFunction, preProcessData, 0);
+
+		this.routingNetwork = null;
+		this.fastRouter = null;
+		this.graphSearch = new GraphSearch(routingGraph, costFunction, timeFunction, this.pruneDeadEnds,
+				GraphSearch.Estimate.NONE, 0.0, 1.0);
+	}
+
+	@Override
+	public void setModeRestriction(final Set<String> modeRestriction) {
+		super.setModeRestriction(modeRestriction);
+		if (this.graphSearch != null) {
+			this.graphSearch.setModeRestriction(modeRestriction);
+		}
+	}
 		
 	/*
 	 * Replace the references to the from and to nodes with their corresponding
@@ -71,6 +99,10 @@ public class FastDijkstra extends Dijkstra {
 	@Override
 	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
 		
+		if (this.graphSearch != null) {
+			return this.graphSearch.calcLeastCostPath(fromNode, toNode, startTime, person, vehicle);
+		}
+
 		this.fastRouter.initialize();
 		this.routingNetwork.initialize();
 		
@@ -0,0 +1,410 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * GraphSearch.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * The search of {@link FastDijkstra}, {@link FastAStarEuclidean} and {@link FastAStarLandmarks} when routing on a
+ * shared {@link RoutingGraph}.  Follows the logic of {@link Dijkstra}, {@link AStarEuclidean} and {@link AStarLandmarks}
+ * (including dead end pruning and the dynamic selection of landmarks), but keeps the state of the search in
+ * primitive arrays indexed by the node indices of the graph, instead of in NodeData objects.
+ * <p></p>
+ * Not thread-safe: every router has its own instance.
+ */
+/*package*/ final class GraphSearch {
+
+	private static final Logger log = Logger.getLogger(GraphSearch.class);
+
+	/*package*/ enum Estimate { NONE, EUCLIDEAN, LANDMARKS }
+
+	private final RoutingGraph graph;
+	private final TravelDisutility costFunction;
+	private final TravelTime timeFunction;
+	private final Estimate estimate;
+	private final double minTravelCostPerLength;
+	private final double overdoFactor;
+	private final boolean pruneDeadEnds;
+	private String[] modeRestriction = null;
+
+	/* state of the search */
+	private final double[] cost;
+	private final double[] time;
+	private final double[] expectedRemainingCost;
+	private final int[] prevLink;
+	private final int[] visited;
+	private int iterationId = 0;
+	private final NodeHeap pendingNodes;
+	private int deadEndEntryNode = -1;
+
+	/* landmarks */
+	private int[] activeLandmarkIndexes = new int[0];
+	private int controlCounter = 0;
+
+	/*package*/ GraphSearch(final RoutingGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction,
+			final boolean pruneDeadEnds, final Estimate estimate, final double minTravelCostPerLength, final double overdoFactor) {
+		this.graph = graph;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		this.pruneDeadEnds = pruneDeadEnds && graph.hasDeadEndData();
+		this.estimate = (estimate == Estimate.LANDMARKS && graph.getNumberOfLandmarks() == 0) ? Estimate.EUCLIDEAN : estimate;
+		this.minTravelCostPerLength = minTravelCostPerLength;
+		this.overdoFactor = overdoFactor;
+
+		int n = graph.getNumberOfNodes();
+		this.cost = new double[n];
+		this.time = new double[n];
+		this.expectedRemainingCost = estimate == Estimate.NONE ? null : new double[n];
+		this.prevLink = new int[n];
+		this.visited = new int[n];
+		this.pendingNodes = new NodeHeap(n);
+	}
+
+	/*package*/ void setModeRestriction(final Set<String> modeRestriction) {
+		this.modeRestriction = modeRestriction == null ? null : modeRestriction.toArray(new String[modeRestriction.size()]);
+	}
+
+	/*package*/ Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		int from = this.graph.getNodeIndex(fromNode);
+		int to = this.graph.getNodeIndex(toNode);
+		if (from < 0 || to < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by the "
+					+ "routing graph: the validity of the results cannot be guaranteed. Aborting!");
+		}
+
+		if (this.iterationId == Integer.MAX_VALUE) {
+			Arrays.fill(this.visited, 0);
+			this.iterationId = 0;
+		}
+		this.iterationId++;
+		this.pendingNodes.clear();
+		if (this.pruneDeadEnds) {
+			this.deadEndEntryNode = this.graph.getDeadEndEntryNode(to);
+		}
+		if (this.estimate == Estimate.LANDMARKS) {
+			initializeActiveLandmarks(from, to, Math.min(2, this.graph.getNumberOfLandmarks()));
+		}
+
+		visitNode(from, startTime, 0, -1, to);
+		while (true) {
+			int node = this.pendingNodes.poll();
+			if (node < 0) {
+				log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId());
+				return null;
+			}
+			if (node == to) {
+				break;
+			}
+			if (this.estimate == Estimate.LANDMARKS) {
+				this.controlCounter++;
+				if (this.controlCounter == AStarLandmarks.controlInterval) {
+					int newLandmarkIndex = checkToAddLandmark(node, to);
+					if (newLandmarkIndex > 0) {
+						updatePendingNodes(newLandmarkIndex, to);
+					}
+					this.controlCounter = 0;
+				}
+			}
+			relaxNode(node, to, person, vehicle);
+		}
+		return constructPath(to, startTime);
+	}
+
+	private void relaxNode(final int node, final int to, final Person person, final Vehicle vehicle) {
+		double currTime = this.time[node];
+		double currCost = this.cost[node];
+		int outDeadEndEntry = this.pruneDeadEnds ? this.graph.getDeadEndEntryNode(node) : -1;
+		for (int l = this.graph.getOutLinksStart(node), end = this.graph.getOutLinksEnd(node); l < end; l++) {
+			Link link = this.graph.getLink(l);
+			if (!canPassLink(link)) {
+				continue;
+			}
+			int n = this.graph.getToNode(l);
+			if (this.pruneDeadEnds) {
+				/* IF the node n is not in a dead end
+				 * OR the current node is in a dead end (and thus n in the same one)
+				 * OR n is in the same dead end as the toNode
+				 * THEN we add n to the pending nodes */
+				int deadEndEntry = this.graph.getDeadEndEntryNode(n);
+				if (!(deadEndEntry < 0 || outDeadEndEntry >= 0 || (this.deadEndEntryNode >= 0 && this.deadEndEntryNode == deadEndEntry))) {
+					continue;
+				}
+			}
+			double travelTime = this.timeFunction.getLinkTravelTime(link, currTime, person, vehicle);
+			double travelCost = this.costFunction.getLinkTravelDisutility(link, currTime, person, vehicle);
+			if (this.visited[n] != this.iterationId) {
+				visitNode(n, currTime + travelTime, currCost + travelCost, l, to);
+			} else if (currCost + travelCost < this.cost[n]) {
+				this.time[n] = currTime + travelTime;
+				this.cost[n] = currCost + travelCost;
+				this.prevLink[n] = l;
+				this.pendingNodes.decreaseKey(n, getPriority(n));
+			}
+		}
+	}
+
+	private void visitNode(final int node, final double time, final double cost, final int link, final int to) {
+		this.visited[node] = this.iterationId;
+		this.time[node] = time;
+		this.cost[node] = cost;
+		this.prevLink[node] = link;
+		if (this.estimate != Estimate.NONE) {
+			this.expectedRemainingCost[node] = estimateRemainingTravelCost(node, to);
+		}
+		this.pendingNodes.add(node, getPriority(node));
+	}
+
+	private boolean canPassLink(final Link link) {
+		if (this.modeRestriction == null) {
+			return true;
+		}
+		for (String mode : this.modeRestriction) {
+			if (link.getAllowedModes().contains(mode)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private double getPriority(final int node) {
+		if (this.estimate == Estimate.NONE) {
+			return this.cost[node];
+		}
+		return this.cost[node] + this.expectedRemainingCost[node];
+	}
+
+	private Path constructPath(final int to, final double startTime) {
+		ArrayList<Node> nodes = new ArrayList<Node>();
+		ArrayList<Link> links = new ArrayList<Link>();
+		nodes.add(this.graph.getNode(to));
+		for (int l = this.prevLink[to]; l >= 0; l = this.prevLink[this.graph.getFromNode(l)]) {
+			links.add(this.graph.getLink(l));
+			nodes.add(this.graph.getNode(this.graph.getFromNode(l)));
+		}
+		reverse(nodes);
+		reverse(links);
+		return new Path(nodes, links, this.time[to] - startTime, this.cost[to]);
+	}
+
+	private static <T> void reverse(final List<T> list) {
+		for (int i = 0, j = list.size() - 1; i < j; i++, j--) {
+			list.set(i, list.set(j, list.get(i)));
+		}
+	}
+
+	/* estimates, see AStarEuclidean and AStarLandmarks */
+
+	private double estimateRemainingTravelCost(final int node, final int to) {
+		double dx = this.graph.getX(node) - this.graph.getX(to);
+		double dy = this.graph.getY(node) - this.graph.getY(to);
+		double euclidean = Math.sqrt(dx * dx + dy * dy) * this.minTravelCostPerLength * this.overdoFactor;
+		if (this.estimate != Estimate.LANDMARKS) {
+			return euclidean;
+		}
+		double travCost = 0;
+		for (int i = 0; i < this.activeLandmarkIndexes.length; i++) {
+			travCost = Math.max(travCost, estimateRemainingTravelCost(node, to, this.activeLandmarkIndexes[i]));
+		}
+		return Math.max(travCost, euclidean);
+	}
+
+	private double estimateRemainingTravelCost(final int node, final int to, final int landmark) {
+		double tmpTravTime = this.graph.getMinLandmarkCost(node, landmark) - this.graph.getMaxLandmarkCost(to, landmark);
+		if (tmpTravTime < 0) {
+			tmpTravTime = this.graph.getMinLandmarkCost(to, landmark) - this.graph.getMaxLandmarkCost(node, landmark);
+			if (tmpTravTime <= 0) {
+				return 0;
+			}
+		}
+		return tmpTravTime * this.overdoFactor;
+	}
+
+	private void initializeActiveLandmarks(final int from, final int to, final int actLandmarkCount) {
+		// Sort the landmarks according to the accuracy of their distance estimation they yield
+		double[] estTravelTimes = new double[actLandmarkCount];
+		this.activeLandmarkIndexes = new int[actLandmarkCount];
+		Arrays.fill(estTravelTimes, Time.UNDEFINED_TIME);
+		for (int i = 0; i < this.graph.getNumberOfLandmarks(); i++) {
+			double tmpTravTime = estimateRemainingTravelCost(from, to, i);
+			for (int j = 0; j < estTravelTimes.length; j++) {
+				if (tmpTravTime > estTravelTimes[j]) {
+					for (int k = estTravelTimes.length - 1; k > j; k--) {
+						estTravelTimes[k] = estTravelTimes[k - 1];
+						this.activeLandmarkIndexes[k] = this.activeLandmarkIndexes[k - 1];
+					}
+					estTravelTimes[j] = tmpTravTime;
+					this.activeLandmarkIndexes[j] = i;
+					break;
+				}
+			}
+		}
+	}
+
+	private int checkToAddLandmark(final int node, final int to) {
+		double bestTravCostEst = estimateRemainingTravelCost(node, to);
+		int bestIndex = -1;
+		for (int i = 0; i < this.graph.getNumberOfLandmarks(); i++) {
+			double tmpTravTime = estimateRemainingTravelCost(node, to, i);
+			if (tmpTravTime > bestTravCostEst) {
+				bestIndex = i;
+				bestTravCostEst = tmpTravTime;
+			}
+		}
+		if (bestIndex != -1) {
+			this.activeLandmarkIndexes = Arrays.copyOf(this.activeLandmarkIndexes, this.activeLandmarkIndexes.length + 1);
+			this.activeLandmarkIndexes[this.activeLandmarkIndexes.length - 1] = bestIndex;
+		}
+		return bestIndex;
+	}
+
+	private void updatePendingNodes(final int newLandmarkIndex, final int to) {
+		for (int i = 0, n = this.pendingNodes.size(); i < n; i++) {
+			int node = this.pendingNodes.get(i);
+			double newEstRemTravCost = estimateRemainingTravelCost(node, to, newLandmarkIndex);
+			if (newEstRemTravCost > this.expectedRemainingCost[node]) {
+				this.expectedRemainingCost[node] = newEstRemTravCost;
+			}
+		}
+		this.pendingNodes.rebuild(this);
+	}
+
+	/**
+	 * Binary min-heap of node indices, with the position of every node to support decrease-key.
+	 */
+	/*package*/ static final class NodeHeap {
+		private final int[] nodes;
+		private final double[] keys;
+		private final int[] positions;
+		private int size = 0;
+
+		NodeHeap(final int capacity) {
+			this.nodes = new int[capacity];
+			this.keys = new double[capacity];
+			this.positions = new int[capacity];
+			Arrays.fill(this.positions, -1);
+		}
+
+		void clear() {
+			for (int i = 0; i < this.size; i++) {
+				this.positions[this.nodes[i]] = -1;
+			}
+			this.size = 0;
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		int get(final int i) {
+			return this.nodes[i];
+		}
+
+		void add(final int node, final double key) {
+			siftUp(this.size++, node, key);
+		}
+
+		void decreaseKey(final int node, final double key) {
+			int pos = this.positions[node];
+			if (pos < 0) {
+				add(node, key);
+			} else if (key < this.keys[pos]) {
+				siftUp(pos, node, key);
+			}
+		}
+
+		/** @return the node with the smallest key, or -1 if the heap is empty */
+		int poll() {
+			if (this.size == 0) {
+				return -1;
+			}
+			int result = this.nodes[0];
+			this.positions[result] = -1;
+			this.size--;
+			if (this.size > 0) {
+				siftDown(0, this.nodes[this.size], this.keys[this.size]);
+			}
+			return result;
+		}
+
+		/** re-orders the heap after the priorities of the nodes have changed */
+		void rebuild(final GraphSearch search) {
+			for (int i = 0; i < this.size; i++) {
+				this.keys[i] = search.getPriority(this.nodes[i]);
+			}
+			for (int i = this.size / 2 - 1; i >= 0; i--) {
+				siftDown(i, this.nodes[i], this.keys[i]);
+			}
+		}
+
+		private void siftUp(int pos, final int node, final double key) {
+			while (pos > 0) {
+				int parent = (pos - 1) >>> 1;
+				if (this.keys[parent] <= key) {
+					break;
+				}
+				this.nodes[pos] = this.nodes[parent];
+				this.keys[pos] = this.keys[parent];
+				this.positions[this.nodes[pos]] = pos;
+				pos = parent;
+			}
+			this.nodes[pos] = node;
+			this.keys[pos] = key;
+			this.positions[node] = pos;
+		}
+
+		private void siftDown(int pos, final int node, final double key) {
+			while (true) {
+				int child = 2 * pos + 1;
+				if (child >= this.size) {
+					break;
+				}
+				if (child + 1 < this.size && this.keys[child + 1] < this.keys[child]) {
+					child++;
+				}
+				if (this.keys[child] >= key) {
+					break;
+				}
+				this.nodes[pos] = this.nodes[child];
+				this.keys[pos] = this.keys[child];
+				this.positions[this.nodes[pos]] = pos;
+				pos = child;
+			}
+			this.nodes[pos] = node;
+			this.keys[pos] = key;
+			this.positions[node] = pos;
+		}
+	}
+
+}
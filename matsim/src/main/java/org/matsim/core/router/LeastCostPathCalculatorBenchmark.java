@@ -0,0 +1,142 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LeastCostPathCalculatorBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.MatsimNetworkReader;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
+import org.matsim.core.router.util.FastAStarLandmarksFactory;
+import org.matsim.core.router.util.FastDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Routes the same random origin-destination pairs with {@link FastDijkstra}, {@link FastAStarLandmarks} and
+ * {@link ContractionHierarchies} on free speed travel times, and reports the time needed for the preprocessing and
+ * the queries, as well as the number of paths whose costs differ from the ones found by FastDijkstra.  The queries
+ * are distributed to the given number of threads, each with its own router.
+ * <p></p>
+ * Usage: <code>LeastCostPathCalculatorBenchmark networkFile [numberOfQueries [numberOfThreads]]</code>
+ */
+public final class LeastCostPathCalculatorBenchmark {
+
+	private static final Logger log = Logger.getLogger(LeastCostPathCalculatorBenchmark.class);
+
+	private LeastCostPathCalculatorBenchmark() {
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length < 1) {
+			System.out.println("Usage: LeastCostPathCalculatorBenchmark networkFile [numberOfQueries [numberOfThreads]]");
+			return;
+		}
+		int numberOfQueries = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int numberOfThreads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new MatsimNetworkReader(scenario).readFile(args[0]);
+		Network network = scenario.getNetwork();
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		Random random = new Random(4711);
+		Node[] fromNodes = new Node[numberOfQueries];
+		Node[] toNodes = new Node[numberOfQueries];
+		double[] departureTimes = new double[numberOfQueries];
+		for (int i = 0; i < numberOfQueries; i++) {
+			fromNodes[i] = nodes[random.nextInt(nodes.length)];
+			toNodes[i] = nodes[random.nextInt(nodes.length)];
+			departureTimes[i] = 6 * 3600 + random.nextInt(12 * 3600);
+		}
+
+		FreespeedTravelTimeAndDisutility travelTimeAndDisutility = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+
+		long start = System.nanoTime();
+		LeastCostPathCalculatorFactory dijkstraFactory = new FastDijkstraFactory();
+		double[] expectedCosts = run("FastDijkstra", dijkstraFactory, network, travelTimeAndDisutility, fromNodes, toNodes,
+				departureTimes, numberOfThreads, null, start);
+
+		start = System.nanoTime();
+		LeastCostPathCalculatorFactory landmarksFactory = new FastAStarLandmarksFactory(network, travelTimeAndDisutility);
+		run("FastAStarLandmarks", landmarksFactory, network, travelTimeAndDisutility, fromNodes, toNodes,
+				departureTimes, numberOfThreads, expectedCosts, start);
+
+		// the disutility does not depend on the time, so one slice is enough
+		start = System.nanoTime();
+		ContractionHierarchiesFactory chFactory = new ContractionHierarchiesFactory(Double.POSITIVE_INFINITY, 0);
+		chFactory.getHierarchy(network, travelTimeAndDisutility, travelTimeAndDisutility, null, 0);
+		run("ContractionHierarchies", chFactory, network, travelTimeAndDisutility, fromNodes, toNodes,
+				departureTimes, numberOfThreads, expectedCosts, start);
+	}
+
+	private static double[] run(final String name, final LeastCostPathCalculatorFactory factory, final Network network,
+			final FreespeedTravelTimeAndDisutility travelTimeAndDisutility, final Node[] fromNodes, final Node[] toNodes,
+			final double[] departureTimes, final int numberOfThreads, final double[] expectedCosts, final long start) throws InterruptedException {
+		long queryStart = System.nanoTime();
+		final double[] costs = new double[fromNodes.length];
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < numberOfThreads; t++) {
+			final LeastCostPathCalculator router = factory.createPathCalculator(network, travelTimeAndDisutility, travelTimeAndDisutility);
+			final int first = t;
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = first; i < fromNodes.length; i += numberOfThreads) {
+						Path path = router.calcLeastCostPath(fromNodes[i], toNodes[i], departureTimes[i], null, null);
+						costs[i] = path == null ? Double.NaN : path.travelCost;
+					}
+				}
+			}, name + "." + t);
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long end = System.nanoTime();
+
+		int differences = 0;
+		if (expectedCosts != null) {
+			for (int i = 0; i < costs.length; i++) {
+				if (Double.isNaN(costs[i]) != Double.isNaN(expectedCosts[i]) || Math.abs(costs[i] - expectedCosts[i]) > 1e-6 * Math.abs(expectedCosts[i])) {
+					differences++;
+				}
+			}
+		}
+		log.info(name + ": preprocessing " + (queryStart - start) / 1000000 + " ms, " + fromNodes.length + " queries with "
+				+ numberOfThreads + " threads " + (end - queryStart) / 1000000 + " ms ("
+				+ String.format("%.3f", (end - queryStart) / 1e6 / fromNodes.length) + " ms per query), "
+				+ (expectedCosts == null ? "reference for the costs." : differences + " paths with different costs than FastDijkstra."));
+		return costs;
+	}
+
+}
@@ -0,0 +1,236 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RouteCache.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelDisutilityUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Caches least cost paths between two mobsim runs, so that trips with the same from and to node, mode,
+ * departure time bin and class of travel disutility are only routed once.  The cache is shared by
+ * all routers (e.g. of the different replanning threads).
+ * <p></p>
+ * The cached path is the one calculated for the first request in a time bin, i.e. its travel time and
+ * cost refer to that departure time.  Thus, with multiple threads the results depend on the order in which
+ * the trips are routed.  The person is not part of the key, so routers with a travel disutility depending
+ * on the person (see {@link TravelDisutilityUtils#isPersonIndependent(Network, TravelDisutility)}), e.g. with
+ * routing randomness, do not use the cache.
+ * <p></p>
+ * The travel times only change during the mobsim, so the cache is cleared before the mobsim (when registered as
+ * controler listener).  Within-day replanning routes with the travel times of the running mobsim, so the cache
+ * is bypassed while the mobsim runs.
+ * <p></p>
+ * The cache is enabled by setting {@link org.matsim.core.config.groups.PlansCalcRouteConfigGroup#setRouteCacheTimeBinSize(double)}
+ * to a positive value.
+ */
+@Singleton
+public final class RouteCache implements BeforeMobsimListener, AfterMobsimListener {
+
+	private static final Logger log = Logger.getLogger(RouteCache.class);
+
+	private final double timeBinSize;
+	private final int maxSize;
+
+	private final ConcurrentMap<Key, Path> paths = new ConcurrentHashMap<>();
+	private final AtomicInteger size = new AtomicInteger(0);
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+	private volatile boolean mobsimRunning = false;
+	private final AtomicBoolean warnedPersonDependent = new AtomicBoolean(false);
+
+	@Inject
+	RouteCache(final Config config) {
+		this(config.plansCalcRoute().getRouteCacheTimeBinSize(), config.plansCalcRoute().getRouteCacheMaxSize());
+	}
+
+	/**
+	 * @param timeBinSize the size of the departure time bins, in seconds. A cache with a time bin size <= 0 is disabled.
+	 * @param maxSize the maximal number of cached paths.
+	 */
+	public RouteCache(final double timeBinSize, final int maxSize) {
+		this.timeBinSize = timeBinSize;
+		this.maxSize = maxSize;
+	}
+
+	public boolean isEnabled() {
+		return this.timeBinSize > 0;
+	}
+
+	/**
+	 * @return a calculator that uses this cache for its paths, or the given calculator if the cache is disabled or the
+	 * travel disutility depends on the person.
+	 */
+	public LeastCostPathCalculator createCachingPathCalculator(final LeastCostPathCalculator delegate, final String mode,
+			final Network network, final TravelDisutility travelDisutility) {
+		if (!isEnabled()) {
+			return delegate;
+		}
+		if (!TravelDisutilityUtils.isPersonIndependent(network, travelDisutility)) {
+			if (!this.warnedPersonDependent.getAndSet(true)) {
+				log.warn("The travel disutility " + travelDisutility.getClass().getName() + " depends on the person, e.g. because "
+						+ "of routing randomness (sigma != 0).  Routes are not cached.");
+			}
+			return delegate;
+		}
+		return new CachingPathCalculator(delegate, mode, travelDisutility.getClass());
+	}
+
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	public int size() {
+		return this.size.get();
+	}
+
+	/**
+	 * Logs the statistics and clears the cache.
+	 */
+	public void reset() {
+		long hits = this.hits.getAndSet(0);
+		long misses = this.misses.getAndSet(0);
+		if (hits + misses > 0) {
+			log.info("route cache: " + hits + " hits, " + misses + " misses (" + (100 * hits / (hits + misses)) + "% hits), "
+					+ this.size.get() + " routes cached.");
+		}
+		this.paths.clear();
+		this.size.set(0);
+	}
+
+	@Override
+	public void notifyBeforeMobsim(final BeforeMobsimEvent event) {
+		reset();
+		this.mobsimRunning = true;
+	}
+
+	@Override
+	public void notifyAfterMobsim(final AfterMobsimEvent event) {
+		this.mobsimRunning = false;
+	}
+
+	private Path get(final Key key) {
+		Path path = this.paths.get(key);
+		if (path == null) {
+			this.misses.incrementAndGet();
+		} else {
+			this.hits.incrementAndGet();
+		}
+		return path;
+	}
+
+	private void put(final Key key, final Path path) {
+		if (this.size.get() < this.maxSize && this.paths.putIfAbsent(key, path) == null) {
+			this.size.incrementAndGet();
+		}
+	}
+
+	private final class CachingPathCalculator implements LeastCostPathCalculator {
+
+		private final LeastCostPathCalculator delegate;
+		private final String mode;
+		private final Class<?> disutilityClass;
+
+		CachingPathCalculator(final LeastCostPathCalculator delegate, final String mode, final Class<?> disutilityClass) {
+			this.delegate = delegate;
+			this.mode = mode;
+			this.disutilityClass = disutilityClass;
+		}
+
+		@Override
+		public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+			if (RouteCache.this.mobsimRunning) {
+				return this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+			}
+			Key key = new Key(fromNode, toNode, this.mode, (int) (starttime / RouteCache.this.timeBinSize), this.disutilityClass);
+			Path path = get(key);
+			if (path == null) {
+				path = this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+				if (path != null) {
+					put(key, path);
+				}
+			}
+			return path;
+		}
+	}
+
+	private static final class Key {
+		private final Node fromNode;
+		private final Node toNode;
+		private final String mode;
+		private final int timeBin;
+		private final Class<?> disutilityClass;
+		private final int hashCode;
+
+		Key(final Node fromNode, final Node toNode, final String mode, final int timeBin, final Class<?> disutilityClass) {
+			this.fromNode = fromNode;
+			this.toNode = toNode;
+			this.mode = mode;
+			this.timeBin = timeBin;
+			this.disutilityClass = disutilityClass;
+			int h = fromNode.hashCode();
+			h = 31 * h + toNode.hashCode();
+			h = 31 * h + mode.hashCode();
+			h = 31 * h + timeBin;
+			this.hashCode = 31 * h + disutilityClass.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return this.fromNode == other.fromNode && this.toNode == other.toNode && this.timeBin == other.timeBin
+					&& this.mode.equals(other.mode) && this.disutilityClass == other.disutilityClass;
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeMatrix.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * A matrix of travel times (in seconds) from origins to destinations, stored row by row in a {@link FloatBuffer}.
+ * Filled by a {@link TravelTimeMatrixCalculator}, or read from a file written by {@link #writeFile(String)} or
+ * a {@link TravelTimeMatrixFileWriter}.  Read matrices are backed by the memory-mapped file, i.e. they are not
+ * copied to the heap.
+ */
+public final class TravelTimeMatrix implements TravelTimeMatrixCalculator.RowHandler {
+
+	private final int numberOfOrigins;
+	private final int numberOfDestinations;
+	private final FloatBuffer travelTimes;
+
+	public TravelTimeMatrix(final int numberOfOrigins, final int numberOfDestinations) {
+		this(numberOfOrigins, numberOfDestinations, FloatBuffer.allocate(checkedSize(numberOfOrigins, numberOfDestinations)));
+	}
+
+	private TravelTimeMatrix(final int numberOfOrigins, final int numberOfDestinations, final FloatBuffer travelTimes) {
+		this.numberOfOrigins = numberOfOrigins;
+		this.numberOfDestinations = numberOfDestinations;
+		this.travelTimes = travelTimes;
+	}
+
+	private static int checkedSize(final int numberOfOrigins, final int numberOfDestinations) {
+		long size = (long) numberOfOrigins * numberOfDestinations;
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A matrix with " + numberOfOrigins + " x " + numberOfDestinations + " entries is too large, "
+					+ "use a TravelTimeMatrixFileWriter instead.");
+		}
+		return (int) size;
+	}
+
+	public int getNumberOfOrigins() {
+		return this.numberOfOrigins;
+	}
+
+	public int getNumberOfDestinations() {
+		return this.numberOfDestinations;
+	}
+
+	/**
+	 * @return the travel time in seconds, or {@link Float#POSITIVE_INFINITY} if the destination cannot be reached
+	 */
+	public float getTravelTime(final int origin, final int destination) {
+		return this.travelTimes.get(origin * this.numberOfDestinations + destination);
+	}
+
+	@Override
+	public void handleRow(final int origin, final float[] travelTimes, final float[] travelCosts) {
+		int offset = origin * this.numberOfDestinations;
+		for (int d = 0; d < this.numberOfDestinations; d++) {
+			this.travelTimes.put(offset + d, travelTimes[d]);
+		}
+	}
+
+	/**
+	 * Writes the matrix in the format described at {@link TravelTimeMatrixFileWriter}.
+	 */
+	public void writeFile(final String filename) {
+		TravelTimeMatrixFileWriter writer = new TravelTimeMatrixFileWriter(filename, this.numberOfOrigins, this.numberOfDestinations);
+		float[] row = new float[this.numberOfDestinations];
+		for (int o = 0; o < this.numberOfOrigins; o++) {
+			for (int d = 0; d < this.numberOfDestinations; d++) {
+				row[d] = getTravelTime(o, d);
+			}
+			writer.handleRow(o, row, null);
+		}
+		writer.close();
+	}
+
+	/**
+	 * Maps a file written by {@link #writeFile(String)} or a {@link TravelTimeMatrixFileWriter} into memory.  The
+	 * returned matrix is read-only.
+	 */
+	public static TravelTimeMatrix readFile(final String filename) {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			FileChannel channel = file.getChannel();
+			if (channel.size() < TravelTimeMatrixFileWriter.HEADER_SIZE) {
+				throw new UncheckedIOException("File " + filename + " is not a travel time matrix file.");
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, TravelTimeMatrixFileWriter.HEADER_SIZE);
+			if (header.getInt() != TravelTimeMatrixFileWriter.MAGIC) {
+				throw new UncheckedIOException("File " + filename + " is not a travel time matrix file.");
+			}
+			int version = header.getInt();
+			if (version != TravelTimeMatrixFileWriter.VERSION) {
+				throw new UncheckedIOException("Unsupported version " + version + " of travel time matrix file " + filename);
+			}
+			int numberOfOrigins = header.getInt();
+			int numberOfDestinations = header.getInt();
+			long size = 4L * numberOfOrigins * numberOfDestinations;
+			if (size > Integer.MAX_VALUE) {
+				throw new UncheckedIOException("Travel time matrix file " + filename + " is too large to be mapped at once.");
+			}
+			if (channel.size() < TravelTimeMatrixFileWriter.HEADER_SIZE + size) {
+				throw new UncheckedIOException("Travel time matrix file " + filename + " is truncated.");
+			}
+			// the mapping stays valid after the channel is closed
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, TravelTimeMatrixFileWriter.HEADER_SIZE, size);
+			return new TravelTimeMatrix(numberOfOrigins, numberOfDestinations, data.asFloatBuffer());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
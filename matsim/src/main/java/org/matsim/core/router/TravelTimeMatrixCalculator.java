@@ -0,0 +1,275 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeMatrixCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.RoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Calculates the travel times and travel costs of the least cost paths from many origin nodes to many destination
+ * nodes, e.g. for zone-to-zone matrices.  Runs one one-to-all Dijkstra search per origin on a shared
+ * {@link RoutingGraph}, stopping as soon as all destinations are settled.  The searches are distributed to the given
+ * number of threads.
+ * <p></p>
+ * The origins are processed in blocks: after each block, its rows are passed to a {@link RowHandler} in the order
+ * of the origins, so the memory needed only depends on the block size and the number of destinations, not on the
+ * number of origins.  Use a {@link TravelTimeMatrix} to keep the travel times in memory, or a
+ * {@link TravelTimeMatrixFileWriter} to stream them to a file.
+ * <p></p>
+ * The travel time and travel disutility are called from several threads with <code>null</code> as person and
+ * vehicle, so they must be thread-safe.
+ */
+public final class TravelTimeMatrixCalculator {
+
+	private static final Logger log = Logger.getLogger(TravelTimeMatrixCalculator.class);
+
+	/**
+	 * Receives the results of one origin.
+	 */
+	public interface RowHandler {
+		/**
+		 * Called for every origin, in the order of the origins and from the thread that called
+		 * {@link TravelTimeMatrixCalculator#calculate(List, List, double, RowHandler)}.  The arrays are re-used for
+		 * other origins after this method returns.  Unreachable destinations have
+		 * {@link Float#POSITIVE_INFINITY} as travel time and cost.
+		 *
+		 * @param origin the index of the origin in the list of origins
+		 * @param travelTimes the travel time to every destination, in the order of the destinations
+		 * @param travelCosts the travel cost to every destination, in the order of the destinations
+		 */
+		public void handleRow(int origin, float[] travelTimes, float[] travelCosts);
+	}
+
+	private final RoutingGraph graph;
+	private final TravelTime travelTime;
+	private final TravelDisutility travelDisutility;
+	private final int numberOfThreads;
+	private int blockSize = 256;
+
+	public TravelTimeMatrixCalculator(final Network network, final TravelTime travelTime, final TravelDisutility travelDisutility,
+			final int numberOfThreads) {
+		this(new RoutingGraph(network), travelTime, travelDisutility, numberOfThreads);
+	}
+
+	public TravelTimeMatrixCalculator(final RoutingGraph graph, final TravelTime travelTime, final TravelDisutility travelDisutility,
+			final int numberOfThreads) {
+		this.graph = graph;
+		this.travelTime = travelTime;
+		this.travelDisutility = travelDisutility;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	/**
+	 * @param blockSize the number of origins whose rows are kept in memory at the same time.  Default is 256.
+	 */
+	public void setBlockSize(final int blockSize) {
+		this.blockSize = Math.max(1, blockSize);
+	}
+
+	/**
+	 * @return the travel times from every origin to every destination
+	 */
+	public TravelTimeMatrix calculate(final List<? extends Node> origins, final List<? extends Node> destinations, final double departureTime) {
+		TravelTimeMatrix matrix = new TravelTimeMatrix(origins.size(), destinations.size());
+		calculate(origins, destinations, departureTime, matrix);
+		return matrix;
+	}
+
+	public void calculate(final List<? extends Node> origins, final List<? extends Node> destinations, final double departureTime,
+			final RowHandler handler) {
+		long start = System.nanoTime();
+		final int[] originNodes = getNodeIndices(origins);
+		final int[] destinationNodes = getNodeIndices(destinations);
+		final boolean[] isDestination = new boolean[this.graph.getNumberOfNodes()];
+		int distinctDestinations = 0;
+		for (int node : destinationNodes) {
+			if (!isDestination[node]) {
+				isDestination[node] = true;
+				distinctDestinations++;
+			}
+		}
+
+		int threads = Math.min(this.numberOfThreads, Math.max(1, originNodes.length));
+		int rows = Math.min(this.blockSize, Math.max(1, originNodes.length));
+		final float[][] travelTimes = new float[rows][destinationNodes.length];
+		final float[][] travelCosts = new float[rows][destinationNodes.length];
+		List<Worker> workers = new ArrayList<Worker>(threads);
+		for (int i = 0; i < threads; i++) {
+			workers.add(new Worker(i, threads, isDestination, distinctDestinations));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int blockStart = 0; blockStart < originNodes.length; blockStart += rows) {
+				int blockEnd = Math.min(blockStart + rows, originNodes.length);
+				for (Worker worker : workers) {
+					worker.setBlock(originNodes, blockStart, blockEnd, destinationNodes, departureTime, travelTimes, travelCosts);
+				}
+				for (Future<Void> future : executor.invokeAll(workers)) {
+					future.get();
+				}
+				for (int origin = blockStart; origin < blockEnd; origin++) {
+					handler.handleRow(origin, travelTimes[origin - blockStart], travelCosts[origin - blockStart]);
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		log.info("Calculating the travel times from " + originNodes.length + " origins to " + destinationNodes.length
+				+ " destinations took " + ((System.nanoTime() - start) / 1e9) + " seconds using " + threads + " threads.");
+	}
+
+	private int[] getNodeIndices(final List<? extends Node> nodes) {
+		int[] indices = new int[nodes.size()];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = this.graph.getNodeIndex(nodes.get(i));
+			if (indices[i] < 0) {
+				throw new IllegalArgumentException("Node " + nodes.get(i).getId() + " is not part of the routing graph.");
+			}
+		}
+		return indices;
+	}
+
+	/**
+	 * One-to-all searches for every n-th origin of a block.
+	 */
+	private final class Worker implements Callable<Void> {
+		private final int offset;
+		private final int stride;
+		private final boolean[] isDestination;
+		private final int distinctDestinations;
+
+		private final double[] cost;
+		private final double[] time;
+		private final int[] visited;
+		private int iterationId = 0;
+		private final GraphSearch.NodeHeap pendingNodes;
+
+		private int[] originNodes;
+		private int blockStart;
+		private int blockEnd;
+		private int[] destinationNodes;
+		private double departureTime;
+		private float[][] travelTimes;
+		private float[][] travelCosts;
+
+		Worker(final int offset, final int stride, final boolean[] isDestination, final int distinctDestinations) {
+			this.offset = offset;
+			this.stride = stride;
+			this.isDestination = isDestination;
+			this.distinctDestinations = distinctDestinations;
+			int n = TravelTimeMatrixCalculator.this.graph.getNumberOfNodes();
+			this.cost = new double[n];
+			this.time = new double[n];
+			this.visited = new int[n];
+			this.pendingNodes = new GraphSearch.NodeHeap(n);
+		}
+
+		void setBlock(final int[] originNodes, final int blockStart, final int blockEnd, final int[] destinationNodes,
+				final double departureTime, final float[][] travelTimes, final float[][] travelCosts) {
+			this.originNodes = originNodes;
+			this.blockStart = blockStart;
+			this.blockEnd = blockEnd;
+			this.destinationNodes = destinationNodes;
+			this.departureTime = departureTime;
+			this.travelTimes = travelTimes;
+			this.travelCosts = travelCosts;
+		}
+
+		@Override
+		public Void call() {
+			for (int origin = this.blockStart + this.offset; origin < this.blockEnd; origin += this.stride) {
+				search(this.originNodes[origin]);
+				float[] times = this.travelTimes[origin - this.blockStart];
+				float[] costs = this.travelCosts[origin - this.blockStart];
+				for (int d = 0; d < this.destinationNodes.length; d++) {
+					int node = this.destinationNodes[d];
+					if (this.visited[node] == this.iterationId) {
+						times[d] = (float) (this.time[node] - this.departureTime);
+						costs[d] = (float) this.cost[node];
+					} else {
+						times[d] = Float.POSITIVE_INFINITY;
+						costs[d] = Float.POSITIVE_INFINITY;
+					}
+				}
+			}
+			return null;
+		}
+
+		private void search(final int from) {
+			RoutingGraph graph = TravelTimeMatrixCalculator.this.graph;
+			if (this.iterationId == Integer.MAX_VALUE) {
+				Arrays.fill(this.visited, 0);
+				this.iterationId = 0;
+			}
+			this.iterationId++;
+			this.pendingNodes.clear();
+			this.visited[from] = this.iterationId;
+			this.time[from] = this.departureTime;
+			this.cost[from] = 0;
+			this.pendingNodes.add(from, 0);
+			int settledDestinations = 0;
+			while (settledDestinations < this.distinctDestinations) {
+				int node = this.pendingNodes.poll();
+				if (node < 0) {
+					return; // not all destinations are reachable
+				}
+				if (this.isDestination[node]) {
+					settledDestinations++;
+				}
+				double currTime = this.time[node];
+				double currCost = this.cost[node];
+				for (int l = graph.getOutLinksStart(node), end = graph.getOutLinksEnd(node); l < end; l++) {
+					Link link = graph.getLink(l);
+					int n = graph.getToNode(l);
+					double travelCost = currCost + TravelTimeMatrixCalculator.this.travelDisutility.getLinkTravelDisutility(link, currTime, null, null);
+					if (this.visited[n] != this.iterationId) {
+						this.visited[n] = this.iterationId;
+					} else if (travelCost >= this.cost[n]) {
+						continue;
+					}
+					this.time[n] = currTime + TravelTimeMatrixCalculator.this.travelTime.getLinkTravelTime(link, currTime, null, null);
+					this.cost[n] = travelCost;
+					this.pendingNodes.decreaseKey(n, travelCost);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeMatrixFileWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Streams the travel times calculated by a {@link TravelTimeMatrixCalculator} into a binary file, row by row,
+ * through memory-mapped windows of the file.  Only the current window is mapped, so matrices larger than the
+ * available memory can be written.  The file can be read back with {@link TravelTimeMatrix#readFile(String)}.
+ * <p></p>
+ * File layout (all numbers big-endian):
+ * <pre>
+ * file := MAGIC VERSION numberOfOrigins numberOfDestinations travelTime[numberOfOrigins][numberOfDestinations]
+ * </pre>
+ * The header consists of four ints, the travel times are floats (in seconds), row by row.
+ */
+public final class TravelTimeMatrixFileWriter implements TravelTimeMatrixCalculator.RowHandler {
+
+	public static final int MAGIC = 0x4d535454; // "MSTT"
+	public static final int VERSION = 1;
+	/*package*/ static final int HEADER_SIZE = 16;
+
+	private static final long WINDOW_SIZE = 1 << 26;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final int numberOfDestinations;
+	private final long rowSize;
+	private final long size;
+	private MappedByteBuffer window = null;
+	private long windowStart = 0;
+
+	public TravelTimeMatrixFileWriter(final String filename, final int numberOfOrigins, final int numberOfDestinations) {
+		this.numberOfDestinations = numberOfDestinations;
+		this.rowSize = 4L * numberOfDestinations;
+		this.size = HEADER_SIZE + numberOfOrigins * this.rowSize;
+		try {
+			this.file = new RandomAccessFile(filename, "rw");
+			this.file.setLength(0);
+			this.channel = this.file.getChannel();
+			MappedByteBuffer header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(numberOfOrigins);
+			header.putInt(numberOfDestinations);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void handleRow(final int origin, final float[] travelTimes, final float[] travelCosts) {
+		long position = HEADER_SIZE + origin * this.rowSize;
+		try {
+			for (int d = 0; d < this.numberOfDestinations; d++, position += 4) {
+				if (this.window == null || position < this.windowStart || position + 4 > this.windowStart + this.window.capacity()) {
+					this.windowStart = position;
+					this.window = this.channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(WINDOW_SIZE, this.size - position));
+				}
+				this.window.putFloat((int) (position - this.windowStart), travelTimes[d]);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void close() {
+		try {
+			if (this.window != null) {
+				this.window.force();
+				this.window = null;
+			}
+			this.channel.close();
+			this.file.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -37,5 +37,8 @@ public class TripRouterFactoryModule extends AbstractModule {
         } else {
             bind(TripRouterFactory.class).to(DefaultTripRouterFactoryImpl.class).in(Singleton.class);
         }
+        if (getConfig().plansCalcRoute().getRouteCacheTimeBinSize() > 0) {
+            addControlerListenerBinding().to(RouteCache.class);
+        }
     }
 }
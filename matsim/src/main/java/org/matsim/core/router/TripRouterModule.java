@@ -56,7 +56,12 @@ public class TripRouterModule extends AbstractModule {
 
         @Override
         public TripRouter get() {
-            return tripRouterFactory.instantiateAndConfigureTripRouter(new RoutingContext() {
+            return tripRouterFactory.instantiateAndConfigureTripRouter(new DisutilityFactoryRoutingContext() {
+
+                @Override
+                public TravelDisutilityFactory getTravelDisutilityFactory() {
+                    return travelDisutilityFactory;
+                }
 
                 @Override
                 public TravelDisutility getTravelDisutility() {
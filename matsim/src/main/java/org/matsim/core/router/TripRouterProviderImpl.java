@@ -49,7 +49,12 @@ public class TripRouterProviderImpl implements Provider<TripRouter> {
 				leastCostAlgoFactory,
 				transitRouterFactory );
 		
-		this.context = new RoutingContext() {
+		this.context = new DisutilityFactoryRoutingContext() {
+			@Override
+			public TravelDisutilityFactory getTravelDisutilityFactory() {
+				return disutilityFactory;
+			}
+
 			@Override
 			public TravelDisutility getTravelDisutility() {
 				return disutilityFactory.createTravelDisutility( travelTime , scenario.getConfig().planCalcScore() );
@@ -155,6 +155,14 @@ public final class RandomizingTimeDistanceTravelDisutility implements TravelDisu
 		return this.marginalCostOfTime * travelTime + logNormalRnd * this.marginalCostOfDistance * link.getLength();
 	}
 
+	/*package*/ double getMarginalCostOfTime() {
+		return this.marginalCostOfTime;
+	}
+
+	/*package*/ double getMarginalCostOfDistance() {
+		return this.marginalCostOfDistance;
+	}
+
 	@Override
 	public double getLinkMinimumTravelDisutility(final Link link) {
 		return (link.getLength() / link.getFreespeed()) * this.marginalCostOfTime + this.marginalCostOfDistance * link.getLength();
@@ -0,0 +1,113 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TabulatedTravelDisutility.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.costcalculators;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * The travel disutility of {@link RandomizingTimeDistanceTravelDisutility}, read from the tables of a
+ * {@link TravelDisutilitySnapshot}.  The randomization of the distance cost per person is applied as a factor
+ * on the tabulated distance part of the disutility.  Links that were added after the tables were built are
+ * computed from the travel times directly.
+ * <p></p>
+ * Not thread-safe, since it memorizes the randomization of the current person.
+ */
+public final class TabulatedTravelDisutility implements TravelDisutility {
+
+	private final TravelDisutilitySnapshot.Tables tables;
+	private final double sigma;
+	private final double normalization;
+	private final Random random;
+
+	private Person prevPerson = null;
+	private double logNormalRnd = 1.;
+
+	private final TravelTime travelTime = new TravelTime() {
+		@Override
+		public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+			int index = link.getId().index();
+			if (!TabulatedTravelDisutility.this.tables.contains(index)) {
+				return TabulatedTravelDisutility.this.tables.travelTime.getLinkTravelTime(link, time, person, vehicle);
+			}
+			return TabulatedTravelDisutility.this.tables.getTravelTime(index, TabulatedTravelDisutility.this.tables.getTimeBin(time));
+		}
+	};
+
+	/*package*/ TabulatedTravelDisutility(final TravelDisutilitySnapshot.Tables tables, final double sigma) {
+		this.tables = tables;
+		this.sigma = sigma;
+		if (sigma != 0.) {
+			this.random = MatsimRandom.getLocalInstance();
+			this.normalization = 1. / Math.exp(sigma * sigma / 2);
+		} else {
+			this.random = null;
+			this.normalization = 1.;
+		}
+	}
+
+	/**
+	 * @return the travel times of the snapshot.  Routers using this travel disutility should use these, too, so that
+	 * they do not ask the original travel times for every link.
+	 */
+	public TravelTime getTravelTime() {
+		return this.travelTime;
+	}
+
+	@Override
+	public double getLinkTravelDisutility(final Link link, final double time, final Person person, final Vehicle vehicle) {
+		// randomize if applicable, see RandomizingTimeDistanceTravelDisutility
+		if (this.sigma != 0.) {
+			if (person == null) {
+				throw new RuntimeException("you cannot use the randomzing travel disutility without person.  If you need this without a person, set"
+						+ "sigma to zero.");
+			}
+			if (person != this.prevPerson) {
+				this.prevPerson = person;
+				this.logNormalRnd = Math.exp(this.sigma * this.random.nextGaussian()) * this.normalization;
+				person.getCustomAttributes().put("logNormalRnd", this.logNormalRnd);
+			}
+		}
+
+		int index = link.getId().index();
+		if (!this.tables.contains(index)) {
+			double travelTime = this.tables.travelTime.getLinkTravelTime(link, time, person, vehicle);
+			return this.tables.marginalCostOfTime * travelTime + this.logNormalRnd * this.tables.marginalCostOfDistance * link.getLength();
+		}
+		double disutility = this.tables.getDisutility(index, this.tables.getTimeBin(time));
+		if (this.logNormalRnd != 1.) {
+			disutility += (this.logNormalRnd - 1.) * this.tables.getDistanceDisutility(index);
+		}
+		return disutility;
+	}
+
+	@Override
+	public double getLinkMinimumTravelDisutility(final Link link) {
+		return (link.getLength() / link.getFreespeed()) * this.tables.marginalCostOfTime + this.tables.marginalCostOfDistance * link.getLength();
+	}
+
+}
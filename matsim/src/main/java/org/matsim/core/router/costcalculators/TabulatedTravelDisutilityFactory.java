@@ -0,0 +1,52 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TabulatedTravelDisutilityFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.costcalculators;
+
+import javax.inject.Inject;
+
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link TabulatedTravelDisutility}s from a shared {@link TravelDisutilitySnapshot}.  Used instead of the
+ * {@link TravelTimeAndDistanceBasedTravelDisutilityFactory} when the snapshot is enabled in the config.
+ */
+public final class TabulatedTravelDisutilityFactory implements TravelDisutilityFactory {
+
+	private final TravelDisutilitySnapshot snapshot;
+	private double sigma = 0. ;
+
+	@Inject
+	public TabulatedTravelDisutilityFactory(final TravelDisutilitySnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	@Override
+	public TravelDisutility createTravelDisutility(final TravelTime timeCalculator, final PlanCalcScoreConfigGroup cnScoringGroup) {
+		return this.snapshot.createTravelDisutility(timeCalculator, cnScoringGroup, this.sigma);
+	}
+
+	public void setSigma( double val ) {
+		this.sigma = val ;
+	}
+
+}
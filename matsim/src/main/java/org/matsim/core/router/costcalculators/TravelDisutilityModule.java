@@ -34,7 +34,12 @@ public class TravelDisutilityModule extends AbstractModule {
 
     @Override
     public void install() {
-        bind(TravelDisutilityFactory.class).to(TravelTimeAndDistanceBasedTravelDisutilityFactory.class);
+        if (getConfig().plansCalcRoute().isUseTravelDisutilitySnapshot()) {
+            bind(TravelDisutilityFactory.class).to(TabulatedTravelDisutilityFactory.class);
+            addControlerListenerBinding().to(TravelDisutilitySnapshot.class);
+        } else {
+            bind(TravelDisutilityFactory.class).to(TravelTimeAndDistanceBasedTravelDisutilityFactory.class);
+        }
     }
 
 }
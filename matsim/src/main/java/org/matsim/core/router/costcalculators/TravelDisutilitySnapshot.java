@@ -0,0 +1,224 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelDisutilitySnapshot.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.costcalculators;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Tabulates the travel times and the travel disutilities of {@link RandomizingTimeDistanceTravelDisutility} for every
+ * link and time bin, so that the routers only need an array lookup per link instead of asking the
+ * {@link TravelTime} and computing the disutility again.  The tables are computed (in parallel) when the first
+ * {@link TabulatedTravelDisutility} of an iteration is requested for a {@link TravelTime} instance, and dropped at
+ * the start of every iteration, since the travel times change with every mobsim run.  Travel disutilities created
+ * for the same {@link TravelTime} instance share one set of tables; other instances (e.g. of other network modes)
+ * get their own.
+ * <p></p>
+ * The values are taken at the start of every time bin and stored as floats.  With the default travel time getter
+ * of the {@link org.matsim.core.trafficmonitoring.TravelTimeCalculator} and the same time bin size, the travel times
+ * are the same (up to the float precision) as without the snapshot.
+ * <p></p>
+ * The snapshot is enabled with {@link org.matsim.core.config.groups.PlansCalcRouteConfigGroup#setUseTravelDisutilitySnapshot(boolean)}.
+ */
+@Singleton
+public final class TravelDisutilitySnapshot implements IterationStartsListener {
+
+	private static final Logger log = Logger.getLogger(TravelDisutilitySnapshot.class);
+
+	private final Network network;
+	private final int timeBinSize;
+	private final int numberOfTimeBins;
+	private final int numberOfThreads;
+
+	private final Map<TravelTime, Tables> tables = new IdentityHashMap<>();
+
+	@Inject
+	TravelDisutilitySnapshot(final Network network, final Config config) {
+		this(network, config.travelTimeCalculator().getTraveltimeBinSize(), config.travelTimeCalculator().getMaxTime(), config.global().getNumberOfThreads());
+	}
+
+	/**
+	 * @param timeBinSize the size of the time bins, in seconds
+	 * @param maxTime the end of the last time bin.  Later times use the values of the last bin.
+	 * @param numberOfThreads the number of threads used to compute the tables
+	 */
+	public TravelDisutilitySnapshot(final Network network, final int timeBinSize, final int maxTime, final int numberOfThreads) {
+		this.network = network;
+		this.timeBinSize = timeBinSize;
+		this.numberOfTimeBins = (maxTime / timeBinSize) + 1;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	/**
+	 * @return a new travel disutility reading from the tables of the current iteration.  Since it memorizes the
+	 * randomization of the current person, every router thread needs its own instance.
+	 */
+	public TabulatedTravelDisutility createTravelDisutility(final TravelTime travelTime, final PlanCalcScoreConfigGroup cnScoringGroup,
+			final double sigma) {
+		return new TabulatedTravelDisutility(getTables(travelTime, cnScoringGroup), sigma);
+	}
+
+	/*package*/ synchronized Tables getTables(final TravelTime travelTime, final PlanCalcScoreConfigGroup cnScoringGroup) {
+		Tables t = this.tables.get(travelTime);
+		if (t == null) {
+			t = build(travelTime, new RandomizingTimeDistanceTravelDisutility(travelTime, cnScoringGroup, 0.));
+			this.tables.put(travelTime, t);
+		}
+		return t;
+	}
+
+	/**
+	 * Drops the tables, so that they are computed again with the next request.
+	 */
+	public synchronized void reset() {
+		this.tables.clear();
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		reset();
+	}
+
+	private Tables build(final TravelTime travelTime, final RandomizingTimeDistanceTravelDisutility disutility) {
+		long start = System.nanoTime();
+		final Link[] links = new Link[Id.getNumberOfIds(Link.class)];
+		for (Link link : this.network.getLinks().values()) {
+			links[link.getId().index()] = link;
+		}
+		final Tables t = new Tables(travelTime, disutility.getMarginalCostOfTime(), disutility.getMarginalCostOfDistance(),
+				this.timeBinSize, this.numberOfTimeBins, links.length);
+
+		int threads = Math.min(this.numberOfThreads, Math.max(1, this.network.getLinks().size()));
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final int first = i;
+			final int stride = threads;
+			workers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int l = first; l < links.length; l += stride) {
+						if (links[l] != null) {
+							t.fill(l, links[l]);
+						}
+					}
+				}
+			}, "TravelDisutilitySnapshot." + i);
+			workers[i].start();
+		}
+		for (Thread worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		long bytes = 4L * this.network.getLinks().size() * (2L * this.numberOfTimeBins + 1);
+		log.info("Computing the travel disutility snapshot for " + this.network.getLinks().size() + " links and "
+				+ this.numberOfTimeBins + " time bins of " + this.timeBinSize + "s took " + ((System.nanoTime() - start) / 1e9)
+				+ " seconds using " + threads + " threads.  The tables need about " + (bytes / (1024 * 1024)) + " MB.");
+		return t;
+	}
+
+	/**
+	 * The tables, indexed by the link id's index and the time bin.
+	 */
+	/*package*/ static final class Tables {
+
+		/*package*/ final TravelTime travelTime;
+		/*package*/ final double marginalCostOfTime;
+		/*package*/ final double marginalCostOfDistance;
+		private final int timeBinSize;
+		private final int numberOfTimeBins;
+		private final float[][] travelTimes;
+		private final float[][] disutilities;
+		private final float[] distanceDisutilities;
+
+		Tables(final TravelTime travelTime, final double marginalCostOfTime, final double marginalCostOfDistance,
+				final int timeBinSize, final int numberOfTimeBins, final int size) {
+			this.travelTime = travelTime;
+			this.marginalCostOfTime = marginalCostOfTime;
+			this.marginalCostOfDistance = marginalCostOfDistance;
+			this.timeBinSize = timeBinSize;
+			this.numberOfTimeBins = numberOfTimeBins;
+			this.travelTimes = new float[size][];
+			this.disutilities = new float[size][];
+			this.distanceDisutilities = new float[size];
+			Arrays.fill(this.distanceDisutilities, Float.NaN);
+		}
+
+		void fill(final int index, final Link link) {
+			float[] tt = new float[this.numberOfTimeBins];
+			float[] td = new float[this.numberOfTimeBins];
+			double distanceDisutility = this.marginalCostOfDistance * link.getLength();
+			for (int bin = 0; bin < this.numberOfTimeBins; bin++) {
+				double travelTime = this.travelTime.getLinkTravelTime(link, bin * this.timeBinSize, null, null);
+				tt[bin] = (float) travelTime;
+				td[bin] = (float) (this.marginalCostOfTime * travelTime + distanceDisutility);
+			}
+			this.travelTimes[index] = tt;
+			this.disutilities[index] = td;
+			this.distanceDisutilities[index] = (float) distanceDisutility;
+		}
+
+		/**
+		 * @return <code>true</code> if the link was in the network when the tables were built
+		 */
+		boolean contains(final int index) {
+			return index < this.travelTimes.length && this.travelTimes[index] != null;
+		}
+
+		int getTimeBin(final double time) {
+			int bin = (int) (time / this.timeBinSize);
+			if (bin < 0) {
+				return 0;
+			}
+			return bin < this.numberOfTimeBins ? bin : this.numberOfTimeBins - 1;
+		}
+
+		double getTravelTime(final int index, final int bin) {
+			return this.travelTimes[index][bin];
+		}
+
+		double getDisutility(final int index, final int bin) {
+			return this.disutilities[index][bin];
+		}
+
+		double getDistanceDisutility(final int index) {
+			return this.distanceDisutilities[index];
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.ContractionHierarchies;
+import org.matsim.core.router.ContractionHierarchy;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+
+/**
+ * Creates {@link ContractionHierarchies} routers, and provides the {@link ContractionHierarchy contraction hierarchies}
+ * they share.  Time-dependent travel disutilities are supported by building one hierarchy per time slice, using the
+ * disutilities at the start of the slice.  Hierarchies are only built when the first route in their slice is
+ * requested, so slices without departures cost nothing.
+ * <p></p>
+ * Hierarchies are kept per network, travel time instance, mode restriction and either travel disutility instance or,
+ * for routers created by {@link #createPathCalculator(Network, TravelDisutilityFactory, TravelDisutility, TravelTime)},
+ * travel disutility factory.  The latter is how the trip routers of all threads share their hierarchies, as each of
+ * them has its own travel disutility object.  The hierarchies are dropped at the start of each iteration (when
+ * registered as controler listener) or when calling {@link #reset()}, and rebuilt from the travel times of the last
+ * iteration.
+ * <p></p>
+ * Since a hierarchy is shared by all agents, the travel disutility must not depend on the person.  In particular,
+ * a randomizing travel disutility (routing randomness with sigma != 0) cannot be used.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private static final Logger log = Logger.getLogger(ContractionHierarchiesFactory.class);
+
+	public static final double DEFAULT_TIME_SLICE_SIZE = 3600.0;
+	public static final double DEFAULT_MAX_TIME = 30 * 3600.0;
+
+	private final double timeSliceSize;
+	private final int numberOfTimeSlices;
+	private final ConcurrentMap<HierarchyKey, HierarchyHolder> hierarchies = new ConcurrentHashMap<>();
+
+	@Inject
+	public ContractionHierarchiesFactory() {
+		this(DEFAULT_TIME_SLICE_SIZE, DEFAULT_MAX_TIME);
+	}
+
+	/**
+	 * @param timeSliceSize the duration (in seconds) for which one hierarchy is used
+	 * @param maxTime the time after which the hierarchy of the last slice is used
+	 */
+	public ContractionHierarchiesFactory(final double timeSliceSize, final double maxTime) {
+		this.timeSliceSize = timeSliceSize;
+		this.numberOfTimeSlices = Math.max(1, (int) Math.ceil(maxTime / timeSliceSize));
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		checkPersonIndependent(network, travelCosts);
+		return new ContractionHierarchies(network, travelCosts, travelTimes, travelCosts, this);
+	}
+
+	/**
+	 * Creates a router sharing its hierarchies with all routers created with the same network, travel disutility factory
+	 * and travel time instance, even if their travel disutility objects differ.
+	 *
+	 * @param travelCosts must be created by the given factory from the given travel time
+	 */
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutilityFactory travelDisutilityFactory,
+			final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		checkPersonIndependent(network, travelCosts);
+		return new ContractionHierarchies(network, travelCosts, travelTimes, travelDisutilityFactory, this);
+	}
+
+	/*
+	 * The hierarchies are built without person.  Fail here rather than in the middle of building the first hierarchy.
+	 */
+	private static void checkPersonIndependent(final Network network, final TravelDisutility travelCosts) {
+		if (!TravelDisutilityUtils.isPersonIndependent(network, travelCosts)) {
+			throw new IllegalArgumentException("Contraction hierarchies need a travel disutility that can be computed without "
+					+ "a person, but " + travelCosts.getClass().getName() + " cannot.  Randomizing travel disutilities "
+					+ "(sigma != 0) cannot be used with contraction hierarchies.");
+		}
+	}
+
+	/**
+	 * @param travelCostsKey identifies the travel disutilities, i.e. either the travel disutility or its factory
+	 * @return the hierarchy for the time slice containing the given time; built if it does not exist yet.
+	 */
+	public ContractionHierarchy getHierarchy(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes,
+			final Object travelCostsKey, final Set<String> modeRestriction, final double time) {
+		int slice = 0;
+		if (time > 0) { // also catches undefined times
+			slice = Math.min((int) (time / this.timeSliceSize), this.numberOfTimeSlices - 1);
+		}
+		HierarchyKey key = new HierarchyKey(network, travelCostsKey, travelTimes, modeRestriction, slice);
+		HierarchyHolder holder = this.hierarchies.get(key);
+		if (holder == null) {
+			HierarchyHolder newHolder = new HierarchyHolder();
+			holder = this.hierarchies.putIfAbsent(key, newHolder);
+			if (holder == null) {
+				holder = newHolder;
+			}
+		}
+		return holder.get(network, travelCosts, modeRestriction, slice == 0 ? 0.0 : slice * this.timeSliceSize);
+	}
+
+	/**
+	 * Drops all hierarchies, so they get rebuilt with the current travel disutilities.
+	 */
+	public void reset() {
+		if (!this.hierarchies.isEmpty()) {
+			log.info("dropping " + this.hierarchies.size() + " contraction hierarchies.");
+		}
+		this.hierarchies.clear();
+	}
+
+	/**
+	 * @return the number of hierarchies requested since the last {@link #reset()}
+	 */
+	public int getNumberOfHierarchies() {
+		return this.hierarchies.size();
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		reset();
+	}
+
+	/**
+	 * Builds the hierarchy once; other threads requesting it wait until it is built.
+	 */
+	private static final class HierarchyHolder {
+		private ContractionHierarchy hierarchy = null;
+
+		synchronized ContractionHierarchy get(final Network network, final TravelDisutility travelCosts,
+				final Set<String> modeRestriction, final double time) {
+			if (this.hierarchy == null) {
+				this.hierarchy = ContractionHierarchy.build(network, travelCosts, time, modeRestriction);
+			}
+			return this.hierarchy;
+		}
+	}
+
+	private static final class HierarchyKey {
+		private final Network network;
+		private final Object travelCostsKey;
+		private final TravelTime travelTimes;
+		private final Set<String> modeRestriction;
+		private final int slice;
+
+		HierarchyKey(final Network network, final Object travelCostsKey, final TravelTime travelTimes,
+				final Set<String> modeRestriction, final int slice) {
+			this.network = network;
+			this.travelCostsKey = travelCostsKey;
+			this.travelTimes = travelTimes;
+			this.modeRestriction = modeRestriction;
+			this.slice = slice;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof HierarchyKey)) {
+				return false;
+			}
+			HierarchyKey other = (HierarchyKey) obj;
+			return this.network == other.network && this.travelCostsKey == other.travelCostsKey
+					&& this.travelTimes == other.travelTimes && this.slice == other.slice
+					&& (this.modeRestriction == null ? other.modeRestriction == null : this.modeRestriction.equals(other.modeRestriction));
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = System.identityHashCode(this.network);
+			hash = 31 * hash + System.identityHashCode(this.travelCostsKey);
+			hash = 31 * hash + System.identityHashCode(this.travelTimes);
+			hash = 31 * hash + (this.modeRestriction == null ? 0 : this.modeRestriction.hashCode());
+			return 31 * hash + this.slice;
+		}
+	}
+
+}
@@ -21,10 +21,7 @@
 package org.matsim.core.router.util;
 
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.core.router.ArrayFastRouterDelegateFactory;
 import org.matsim.core.router.FastAStarEuclidean;
-import org.matsim.core.router.FastRouterDelegateFactory;
-import org.matsim.core.router.FastRouterType;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -35,44 +32,32 @@ import java.util.Map;
 public class FastAStarEuclideanFactory implements LeastCostPathCalculatorFactory {
 
 	private final PreProcessEuclidean preProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
-	private final Map<Network, RoutingNetwork> routingNetworks;
+	/*
+	 * The routing graph of a network is immutable and shared by all routers created by
+	 * this factory, e.g. by the routers of the different replanning threads.
+	 */
+	private final Map<Network, RoutingGraph> routingGraphs;
 
 	public FastAStarEuclideanFactory(Network network, final TravelDisutility fsttc) {
-		this(network, fsttc, FastRouterType.ARRAY);		
-	}
-
-	private FastAStarEuclideanFactory(Network network, final TravelDisutility fsttc,
-			FastRouterType fastRouterType) {
 		this.preProcessData = new PreProcessEuclidean(fsttc);
 		this.preProcessData.run(network);
 
-		this.routingNetworks = new HashMap<Network, RoutingNetwork>();
-		
-		switch (fastRouterType) {
-		case ARRAY:
-			this.routingNetworkFactory = new ArrayRoutingNetworkFactory(preProcessData);
-			break;
-		case POINTER:
-			throw new RuntimeException("PointerRoutingNetworks are no longer supported. "
-					+ "Use ArrayRoutingNetworks instead. Aborting!");
-		default:
-			throw new RuntimeException("Undefined FastRouterType: " + fastRouterType);
-		}
+		this.routingGraphs = new HashMap<>();
 	}
 
 	@Override
 	public LeastCostPathCalculator createPathCalculator(Network network,
 			TravelDisutility travelCosts, TravelTime travelTimes) {
 	
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			this.routingNetworks.put(network, routingNetwork);
+		RoutingGraph routingGraph;
+		synchronized (this.routingGraphs) {
+			routingGraph = this.routingGraphs.get(network);
+			if (routingGraph == null) {
+				routingGraph = new RoutingGraph(network, this.preProcessData);
+				this.routingGraphs.put(network, routingGraph);
+			}
 		}
-		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
 		
-		return new FastAStarEuclidean(routingNetwork, this.preProcessData, travelCosts, travelTimes, 1,
-			fastRouterFactory);
+		return new FastAStarEuclidean(routingGraph, this.preProcessData, travelCosts, travelTimes, 1);
 	}
 }
\ No newline at end of file
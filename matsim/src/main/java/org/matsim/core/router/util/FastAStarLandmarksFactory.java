@@ -20,12 +20,12 @@
 
 package org.matsim.core.router.util;
 
+import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.config.Config;
-import org.matsim.core.router.ArrayFastRouterDelegateFactory;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.router.FastAStarLandmarks;
-import org.matsim.core.router.FastRouterDelegateFactory;
-import org.matsim.core.router.FastRouterType;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 
 import javax.inject.Inject;
@@ -34,55 +34,66 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
+ * The landmarks are selected once. At the start of every iteration, the costs to and from the landmarks
+ * are only updated where the minimal link costs have changed, see {@link PreProcessLandmarks}.
+ *
  * @author cdobler
  */
 @Singleton
-public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory {
+public class FastAStarLandmarksFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
 
+	private static final Logger log = Logger.getLogger(FastAStarLandmarksFactory.class);
+
+	private final Network network;
 	private final PreProcessLandmarks preProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
-	private final Map<Network, RoutingNetwork> routingNetworks;
+	/*
+	 * The routing graph of a network is immutable and shared by all routers created by
+	 * this factory, e.g. by the routers of the different replanning threads.
+	 */
+	private final Map<Network, RoutingGraph> routingGraphs;
 
 	@Inject
 	FastAStarLandmarksFactory(Network network, Config config, TravelTime travelTime, TravelDisutilityFactory fsttc) {
-		this(network, fsttc.createTravelDisutility(travelTime, config.planCalcScore()), FastRouterType.ARRAY);
+		this(network, fsttc.createTravelDisutility(travelTime, config.planCalcScore()));
 	}
 
 	public FastAStarLandmarksFactory(Network network, final TravelDisutility fsttc) {
-		this(network, fsttc, FastRouterType.ARRAY);
-	}
-
-	private FastAStarLandmarksFactory(Network network, final TravelDisutility fsttc,
-			FastRouterType fastRouterType) {
+		this.network = network;
 		this.preProcessData = new PreProcessLandmarks(fsttc);
+		long now = System.currentTimeMillis();
 		this.preProcessData.run(network);
+		log.info("landmarks preprocessing took " + (System.currentTimeMillis() - now) + " ms.");
 		
-		this.routingNetworks = new HashMap<>();
-		
-		switch (fastRouterType) {
-		case ARRAY:
-			this.routingNetworkFactory = new ArrayRoutingNetworkFactory(preProcessData);
-			break;
-		case POINTER:
-			throw new RuntimeException("PointerRoutingNetworks are no longer supported. "
-					+ "Use ArrayRoutingNetworks instead. Aborting!");
-		default:
-			throw new RuntimeException("Undefined FastRouterType: " + fastRouterType);
-		}
+		this.routingGraphs = new HashMap<>();
 	}
 
 	@Override
 	public LeastCostPathCalculator createPathCalculator(Network network,
 			TravelDisutility travelCosts, TravelTime travelTimes) {
 		
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			this.routingNetworks.put(network, routingNetwork);
+		RoutingGraph routingGraph;
+		synchronized (this.routingGraphs) {
+			routingGraph = this.routingGraphs.get(network);
+			if (routingGraph == null) {
+				routingGraph = new RoutingGraph(network, this.preProcessData);
+				this.routingGraphs.put(network, routingGraph);
+			}
 		}
-		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
 
-		return new FastAStarLandmarks(routingNetwork, this.preProcessData, travelCosts, travelTimes, 1,
-				fastRouterFactory);
+		return new FastAStarLandmarks(routingGraph, this.preProcessData, travelCosts, travelTimes, 1);
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		long now = System.currentTimeMillis();
+		this.preProcessData.run(this.network);
+		log.info("landmarks preprocessing for iteration " + event.getIteration() + " took " + (System.currentTimeMillis() - now)
+				+ " ms: " + this.preProcessData.getNumberOfRecomputedLandmarks() + " landmarks recomputed, "
+				+ this.preProcessData.getNumberOfUpdatedLandmarks() + " updated incrementally.");
+		if (this.preProcessData.getNumberOfRecomputedLandmarks() > 0 || this.preProcessData.getNumberOfUpdatedLandmarks() > 0) {
+			synchronized (this.routingGraphs) {
+				this.routingGraphs.clear();
+			}
+		}
 	}
 }
\ No newline at end of file
@@ -21,10 +21,7 @@
 package org.matsim.core.router.util;
 
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.core.router.ArrayFastRouterDelegateFactory;
 import org.matsim.core.router.FastDijkstra;
-import org.matsim.core.router.FastRouterDelegateFactory;
-import org.matsim.core.router.FastRouterType;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -35,45 +32,35 @@ import java.util.Map;
 public class FastDijkstraFactory implements LeastCostPathCalculatorFactory {
 	
 	private final PreProcessDijkstra preProcessData;
-	private final RoutingNetworkFactory routingNetworkFactory;
-	private final Map<Network, RoutingNetwork> routingNetworks;
+	/*
+	 * The routing graph of a network is immutable and shared by all routers created by
+	 * this factory, e.g. by the routers of the different replanning threads.
+	 */
+	private final Map<Network, RoutingGraph> routingGraphs;
 
 	@Inject
 	public FastDijkstraFactory() {
-		this(null, FastRouterType.ARRAY);
+		this(null);
 	}
 
     public FastDijkstraFactory(final PreProcessDijkstra preProcessData) {
-		this(preProcessData, FastRouterType.ARRAY);
-	}
-
-	private FastDijkstraFactory(final PreProcessDijkstra preProcessData, FastRouterType fastRouterType) {
 		this.preProcessData = preProcessData;
 		
-		this.routingNetworks = new HashMap<Network, RoutingNetwork>();
-		
-		switch (fastRouterType) {
-		case ARRAY:
-			this.routingNetworkFactory = new ArrayRoutingNetworkFactory(preProcessData);
-			break;
-		case POINTER:
-			throw new RuntimeException("PointerRoutingNetworks are no longer supported. "
-					+ "Use ArrayRoutingNetworks instead. Aborting!");
-		default:
-			throw new RuntimeException("Undefined FastRouterType: " + fastRouterType);
-		}
+		this.routingGraphs = new HashMap<>();
 	}
 
 	@Override
 	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
 			
-		RoutingNetwork routingNetwork = this.routingNetworks.get(network);
-		if (routingNetwork == null) {
-			routingNetwork = this.routingNetworkFactory.createRoutingNetwork(network);
-			this.routingNetworks.put(network, routingNetwork);
+		RoutingGraph routingGraph;
+		synchronized (this.routingGraphs) {
+			routingGraph = this.routingGraphs.get(network);
+			if (routingGraph == null) {
+				routingGraph = new RoutingGraph(network, this.preProcessData);
+				this.routingGraphs.put(network, routingGraph);
+			}
 		}
-		FastRouterDelegateFactory fastRouterFactory = new ArrayFastRouterDelegateFactory();
 		
-		return new FastDijkstra(routingNetwork, travelCosts, travelTimes, preProcessData, fastRouterFactory);
+		return new FastDijkstra(routingGraph, travelCosts, travelTimes, preProcessData);
 	}
 }
\ No newline at end of file
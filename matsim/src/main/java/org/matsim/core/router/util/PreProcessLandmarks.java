@@ -21,15 +21,13 @@
 package org.matsim.core.router.util;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.api.internal.MatsimComparator;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Comparator;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -40,6 +38,17 @@ import java.util.concurrent.TimeUnit;
  * between a start and an end node. Specifically, designates some
  * nodes in the network that act as landmarks and computes the last-cost-path
  * from and to each node in the network to each of the landmarks.
+ * <p></p>
+ * The costs to and from the landmarks are stored in flat arrays indexed by landmark and node index.
+ * If {@link #run(Network)} is called again for the same network (e.g. at the start of every iteration),
+ * the landmarks are kept and the costs are only updated where the minimal link costs have changed:
+ * <ul>
+ * <li>links that became cheaper are propagated incrementally, starting at the affected nodes;</li>
+ * <li>links that became more expensive by more than the cost change tolerance lead to a re-computation
+ * of the landmarks whose shortest path trees contain these links. Smaller increases are ignored and
+ * the old link costs are kept, as they are still valid lower bounds; they are compared against again in
+ * the next call, so that small increases cannot add up unnoticed.</li>
+ * </ul>
  *
  * @author lnicolas
  */
@@ -53,6 +62,28 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	private int numberOfThreads = 8;
 
+	private double costChangeTolerance = 0.05;
+
+	/* the network the costs were computed for */
+	private Node[] nodes = null;
+	private Link[] links = null;
+	/* the positions of the nodes in the arrays above, indexed by Id.index() of the node ids */
+	private int[] nodeIndices = null;
+	private int[] linkFromNode;
+	private int[] linkToNode;
+	private int[] outLinksStart;
+	private int[] outLinks;
+	private int[] inLinksStart;
+	private int[] inLinks;
+	private double[] linkCosts;
+
+	/* the costs from and to the landmarks, indexed by [landmark * number of nodes + node] */
+	private double[] fromLandmarkCosts;
+	private double[] toLandmarkCosts;
+
+	private int recomputedLandmarks = 0;
+	private int updatedLandmarks = 0;
+
 	private static final Logger log = Logger.getLogger(PreProcessLandmarks.class);
 
 	public PreProcessLandmarks(final TravelDisutility costFunction) {
@@ -82,6 +113,16 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	public void setNumberOfThreads(int numberOfThreads) {
 		this.numberOfThreads = numberOfThreads;
 	}
+
+	/**
+	 * Sets the relative increase of a link's minimal cost up to which the costs to and from the landmarks
+	 * are not re-computed when {@link #run(Network)} is called again. Default is 0.05.
+	 *
+	 * @param costChangeTolerance
+	 */
+	public void setCostChangeTolerance(double costChangeTolerance) {
+		this.costChangeTolerance = costChangeTolerance;
+	}
 	
 	/**
 	 * @param costFunction
@@ -99,19 +140,184 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	@Override
 	public void run(final Network network) {
 		super.run(network);
-		
+
+		if (isSameNetwork(network)) {
+			update();
+		} else {
+			initialize(network);
+		}
+
+		for (int i = 0; i < this.nodes.length; i++) {
+			this.nodeData.put(this.nodes[i], new LandmarksData(i));
+		}
+	}
+
+	/**
+	 * @return the number of landmarks whose costs were calculated from scratch during the last call to {@link #run(Network)}.
+	 */
+	public int getNumberOfRecomputedLandmarks() {
+		return this.recomputedLandmarks;
+	}
+
+	/**
+	 * @return the number of landmarks whose costs were updated incrementally during the last call to {@link #run(Network)}.
+	 */
+	public int getNumberOfUpdatedLandmarks() {
+		return this.updatedLandmarks;
+	}
+
+	private boolean isSameNetwork(final Network network) {
+		if (this.nodes == null || this.nodes.length != network.getNodes().size() || this.links.length != network.getLinks().size()) {
+			return false;
+		}
+		int i = 0;
+		for (Node node : network.getNodes().values()) {
+			if (this.nodes[i++] != node) {
+				return false;
+			}
+		}
+		i = 0;
+		for (Link link : network.getLinks().values()) {
+			if (this.links[i++] != link) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void initialize(final Network network) {
 		log.info("Putting landmarks on network...");
 		long now = System.currentTimeMillis();
 		LandmarkerPieSlices landmarker = new LandmarkerPieSlices(this.landmarkCount, this.travelZone);
 		landmarker.run(network);
+		this.landmarks = landmarker.getLandmarks();
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 
 		log.info("Initializing landmarks data");
-		for (Node node : network.getNodes().values()) {
-			this.nodeData.put(node, new LandmarksData(this.landmarkCount));
+		int n = network.getNodes().size();
+		int m = network.getLinks().size();
+		this.nodes = network.getNodes().values().toArray(new Node[n]);
+		this.links = network.getLinks().values().toArray(new Link[m]);
+		int maxIdIndex = -1;
+		for (Node node : this.nodes) {
+			maxIdIndex = Math.max(maxIdIndex, getIdIndex(node.getId()));
 		}
-		
-		this.landmarks = landmarker.getLandmarks();
+		this.nodeIndices = new int[maxIdIndex + 1];
+		Arrays.fill(this.nodeIndices, -1);
+		for (int i = 0; i < n; i++) {
+			int idIndex = getIdIndex(this.nodes[i].getId());
+			if (idIndex >= 0) {
+				this.nodeIndices[idIndex] = i;
+			}
+		}
+		this.linkFromNode = new int[m];
+		this.linkToNode = new int[m];
+		this.linkCosts = new double[m];
+		int[] outDegree = new int[n + 1];
+		int[] inDegree = new int[n + 1];
+		for (int l = 0; l < m; l++) {
+			this.linkFromNode[l] = getNodeIndex(this.links[l].getFromNode());
+			this.linkToNode[l] = getNodeIndex(this.links[l].getToNode());
+			this.linkCosts[l] = this.costFunction.getLinkMinimumTravelDisutility(this.links[l]);
+			outDegree[this.linkFromNode[l] + 1]++;
+			inDegree[this.linkToNode[l] + 1]++;
+		}
+		for (int i = 0; i < n; i++) {
+			outDegree[i + 1] += outDegree[i];
+			inDegree[i + 1] += inDegree[i];
+		}
+		this.outLinksStart = outDegree.clone();
+		this.inLinksStart = inDegree.clone();
+		this.outLinks = new int[m];
+		this.inLinks = new int[m];
+		for (int l = 0; l < m; l++) {
+			this.outLinks[outDegree[this.linkFromNode[l]]++] = l;
+			this.inLinks[inDegree[this.linkToNode[l]]++] = l;
+		}
+		this.fromLandmarkCosts = new double[n * this.landmarks.length];
+		this.toLandmarkCosts = new double[n * this.landmarks.length];
+
+		boolean[] recompute = new boolean[this.landmarks.length];
+		Arrays.fill(recompute, true);
+		calculate(recompute, new int[0]);
+	}
+
+	/**
+	 * @return the position of the node in the arrays of the pre-processing, or -1 if it is not part of the network.
+	 */
+	private int getNodeIndex(final Node node) {
+		int idIndex = getIdIndex(node.getId());
+		if (idIndex < 0 || idIndex >= this.nodeIndices.length) {
+			return -1;
+		}
+		int index = this.nodeIndices[idIndex];
+		return index >= 0 && this.nodes[index].getId().equals(node.getId()) ? index : -1;
+	}
+
+	private static int getIdIndex(final Id<Node> id) {
+		int idIndex = id.index();
+		if (idIndex < 0) {
+			// an Id implementation without index, use the one of the node id with the same key
+			Id<Node> nodeId = Id.get(id.toString(), Node.class);
+			idIndex = nodeId == null ? -1 : nodeId.index();
+		}
+		return idIndex;
+	}
+
+	/*
+	 * Compares the minimal link costs with the ones the landmark costs were computed for.
+	 */
+	private void update() {
+		double[] newLinkCosts = new double[this.links.length];
+		int[] decreasedLinks = new int[16];
+		int decreasedCount = 0;
+		boolean[] recompute = new boolean[this.landmarks.length];
+		for (int l = 0; l < this.links.length; l++) {
+			double oldCost = this.linkCosts[l];
+			double newCost = this.costFunction.getLinkMinimumTravelDisutility(this.links[l]);
+			newLinkCosts[l] = newCost;
+			if (newCost < oldCost) {
+				if (decreasedCount == decreasedLinks.length) {
+					decreasedLinks = Arrays.copyOf(decreasedLinks, 2 * decreasedCount);
+				}
+				decreasedLinks[decreasedCount++] = l;
+			} else if (newCost <= oldCost * (1.0 + this.costChangeTolerance)) {
+				/* the landmark costs were computed with the old cost, keep it so later increases are compared against it */
+				newLinkCosts[l] = oldCost;
+			} else {
+				/* only the landmarks whose shortest path trees contain the link are affected */
+				int from = this.linkFromNode[l];
+				int to = this.linkToNode[l];
+				int n = this.nodes.length;
+				for (int i = 0; i < this.landmarks.length; i++) {
+					double fromCost = this.fromLandmarkCosts[i * n + from];
+					double toCost = this.toLandmarkCosts[i * n + to];
+					if ((fromCost != Double.POSITIVE_INFINITY && fromCost + oldCost == this.fromLandmarkCosts[i * n + to])
+							|| (toCost != Double.POSITIVE_INFINITY && toCost + oldCost == this.toLandmarkCosts[i * n + from])) {
+						recompute[i] = true;
+					}
+				}
+			}
+		}
+		this.linkCosts = newLinkCosts;
+		calculate(recompute, Arrays.copyOf(decreasedLinks, decreasedCount));
+	}
+
+	private void calculate(final boolean[] recompute, final int[] decreasedLinks) {
+		this.recomputedLandmarks = 0;
+		this.updatedLandmarks = 0;
+		for (boolean r : recompute) {
+			if (r) {
+				this.recomputedLandmarks++;
+			} else if (decreasedLinks.length > 0) {
+				this.updatedLandmarks++;
+			}
+		}
+		if (this.recomputedLandmarks == 0 && this.updatedLandmarks == 0) {
+			log.info("Costs to and from the " + this.landmarks.length + " landmarks are still valid.");
+			return;
+		}
+
 		int nOfThreads = this.numberOfThreads;
 		if (nOfThreads > this.landmarks.length) {
 			nOfThreads = this.landmarks.length;
@@ -119,13 +325,17 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 		if (nOfThreads < 2) {
 			nOfThreads = 2; // always use at least two threads
 		}
- 		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
-		now = System.currentTimeMillis();
+		log.info("Calculating distance from each node to " + this.recomputedLandmarks + " and updating it for "
+				+ this.updatedLandmarks + " of the " + this.landmarks.length + " landmarks using " + nOfThreads + " threads...");
+		long now = System.currentTimeMillis();
 
-		
 		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
 		for (int i = 0; i < this.landmarks.length; i++) {
-			executor.execute(new Calculator(i, this.landmarks[i], this.nodeData, this.costFunction));
+			if (recompute[i]) {
+				executor.execute(new Calculator(i, null));
+			} else if (decreasedLinks.length > 0) {
+				executor.execute(new Calculator(i, decreasedLinks));
+			}
 		}
 		executor.shutdown();
 		while (!executor.isTerminated()) {
@@ -137,87 +347,84 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 			}
 		}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = (LandmarksData) getNodeData(node);
-			r.updateMinMaxTravelTimes();
-		}
-
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = (LandmarksData) getNodeData(node);
-			for (int i = 0; i < this.landmarks.length; i++) {
-				if (r.getMinLandmarkTravelTime(i) > r.getMaxLandmarkTravelTime(i)) {
-					log.info("Min > max for node " + node.getId() + " and landmark " + i);
-				}
-			}
-		}
-
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 	}
 
-	private static class Calculator implements Runnable {
+	/**
+	 * Calculates the costs from and to one landmark, either from scratch or, if decreased links are given,
+	 * by propagating the decreased link costs.
+	 */
+	private class Calculator implements Runnable {
 		
 		private final int landmarkIdx;
-		private final Node landmark;
-		private final Map<Node, DeadEndData> nodeData;
-		private final TravelDisutility costFunction;
+		private final int[] decreasedLinks;
+		private final NodeQueue pendingNodes = new NodeQueue();
 		
-		public Calculator(final int landmarkIdx, final Node landmark, final Map<Node, DeadEndData> nodeData, final TravelDisutility costFunction) {
+		public Calculator(final int landmarkIdx, final int[] decreasedLinks) {
 			this.landmarkIdx = landmarkIdx;
-			this.landmark = landmark;
-			this.nodeData = nodeData;
-			this.costFunction = costFunction;
+			this.decreasedLinks = decreasedLinks;
 		}
 		
 		@Override
 		public void run() {
-			expandLandmarkFrom();
-			expandLandmarkTo();
-		}
-	
-		private void expandLandmarkFrom() {
-			LandmarksFromTravelTimeComparator comparator = new LandmarksFromTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double fromTravTime = ((LandmarksData) this.nodeData.get(node)).getFromLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getOutLinks().values()) {
-					Node n;
-					n = l.getToNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = fromTravTime + linkTravTime;
-					if (role2.getFromLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setFromLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
-					}
+			int n = PreProcessLandmarks.this.nodes.length;
+			int offset = this.landmarkIdx * n;
+			double[] fromCosts = PreProcessLandmarks.this.fromLandmarkCosts;
+			double[] toCosts = PreProcessLandmarks.this.toLandmarkCosts;
+			int[] from = PreProcessLandmarks.this.linkFromNode;
+			int[] to = PreProcessLandmarks.this.linkToNode;
+			double[] costs = PreProcessLandmarks.this.linkCosts;
+
+			if (this.decreasedLinks == null) {
+				int landmark = getNodeIndex(PreProcessLandmarks.this.landmarks[this.landmarkIdx]);
+				Arrays.fill(fromCosts, offset, offset + n, Double.POSITIVE_INFINITY);
+				Arrays.fill(toCosts, offset, offset + n, Double.POSITIVE_INFINITY);
+				fromCosts[offset + landmark] = 0.0;
+				toCosts[offset + landmark] = 0.0;
+				this.pendingNodes.add(landmark, 0.0);
+				expand(fromCosts, offset, PreProcessLandmarks.this.outLinksStart, PreProcessLandmarks.this.outLinks, to);
+				this.pendingNodes.add(landmark, 0.0);
+				expand(toCosts, offset, PreProcessLandmarks.this.inLinksStart, PreProcessLandmarks.this.inLinks, from);
+				return;
+			}
+
+			for (int l : this.decreasedLinks) {
+				double cost = fromCosts[offset + from[l]] + costs[l];
+				if (cost < fromCosts[offset + to[l]]) {
+					fromCosts[offset + to[l]] = cost;
+					this.pendingNodes.add(to[l], cost);
 				}
 			}
+			expand(fromCosts, offset, PreProcessLandmarks.this.outLinksStart, PreProcessLandmarks.this.outLinks, to);
+			for (int l : this.decreasedLinks) {
+				double cost = toCosts[offset + to[l]] + costs[l];
+				if (cost < toCosts[offset + from[l]]) {
+					toCosts[offset + from[l]] = cost;
+					this.pendingNodes.add(from[l], cost);
+				}
+			}
+			expand(toCosts, offset, PreProcessLandmarks.this.inLinksStart, PreProcessLandmarks.this.inLinks, from);
 		}
 
-		private void expandLandmarkTo() {
-			LandmarksToTravelTimeComparator comparator = new LandmarksToTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double toTravTime = ((LandmarksData) this.nodeData.get(node)).getToLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getInLinks().values()) {
-					Node n = l.getFromNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = toTravTime + linkTravTime;
-					if (role2.getToLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setToLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
+		/*
+		 * Dijkstra starting at the pending nodes, over the out links (costs from the landmark) or
+		 * in links (costs to the landmark).
+		 */
+		private void expand(final double[] landmarkCosts, final int offset, final int[] linksStart, final int[] links, final int[] otherNode) {
+			double[] costs = PreProcessLandmarks.this.linkCosts;
+			while (!this.pendingNodes.isEmpty()) {
+				double nodeCost = this.pendingNodes.peekKey();
+				int node = this.pendingNodes.poll();
+				if (nodeCost > landmarkCosts[offset + node]) {
+					continue; // outdated entry
+				}
+				for (int i = linksStart[node]; i < linksStart[node + 1]; i++) {
+					int l = links[i];
+					int n = otherNode[l];
+					double cost = nodeCost + costs[l];
+					if (cost < landmarkCosts[offset + n]) {
+						landmarkCosts[offset + n] = cost;
+						this.pendingNodes.add(n, cost);
 					}
 				}
 			}
@@ -225,6 +432,68 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	}
 
+	/**
+	 * Binary min-heap of node indices without decrease-key, outdated entries are skipped when polled.
+	 */
+	private static final class NodeQueue {
+		private int[] nodes = new int[256];
+		private double[] keys = new double[256];
+		private int size = 0;
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		double peekKey() {
+			return this.keys[0];
+		}
+
+		void add(final int node, final double key) {
+			if (this.size == this.nodes.length) {
+				this.nodes = Arrays.copyOf(this.nodes, 2 * this.size);
+				this.keys = Arrays.copyOf(this.keys, 2 * this.size);
+			}
+			int pos = this.size++;
+			while (pos > 0) {
+				int parent = (pos - 1) >>> 1;
+				if (this.keys[parent] <= key) {
+					break;
+				}
+				this.nodes[pos] = this.nodes[parent];
+				this.keys[pos] = this.keys[parent];
+				pos = parent;
+			}
+			this.nodes[pos] = node;
+			this.keys[pos] = key;
+		}
+
+		int poll() {
+			int result = this.nodes[0];
+			this.size--;
+			int node = this.nodes[this.size];
+			double key = this.keys[this.size];
+			int pos = 0;
+			while (true) {
+				int child = 2 * pos + 1;
+				if (child >= this.size) {
+					break;
+				}
+				if (child + 1 < this.size && this.keys[child + 1] < this.keys[child]) {
+					child++;
+				}
+				if (this.keys[child] >= key) {
+					break;
+				}
+				this.nodes[pos] = this.nodes[child];
+				this.keys[pos] = this.keys[child];
+				pos = child;
+			}
+			this.nodes[pos] = node;
+			this.keys[pos] = key;
+			return result;
+		}
+	}
+
 	public Node[] getLandmarks() {
 		return this.landmarks.clone();
 	}
@@ -233,128 +502,44 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	public DeadEndData getNodeData(final Node n) {
 		DeadEndData r = this.nodeData.get(n);
 		if (r == null) {
-			r = new LandmarksData(this.landmarkCount);
+			r = new LandmarksData(this.nodeIndices == null ? -1 : getNodeIndex(n));
 			this.nodeData.put(n, r);
 		}
 		return r;
 	}
 
+	/**
+	 * The costs to and from the landmarks of one node, read from the arrays of the pre-processing.
+	 */
 	public class LandmarksData extends DeadEndData {
 
-		private final double[] landmarkTravelTime1;
-		private final double[] landmarkTravelTime2;
-
-		LandmarksData(final int landmarkCount) {
-			this.landmarkTravelTime2 = new double[landmarkCount];
-			this.landmarkTravelTime1 = new double[landmarkCount];
-			for (int i = 0; i < this.landmarkTravelTime2.length; i++) {
-				this.landmarkTravelTime2[i] = Double.POSITIVE_INFINITY;
-				this.landmarkTravelTime1[i] = Double.POSITIVE_INFINITY;
-			}
-		}
+		private final int nodeIndex;
 
-		void setToLandmarkTravelTime(final int landmarkIndex, final double travelTime) {
-			this.landmarkTravelTime2[landmarkIndex] = travelTime;
-		}
-
-		void setFromLandmarkTravelTime(final int landmarkIndex, final double travelTime) {
-			this.landmarkTravelTime1[landmarkIndex] = travelTime;
+		LandmarksData(final int nodeIndex) {
+			this.nodeIndex = nodeIndex;
 		}
 
 		double getToLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime2[landmarkIndex];
-		}
-
-		double getFromLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime1[landmarkIndex];
-		}
-
-		void updateMinMaxTravelTimes() {
-			for (int i = 0; i < this.landmarkTravelTime1.length; i++) {
-				setTravelTimes(i, this.landmarkTravelTime2[i], this.landmarkTravelTime1[i]);
+			if (this.nodeIndex < 0) {
+				return Double.POSITIVE_INFINITY;
 			}
+			return PreProcessLandmarks.this.toLandmarkCosts[landmarkIndex * PreProcessLandmarks.this.nodes.length + this.nodeIndex];
 		}
 
-		private void setTravelTimes(final int landmarkIndex, final double travelTime1,
-				final double travelTime2) {
-			if (travelTime1 > travelTime2) {
-				this.landmarkTravelTime2[landmarkIndex] = travelTime1;
-				this.landmarkTravelTime1[landmarkIndex] = travelTime2;
-			} else {
-				this.landmarkTravelTime1[landmarkIndex] = travelTime1;
-				this.landmarkTravelTime2[landmarkIndex] = travelTime2;
+		double getFromLandmarkTravelTime(final int landmarkIndex) {
+			if (this.nodeIndex < 0) {
+				return Double.POSITIVE_INFINITY;
 			}
+			return PreProcessLandmarks.this.fromLandmarkCosts[landmarkIndex * PreProcessLandmarks.this.nodes.length + this.nodeIndex];
 		}
 
 		public double getMinLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime1[landmarkIndex];
+			return Math.min(getToLandmarkTravelTime(landmarkIndex), getFromLandmarkTravelTime(landmarkIndex));
 		}
 
 		public double getMaxLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime2[landmarkIndex];
-		}
-	}
-
-    /**
-	 * Sorts the Nodes ascending according to their ToLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksToTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-
-		protected LandmarksToTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-
-		@Override
-		public int compare(final Node n1, final Node n2) {
-
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getToLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getToLandmarkTravelTime(this.landmarkIndex);
-
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
+			return Math.max(getToLandmarkTravelTime(landmarkIndex), getFromLandmarkTravelTime(landmarkIndex));
 		}
 	}
 
-	/**
-	 * Sorts the Nodes ascending according to their FromLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
-	 */
-	private static class LandmarksFromTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-		
-		protected LandmarksFromTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
-		}
-		
-		@Override
-		public int compare(final Node n1, final Node n2) {
-			
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getFromLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getFromLandmarkTravelTime(this.landmarkIndex);
-			
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
-		}
-	}
-	
 }
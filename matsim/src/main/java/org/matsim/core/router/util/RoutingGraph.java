@@ -0,0 +1,226 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RoutingGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Read-only representation of a network for the fast routers, in the compressed sparse row format: nodes and links
+ * are numbered, the links are ordered by their from node, and the out-links of node <code>i</code> are the links
+ * <code>getOutLinksStart(i)</code> to <code>getOutLinksEnd(i)-1</code>.  All attributes are stored in primitive
+ * arrays, so one graph needs about 40 bytes per link and can be shared by all routing threads; each router only keeps
+ * its own arrays for the state of its searches.
+ * <p></p>
+ * The graph can also store the results of a {@link PreProcessDijkstra} (dead ends) or of a {@link PreProcessLandmarks}
+ * (travel costs to and from the landmarks), which have to be run on the same network before creating the graph.
+ *
+ * @see org.matsim.core.router.FastDijkstra
+ * @see org.matsim.core.router.FastAStarEuclidean
+ * @see org.matsim.core.router.FastAStarLandmarks
+ */
+public final class RoutingGraph {
+
+	private static final Logger log = Logger.getLogger(RoutingGraph.class);
+
+	private final Network network;
+
+	private final Node[] nodes;
+	private final int[] nodeIndexById;
+	private final double[] nodeX;
+	private final double[] nodeY;
+	private final int[] outLinksStart;
+
+	private final Link[] links;
+	private final int[] linkFromNode;
+	private final int[] linkToNode;
+	private final double[] linkLength;
+
+	/** the index of the entry node of the dead end a node is in, or -1; <code>null</code> if there is no data */
+	private final int[] deadEndEntryNode;
+	private final int landmarkCount;
+	/** min and max travel costs between the nodes and the landmarks, at [node * landmarkCount + landmark] */
+	private final double[] minLandmarkCost;
+	private final double[] maxLandmarkCost;
+
+	public RoutingGraph(final Network network) {
+		this(network, null);
+	}
+
+	public RoutingGraph(final Network network, final PreProcessDijkstra preProcessData) {
+		this.network = network;
+		int n = network.getNodes().size();
+		int m = network.getLinks().size();
+		this.nodes = network.getNodes().values().toArray(new Node[n]);
+		this.nodeIndexById = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(this.nodeIndexById, -1);
+		this.nodeX = new double[n];
+		this.nodeY = new double[n];
+		this.outLinksStart = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			Node node = this.nodes[i];
+			this.nodeIndexById[node.getId().index()] = i;
+			this.nodeX[i] = node.getCoord().getX();
+			this.nodeY[i] = node.getCoord().getY();
+		}
+
+		this.links = new Link[m];
+		this.linkFromNode = new int[m];
+		this.linkToNode = new int[m];
+		this.linkLength = new double[m];
+		int l = 0;
+		for (int i = 0; i < n; i++) {
+			this.outLinksStart[i] = l;
+			for (Link link : this.nodes[i].getOutLinks().values()) {
+				int toNode = getNodeIndex(link.getToNode());
+				if (toNode < 0) {
+					continue; // should not happen in a consistent network
+				}
+				this.links[l] = link;
+				this.linkFromNode[l] = i;
+				this.linkToNode[l] = toNode;
+				this.linkLength[l] = link.getLength();
+				l++;
+			}
+		}
+		this.outLinksStart[n] = l;
+		if (l < m) {
+			log.warn("Not all links have been used in the RoutingGraph - check connectivity of input network!");
+		}
+
+		if (preProcessData != null && preProcessData.containsData()) {
+			this.deadEndEntryNode = new int[n];
+			for (int i = 0; i < n; i++) {
+				PreProcessDijkstra.DeadEndData data = preProcessData.getNodeData(this.nodes[i]);
+				Node entryNode = data == null ? null : data.getDeadEndEntryNode();
+				this.deadEndEntryNode[i] = entryNode == null ? -1 : getNodeIndex(entryNode);
+			}
+		} else {
+			this.deadEndEntryNode = null;
+		}
+
+		if (preProcessData instanceof PreProcessLandmarks && preProcessData.containsData()) {
+			this.landmarkCount = ((PreProcessLandmarks) preProcessData).getLandmarks().length;
+			this.minLandmarkCost = new double[n * this.landmarkCount];
+			this.maxLandmarkCost = new double[n * this.landmarkCount];
+			for (int i = 0; i < n; i++) {
+				PreProcessLandmarks.LandmarksData data = (PreProcessLandmarks.LandmarksData) preProcessData.getNodeData(this.nodes[i]);
+				for (int j = 0; j < this.landmarkCount; j++) {
+					this.minLandmarkCost[i * this.landmarkCount + j] = data.getMinLandmarkTravelTime(j);
+					this.maxLandmarkCost[i * this.landmarkCount + j] = data.getMaxLandmarkTravelTime(j);
+				}
+			}
+		} else {
+			this.landmarkCount = 0;
+			this.minLandmarkCost = null;
+			this.maxLandmarkCost = null;
+		}
+	}
+
+	public Network getNetwork() {
+		return this.network;
+	}
+
+	public int getNumberOfNodes() {
+		return this.nodes.length;
+	}
+
+	public int getNumberOfLinks() {
+		return this.links.length;
+	}
+
+	/**
+	 * @return the index of the node in this graph, or -1 if the node is not part of the network of this graph.
+	 */
+	public int getNodeIndex(final Node node) {
+		int idIndex = node.getId().index();
+		if (idIndex >= this.nodeIndexById.length) {
+			return -1;
+		}
+		int index = this.nodeIndexById[idIndex];
+		return (index >= 0 && this.nodes[index] == node) ? index : -1;
+	}
+
+	public Node getNode(final int node) {
+		return this.nodes[node];
+	}
+
+	public double getX(final int node) {
+		return this.nodeX[node];
+	}
+
+	public double getY(final int node) {
+		return this.nodeY[node];
+	}
+
+	public int getOutLinksStart(final int node) {
+		return this.outLinksStart[node];
+	}
+
+	public int getOutLinksEnd(final int node) {
+		return this.outLinksStart[node + 1];
+	}
+
+	public Link getLink(final int link) {
+		return this.links[link];
+	}
+
+	public int getFromNode(final int link) {
+		return this.linkFromNode[link];
+	}
+
+	public int getToNode(final int link) {
+		return this.linkToNode[link];
+	}
+
+	public double getLength(final int link) {
+		return this.linkLength[link];
+	}
+
+	public boolean hasDeadEndData() {
+		return this.deadEndEntryNode != null;
+	}
+
+	/**
+	 * @return the index of the entry node of the dead end the node is in, or -1 if it is not in a dead end.
+	 */
+	public int getDeadEndEntryNode(final int node) {
+		return this.deadEndEntryNode[node];
+	}
+
+	public int getNumberOfLandmarks() {
+		return this.landmarkCount;
+	}
+
+	public double getMinLandmarkCost(final int node, final int landmark) {
+		return this.minLandmarkCost[node * this.landmarkCount + landmark];
+	}
+
+	public double getMaxLandmarkCost(final int node, final int landmark) {
+		return this.maxLandmarkCost[node * this.landmarkCount + landmark];
+	}
+
+}
@@ -18,6 +18,8 @@
  * *********************************************************************** */
 package org.matsim.core.router.util;
 
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 
@@ -32,4 +34,23 @@ public final class TravelDisutilityUtils {
 		return new FreespeedTravelTimeAndDisutility(cnScoringGroup) ;
 	}
 
+	/**
+	 * Asks the travel disutility for the disutility of one link of the network without a person.  Travel disutilities
+	 * which depend on the person, such as the randomizing ones with sigma != 0, refuse to do so.  Data computed without
+	 * the person and shared by all agents (e.g. cached routes) must only be used with travel disutilities passing this
+	 * test.
+	 */
+	public static boolean isPersonIndependent(Network network, TravelDisutility travelDisutility) {
+		if (network.getLinks().isEmpty()) {
+			return true;
+		}
+		Link link = network.getLinks().values().iterator().next();
+		try {
+			travelDisutility.getLinkTravelDisutility(link, 0.0, null, null);
+			return true;
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
 }
@@ -33,6 +33,7 @@ import org.matsim.core.network.TimeVariantLinkFactory;
 import org.matsim.core.population.MatsimPopulationReader;
 import org.matsim.core.population.PopulationImpl;
 import org.matsim.core.utils.io.MatsimFileTypeGuesser;
+import org.matsim.core.utils.io.MatsimXmlParser;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.facilities.MatsimFacilitiesReader;
 import org.matsim.households.HouseholdsReaderV10;
@@ -165,7 +166,9 @@ public class ScenarioLoaderImpl {
 				log.info("use TimeVariantLinks in NetworkFactory.");
 				network.getFactory().setLinkFactory(new TimeVariantLinkFactory());
 			}
-			new MatsimNetworkReader(this.scenario).parse(networkFileName);
+			MatsimNetworkReader reader = new MatsimNetworkReader(this.scenario);
+			configureFastXmlParsing(reader, "node", "link");
+			reader.parse(networkFileName);
 			if ((this.config.network().getChangeEventsInputFile() != null) && this.config.network().isTimeVariantNetwork()) {
 				log.info("loading network change events from " + this.config.network().getChangeEventsInputFile());
 				NetworkChangeEventsParser parser = new NetworkChangeEventsParser(network);
@@ -175,6 +178,13 @@ public class ScenarioLoaderImpl {
 		}
 	}
 
+	private void configureFastXmlParsing(final MatsimXmlParser reader, final String... chunkElements) {
+		if (this.config.global().isFastXmlParsing()) {
+			reader.setUsingStax(true);
+			reader.setParallelParsing(this.config.global().getNumberOfThreads(), chunkElements);
+		}
+	}
+
 	/**
 	 * @deprecated  Please use the static calls in ScenarioUtils to load a scenario.
 	 * 				If you want only Facilities, use the MatsimFacilitiesReader directly.
@@ -185,7 +195,9 @@ public class ScenarioLoaderImpl {
 		if ((this.config.facilities() != null) && (this.config.facilities().getInputFile() != null)) {
 			String facilitiesFileName = this.config.facilities().getInputFile();
 			log.info("loading facilities from " + facilitiesFileName);
-			new MatsimFacilitiesReader(this.scenario).parse(facilitiesFileName);
+			MatsimFacilitiesReader reader = new MatsimFacilitiesReader(this.scenario);
+			configureFastXmlParsing(reader, "facility");
+			reader.parse(facilitiesFileName);
 			log.info("loaded " + this.scenario.getActivityFacilities().getFacilities().size() + " facilities from " + facilitiesFileName);
 		}
 		else {
@@ -211,7 +223,9 @@ public class ScenarioLoaderImpl {
 		if ((this.config.plans() != null) && (this.config.plans().getInputFile() != null)) {
 			String populationFileName = this.config.plans().getInputFile();
 			log.info("loading population from " + populationFileName);
-			new MatsimPopulationReader(this.scenario).parse(populationFileName);
+			MatsimPopulationReader reader = new MatsimPopulationReader(this.scenario);
+			configureFastXmlParsing(reader, "person");
+			reader.parse(populationFileName);
 
 			if (this.scenario.getPopulation() instanceof PopulationImpl) {
 				((PopulationImpl)this.scenario.getPopulation()).printPlansCount();
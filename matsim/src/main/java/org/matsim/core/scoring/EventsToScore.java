@@ -20,6 +20,8 @@
 
 package org.matsim.core.scoring;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -44,6 +46,7 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.internal.HasPersonId;
 import org.matsim.core.config.Config;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.scoring.EventsToLegs.LegHandler;
 
 /**
  * Calculates the score of the selected plans of a given scenario
@@ -69,6 +72,8 @@ public class EventsToScore implements BasicEventHandler {
 	private Scenario scenario;
 	private ScoringFunctionFactory scoringFunctionFactory;
 	private double learningRate;
+	private final boolean recordExperiencedPlans;
+	private final List<LegHandler> legHandlers = new ArrayList<>();
 	private boolean finished = false;
 	
 	private int iteration = -1 ;
@@ -89,9 +94,19 @@ public class EventsToScore implements BasicEventHandler {
 	}
 
 	public EventsToScore(final Scenario scenario, final ScoringFunctionFactory scoringFunctionFactory, final double learningRate) {
+		this(scenario, scoringFunctionFactory, learningRate, true);
+	}
+
+	/**
+	 * @param recordExperiencedPlans whether the experienced plans (and partial scores) of all agents should be kept in memory,
+	 * see {@link #getAgentRecords()} and {@link #writeExperiencedPlans(String)}. This is a large part of the memory
+	 * needed for scoring, so switch it off if you do not need them.
+	 */
+	public EventsToScore(final Scenario scenario, final ScoringFunctionFactory scoringFunctionFactory, final double learningRate, final boolean recordExperiencedPlans) {
 		this.scenario = scenario;
 		this.scoringFunctionFactory = scoringFunctionFactory;
 		this.learningRate = learningRate;
+		this.recordExperiencedPlans = recordExperiencedPlans;
 		initHandlers(scoringFunctionFactory);
 		
 		Config config = this.scenario.getConfig() ;
@@ -106,7 +121,10 @@ public class EventsToScore implements BasicEventHandler {
 
 	private void initHandlers(final ScoringFunctionFactory factory) {
 		this.eventsToActivities = new EventsToActivities();
-		this.scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(scenario, factory);
+		this.scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(scenario, factory, this.recordExperiencedPlans);
+		for (LegHandler legHandler : this.legHandlers) {
+			this.scoringFunctionsForPopulation.addLegHandler(legHandler);
+		}
 		this.eventsToActivities.setActivityHandler(this.scoringFunctionsForPopulation);
 		this.eventsToLegs = new EventsToLegs(this.scenario);
 		this.eventsToLegs.setLegHandler(this.scoringFunctionsForPopulation);
@@ -168,7 +186,8 @@ public class EventsToScore implements BasicEventHandler {
 	 */
 	public void finish() {
 		eventsToActivities.finish();	
-		scoringFunctionsForPopulation.finishScoringFunctions();
+		Config config = this.scenario.getConfig();
+		scoringFunctionsForPopulation.finishScoringFunctions(config.planCalcScore().isFinishScoringFunctionsInParallel() ? config.global().getNumberOfThreads() : 1);
 		assignNewScores();
 		finished = true;
 	}
@@ -292,10 +311,22 @@ public class EventsToScore implements BasicEventHandler {
 		return scoringFunctionsForPopulation.getScoringFunctionForAgent(agentId);
 	}
 
+	/**
+	 * @throws IllegalStateException if experienced plans are not recorded
+	 */
 	public Map<Id<Person>, Plan> getAgentRecords() {
 		return scoringFunctionsForPopulation.getAgentRecords();
 	}
 
+	/**
+	 * Passes on the legs of all agents in the population to the given handler, in addition to scoring them.
+	 * This allows to evaluate the experienced legs on the fly instead of recording the experienced plans.
+	 */
+	public void addLegHandler(LegHandler legHandler) {
+		this.legHandlers.add(legHandler);
+		this.scoringFunctionsForPopulation.addLegHandler(legHandler);
+	}
+
 	public void writeExperiencedPlans(String iterationFilename) {
 		scoringFunctionsForPopulation.writeExperiencedPlans(iterationFilename);
 	}
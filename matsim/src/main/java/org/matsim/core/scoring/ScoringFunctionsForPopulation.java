@@ -22,12 +22,12 @@ package org.matsim.core.scoring;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -36,13 +36,13 @@ import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
-import org.matsim.api.core.v01.population.Population;
-import org.matsim.api.core.v01.population.PopulationWriter;
 import org.matsim.core.population.PersonImpl;
 import org.matsim.core.population.PlanImpl;
 import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.PopulationWriter;
 import org.matsim.core.scoring.EventsToActivities.ActivityHandler;
 import org.matsim.core.scoring.EventsToLegs.LegHandler;
+import org.matsim.core.utils.collections.IdMap;
 import org.matsim.core.utils.io.IOUtils;
 
 /**
@@ -50,30 +50,70 @@ import org.matsim.core.utils.io.IOUtils;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * The per-agent state is kept in plain arrays with one entry per person of the population, in the order of the
+ * population.  The position of an agent is found through the {@link Id#index()} of its id, so dispatching an activity
+ * or a leg is two array accesses.  Experienced plans (and the partial scores written alongside) are only recorded
+ * if requested, as they are by far the largest part of the state.
  * @author michaz
  *
  */
 class ScoringFunctionsForPopulation implements ActivityHandler, LegHandler {
 
 	private final static Logger log = Logger.getLogger(ScoringFunctionsForPopulation.class);
-	
+
+	private static final int INITIAL_PARTIAL_SCORES = 8;
+
 	private ScoringFunctionFactory scoringFunctionFactory = null;
 
-	private final TreeMap<Id<Person>, ScoringFunction> agentScorers = new TreeMap<>();
+	private final Id<Person>[] personIds;
+	/* position of a person in the arrays below, by the index of its id; -1 for ids of persons not in the population */
+	private final int[] positions;
+	private final ScoringFunction[] agentScorers;
 
-	private final Map<Id<Person>, Plan> agentRecords = new TreeMap<>();
-	private final Map<Id<Person>, List<Double>> partialScores = new TreeMap<>() ;
+	private final boolean recordingExperiencedPlans;
+	private final Plan[] agentRecords;
+	private final double[][] partialScores;
+	private final int[] partialScoresCount;
+
+	private final List<LegHandler> legHandlers = new ArrayList<>();
 
 	private Scenario scenario;
 
 	public ScoringFunctionsForPopulation(Scenario scenario, ScoringFunctionFactory scoringFunctionFactory) {
+		this(scenario, scoringFunctionFactory, true);
+	}
+
+	@SuppressWarnings("unchecked")
+	public ScoringFunctionsForPopulation(Scenario scenario, ScoringFunctionFactory scoringFunctionFactory, boolean recordExperiencedPlans) {
 		this.scoringFunctionFactory = scoringFunctionFactory;
 		this.scenario = scenario;
-		for (Person person : scenario.getPopulation().getPersons().values()) {
-			ScoringFunction data = this.scoringFunctionFactory.createNewScoringFunction(person);
-			this.agentScorers.put(person.getId(), data);
-			this.agentRecords.put(person.getId(), new PlanImpl());
-			this.partialScores.put(person.getId(), new ArrayList<Double>());
+		this.recordingExperiencedPlans = recordExperiencedPlans;
+		Map<Id<Person>, ? extends Person> persons = scenario.getPopulation().getPersons();
+		int size = persons.size();
+		int maxIndex = -1;
+		for (Id<Person> personId : persons.keySet()) {
+			maxIndex = Math.max(maxIndex, personId.index());
+		}
+		this.personIds = new Id[size];
+		this.positions = new int[maxIndex + 1];
+		Arrays.fill(this.positions, -1);
+		this.agentScorers = new ScoringFunction[size];
+		this.agentRecords = recordExperiencedPlans ? new Plan[size] : null;
+		this.partialScores = recordExperiencedPlans ? new double[size][] : null;
+		this.partialScoresCount = recordExperiencedPlans ? new int[size] : null;
+		int position = 0;
+		for (Person person : persons.values()) {
+			this.personIds[position] = person.getId();
+			if (person.getId().index() >= 0) {
+				this.positions[person.getId().index()] = position;
+			}
+			this.agentScorers[position] = this.scoringFunctionFactory.createNewScoringFunction(person);
+			if (recordExperiencedPlans) {
+				this.agentRecords[position] = new PlanImpl();
+				this.partialScores[position] = new double[INITIAL_PARTIAL_SCORES];
+			}
+			position++;
 		}
 	}
 
@@ -88,64 +128,160 @@ class ScoringFunctionsForPopulation implements ActivityHandler, LegHandler {
 	 * @return The scoring function for the specified agent.
 	 */
 	public ScoringFunction getScoringFunctionForAgent(final Id<Person> agentId) {
-		return this.agentScorers.get(agentId);
+		int index = getIndex(agentId);
+		return index < 0 ? null : this.agentScorers[index];
+	}
+
+	public boolean isRecordingExperiencedPlans() {
+		return this.recordingExperiencedPlans;
 	}
 
 	public Map<Id<Person>, Plan> getAgentRecords() {
-		return agentRecords;
+		if (!this.recordingExperiencedPlans) {
+			throw new IllegalStateException("Experienced plans are not recorded.");
+		}
+		Map<Id<Person>, Plan> records = new IdMap<>(Person.class, this.agentRecords.length);
+		for (int i = 0; i < this.agentRecords.length; i++) {
+			if (this.agentRecords[i] != null) {
+				records.put(this.personIds[i], this.agentRecords[i]);
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Legs of agents in the population are additionally passed on to the given handler, e.g. to collect
+	 * statistics without recording the experienced plans.
+	 */
+	public void addLegHandler(LegHandler legHandler) {
+		this.legHandlers.add(legHandler);
 	}
 
 	@Override
 	public void handleActivity(Id<Person> agentId, Activity activity) {
-		ScoringFunction scoringFunctionForAgent = this.getScoringFunctionForAgent(agentId);
-		if (scoringFunctionForAgent != null) {
+		int index = getIndex(agentId);
+		if (index >= 0 && this.agentScorers[index] != null) {
+			ScoringFunction scoringFunctionForAgent = this.agentScorers[index];
 			scoringFunctionForAgent.handleActivity(activity);
-			agentRecords.get(agentId).addActivity(activity);
-			Collection<Double> partialScoresForAgent = partialScores.get(agentId) ;
-			partialScoresForAgent.add( scoringFunctionForAgent.getScore() ) ;
+			if (this.recordingExperiencedPlans) {
+				this.agentRecords[index].addActivity(activity);
+				addPartialScore(index, scoringFunctionForAgent.getScore());
+			}
 		}
 	}
 
 	@Override
 	public void handleLeg(Id<Person> agentId, Leg leg) {
-		ScoringFunction scoringFunctionForAgent = this.getScoringFunctionForAgent(agentId);
-		if (scoringFunctionForAgent != null) {
+		int index = getIndex(agentId);
+		if (index >= 0 && this.agentScorers[index] != null) {
+			ScoringFunction scoringFunctionForAgent = this.agentScorers[index];
 			scoringFunctionForAgent.handleLeg(leg);
-			agentRecords.get(agentId).addLeg(leg);
-			Collection<Double> partialScoresForAgent = partialScores.get(agentId) ;
-			partialScoresForAgent.add(scoringFunctionForAgent.getScore()) ;
+			if (this.recordingExperiencedPlans) {
+				this.agentRecords[index].addLeg(leg);
+				addPartialScore(index, scoringFunctionForAgent.getScore());
+			}
+			for (LegHandler legHandler : this.legHandlers) {
+				legHandler.handleLeg(agentId, leg);
+			}
 		}
 	}
 
-	public void finishScoringFunctions() {
-		for (ScoringFunction sf : agentScorers.values()) {
-			sf.finish();
+	/**
+	 * Finishes all scoring functions.  With more than one thread, each thread takes care of a contiguous range of
+	 * agents; this requires that the scoring functions of different agents do not share any state, which is why
+	 * {@link EventsToScore} only does so if switched on in the config.
+	 */
+	public void finishScoringFunctions(int numberOfThreads) {
+		final int size = this.agentScorers.length;
+		int numOfThreads = Math.max(1, Math.min(numberOfThreads, size / 1000));
+		if (numOfThreads == 1) {
+			finishScoringFunctions(0, size);
+			return;
 		}
-		for ( Entry<Id<Person>, List<Double>> entry : this.partialScores.entrySet() ) {
-			entry.getValue().add(this.getScoringFunctionForAgent(entry.getKey()).getScore());
+		final AtomicBoolean hadException = new AtomicBoolean(false);
+		UncaughtExceptionHandler exceptionHandler = new UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread t, Throwable e) {
+				log.error("Thread " + t.getName() + " died with exception while finishing scoring functions.", e);
+				hadException.set(true);
+			}
+		};
+		Thread[] threads = new Thread[numOfThreads];
+		int chunk = (size + numOfThreads - 1) / numOfThreads;
+		for (int i = 0; i < numOfThreads; i++) {
+			final int from = i * chunk;
+			final int to = Math.min(size, from + chunk);
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					finishScoringFunctions(from, to);
+				}
+			}, ScoringFunctionsForPopulation.class.getSimpleName() + "." + i);
+			threads[i].setUncaughtExceptionHandler(exceptionHandler);
+			threads[i].start();
+		}
+		try {
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		if (hadException.get()) {
+			throw new RuntimeException("Some threads crashed, thus not all scoring functions may have been finished.");
 		}
 	}
 
+	public void finishScoringFunctions() {
+		finishScoringFunctions(1);
+	}
+
+	private void finishScoringFunctions(int from, int to) {
+		for (int i = from; i < to; i++) {
+			ScoringFunction sf = this.agentScorers[i];
+			if (sf != null) {
+				sf.finish();
+				if (this.recordingExperiencedPlans) {
+					addPartialScore(i, sf.getScore());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the experienced plans and the partial scores person by person, without building an intermediate
+	 * population.
+	 */
 	public void writeExperiencedPlans(String iterationFilename) {
-		Population population = PopulationUtils.createPopulation(scenario.getConfig());
-		for (Entry<Id<Person>, Plan> entry : agentRecords.entrySet()) {
-			PersonImpl person = new PersonImpl(entry.getKey());
-			Plan plan = entry.getValue();
-			plan.setScore(getScoringFunctionForAgent(person.getId()).getScore());
+		if (!this.recordingExperiencedPlans) {
+			throw new IllegalStateException("Experienced plans are not recorded.");
+		}
+		PopulationWriter writer = new PopulationWriter(PopulationUtils.createPopulation(scenario.getConfig()), scenario.getNetwork());
+		writer.writeStartPlans(iterationFilename + ".xml.gz");
+		for (int i = 0; i < this.agentRecords.length; i++) {
+			Plan plan = this.agentRecords[i];
+			if (plan == null) {
+				continue;
+			}
+			PersonImpl person = new PersonImpl(this.personIds[i]);
+			plan.setScore(this.agentScorers[i].getScore());
 			person.addPlan(plan);
-			population.addPerson(person);
+			writer.writePerson(person);
 			if (plan.getScore().isNaN()) {
 				log.warn("score is NaN; plan:" + plan.toString());
 			}
 		}
-		new PopulationWriter(population, scenario.getNetwork()).writeV5(iterationFilename + ".xml.gz");
+		writer.writeEndPlans();
 
 		BufferedWriter out = IOUtils.getBufferedWriter(iterationFilename + "_scores.xml.gz");
 		try {
-			for (Entry<Id<Person>,List<Double>> entry : partialScores.entrySet()) {
-				out.write( entry.getKey().toString());
-				for (Double score : entry.getValue()) {
-					out.write('\t'+ score.toString());
+			for (int i = 0; i < this.partialScores.length; i++) {
+				if (this.partialScores[i] == null) {
+					continue;
+				}
+				out.write(this.personIds[i].toString());
+				for (int j = 0; j < this.partialScoresCount[i]; j++) {
+					out.write('\t' + Double.toString(this.partialScores[i][j]));
 				}
 				out.newLine();
 			}
@@ -155,4 +291,36 @@ class ScoringFunctionsForPopulation implements ActivityHandler, LegHandler {
 		}
 	}
 
+	private void addPartialScore(int index, double score) {
+		double[] scores = this.partialScores[index];
+		int count = this.partialScoresCount[index];
+		if (count == scores.length) {
+			scores = Arrays.copyOf(scores, scores.length * 2);
+			this.partialScores[index] = scores;
+		}
+		scores[count] = score;
+		this.partialScoresCount[index] = count + 1;
+	}
+
+	private int getIndex(final Id<?> agentId) {
+		int position = getPosition(agentId);
+		if (position < 0) {
+			// an id of another type with the same key (see Id.equals), or of a person not in the population
+			Id<Person> personId = Id.get(agentId.toString(), Person.class);
+			if (personId != null && personId != agentId) {
+				position = getPosition(personId);
+			}
+		}
+		return position;
+	}
+
+	private int getPosition(final Id<?> agentId) {
+		int index = agentId.index();
+		if (index < 0 || index >= this.positions.length) {
+			return -1;
+		}
+		int position = this.positions[index];
+		return position >= 0 && this.personIds[position] == agentId ? position : -1;
+	}
+
 }
@@ -20,64 +20,75 @@
 
 package org.matsim.core.trafficmonitoring;
 
+import java.util.Arrays;
 import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.core.router.priorityqueue.HasIndex;
 import org.matsim.core.trafficmonitoring.TravelTimeCalculator.DataContainer;
 
 /**
  *  Uses an array to store DataContainer object for the TravelTimeCalculator.
- *  It is tried to get a DataContainer's position in the array is taken from the
- *  the Link, which is possible if routing networks are used (there, link implement
- *  the HasIndex interface).
+ *  A DataContainer's position in the array is given by the dense index of the
+ *  link's id (see {@link Id#index()}), so both the event handler part (which only
+ *  knows link ids) and the router part (which knows links) of the TravelTimeCalculator
+ *  find the data by a plain array lookup.
  *  
- *  If regular network are used, calls are forwarded to a MapBasedDataContainerProvider,
- *  which represents the lookup approach used so far.
+ *  DataContainers are created by a MapBasedDataContainerProvider, which represents
+ *  the lookup approach used so far and still provides the map used to reset the data.
  *  
  * @author cdobler
  */
 public class ArrayBasedDataContainerProvider implements DataContainerProvider {
 
-	private final DataContainer[] arrayLinkData;
+	private volatile DataContainer[] arrayLinkData;
 	private final DataContainerProvider delegate;
 	
 	public ArrayBasedDataContainerProvider(Map<Id<Link>, DataContainer> linkData, TravelTimeDataFactory ttDataFactory,
 			Network network) {
-		this.arrayLinkData = new DataContainer[network.getLinks().size()];
+		this.arrayLinkData = new DataContainer[Math.max(Id.getNumberOfIds(Link.class), network.getLinks().size())];
 		this.delegate = new MapBasedDataContainerProvider(linkData, ttDataFactory);
 	}
 	
 	/*
-	 * This method is called from the EventHandler part of the TravelTimeCalculator.
-	 * There, only link ids are available. We cannot optimize this. 
+	 * This method is called from the EventHandler part of the TravelTimeCalculator,
+	 * possibly from several threads. Only the creation of new DataContainers is synchronized.
 	 */
 	@Override
 	public DataContainer getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
-		return this.delegate.getTravelTimeData(linkId, createIfMissing);
+		int index = linkId.index();
+		DataContainer[] data = this.arrayLinkData;
+		if (index < data.length) {
+			DataContainer container = data[index];
+			if (container != null) {
+				return container;
+			}
+		}
+		return getOrCreateTravelTimeData(linkId, createIfMissing);
 	}
 	
 	/*
 	 * This method is called from the TravelTime part of the TravelTimeCalculator.
-	 * There, links are available. we can optimize this by using an array instead of a map.
-	 * 
-	 *  Probably pre-initialize all DataContainers to avoid the null-check?
 	 */
 	@Override
 	public DataContainer getTravelTimeData(Link link, boolean createIfMissing) {
-		if (link instanceof HasIndex) {
-			int index = ((HasIndex) link).getArrayIndex();
-			DataContainer data = this.arrayLinkData[index];
-			if (data == null) {
-				data = this.delegate.getTravelTimeData(link, createIfMissing);
-				this.arrayLinkData[index] = data;
+		return getTravelTimeData(link.getId(), createIfMissing);
+	}
+
+	private synchronized DataContainer getOrCreateTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
+		DataContainer container = this.delegate.getTravelTimeData(linkId, createIfMissing);
+		if (container != null) {
+			int index = linkId.index();
+			DataContainer[] data = this.arrayLinkData;
+			if (index >= data.length) {
+				// link ids created after this provider, e.g. for links outside the network
+				data = Arrays.copyOf(data, Math.max(index + 1, 2 * data.length));
 			}
-			return data;
-		} else {
-			return this.delegate.getTravelTimeData(link, createIfMissing);
+			data[index] = container;
+			this.arrayLinkData = data;
 		}
+		return container;
 	}
 	
-}
\ No newline at end of file
+}
@@ -35,6 +35,7 @@ import org.matsim.core.utils.collections.CollectionUtils;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -50,7 +51,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * is stored in {@link TravelTimeData}-objects. If a short binSize is used, it is useful to
  * use {@link TravelTimeDataHashMap} (see {@link #setTravelTimeDataFactory(TravelTimeDataFactory)}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
- * {@link TravelTimeDataArray} is used.
+ * {@link TravelTimeDataArray} is used. {@link TravelTimeDataMatrixFactory} stores the data of all links
+ * in one flat matrix that several event handling threads can update without locking.
  * 
  * @author dgrether
  * @author mrieser
@@ -72,9 +74,13 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	private Map<Tuple<Id<Link>, Id<Link>>, DataContainer> linkToLinkData;
 
-	private final DataContainerProvider dataContainerProvider;
+	private DataContainerProvider dataContainerProvider;
+
+	private final Network network;
 	
-	private final Map<Id<Person>, LinkEnterEvent> linkEnterEvents;
+	private final LinkEnterTimes linkEnterTimes;
+
+	private final Id.IdsOfType<Link> linkIds = Id.getIdsOfType(Link.class);
 
 	private final Map<Id<Vehicle>, Id<Person>> transitVehicleDriverMapping;
 
@@ -89,6 +95,19 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 	private TravelTimeDataFactory ttDataFactory = null;
 
+	/*
+	 * Handed out by getLinkTravelTimes(), always the same instance, so that consumers can recognize the travel times of
+	 * this calculator (e.g. the TravelDisutilitySnapshot).
+	 */
+	private final TravelTime linkTravelTimes = new TravelTime() {
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			return TravelTimeCalculator.this.doGetLinkTravelTime(link, time);
+		}
+
+	};
+
 	public static TravelTimeCalculator create(Network network, TravelTimeCalculatorConfigGroup group) {
 		TravelTimeCalculator calculator = new TravelTimeCalculator(network, group);
 
@@ -99,6 +118,9 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			case TravelTimeCalculatorHashMap:
 				calculator.setTravelTimeDataFactory(new TravelTimeDataHashMapFactory(network));
 				break;
+			case TravelTimeCalculatorMatrix:
+				calculator.setTravelTimeDataFactory(new TravelTimeDataMatrixFactory(network, calculator.numSlots));
+				break;
 			default:
 				throw new RuntimeException(group.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -130,11 +152,12 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 
 
 	public TravelTimeCalculator(final Network network, TravelTimeCalculatorConfigGroup ttconfigGroup) {
-		this(network, ttconfigGroup.getTraveltimeBinSize(), 30*3600, ttconfigGroup); // default: 30 hours at most
+		this(network, ttconfigGroup.getTraveltimeBinSize(), ttconfigGroup.getMaxTime(), ttconfigGroup);
 	}
 
 	public TravelTimeCalculator(final Network network, final int timeslice, final int maxTime,
 			TravelTimeCalculatorConfigGroup ttconfigGroup) {
+		this.network = network;
 		this.timeSlice = timeslice;
 		this.numSlots = (maxTime / this.timeSlice) + 1;
 		this.aggregator = new OptimisticTravelTimeAggregator(this.numSlots, this.timeSlice);
@@ -162,7 +185,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
+		this.linkEnterTimes = new LinkEnterTimes();
 		this.transitVehicleDriverMapping = new ConcurrentHashMap<>();
 		this.agentsToFilter = new HashSet<>();
 		this.analyzedModes = CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModes());
@@ -176,23 +199,26 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		 * performs a trip with one of those modes. if not, we skip the event. */
 		if (filterAnalyzedModes && agentsToFilter.contains(e.getPersonId())) return;
 
-		LinkEnterEvent oldEvent = this.linkEnterEvents.remove(e.getPersonId());
-		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
-			DataContainer data = getLinkToLinkTravelTimeData(fromToLink, true);
-			this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
-			data.needsConsolidation = true;
+		if (this.calculateLinkToLinkTravelTimes) {
+			double oldEnterTime = this.linkEnterTimes.getEnterTime(e.getPersonId());
+			if (!Double.isNaN(oldEnterTime)) {
+				Id<Link> oldLinkId = this.linkIds.get(this.linkEnterTimes.getLinkIndex(e.getPersonId()));
+				Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldLinkId, e.getLinkId());
+				DataContainer data = getLinkToLinkTravelTimeData(fromToLink, true);
+				this.aggregator.addTravelTime(data.ttData, oldEnterTime, e.getTime());
+				data.needsConsolidation = true;
+			}
 		}
-		this.linkEnterEvents.put(e.getPersonId(), e);
+		this.linkEnterTimes.put(e.getPersonId(), e.getTime(), e.getLinkId());
 	}
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
 		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getPersonId());
-			if (oldEvent != null) {
+			double enterTime = this.linkEnterTimes.getEnterTime(e.getPersonId());
+			if (!Double.isNaN(enterTime)) {
 				DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-				this.aggregator.addTravelTime(data.ttData, oldEvent.getTime(), e.getTime());
+				this.aggregator.addTravelTime(data.ttData, enterTime, e.getTime());
 				data.needsConsolidation = true;
 			}
 		}
@@ -213,7 +239,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		/* remove EnterEvents from list when an agent arrives.
 		 * otherwise, the activity duration would counted as travel time, when the
 		 * agent departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getPersonId());
+		this.linkEnterTimes.remove(event.getPersonId());
 
 		// try to remove agent from set with filtered agents
 		if (filterAnalyzedModes) this.agentsToFilter.remove(event.getPersonId());
@@ -225,24 +251,26 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		 * otherwise, the stop time would counted as travel time, when the
 		 * bus departs again and leaves the link! */
 		Id<Person> personId = transitVehicleDriverMapping.get(event.getVehicleId());
-		if (personId != null) this.linkEnterEvents.remove(personId);
+		if (personId != null) this.linkEnterTimes.remove(personId);
 	}
 
 	@Override
 	public void handleEvent(TransitDriverStartsEvent event) {
 		/* we create a mapping between transit vehicles and their drivers. this
-		 * is needed to remove transit vehicles from the linkEnterEvents map if
+		 * is needed to remove transit vehicles from the linkEnterTimes if
 		 * they stop on a link (similar to agents who perform an activity at a link. */
 		transitVehicleDriverMapping.put(event.getVehicleId(), event.getDriverId());
 	}
 
 	@Override
 	public void handleEvent(PersonStuckEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getPersonId());
-		if (e != null) {
-			DataContainer data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+		double enterTime = this.linkEnterTimes.getEnterTime(event.getPersonId());
+		if (!Double.isNaN(enterTime)) {
+			Id<Link> linkId = this.linkIds.get(this.linkEnterTimes.getLinkIndex(event.getPersonId()));
+			this.linkEnterTimes.remove(event.getPersonId());
+			DataContainer data = this.dataContainerProvider.getTravelTimeData(linkId, true);
 			data.needsConsolidation = true;
-			this.aggregator.addStuckEventTravelTime(data.ttData, e.getTime(), event.getTime());
+			this.aggregator.addStuckEventTravelTime(data.ttData, enterTime, event.getTime());
 			if (this.calculateLinkToLinkTravelTimes){
 				log.error(ERROR_STUCK_AND_LINKTOLINK);
 				throw new IllegalStateException(ERROR_STUCK_AND_LINKTOLINK);
@@ -331,13 +359,18 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 				data.needsConsolidation = false;
 			}
 		}
-		this.linkEnterEvents.clear();
+		this.linkEnterTimes.clear();
 		this.transitVehicleDriverMapping.clear();
 		this.agentsToFilter.clear();
 	}
 
 	public void setTravelTimeDataFactory(final TravelTimeDataFactory factory) {
 		this.ttDataFactory = factory;
+		if (this.calculateLinkTravelTimes) {
+			// the provider creates the link data with the factory, so it must be replaced as well
+			this.linkData.clear();
+			this.dataContainerProvider = new ArrayBasedDataContainerProvider(this.linkData, factory, this.network);
+		}
 	}
 
 	public void setTravelTimeAggregator(final AbstractTravelTimeAggregator aggregator) {
@@ -418,16 +451,89 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		}
 	}
 
-	public TravelTime getLinkTravelTimes() {
-		return new TravelTime() {
+	/**
+	 * The time and link at which each person entered its current link, stored in primitive arrays
+	 * indexed by {@link Id#index()} instead of a map of LinkEnterEvents. The arrays are allocated
+	 * in chunks which are never moved, so new persons can be added while other threads update
+	 * the entries of other persons.
+	 */
+	/*package*/ static final class LinkEnterTimes {
+		private static final int CHUNK_BITS = 12;
+		private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+		private static final int CHUNK_MASK = CHUNK_SIZE - 1;
 
-			@Override
-			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
-				return TravelTimeCalculator.this.doGetLinkTravelTime(link, time);
+		private static final class Chunk {
+			final double[] enterTimes = new double[CHUNK_SIZE];
+			final int[] linkIndices = new int[CHUNK_SIZE];
+
+			Chunk() {
+				Arrays.fill(this.enterTimes, Double.NaN);
 			}
+		}
 
-		};
+		private volatile Chunk[] chunks = new Chunk[0];
 
+		/**
+		 * @return the time the person entered its current link, or <code>NaN</code> if it is not on a link.
+		 */
+		/*package*/ double getEnterTime(final Id<Person> personId) {
+			Chunk chunk = getChunk(personId.index());
+			return chunk == null ? Double.NaN : chunk.enterTimes[personId.index() & CHUNK_MASK];
+		}
+
+		/*package*/ int getLinkIndex(final Id<Person> personId) {
+			return getChunk(personId.index()).linkIndices[personId.index() & CHUNK_MASK];
+		}
+
+		/*package*/ void put(final Id<Person> personId, final double time, final Id<Link> linkId) {
+			int index = personId.index();
+			Chunk chunk = getChunk(index);
+			if (chunk == null) {
+				chunk = createChunk(index);
+			}
+			chunk.linkIndices[index & CHUNK_MASK] = linkId.index();
+			chunk.enterTimes[index & CHUNK_MASK] = time;
+		}
+
+		/*package*/ void remove(final Id<Person> personId) {
+			Chunk chunk = getChunk(personId.index());
+			if (chunk != null) {
+				chunk.enterTimes[personId.index() & CHUNK_MASK] = Double.NaN;
+			}
+		}
+
+		/*package*/ void clear() {
+			for (Chunk chunk : this.chunks) {
+				if (chunk != null) {
+					Arrays.fill(chunk.enterTimes, Double.NaN);
+				}
+			}
+		}
+
+		private Chunk getChunk(final int index) {
+			Chunk[] c = this.chunks;
+			int chunkIndex = index >>> CHUNK_BITS;
+			return chunkIndex < c.length ? c[chunkIndex] : null;
+		}
+
+		private synchronized Chunk createChunk(final int index) {
+			int chunkIndex = index >>> CHUNK_BITS;
+			Chunk[] c = this.chunks;
+			if (chunkIndex >= c.length) {
+				c = Arrays.copyOf(c, Math.max(chunkIndex + 1, Id.getNumberOfIds(Person.class) / CHUNK_SIZE + 1));
+			} else if (c[chunkIndex] != null) {
+				return c[chunkIndex];
+			} else {
+				c = c.clone();
+			}
+			c[chunkIndex] = new Chunk();
+			this.chunks = c;
+			return c[chunkIndex];
+		}
+	}
+
+	public TravelTime getLinkTravelTimes() {
+		return this.linkTravelTimes;
 	}
 
 	public LinkToLinkTravelTime getLinkToLinkTravelTimes() {
@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeDataMatrix.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * Stores the travel time data of up to <code>rows</code> links in flat arrays of
+ * <code>rows x numSlots</code> entries, instead of three small arrays per link as
+ * {@link TravelTimeDataArray} does. Each row is exposed as a {@link TravelTimeData}.
+ * <p></p>
+ * Travel times are accumulated with atomic operations (a compare-and-set loop on the
+ * bits of the sum, an atomic increment of the count), so several event handling threads
+ * may add travel times concurrently without locking. The averaged travel time is cached
+ * per time bin like in {@link TravelTimeDataArray}; a cache value computed while other
+ * threads still add travel times may be stale until the next travel time is added.
+ *
+ * @see TravelTimeDataMatrixFactory
+ */
+class TravelTimeDataMatrix {
+
+	private final int numSlots;
+	private final int rows;
+	private final AtomicLongArray timeSum; // Double.doubleToRawLongBits() of the sums
+	private final AtomicIntegerArray timeCnt;
+	private final double[] travelTimes;
+	private int usedRows = 0;
+
+	TravelTimeDataMatrix(final int rows, final int numSlots) {
+		this.numSlots = numSlots;
+		this.rows = rows;
+		this.timeSum = new AtomicLongArray(rows * numSlots);
+		this.timeCnt = new AtomicIntegerArray(rows * numSlots);
+		this.travelTimes = new double[rows * numSlots];
+	}
+
+	/*package*/ boolean isFull() {
+		return this.usedRows == this.rows;
+	}
+
+	/**
+	 * Not thread-safe, must be synchronized by the caller.
+	 */
+	/*package*/ TravelTimeData createRow(final Link link) {
+		Row row = new Row(link, this.usedRows * this.numSlots);
+		this.usedRows++;
+		row.resetTravelTimes();
+		return row;
+	}
+
+	private final class Row implements TravelTimeData {
+		private final Link link;
+		private final int offset;
+
+		Row(final Link link, final int offset) {
+			this.link = link;
+			this.offset = offset;
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			long zero = Double.doubleToRawLongBits(0.0);
+			for (int i = this.offset; i < this.offset + TravelTimeDataMatrix.this.numSlots; i++) {
+				TravelTimeDataMatrix.this.timeSum.set(i, zero);
+				TravelTimeDataMatrix.this.timeCnt.set(i, 0);
+				TravelTimeDataMatrix.this.travelTimes[i] = -1.0;
+			}
+		}
+
+		@Override
+		public void setTravelTime(final int timeSlot, final double traveltime) {
+			int i = this.offset + timeSlot;
+			TravelTimeDataMatrix.this.timeSum.set(i, Double.doubleToRawLongBits(traveltime));
+			TravelTimeDataMatrix.this.timeCnt.set(i, 1);
+			TravelTimeDataMatrix.this.travelTimes[i] = traveltime;
+		}
+
+		@Override
+		public void addTravelTime(final int timeSlot, final double traveltime) {
+			int i = this.offset + timeSlot;
+			AtomicLongArray sums = TravelTimeDataMatrix.this.timeSum;
+			long bits;
+			long newBits;
+			do {
+				bits = sums.get(i);
+				newBits = Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + traveltime);
+			} while (!sums.compareAndSet(i, bits, newBits));
+			TravelTimeDataMatrix.this.timeCnt.incrementAndGet(i);
+			TravelTimeDataMatrix.this.travelTimes[i] = -1.0; // invalidate the cached value
+		}
+
+		@Override
+		public double getTravelTime(final int timeSlot, final double now) {
+			int i = this.offset + timeSlot;
+			double ttime = TravelTimeDataMatrix.this.travelTimes[i];
+			if (ttime >= 0.0) return ttime; // negative values are invalid.
+
+			int cnt = TravelTimeDataMatrix.this.timeCnt.get(i);
+			if (cnt == 0) {
+				ttime = this.link.getLength() / this.link.getFreespeed(now);
+			} else {
+				ttime = Double.longBitsToDouble(TravelTimeDataMatrix.this.timeSum.get(i)) / cnt;
+			}
+			TravelTimeDataMatrix.this.travelTimes[i] = ttime;
+			return ttime;
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeDataMatrixFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+/**
+ * Creates {@link TravelTimeData} objects that are rows of shared {@link TravelTimeDataMatrix}
+ * blocks. The first block has one row per network link, so as long as only link travel times are
+ * collected, the data of all links ends up in one flat matrix; further rows (e.g. for link-to-link
+ * travel times) are allocated in additional blocks.
+ *
+ * @see TravelTimeDataMatrix
+ */
+public class TravelTimeDataMatrixFactory implements TravelTimeDataFactory {
+
+	private static final int ROWS_PER_ADDITIONAL_BLOCK = 1024;
+
+	private final Network network;
+	private final int numSlots;
+	private TravelTimeDataMatrix currentBlock;
+
+	public TravelTimeDataMatrixFactory(final Network network, final int numSlots) {
+		this.network = network;
+		this.numSlots = numSlots;
+		this.currentBlock = createBlock(network.getLinks().size());
+	}
+
+	@Override
+	public synchronized TravelTimeData createTravelTimeData(final Id<Link> linkId) {
+		if (this.currentBlock.isFull()) {
+			this.currentBlock = createBlock(ROWS_PER_ADDITIONAL_BLOCK);
+		}
+		return this.currentBlock.createRow(this.network.getLinks().get(linkId));
+	}
+
+	private TravelTimeDataMatrix createBlock(final int rows) {
+		int maxRows = Integer.MAX_VALUE / this.numSlots;
+		return new TravelTimeDataMatrix(Math.max(1, Math.min(rows, maxRows)), this.numSlots);
+	}
+
+}
@@ -0,0 +1,245 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * Map from {@link Id}s to values, backed by a plain array indexed by {@link Id#index()}.  The keys are never hashed
+ * and no entry objects are involved.  Lookups and updates by id check against the ids of the map's type (kept by
+ * the map, see {@link Id#getIdsOfType(Class)}) that the id is of that type, which costs a second array access.  The
+ * array grows with the highest index put into the map, so this map is best suited for data that exists for
+ * (almost) all ids of a type, e.g. one entry per link or per person.
+ * <p></p>
+ * Iteration is in the order of the indices, i.e. in the order in which the ids were created.  <code>null</code>
+ * values are supported.  Not thread-safe.
+ */
+public class IdMap<T, V> extends AbstractMap<Id<T>, V> {
+
+	private static final Object NULL = new Object();
+
+	private final Class<T> idClass;
+	private final Id.IdsOfType<T> ids;
+	private Object[] data;
+	private int size = 0;
+
+	public IdMap(final Class<T> idClass) {
+		this(idClass, Math.max(Id.getNumberOfIds(idClass), 16));
+	}
+
+	public IdMap(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		this.ids = Id.getIdsOfType(idClass);
+		this.data = new Object[Math.max(initialCapacity, 1)];
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		int index = getIndex(key);
+		return index >= 0 && index < this.data.length && this.data[index] != null;
+	}
+
+	@Override
+	public V get(final Object key) {
+		int index = getIndex(key);
+		if (index < 0 || index >= this.data.length) {
+			return null;
+		}
+		return unmask(this.data[index]);
+	}
+
+	/**
+	 * Fastest access, bypassing the id object entirely.
+	 */
+	public V get(final int index) {
+		if (index < 0 || index >= this.data.length) {
+			return null;
+		}
+		return unmask(this.data[index]);
+	}
+
+	@Override
+	public V put(final Id<T> key, final V value) {
+		int index = getIndex(key);
+		if (index < 0) {
+			// an id of another type; use the one with the same key (see Id.equals)
+			index = Id.create(key.toString(), this.idClass).index();
+		}
+		if (index >= this.data.length) {
+			this.data = Arrays.copyOf(this.data, Math.max(index + 1, this.data.length * 2));
+		}
+		Object old = this.data[index];
+		this.data[index] = value == null ? NULL : value;
+		if (old == null) {
+			this.size++;
+		}
+		return unmask(old);
+	}
+
+	@Override
+	public V remove(final Object key) {
+		int index = getIndex(key);
+		if (index < 0 || index >= this.data.length) {
+			return null;
+		}
+		Object old = this.data[index];
+		if (old != null) {
+			this.data[index] = null;
+			this.size--;
+		}
+		return unmask(old);
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.data, null);
+		this.size = 0;
+	}
+
+	@Override
+	public Set<Map.Entry<Id<T>, V>> entrySet() {
+		return new AbstractSet<Map.Entry<Id<T>, V>>() {
+			@Override
+			public Iterator<Map.Entry<Id<T>, V>> iterator() {
+				return new EntryIterator();
+			}
+			@Override
+			public int size() {
+				return IdMap.this.size;
+			}
+			@Override
+			public void clear() {
+				IdMap.this.clear();
+			}
+		};
+	}
+
+	private int getIndex(final Object key) {
+		if (!(key instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) key;
+		if (this.ids.get(id.index()) == id) {
+			return id.index();
+		}
+		// an id of another type; ids with the same key are considered equal (see Id.equals)
+		Id<T> sameKey = Id.get(id.toString(), this.idClass);
+		return sameKey == null ? -1 : sameKey.index();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <V> V unmask(final Object value) {
+		return value == NULL ? null : (V) value;
+	}
+
+	private final class EntryIterator implements Iterator<Map.Entry<Id<T>, V>> {
+		private int next = -1;
+		private int current = -1;
+
+		EntryIterator() {
+			advance();
+		}
+
+		private void advance() {
+			this.next++;
+			while (this.next < IdMap.this.data.length && IdMap.this.data[this.next] == null) {
+				this.next++;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next < IdMap.this.data.length;
+		}
+
+		@Override
+		public Map.Entry<Id<T>, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.current = this.next;
+			advance();
+			final int index = this.current;
+			return new Map.Entry<Id<T>, V>() {
+				@Override
+				public Id<T> getKey() {
+					return IdMap.this.ids.get(index);
+				}
+				@Override
+				public V getValue() {
+					return unmask(IdMap.this.data[index]);
+				}
+				@Override
+				public V setValue(V value) {
+					V old = unmask(IdMap.this.data[index]);
+					IdMap.this.data[index] = value == null ? NULL : value;
+					return old;
+				}
+				@Override
+				public boolean equals(Object o) {
+					if (!(o instanceof Map.Entry)) {
+						return false;
+					}
+					Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+					Object value = getValue();
+					return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+				}
+				@Override
+				public int hashCode() {
+					Object value = getValue();
+					return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+				}
+				@Override
+				public String toString() {
+					return getKey() + "=" + getValue();
+				}
+			};
+		}
+
+		@Override
+		public void remove() {
+			if (this.current < 0 || IdMap.this.data[this.current] == null) {
+				throw new IllegalStateException();
+			}
+			IdMap.this.data[this.current] = null;
+			IdMap.this.size--;
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdSet.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.matsim.api.core.v01.Id;
+
+/**
+ * Set of {@link Id}s, backed by a bit set indexed by {@link Id#index()}.  Iteration is in the order of the
+ * indices, i.e. in the order in which the ids were created.  Not thread-safe.
+ */
+public class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private final Class<T> idClass;
+	private final Id.IdsOfType<T> ids;
+	private final BitSet data;
+	private int size = 0;
+
+	public IdSet(final Class<T> idClass) {
+		this.idClass = idClass;
+		this.ids = Id.getIdsOfType(idClass);
+		this.data = new BitSet(Math.max(Id.getNumberOfIds(idClass), 16));
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		int index = getIndex(o);
+		return index >= 0 && this.data.get(index);
+	}
+
+	@Override
+	public boolean add(final Id<T> id) {
+		int index = getIndex(id);
+		if (index < 0) {
+			// an id of another type; use the one with the same key (see Id.equals)
+			index = Id.create(id.toString(), this.idClass).index();
+		}
+		if (this.data.get(index)) {
+			return false;
+		}
+		this.data.set(index);
+		this.size++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		int index = getIndex(o);
+		if (index < 0 || !this.data.get(index)) {
+			return false;
+		}
+		this.data.clear(index);
+		this.size--;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		this.data.clear();
+		this.size = 0;
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return new Iterator<Id<T>>() {
+			private int next = IdSet.this.data.nextSetBit(0);
+			private int current = -1;
+
+			@Override
+			public boolean hasNext() {
+				return this.next >= 0;
+			}
+
+			@Override
+			public Id<T> next() {
+				if (this.next < 0) {
+					throw new NoSuchElementException();
+				}
+				this.current = this.next;
+				this.next = IdSet.this.data.nextSetBit(this.next + 1);
+				return IdSet.this.ids.get(this.current);
+			}
+
+			@Override
+			public void remove() {
+				if (this.current < 0 || !IdSet.this.data.get(this.current)) {
+					throw new IllegalStateException();
+				}
+				IdSet.this.data.clear(this.current);
+				IdSet.this.size--;
+			}
+		};
+	}
+
+	private int getIndex(final Object o) {
+		if (!(o instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) o;
+		if (this.ids.get(id.index()) == id) {
+			return id.index();
+		}
+		Id<T> sameKey = Id.get(id.toString(), this.idClass);
+		return sameKey == null ? -1 : sameKey.index();
+	}
+
+}
@@ -0,0 +1,353 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedKDTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An immutable 2-dimensional KD-tree for points, bulk-loaded and packed into plain arrays. Compared
+ * to the {@link QuadTree}, building it is cheaper, it uses less memory, and it additionally supports
+ * k-nearest-neighbour queries. The tree is implicit: the median of every range of the arrays is the
+ * splitting point, alternately along the x- and the y-axis, and the two halves of the range form
+ * the subtrees.
+ * <p></p>
+ * All queries come in a variant that does not allocate any collection: {@link #execute(double, double,
+ * double, QuadTree.Executor)} for radius queries and {@link #getKNearest(double, double, int, int[],
+ * double[])} for k-nearest-neighbour queries, returning the positions of the found points, see
+ * {@link #getValue(int)}. If several points have exactly the same distance, the one added first
+ * to the builder is preferred.
+ * <p></p>
+ * As the tree cannot be modified once built, it is thread-safe.
+ *
+ * @param <T> the type of the values stored in the tree
+ */
+public final class PackedKDTree<T> {
+
+	private final double[] xs;
+	private final double[] ys;
+	private final Object[] values;
+	/** the position at which the value was added to the builder, used to break ties */
+	private final int[] order;
+
+	private PackedKDTree(final double[] xs, final double[] ys, final Object[] values) {
+		this.xs = xs;
+		this.ys = ys;
+		this.values = values;
+		this.order = new int[xs.length];
+		for (int i = 0; i < this.order.length; i++) {
+			this.order[i] = i;
+		}
+		build(0, xs.length, true);
+	}
+
+	public int size() {
+		return this.xs.length;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T getValue(final int position) {
+		return (T) this.values[position];
+	}
+
+	public double getX(final int position) {
+		return this.xs[position];
+	}
+
+	public double getY(final int position) {
+		return this.ys[position];
+	}
+
+	/**
+	 * @return the value closest to x/y, <code>null</code> if the tree is empty
+	 */
+	public T getNearest(final double x, final double y) {
+		int[] position = new int[1];
+		if (getKNearest(x, y, 1, position, new double[1]) == 0) {
+			return null;
+		}
+		return getValue(position[0]);
+	}
+
+	/**
+	 * @return the <code>k</code> values closest to x/y, ordered by increasing distance
+	 */
+	public List<T> getKNearest(final double x, final double y, final int k) {
+		int n = Math.min(k, this.xs.length);
+		int[] positions = new int[n];
+		int cnt = getKNearest(x, y, n, positions, new double[n]);
+		List<T> result = new ArrayList<T>(cnt);
+		for (int i = 0; i < cnt; i++) {
+			result.add(getValue(positions[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the <code>k</code> points closest to x/y without allocating any memory.
+	 *
+	 * @param positions filled with the positions of the found points, ordered by increasing distance.
+	 * Must have a length of at least <code>k</code>.
+	 * @param distances filled with the distances of the found points. Must have a length of at least <code>k</code>.
+	 * @return the number of points found, i.e. <code>min(k, size())</code>
+	 */
+	public int getKNearest(final double x, final double y, final int k, final int[] positions, final double[] distances) {
+		if (k <= 0) {
+			return 0;
+		}
+		int cnt = searchKNearest(0, this.xs.length, true, x, y, k, positions, distances, 0);
+		// the results are organized as a max-heap on (distance, order), sort them by repeatedly removing the maximum
+		for (int last = cnt - 1; last > 0; last--) {
+			swap(positions, distances, 0, last);
+			siftDown(positions, distances, 0, last);
+		}
+		for (int i = 0; i < cnt; i++) {
+			distances[i] = Math.sqrt(distances[i]);
+		}
+		return cnt;
+	}
+
+	/**
+	 * @return all values within <code>distance</code> of x/y
+	 */
+	public Collection<T> get(final double x, final double y, final double distance) {
+		final List<T> result = new ArrayList<T>();
+		execute(x, y, distance, new QuadTree.Executor<T>() {
+			@Override
+			public void execute(final double x, final double y, final T object) {
+				result.add(object);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Calls the executor for every point within <code>distance</code> of x/y.
+	 *
+	 * @return the number of points found
+	 */
+	public int execute(final double x, final double y, final double distance, final QuadTree.Executor<T> executor) {
+		return searchDisk(0, this.xs.length, true, x, y, distance, executor);
+	}
+
+	private int searchDisk(final int lo, final int hi, final boolean xAxis, final double x, final double y,
+			final double distance, final QuadTree.Executor<T> executor) {
+		if (lo >= hi) {
+			return 0;
+		}
+		int mid = (lo + hi) >>> 1;
+		int cnt = 0;
+		double dx = this.xs[mid] - x;
+		double dy = this.ys[mid] - y;
+		// the same distance calculation as in QuadTree
+		if (Math.sqrt(dx * dx + dy * dy) <= distance) {
+			executor.execute(this.xs[mid], this.ys[mid], getValue(mid));
+			cnt++;
+		}
+		double diff = xAxis ? -dx : -dy; // query coordinate minus splitting coordinate
+		if (diff <= distance) {
+			cnt += searchDisk(lo, mid, !xAxis, x, y, distance, executor);
+		}
+		if (diff >= -distance) {
+			cnt += searchDisk(mid + 1, hi, !xAxis, x, y, distance, executor);
+		}
+		return cnt;
+	}
+
+	private int searchKNearest(final int lo, final int hi, final boolean xAxis, final double x, final double y,
+			final int k, final int[] positions, final double[] distances, final int count) {
+		if (lo >= hi) {
+			return count;
+		}
+		int cnt = count;
+		int mid = (lo + hi) >>> 1;
+		double dx = this.xs[mid] - x;
+		double dy = this.ys[mid] - y;
+		double d2 = dx * dx + dy * dy;
+		if (cnt < k) {
+			positions[cnt] = mid;
+			distances[cnt] = d2;
+			siftUp(positions, distances, cnt);
+			cnt++;
+		} else if (isCloser(d2, mid, distances[0], positions[0])) {
+			positions[0] = mid;
+			distances[0] = d2;
+			siftDown(positions, distances, 0, cnt);
+		}
+		double diff = xAxis ? -dx : -dy;
+		boolean leftFirst = diff <= 0;
+		cnt = searchKNearest(leftFirst ? lo : mid + 1, leftFirst ? mid : hi, !xAxis, x, y, k, positions, distances, cnt);
+		if (cnt < k || diff * diff <= distances[0]) {
+			cnt = searchKNearest(leftFirst ? mid + 1 : lo, leftFirst ? hi : mid, !xAxis, x, y, k, positions, distances, cnt);
+		}
+		return cnt;
+	}
+
+	private boolean isCloser(final double d2a, final int a, final double d2b, final int b) {
+		return d2a < d2b || (d2a == d2b && this.order[a] < this.order[b]);
+	}
+
+	private void siftUp(final int[] positions, final double[] distances, final int index) {
+		int i = index;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (isCloser(distances[parent], positions[parent], distances[i], positions[i])) {
+				swap(positions, distances, i, parent);
+				i = parent;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void siftDown(final int[] positions, final double[] distances, final int index, final int size) {
+		int i = index;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				return;
+			}
+			if (child + 1 < size && isCloser(distances[child], positions[child], distances[child + 1], positions[child + 1])) {
+				child++;
+			}
+			if (isCloser(distances[i], positions[i], distances[child], positions[child])) {
+				swap(positions, distances, i, child);
+				i = child;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private static void swap(final int[] positions, final double[] distances, final int i, final int j) {
+		int p = positions[i];
+		positions[i] = positions[j];
+		positions[j] = p;
+		double d = distances[i];
+		distances[i] = distances[j];
+		distances[j] = d;
+	}
+
+	/* building the tree */
+
+	private void build(final int lo, final int hi, final boolean xAxis) {
+		if (hi - lo <= 1) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		select(lo, hi - 1, mid, xAxis ? this.xs : this.ys);
+		build(lo, mid, !xAxis);
+		build(mid + 1, hi, !xAxis);
+	}
+
+	/**
+	 * Quickselect: reorders the range [left, right] such that the element at position <code>k</code> is the one
+	 * that would be there if the range was sorted by <code>keys</code>, all elements before are smaller or equal,
+	 * all elements after are larger or equal.
+	 */
+	private void select(final int left, final int right, final int k, final double[] keys) {
+		int l = left;
+		int r = right;
+		while (r > l) {
+			// median of three as pivot
+			int m = (l + r) >>> 1;
+			if (keys[m] < keys[l]) {
+				swapEntries(m, l);
+			}
+			if (keys[r] < keys[l]) {
+				swapEntries(r, l);
+			}
+			if (keys[r] < keys[m]) {
+				swapEntries(r, m);
+			}
+			double pivot = keys[m];
+			int i = l;
+			int j = r;
+			while (i <= j) {
+				while (keys[i] < pivot) {
+					i++;
+				}
+				while (keys[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swapEntries(i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				r = j;
+			} else if (k >= i) {
+				l = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void swapEntries(final int i, final int j) {
+		double tmp = this.xs[i];
+		this.xs[i] = this.xs[j];
+		this.xs[j] = tmp;
+		tmp = this.ys[i];
+		this.ys[i] = this.ys[j];
+		this.ys[j] = tmp;
+		Object v = this.values[i];
+		this.values[i] = this.values[j];
+		this.values[j] = v;
+		int o = this.order[i];
+		this.order[i] = this.order[j];
+		this.order[j] = o;
+	}
+
+	/**
+	 * Collects the points before the tree is built in one go.
+	 */
+	public static final class Builder<T> {
+
+		private double[] xs = new double[16];
+		private double[] ys = new double[16];
+		private Object[] values = new Object[16];
+		private int size = 0;
+
+		public Builder<T> put(final double x, final double y, final T value) {
+			if (this.size == this.xs.length) {
+				int newLength = 2 * this.size;
+				this.xs = Arrays.copyOf(this.xs, newLength);
+				this.ys = Arrays.copyOf(this.ys, newLength);
+				this.values = Arrays.copyOf(this.values, newLength);
+			}
+			this.xs[this.size] = x;
+			this.ys[this.size] = y;
+			this.values[this.size] = value;
+			this.size++;
+			return this;
+		}
+
+		public PackedKDTree<T> build() {
+			return new PackedKDTree<T>(Arrays.copyOf(this.xs, this.size), Arrays.copyOf(this.ys, this.size), Arrays.copyOf(this.values, this.size));
+		}
+	}
+
+}
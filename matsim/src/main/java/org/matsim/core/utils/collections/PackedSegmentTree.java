@@ -0,0 +1,313 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedSegmentTree.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An immutable R-tree for line segments, bulk-loaded with the Sort-Tile-Recursive algorithm (Leutenegger,
+ * Lopez and Edgington, 1997) and packed into plain arrays. It answers nearest-segment queries, e.g. to find
+ * the link closest to a coordinate, without allocating any collections. Distances are measured between the
+ * query point and the closest point on the segment, as in {@link org.matsim.core.network.LinkQuadTree}. If
+ * several segments have exactly the same distance, the one added first to the builder is returned.
+ * <p></p>
+ * As the tree cannot be modified once built, it is thread-safe.
+ *
+ * @param <T> the type of the values stored in the tree
+ */
+public final class PackedSegmentTree<T> {
+
+	private final static int NODE_CAPACITY = 8;
+
+	/* the segments, ordered such that the segments of every leaf are consecutive */
+	private final double[] x1;
+	private final double[] y1;
+	private final double[] x2;
+	private final double[] y2;
+	private final Object[] values;
+	private final int[] order;
+
+	/* the nodes of all levels, level 0 are the leaves, the last level only contains the root.
+	 * node j of level l contains the entries [j*NODE_CAPACITY, (j+1)*NODE_CAPACITY) of level l-1,
+	 * or of the segments for the leaves. */
+	private final double[][] minX;
+	private final double[][] minY;
+	private final double[][] maxX;
+	private final double[][] maxY;
+
+	private PackedSegmentTree(final double[] x1, final double[] y1, final double[] x2, final double[] y2, final Object[] values) {
+		int n = values.length;
+		// sort-tile-recursive: sort by center x, cut into vertical slices, sort each slice by center y
+		Integer[] sorted = new Integer[n];
+		final double[] cx = new double[n];
+		final double[] cy = new double[n];
+		for (int i = 0; i < n; i++) {
+			sorted[i] = i;
+			cx[i] = (x1[i] + x2[i]) / 2;
+			cy[i] = (y1[i] + y2[i]) / 2;
+		}
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			@Override
+			public int compare(final Integer a, final Integer b) {
+				return Double.compare(cx[a], cx[b]);
+			}
+		});
+		int nOfLeaves = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+		int nOfSlices = Math.max(1, (int) Math.ceil(Math.sqrt(nOfLeaves)));
+		int sliceSize = nOfSlices * NODE_CAPACITY;
+		for (int start = 0; start < n; start += sliceSize) {
+			Arrays.sort(sorted, start, Math.min(n, start + sliceSize), new Comparator<Integer>() {
+				@Override
+				public int compare(final Integer a, final Integer b) {
+					return Double.compare(cy[a], cy[b]);
+				}
+			});
+		}
+		this.x1 = new double[n];
+		this.y1 = new double[n];
+		this.x2 = new double[n];
+		this.y2 = new double[n];
+		this.values = new Object[n];
+		this.order = new int[n];
+		for (int i = 0; i < n; i++) {
+			int s = sorted[i];
+			this.x1[i] = x1[s];
+			this.y1[i] = y1[s];
+			this.x2[i] = x2[s];
+			this.y2[i] = y2[s];
+			this.values[i] = values[s];
+			this.order[i] = s;
+		}
+
+		// count the levels
+		int nOfLevels = 1;
+		for (int cnt = nOfLeaves; cnt > 1; cnt = (cnt + NODE_CAPACITY - 1) / NODE_CAPACITY) {
+			nOfLevels++;
+		}
+		this.minX = new double[nOfLevels][];
+		this.minY = new double[nOfLevels][];
+		this.maxX = new double[nOfLevels][];
+		this.maxY = new double[nOfLevels][];
+		// the leaves
+		this.minX[0] = new double[nOfLeaves];
+		this.minY[0] = new double[nOfLeaves];
+		this.maxX[0] = new double[nOfLeaves];
+		this.maxY[0] = new double[nOfLeaves];
+		for (int j = 0; j < nOfLeaves; j++) {
+			double mnX = Double.POSITIVE_INFINITY;
+			double mnY = Double.POSITIVE_INFINITY;
+			double mxX = Double.NEGATIVE_INFINITY;
+			double mxY = Double.NEGATIVE_INFINITY;
+			for (int i = j * NODE_CAPACITY; i < Math.min(n, (j + 1) * NODE_CAPACITY); i++) {
+				mnX = Math.min(mnX, Math.min(this.x1[i], this.x2[i]));
+				mnY = Math.min(mnY, Math.min(this.y1[i], this.y2[i]));
+				mxX = Math.max(mxX, Math.max(this.x1[i], this.x2[i]));
+				mxY = Math.max(mxY, Math.max(this.y1[i], this.y2[i]));
+			}
+			this.minX[0][j] = mnX;
+			this.minY[0][j] = mnY;
+			this.maxX[0][j] = mxX;
+			this.maxY[0][j] = mxY;
+		}
+		// the upper levels, grouping consecutive nodes which are already spatially sorted
+		for (int l = 1; l < nOfLevels; l++) {
+			int nOfChildren = this.minX[l - 1].length;
+			int nOfNodes = (nOfChildren + NODE_CAPACITY - 1) / NODE_CAPACITY;
+			this.minX[l] = new double[nOfNodes];
+			this.minY[l] = new double[nOfNodes];
+			this.maxX[l] = new double[nOfNodes];
+			this.maxY[l] = new double[nOfNodes];
+			for (int j = 0; j < nOfNodes; j++) {
+				double mnX = Double.POSITIVE_INFINITY;
+				double mnY = Double.POSITIVE_INFINITY;
+				double mxX = Double.NEGATIVE_INFINITY;
+				double mxY = Double.NEGATIVE_INFINITY;
+				for (int c = j * NODE_CAPACITY; c < Math.min(nOfChildren, (j + 1) * NODE_CAPACITY); c++) {
+					mnX = Math.min(mnX, this.minX[l - 1][c]);
+					mnY = Math.min(mnY, this.minY[l - 1][c]);
+					mxX = Math.max(mxX, this.maxX[l - 1][c]);
+					mxY = Math.max(mxY, this.maxY[l - 1][c]);
+				}
+				this.minX[l][j] = mnX;
+				this.minY[l][j] = mnY;
+				this.maxX[l][j] = mxX;
+				this.maxY[l][j] = mxY;
+			}
+		}
+	}
+
+	public int size() {
+		return this.values.length;
+	}
+
+	/**
+	 * @return the value of the segment closest to x/y, <code>null</code> if the tree is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T getNearest(final double x, final double y) {
+		int position = getNearestPosition(x, y);
+		return (position < 0) ? null : (T) this.values[position];
+	}
+
+	/**
+	 * @return the position of the segment closest to x/y, or -1 if the tree is empty
+	 */
+	public int getNearestPosition(final double x, final double y) {
+		if (this.values.length == 0) {
+			return -1;
+		}
+		Nearest best = new Nearest();
+		searchNearest(this.minX.length - 1, 0, x, y, best);
+		return best.position;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T getValue(final int position) {
+		return (T) this.values[position];
+	}
+
+	private void searchNearest(final int level, final int node, final double x, final double y, final Nearest best) {
+		int from = node * NODE_CAPACITY;
+		if (level == 0) {
+			int to = Math.min(this.values.length, from + NODE_CAPACITY);
+			for (int i = from; i < to; i++) {
+				double d2 = calcSegmentPseudoDistance(x, y, i);
+				if (d2 < best.distance || (d2 == best.distance && this.order[i] < this.order[best.position])) {
+					best.distance = d2;
+					best.position = i;
+				}
+			}
+			return;
+		}
+		int childLevel = level - 1;
+		int to = Math.min(this.minX[childLevel].length, from + NODE_CAPACITY);
+		// visit the children ordered by the distance to their bounding boxes, without sorting
+		int visited = 0;
+		while (true) {
+			int next = -1;
+			double nextDistance = Double.POSITIVE_INFINITY;
+			for (int c = from; c < to; c++) {
+				if ((visited & (1 << (c - from))) == 0) {
+					double d2 = calcBoxPseudoDistance(x, y, childLevel, c);
+					if (d2 < nextDistance) {
+						nextDistance = d2;
+						next = c;
+					}
+				}
+			}
+			if (next < 0 || nextDistance > best.distance) {
+				return;
+			}
+			visited |= 1 << (next - from);
+			searchNearest(childLevel, next, x, y, best);
+		}
+	}
+
+	private double calcBoxPseudoDistance(final double x, final double y, final int level, final int node) {
+		double dx = 0.0;
+		if (x < this.minX[level][node]) {
+			dx = this.minX[level][node] - x;
+		} else if (x > this.maxX[level][node]) {
+			dx = x - this.maxX[level][node];
+		}
+		double dy = 0.0;
+		if (y < this.minY[level][node]) {
+			dy = this.minY[level][node] - y;
+		} else if (y > this.maxY[level][node]) {
+			dy = y - this.maxY[level][node];
+		}
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * the same calculation as in LinkQuadTree, without the square root
+	 */
+	private double calcSegmentPseudoDistance(final double x, final double y, final int i) {
+		double fx = this.x1[i];
+		double fy = this.y1[i];
+		double lineDX = this.x2[i] - fx;
+		double lineDY = this.y2[i] - fy;
+		double px;
+		double py;
+		if ((lineDX == 0.0) && (lineDY == 0.0)) {
+			px = fx;
+			py = fy;
+		} else {
+			double u = ((x - fx) * lineDX + (y - fy) * lineDY) / (lineDX * lineDX + lineDY * lineDY);
+			if (u <= 0) {
+				px = fx;
+				py = fy;
+			} else if (u >= 1) {
+				px = fx + lineDX;
+				py = fy + lineDY;
+			} else {
+				px = fx + u * lineDX;
+				py = fy + u * lineDY;
+			}
+		}
+		double xDiff = x - px;
+		double yDiff = y - py;
+		return xDiff * xDiff + yDiff * yDiff;
+	}
+
+	private static final class Nearest {
+		double distance = Double.POSITIVE_INFINITY;
+		int position = -1;
+	}
+
+	/**
+	 * Collects the segments before the tree is built in one go.
+	 */
+	public static final class Builder<T> {
+
+		private double[] x1 = new double[16];
+		private double[] y1 = new double[16];
+		private double[] x2 = new double[16];
+		private double[] y2 = new double[16];
+		private Object[] values = new Object[16];
+		private int size = 0;
+
+		public Builder<T> put(final double fromX, final double fromY, final double toX, final double toY, final T value) {
+			if (this.size == this.values.length) {
+				int newLength = 2 * this.size;
+				this.x1 = Arrays.copyOf(this.x1, newLength);
+				this.y1 = Arrays.copyOf(this.y1, newLength);
+				this.x2 = Arrays.copyOf(this.x2, newLength);
+				this.y2 = Arrays.copyOf(this.y2, newLength);
+				this.values = Arrays.copyOf(this.values, newLength);
+			}
+			this.x1[this.size] = fromX;
+			this.y1[this.size] = fromY;
+			this.x2[this.size] = toX;
+			this.y2[this.size] = toY;
+			this.values[this.size] = value;
+			this.size++;
+			return this;
+		}
+
+		public PackedSegmentTree<T> build() {
+			return new PackedSegmentTree<T>(Arrays.copyOf(this.x1, this.size), Arrays.copyOf(this.y1, this.size),
+					Arrays.copyOf(this.x2, this.size), Arrays.copyOf(this.y2, this.size), Arrays.copyOf(this.values, this.size));
+		}
+	}
+
+}
@@ -0,0 +1,567 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ChunkedXmlParser.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.log4j.Logger;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Parses an xml file in parallel for a {@link MatsimXmlParser}, see {@link MatsimXmlParser#setParallelParsing(int, String...)}.
+ * <p></p>
+ * The calling thread only scans the characters of the file to find the places where it can be split, i.e. right
+ * before the start tags of the chunk elements (e.g. <code>person</code>).  Each chunk is completed to a well-formed
+ * document: it gets the DOCTYPE of the file (so default values of attributes are set), the start tags of the enclosing
+ * elements and the matching end tags.  The chunks are parsed by worker threads with a StAX parser.  Each worker
+ * streams the parsed tags, without the ones that were only added to complete the chunk, through a bounded queue to
+ * the calling thread, which hands them to the MatsimXmlParser in the original order while the workers keep parsing.
+ * A worker that gets ahead of the calling thread blocks on its full queue, so the parsed tags never pile up in
+ * memory.
+ * <p></p>
+ * Limitation: the file must not contain the start tag of a chunk element inside a comment or a CDATA section at a
+ * place where the file would be split.
+ */
+final class ChunkedXmlParser {
+
+	private static final Logger log = Logger.getLogger(ChunkedXmlParser.class);
+
+	/** approximate number of characters per chunk */
+	static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	/** number of parsed tags a worker may get ahead of the calling thread */
+	private static final int TOKEN_QUEUE_SIZE = 4096;
+
+	private final MatsimXmlParser parser;
+	private final int numberOfThreads;
+	private final String[] chunkElementNames;
+	private final char[][] chunkElements;
+	private final int chunkSize;
+	private final StaxXmlReader staxReader = new StaxXmlReader();
+	private final Map<String, byte[]> dtds = new HashMap<>();
+	private final ThreadLocal<XMLInputFactory> factories = new ThreadLocal<>();
+
+	/* state of the scanner, only used by the calling thread */
+	private Reader in;
+	private char[] buf;
+	private int len = 0;
+	private int pos = 0;
+	private boolean eof = false;
+	private boolean finished = false;
+	private String doctype = null;
+	private int chunkIndex = 0;
+	private String prefix = "";
+	private int prefixTags = 0;
+	/* the elements that are open at the current position: their raw start tags, or their position in buf if they
+	 * started in the current chunk */
+	private String[] openTags = new String[16];
+	private int[] openStarts = new int[16];
+	private int[] openEnds = new int[16];
+	private int openCount = 0;
+
+	ChunkedXmlParser(final MatsimXmlParser parser, final int numberOfThreads, final String[] chunkElements) {
+		this(parser, numberOfThreads, chunkElements, DEFAULT_CHUNK_SIZE);
+	}
+
+	ChunkedXmlParser(final MatsimXmlParser parser, final int numberOfThreads, final String[] chunkElements, final int chunkSize) {
+		this.parser = parser;
+		this.numberOfThreads = numberOfThreads;
+		this.chunkElementNames = chunkElements;
+		this.chunkElements = new char[chunkElements.length][];
+		for (int i = 0; i < chunkElements.length; i++) {
+			this.chunkElements[i] = chunkElements[i].toCharArray();
+		}
+		this.chunkSize = chunkSize;
+		this.buf = new char[Math.max(2 * chunkSize, 1024)];
+	}
+
+	void parse(final Reader reader) throws UncheckedIOException {
+		this.in = reader;
+		log.info("parsing xml with " + this.numberOfThreads + " threads, splitting at " + Arrays.toString(this.chunkElementNames) + "...");
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, new ThreadFactory() {
+			private int counter = 0;
+			@Override
+			public Thread newThread(final Runnable r) {
+				Thread thread = new Thread(r, ChunkedXmlParser.class.getSimpleName() + "." + this.counter++);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		ArrayDeque<Chunk> pending = new ArrayDeque<>();
+		try {
+			Chunk chunk;
+			while ((chunk = nextChunk()) != null) {
+				// the executor starts the chunks in this order, so the chunk handed over next always has a worker
+				executor.execute(new ChunkParser(chunk));
+				pending.add(chunk);
+				if (pending.size() > 2 * this.numberOfThreads) {
+					handOver(pending.poll());
+				}
+			}
+			while (!pending.isEmpty()) {
+				handOver(pending.poll());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			// also stops workers that wait for their queue to be emptied after an error
+			executor.shutdownNow();
+			try {
+				this.in.close();
+			} catch (IOException e) {
+				log.warn("Could not close stream.", e);
+			}
+		}
+		log.info("parsed " + this.chunkIndex + " chunks.");
+	}
+
+	/**
+	 * Hands the tags of the chunk to the MatsimXmlParser as soon as the worker has parsed them.
+	 */
+	private void handOver(final Chunk chunk) throws InterruptedException {
+		while (true) {
+			Token token = chunk.tokens.take();
+			if (token == Token.END_OF_CHUNK) {
+				return;
+			}
+			if (token.error != null) {
+				throw token.error;
+			}
+			if (chunk.dtdSystemId != null && this.parser.getDoctype() == null) {
+				this.parser.setDoctype(MatsimXmlParser.getShortSystemId(chunk.dtdSystemId));
+			}
+			if (token.atts != null) {
+				this.parser.handOverStartTag(token.name, token.atts);
+			} else {
+				this.parser.handOverEndTag(token.name, token.content);
+			}
+		}
+	}
+
+	/*package*/ Chunk nextChunk() throws IOException {
+		if (this.finished) {
+			return null;
+		}
+		while (true) {
+			int lt = indexOf('<', this.pos);
+			if (lt < 0 || !ensure(lt + 2)) {
+				return lastChunk();
+			}
+			this.pos = lt;
+			char c = this.buf[lt + 1];
+			if (c == '/') {
+				this.pos = skipPast(">", lt + 2);
+				if (this.openCount > 0) {
+					this.openCount--;
+				}
+			} else if (c == '?') {
+				this.pos = skipPast("?>", lt + 2);
+			} else if (c == '!') {
+				if (startsWith(lt, "<!--")) {
+					this.pos = skipPast("-->", lt + 4);
+				} else if (startsWith(lt, "<![CDATA[")) {
+					this.pos = skipPast("]]>", lt + 9);
+				} else {
+					this.pos = skipDeclaration(lt + 2);
+					if (this.doctype == null && startsWith(lt, "<!DOCTYPE")) {
+						this.doctype = new String(this.buf, lt, this.pos - lt);
+					}
+				}
+			} else {
+				if (lt >= this.chunkSize && isChunkElement(lt + 1)) {
+					return cut(lt);
+				}
+				int end = skipPast(">", lt + 1, true);
+				if (this.buf[end - 2] != '/') {
+					push(lt, end);
+				}
+				this.pos = end;
+			}
+		}
+	}
+
+	private Chunk cut(final int at) {
+		for (int i = 0; i < this.openCount; i++) {
+			if (this.openTags[i] == null) {
+				this.openTags[i] = new String(this.buf, this.openStarts[i], this.openEnds[i] - this.openStarts[i]);
+			}
+		}
+		Chunk chunk = createChunk(new String(this.buf, 0, at));
+		StringBuilder newPrefix = new StringBuilder();
+		for (int i = 0; i < this.openCount; i++) {
+			newPrefix.append(this.openTags[i]);
+		}
+		this.prefix = newPrefix.toString();
+		this.prefixTags = this.openCount;
+		System.arraycopy(this.buf, at, this.buf, 0, this.len - at);
+		this.len -= at;
+		this.pos = 0;
+		return chunk;
+	}
+
+	private Chunk lastChunk() {
+		this.finished = true;
+		return createChunk(new String(this.buf, 0, this.len));
+	}
+
+	private Chunk createChunk(String text) {
+		if (this.chunkIndex == 0 && text.length() > 0 && text.charAt(0) == '\uFEFF') {
+			text = text.substring(1); // byte order mark
+		}
+		StringBuilder xml = new StringBuilder(text.length() + this.prefix.length() + 256);
+		if (this.chunkIndex > 0 && this.doctype != null) {
+			xml.append(this.doctype);
+		}
+		xml.append(this.prefix).append(text);
+		for (int i = this.openCount - 1; i >= 0; i--) {
+			String tag = this.openTags[i] != null ? this.openTags[i] : new String(this.buf, this.openStarts[i], this.openEnds[i] - this.openStarts[i]);
+			xml.append("</").append(getTagName(tag)).append('>');
+		}
+		return new Chunk(this.chunkIndex++, xml.toString(), this.prefixTags, this.openCount);
+	}
+
+	private static String getTagName(final String startTag) {
+		int end = 1;
+		while (end < startTag.length()) {
+			char c = startTag.charAt(end);
+			if (c == '>' || c == '/' || Character.isWhitespace(c)) {
+				break;
+			}
+			end++;
+		}
+		return startTag.substring(1, end);
+	}
+
+	private void push(final int start, final int end) {
+		if (this.openCount == this.openTags.length) {
+			this.openTags = Arrays.copyOf(this.openTags, 2 * this.openCount);
+			this.openStarts = Arrays.copyOf(this.openStarts, 2 * this.openCount);
+			this.openEnds = Arrays.copyOf(this.openEnds, 2 * this.openCount);
+		}
+		this.openTags[this.openCount] = null;
+		this.openStarts[this.openCount] = start;
+		this.openEnds[this.openCount] = end;
+		this.openCount++;
+	}
+
+	private boolean isChunkElement(final int nameStart) throws IOException {
+		for (char[] name : this.chunkElements) {
+			if (!ensure(nameStart + name.length + 1)) {
+				continue;
+			}
+			boolean matches = true;
+			for (int i = 0; i < name.length && matches; i++) {
+				matches = this.buf[nameStart + i] == name[i];
+			}
+			char next = this.buf[nameStart + name.length];
+			if (matches && (next == '>' || next == '/' || Character.isWhitespace(next))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean startsWith(final int from, final String s) throws IOException {
+		if (!ensure(from + s.length())) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			if (this.buf[from + i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int indexOf(final char c, final int from) throws IOException {
+		int i = from;
+		while (true) {
+			while (i < this.len) {
+				if (this.buf[i] == c) {
+					return i;
+				}
+				i++;
+			}
+			if (!fill()) {
+				return -1;
+			}
+		}
+	}
+
+	private int skipPast(final String s, final int from) throws IOException {
+		return skipPast(s, from, false);
+	}
+
+	/**
+	 * @return the position after the next occurrence of s, or the end of the input if there is none.
+	 */
+	private int skipPast(final String s, final int from, final boolean respectQuotes) throws IOException {
+		char first = s.charAt(0);
+		char quote = 0;
+		int i = from;
+		while (true) {
+			while (i >= this.len) {
+				if (!fill()) {
+					return this.len;
+				}
+			}
+			char c = this.buf[i];
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (respectQuotes && (c == '"' || c == '\'')) {
+				quote = c;
+			} else if (c == first && startsWith(i, s)) {
+				return i + s.length();
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Skips a declaration like <code>&lt;!DOCTYPE ...&gt;</code>, including an internal subset in brackets.
+	 */
+	private int skipDeclaration(final int from) throws IOException {
+		int brackets = 0;
+		char quote = 0;
+		int i = from;
+		while (true) {
+			while (i >= this.len) {
+				if (!fill()) {
+					return this.len;
+				}
+			}
+			char c = this.buf[i];
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '"' || c == '\'') {
+				quote = c;
+			} else if (c == '[') {
+				brackets++;
+			} else if (c == ']') {
+				brackets--;
+			} else if (c == '>' && brackets == 0) {
+				return i + 1;
+			}
+			i++;
+		}
+	}
+
+	private boolean ensure(final int length) throws IOException {
+		while (this.len < length) {
+			if (!fill()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean fill() throws IOException {
+		if (this.eof) {
+			return false;
+		}
+		if (this.len == this.buf.length) {
+			this.buf = Arrays.copyOf(this.buf, 2 * this.buf.length);
+		}
+		int read = this.in.read(this.buf, this.len, this.buf.length - this.len);
+		if (read < 0) {
+			this.eof = true;
+			return false;
+		}
+		this.len += read;
+		return true;
+	}
+
+	private synchronized byte[] getDtd(final String systemId) throws IOException {
+		byte[] dtd = this.dtds.get(systemId);
+		if (dtd == null) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (InputStream stream = MatsimXmlParser.getDtdStream(this.parser.findDtd(systemId, true), systemId)) {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = stream.read(buffer)) >= 0) {
+					bytes.write(buffer, 0, read);
+				}
+			}
+			dtd = bytes.toByteArray();
+			this.dtds.put(systemId, dtd);
+		}
+		return dtd;
+	}
+
+	/*package*/ static final class Chunk {
+		final int index;
+		final String xml;
+		final int prefixTags;
+		final int suffixTags;
+		volatile String dtdSystemId = null;
+		final BlockingQueue<Token> tokens = new ArrayBlockingQueue<>(TOKEN_QUEUE_SIZE);
+
+		Chunk(final int index, final String xml, final int prefixTags, final int suffixTags) {
+			this.index = index;
+			this.xml = xml;
+			this.prefixTags = prefixTags;
+			this.suffixTags = suffixTags;
+		}
+	}
+
+	/**
+	 * A start tag with its attributes, an end tag with its content, the end of a chunk or the error that ended it.
+	 */
+	private static final class Token {
+		static final Token END_OF_CHUNK = new Token(null, null, null, null);
+
+		final String name;
+		final Attributes atts;
+		final String content;
+		final RuntimeException error;
+
+		Token(final String name, final Attributes atts, final String content, final RuntimeException error) {
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+			this.error = error;
+		}
+	}
+
+	private final class ChunkParser extends DefaultHandler implements Runnable, XMLResolver {
+
+		private final Chunk chunk;
+		private final List<StringBuilder> buffers = new ArrayList<>();
+		private int depth = 0;
+		private int skipStartTags;
+		/* the end tags that only complete the chunk are the last tokens, so the last few tokens are held back */
+		private final ArrayDeque<Token> heldBack = new ArrayDeque<>();
+
+		ChunkParser(final Chunk chunk) {
+			this.chunk = chunk;
+			this.skipStartTags = chunk.prefixTags;
+		}
+
+		@Override
+		public void run() {
+			XMLInputFactory factory = factories.get();
+			if (factory == null) {
+				factory = StaxXmlReader.createFactory(parser.isNamespaceAware(), null);
+				factories.set(factory);
+			}
+			factory.setXMLResolver(this);
+			Token last = Token.END_OF_CHUNK;
+			try {
+				staxReader.read(factory.createXMLStreamReader(new StringReader(this.chunk.xml)), this);
+			} catch (XMLStreamException | SAXException e) {
+				last = new Token(null, null, null, new UncheckedIOException("Error while parsing chunk " + this.chunk.index, e));
+			} catch (RuntimeException e) {
+				last = new Token(null, null, null, e);
+			}
+			try {
+				this.chunk.tokens.put(last);
+			} catch (InterruptedException e) {
+				// the calling thread has stopped parsing
+			}
+		}
+
+		@Override
+		public Object resolveEntity(final String publicID, final String systemID, final String baseURI, final String namespace) throws XMLStreamException {
+			if (this.chunk.index == 0 && this.chunk.dtdSystemId == null) {
+				this.chunk.dtdSystemId = systemID;
+			}
+			try {
+				return new ByteArrayInputStream(getDtd(systemID));
+			} catch (IOException e) {
+				throw new XMLStreamException(e);
+			}
+		}
+
+		@Override
+		public void startElement(final String uri, final String localName, final String qName, final Attributes atts) throws SAXException {
+			if (this.depth == this.buffers.size()) {
+				this.buffers.add(new StringBuilder());
+			}
+			this.buffers.get(this.depth++).setLength(0);
+			if (this.skipStartTags > 0) {
+				// one of the enclosing elements, was already handed over with an earlier chunk
+				this.skipStartTags--;
+				return;
+			}
+			emit(new Token(uri.length() == 0 ? qName : localName, new AttributesImpl(atts), null, null));
+		}
+
+		@Override
+		public void characters(final char[] ch, final int start, final int length) {
+			if (this.depth > 0) {
+				this.buffers.get(this.depth - 1).append(ch, start, length);
+			}
+		}
+
+		@Override
+		public void endElement(final String uri, final String localName, final String qName) throws SAXException {
+			String content = this.buffers.get(--this.depth).toString();
+			emit(new Token(uri.length() == 0 ? qName : localName, null, content, null));
+		}
+
+		private void emit(final Token token) throws SAXException {
+			Token next = token;
+			if (this.chunk.suffixTags > 0) {
+				this.heldBack.add(token);
+				if (this.heldBack.size() <= this.chunk.suffixTags) {
+					return;
+				}
+				next = this.heldBack.poll();
+			}
+			try {
+				this.chunk.tokens.put(next);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SAXException(e);
+			}
+		}
+	}
+
+}
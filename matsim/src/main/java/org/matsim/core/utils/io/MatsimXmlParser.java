@@ -27,18 +27,38 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * An abstract XML-Parser which can be easily extended for reading custom XML-formats. This class handles all the low level
  * functionality required to parse xml-files. Extending classes have only to implement {@link #startTag} and {@link #endTag}
  * to implement a custom parser.<br/>
  * The parser implements a custom <code>EntityResolver</code> to look
+ * <p></p>
+ * For large files, there is a fast path: with {@link #setUsingStax(boolean)}, the file is read by a non-validating
+ * streaming (StAX) parser, with DTDs taken from local copies first.  With {@link #setParallelParsing(int, String...)},
+ * the file is additionally split into chunks at the given elements, which are parsed in parallel and handed to
+ * {@link #startTag} and {@link #endTag} in the original order.
  *
  * @author mrieser
  */
@@ -46,11 +66,16 @@ public abstract class MatsimXmlParser extends DefaultHandler {
 
 	private static final Logger log = Logger.getLogger(MatsimXmlParser.class);
 
-	private final Stack<StringBuffer> buffers = new Stack<StringBuffer>();
+	/** one buffer per level of the hierarchy, re-used for all elements on that level */
+	private final List<StringBuilder> buffers = new ArrayList<StringBuilder>();
+	private int depth = 0;
 	private final Stack<String> context = new Stack<String>();
 
 	private boolean isValidating = true;
 	private boolean isNamespaceAware = true;
+	private boolean isUsingStax = false;
+	private int parallelThreads = 1;
+	private String[] chunkElements = null;
 
 //	private String localDtdBase = "dtd";
 	private String localDtdBase = null;
@@ -122,6 +147,31 @@ public abstract class MatsimXmlParser extends DefaultHandler {
 		this.isNamespaceAware = awareness;
 	}
 
+	/**
+	 * Reads the xml with a streaming (StAX) parser instead of the SAX parser.  This is the fast path for large
+	 * files: the xml is <em>not</em> validated, and DTDs (required for default values of attributes) are looked up
+	 * locally before trying to load them from the web.
+	 */
+	public void setUsingStax(final boolean usingStax) {
+		this.isUsingStax = usingStax;
+	}
+
+	/**
+	 * Parses files in parallel, using the StAX parser (see {@link #setUsingStax(boolean)}).  The file is split into
+	 * chunks right before the start tags of the given elements, e.g. <code>person</code>, and the chunks are parsed
+	 * by <code>numberOfThreads</code> threads.  The parsed tags are still handed to {@link #startTag} and
+	 * {@link #endTag} by the calling thread and in the original order, so subclasses need not be thread-safe.
+	 * The character content of the elements enclosing the chunk elements is not reported correctly; this is usually
+	 * only whitespace.
+	 *
+	 * @param numberOfThreads the number of threads to parse chunks, values smaller than 2 disable parallel parsing
+	 * @param chunkElements names of the elements at which the file can be split
+	 */
+	public void setParallelParsing(final int numberOfThreads, final String... chunkElements) {
+		this.parallelThreads = numberOfThreads;
+		this.chunkElements = chunkElements.clone();
+	}
+
 	/**
 	 * Sets the directory where to look for DTD and XSD files if they are not found
 	 * at the location specified in the XML.
@@ -159,6 +209,14 @@ public abstract class MatsimXmlParser extends DefaultHandler {
 	}
 
 	protected void parse(final InputSource input) throws UncheckedIOException {
+		if (this.parallelThreads > 1 && this.chunkElements != null && this.chunkElements.length > 0) {
+			new ChunkedXmlParser(this, this.parallelThreads, this.chunkElements).parse(getCharacterStream(input));
+			return;
+		}
+		if (this.isUsingStax) {
+			parseStax(input);
+			return;
+		}
 		try {
 			SAXParserFactory factory = SAXParserFactory.newInstance();
 			factory.setValidating(this.isValidating);
@@ -185,6 +243,76 @@ public abstract class MatsimXmlParser extends DefaultHandler {
 		}
 	}
 
+	private void parseStax(final InputSource input) throws UncheckedIOException {
+		XMLInputFactory factory = StaxXmlReader.createFactory(this.isNamespaceAware, new XMLResolver() {
+			@Override
+			public Object resolveEntity(final String publicID, final String systemID, final String baseURI, final String namespace) {
+				return getDtdStream(MatsimXmlParser.this.resolveEntity(publicID, systemID, true), systemID);
+			}
+		});
+		try {
+			XMLStreamReader reader;
+			if (input.getCharacterStream() != null) {
+				reader = factory.createXMLStreamReader(input.getCharacterStream());
+			} else if (input.getByteStream() != null) {
+				reader = factory.createXMLStreamReader(input.getByteStream());
+			} else {
+				reader = factory.createXMLStreamReader(input.getSystemId(), new URL(input.getSystemId()).openStream());
+			}
+			new StaxXmlReader().read(reader, this);
+		} catch (XMLStreamException e) {
+			throw new UncheckedIOException("Error while parsing " + this.source, e);
+		} catch (SAXException e) {
+			throw new UncheckedIOException(e);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static Reader getCharacterStream(final InputSource input) throws UncheckedIOException {
+		if (input.getCharacterStream() != null) {
+			return input.getCharacterStream();
+		}
+		try {
+			InputStream stream = new BufferedInputStream(input.getByteStream() != null ? input.getByteStream() : new URL(input.getSystemId()).openStream());
+			// look at the xml declaration for the encoding, the chunks are handed to the parsers as characters
+			stream.mark(256);
+			byte[] head = new byte[256];
+			int length = stream.read(head);
+			stream.reset();
+			String encoding = "UTF-8";
+			if (length > 0) {
+				Matcher matcher = Pattern.compile("<\\?xml[^>]*encoding=[\"']([^\"']+)").matcher(new String(head, 0, length, "ISO-8859-1"));
+				if (matcher.find()) {
+					encoding = matcher.group(1);
+				}
+			}
+			return new InputStreamReader(stream, Charset.forName(encoding));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return the content of the given DTD source, or an empty stream if the DTD could not be found.
+	 */
+	static InputStream getDtdStream(final InputSource source, final String systemId) {
+		try {
+			if (source == null) {
+				log.warn("Could not find the DTD " + systemId + ", default values of attributes will be missing.");
+				return new ByteArrayInputStream(new byte[0]);
+			} else if (source.getByteStream() != null) {
+				return source.getByteStream();
+			} else if (new File(source.getSystemId()).exists()) {
+				return new FileInputStream(source.getSystemId());
+			} else {
+				return new URL(source.getSystemId()).openStream();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	protected ErrorHandler getErrorHandler() {
 		return this;
 	}
@@ -205,18 +333,32 @@ public abstract class MatsimXmlParser extends DefaultHandler {
 
 	@Override
 	public InputSource resolveEntity(final String publicId, final String systemId) {
-		// extract the last part of the systemId
-		int index = systemId.replace('\\', '/').lastIndexOf('/');
-		String shortSystemId = systemId.substring(index + 1);
+		return resolveEntity(publicId, systemId, this.preferLocalDtds);
+	}
+
+	private InputSource resolveEntity(final String publicId, final String systemId, final boolean preferLocal) {
+		String shortSystemId = getShortSystemId(systemId);
 
 		if (this.doctype == null) {
 			// this is the first systemId we have to resolve, assume it's the doctype
 			// I haven't found any other way to determine the doctype of the currently read file
 			setDoctype(shortSystemId);
 		}
+		return findDtd(systemId, preferLocal);
+	}
 
+	/**
+	 * @return the last part of the systemId, e.g. <code>network_v1.dtd</code>
+	 */
+	static String getShortSystemId(final String systemId) {
+		int index = systemId.replace('\\', '/').lastIndexOf('/');
+		return systemId.substring(index + 1);
+	}
+
+	final InputSource findDtd(final String systemId, final boolean preferLocal) {
+		String shortSystemId = getShortSystemId(systemId);
 		InputSource source;
-		if (this.preferLocalDtds) {
+		if (preferLocal) {
 			source = findDtdInLocalFilesystem(shortSystemId);
 			if (source == null) {
 				source = findDtdInClasspath(shortSystemId);
@@ -307,16 +449,18 @@ public abstract class MatsimXmlParser extends DefaultHandler {
 
 	@Override
 	public void characters(final char[] ch, final int start, final int length) throws SAXException {
-		StringBuffer buffer = this.buffers.peek();
-		if (buffer != null) {
-			buffer.append(ch, start, length);
+		if (this.depth > 0) {
+			this.buffers.get(this.depth - 1).append(ch, start, length);
 		}
 	}
 
 	@Override
 	public final void startElement(final String uri, final String localName, final String qName, Attributes atts) throws SAXException {
 		String tag = (uri.length() == 0) ? qName : localName;
-		this.buffers.push(new StringBuffer());
+		if (this.depth == this.buffers.size()) {
+			this.buffers.add(new StringBuilder());
+		}
+		this.buffers.get(this.depth++).setLength(0);
 		this.startTag(tag, atts, this.context);
 		this.context.push(tag);
 	}
@@ -325,8 +469,24 @@ public abstract class MatsimXmlParser extends DefaultHandler {
 	public void endElement(final String uri, final String localName, final String qName) throws SAXException {
 		String tag = (uri.length() == 0) ? qName : localName;
 		this.context.pop();
-		StringBuffer buffer = this.buffers.pop();
-		this.endTag(tag, buffer.toString(), this.context);
+		String content = this.buffers.get(--this.depth).toString();
+		this.endTag(tag, content, this.context);
+	}
+
+	/* used by ChunkedXmlParser to hand over tags that were parsed by another thread */
+
+	final void handOverStartTag(final String tag, final Attributes atts) {
+		this.startTag(tag, atts, this.context);
+		this.context.push(tag);
+	}
+
+	final void handOverEndTag(final String tag, final String content) {
+		this.context.pop();
+		this.endTag(tag, content, this.context);
+	}
+
+	final boolean isNamespaceAware() {
+		return this.isNamespaceAware;
 	}
 
 	/* implement ErrorHandler */
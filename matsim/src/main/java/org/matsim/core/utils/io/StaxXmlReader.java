@@ -0,0 +1,210 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * StaxXmlReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Feeds the content of a {@link XMLStreamReader} to a SAX {@link DefaultHandler}, so the StAX parser can be used
+ * as a fast, non-validating replacement of the SAX parser by {@link MatsimXmlParser}.  Characters are passed on
+ * without creating intermediate strings, attributes are exposed directly from the stream reader.
+ * <p></p>
+ * Short attribute values that look like names (activity types, modes, yes/no, ...) are canonicalized, so that
+ * equal values share one String instance in memory.
+ */
+final class StaxXmlReader {
+
+	private static final int MAX_CANONICAL_LENGTH = 16;
+	private static final int MAX_CANONICAL_VALUES = 10000;
+
+	private final ConcurrentMap<String, String> canonicalValues = new ConcurrentHashMap<>();
+
+	static XMLInputFactory createFactory(final boolean namespaceAware, final XMLResolver resolver) {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, namespaceAware);
+		factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, true); // required for default values of attributes
+		factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+		factory.setXMLResolver(resolver);
+		return factory;
+	}
+
+	/**
+	 * Reads the complete document from the reader and passes it on to the handler.
+	 */
+	void read(final XMLStreamReader reader, final DefaultHandler handler) throws XMLStreamException, SAXException {
+		StaxAttributes atts = new StaxAttributes(reader, this);
+		try {
+			while (reader.hasNext()) {
+				int event = reader.next();
+				switch (event) {
+				case XMLStreamConstants.START_ELEMENT:
+					handler.startElement(uri(reader.getNamespaceURI()), reader.getLocalName(), qName(reader.getPrefix(), reader.getLocalName()), atts);
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					handler.endElement(uri(reader.getNamespaceURI()), reader.getLocalName(), qName(reader.getPrefix(), reader.getLocalName()));
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					handler.characters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+					break;
+				default:
+					// comments, processing instructions, the DTD
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	String canonicalize(final String value) {
+		if (value == null || value.isEmpty() || value.length() > MAX_CANONICAL_LENGTH || !Character.isLetter(value.charAt(0))) {
+			return value;
+		}
+		String canonical = this.canonicalValues.get(value);
+		if (canonical != null) {
+			return canonical;
+		}
+		if (this.canonicalValues.size() >= MAX_CANONICAL_VALUES) {
+			// most likely ids, do not keep collecting them
+			return value;
+		}
+		canonical = this.canonicalValues.putIfAbsent(value, value);
+		return canonical == null ? value : canonical;
+	}
+
+	private static String uri(final String namespaceUri) {
+		return namespaceUri == null ? "" : namespaceUri;
+	}
+
+	private static String qName(final String prefix, final String localName) {
+		return (prefix == null || prefix.isEmpty()) ? localName : prefix + ":" + localName;
+	}
+
+	/**
+	 * The attributes of the current start element of the stream reader.  Only valid during the call to startElement,
+	 * as it is the case with SAX.
+	 */
+	private static final class StaxAttributes implements Attributes {
+
+		private final XMLStreamReader reader;
+		private final StaxXmlReader values;
+
+		StaxAttributes(final XMLStreamReader reader, final StaxXmlReader values) {
+			this.reader = reader;
+			this.values = values;
+		}
+
+		@Override
+		public int getLength() {
+			return this.reader.getAttributeCount();
+		}
+
+		@Override
+		public String getURI(final int index) {
+			return uri(this.reader.getAttributeNamespace(index));
+		}
+
+		@Override
+		public String getLocalName(final int index) {
+			return this.reader.getAttributeLocalName(index);
+		}
+
+		@Override
+		public String getQName(final int index) {
+			return qName(this.reader.getAttributePrefix(index), this.reader.getAttributeLocalName(index));
+		}
+
+		@Override
+		public String getType(final int index) {
+			return this.reader.getAttributeType(index);
+		}
+
+		@Override
+		public String getValue(final int index) {
+			return this.values.canonicalize(this.reader.getAttributeValue(index));
+		}
+
+		@Override
+		public int getIndex(final String uri, final String localName) {
+			for (int i = 0, n = getLength(); i < n; i++) {
+				if (localName.equals(this.reader.getAttributeLocalName(i)) && uri.equals(getURI(i))) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public int getIndex(final String qName) {
+			for (int i = 0, n = getLength(); i < n; i++) {
+				String prefix = this.reader.getAttributePrefix(i);
+				String localName = this.reader.getAttributeLocalName(i);
+				if (prefix == null || prefix.isEmpty()) {
+					if (qName.equals(localName)) {
+						return i;
+					}
+				} else if (qName.length() == prefix.length() + 1 + localName.length() && qName.startsWith(prefix)
+						&& qName.charAt(prefix.length()) == ':' && qName.endsWith(localName)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public String getType(final String uri, final String localName) {
+			int index = getIndex(uri, localName);
+			return index < 0 ? null : getType(index);
+		}
+
+		@Override
+		public String getType(final String qName) {
+			int index = getIndex(qName);
+			return index < 0 ? null : getType(index);
+		}
+
+		@Override
+		public String getValue(final String uri, final String localName) {
+			int index = getIndex(uri, localName);
+			return index < 0 ? null : getValue(index);
+		}
+
+		@Override
+		public String getValue(final String qName) {
+			int index = getIndex(qName);
+			return index < 0 ? null : getValue(index);
+		}
+	}
+
+}
@@ -27,15 +27,19 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 
 	public static final String GROUP_NAME = "transitRouter";
 
+	public enum RoutingAlgorithmType {Dijkstra, Raptor}
+
 	/*package*/ static final String SEARCH_RADIUS = "searchRadius";
 	/*package*/ static final String EXTENSION_RADIUS = "extensionRadius";
 	/*package*/ static final String MAX_BEELINE_WALK_CONNECTION_DISTANCE = "maxBeelineWalkConnectionDistance";
 	/*package*/ static final String ADDITIONAL_TRANSFER_TIME = "additionalTransferTime";
+	/*package*/ static final String ROUTING_ALGORITHM_TYPE = "routingAlgorithmType";
 
 	private double searchRadius = 1000.0;
 	private double extensionRadius = 200.0;
 	private double maxBeelineWalkConnectionDistance = 100.0;
 	private double additionalTransferTime = 0.0;
+	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.Dijkstra;
 
 	public TransitRouterConfigGroup() {
 		super(GROUP_NAME);
@@ -48,6 +52,8 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 		comments.put(EXTENSION_RADIUS, "step size to increase searchRadius if no stops are found");
 		comments.put(MAX_BEELINE_WALK_CONNECTION_DISTANCE, "maximum beeline distance between stops that agents could transfer to by walking");
 		comments.put(ADDITIONAL_TRANSFER_TIME, "additional time the router allocates when a line switch happens. Can be interpreted as a 'safety' time that agents need to safely transfer from one line to another");
+		comments.put(ROUTING_ALGORITHM_TYPE, "the transit routing algorithm, may have the values: " + RoutingAlgorithmType.Dijkstra
+				+ " (on the expanded transit router network) or " + RoutingAlgorithmType.Raptor + " (round-based, directly on the schedule)");
 		return comments;
 	}
 
@@ -94,4 +100,15 @@ public class TransitRouterConfigGroup extends ReflectiveConfigGroup {
 	public double getAdditionalTransferTime() {
 		return this.additionalTransferTime;
 	}
+
+	@StringSetter( ROUTING_ALGORITHM_TYPE )
+	public void setRoutingAlgorithmType(final RoutingAlgorithmType routingAlgorithmType) {
+		testForLocked() ;
+		this.routingAlgorithmType = routingAlgorithmType;
+	}
+
+	@StringGetter( ROUTING_ALGORITHM_TYPE )
+	public RoutingAlgorithmType getRoutingAlgorithmType() {
+		return this.routingAlgorithmType;
+	}
 }
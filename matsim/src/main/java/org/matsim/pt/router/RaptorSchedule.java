@@ -0,0 +1,284 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorSchedule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Flat array representation of a {@link TransitSchedule} as used by the {@link RaptorTransitRouter}.
+ * Routes, their stops and their sorted departures at the terminus are stored in consecutive arrays,
+ * stops know the route stops serving them and the stops reachable by a walk transfer.
+ *
+ * Immutable once created and thus thread-safe. Like {@link TransitRouterNetwork}, it does not
+ * expect the TransitSchedule to change once constructed.
+ *
+ * @see PreparedTransitSchedule
+ */
+final class RaptorSchedule {
+
+	private final static Logger log = Logger.getLogger(RaptorSchedule.class);
+
+	final static double MIDNIGHT = TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+
+	/* stops */
+	final TransitStopFacility[] stops;
+	private final Map<TransitStopFacility, Integer> stopIndices;
+	private final QuadTree<TransitStopFacility> qtStops;
+
+	/* routes, the route stops of route r are found at [routeStopsStart[r], routeStopsStart[r+1]) */
+	final TransitLine[] lines;
+	final TransitRoute[] routes;
+	final int[] routeStopsStart;
+	final int[] departuresStart;
+	final double[] departures;
+
+	/* route stops */
+	final TransitRouteStop[] routeStops;
+	final int[] routeStopStop;
+	final int[] routeStopRoute;
+	final double[] arrivalOffsets;
+	final double[] departureOffsets;
+	final double[] distanceFromPreviousStop;
+
+	/* route stops serving a stop, found at [stopRouteStopsStart[s], stopRouteStopsStart[s+1]) */
+	final int[] stopRouteStopsStart;
+	final int[] stopRouteStops;
+
+	/* walk transfers starting at a stop, found at [transfersStart[s], transfersStart[s+1]) */
+	final int[] transfersStart;
+	final int[] transferStop;
+	final double[] transferDistance;
+
+	RaptorSchedule(final TransitSchedule schedule, final TransitRouterConfig config) {
+		log.info("start creating raptor schedule");
+
+		// collect all routes and their stops
+		List<TransitLine> lineList = new ArrayList<TransitLine>();
+		List<TransitRoute> routeList = new ArrayList<TransitRoute>();
+		int nOfRouteStops = 0;
+		int nOfDepartures = 0;
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				if (route.getStops().size() < 2 || route.getDepartures().isEmpty()) {
+					continue; // nobody could ever use such a route
+				}
+				lineList.add(line);
+				routeList.add(route);
+				nOfRouteStops += route.getStops().size();
+				nOfDepartures += route.getDepartures().size();
+			}
+		}
+		this.lines = lineList.toArray(new TransitLine[lineList.size()]);
+		this.routes = routeList.toArray(new TransitRoute[routeList.size()]);
+
+		// only stops served by some route are of interest
+		this.stopIndices = new IdentityHashMap<TransitStopFacility, Integer>();
+		List<TransitStopFacility> stopList = new ArrayList<TransitStopFacility>();
+		for (TransitRoute route : this.routes) {
+			for (TransitRouteStop stop : route.getStops()) {
+				if (!this.stopIndices.containsKey(stop.getStopFacility())) {
+					this.stopIndices.put(stop.getStopFacility(), stopList.size());
+					stopList.add(stop.getStopFacility());
+				}
+			}
+		}
+		this.stops = stopList.toArray(new TransitStopFacility[stopList.size()]);
+
+		this.routeStopsStart = new int[this.routes.length + 1];
+		this.departuresStart = new int[this.routes.length + 1];
+		this.departures = new double[nOfDepartures];
+		this.routeStops = new TransitRouteStop[nOfRouteStops];
+		this.routeStopStop = new int[nOfRouteStops];
+		this.routeStopRoute = new int[nOfRouteStops];
+		this.arrivalOffsets = new double[nOfRouteStops];
+		this.departureOffsets = new double[nOfRouteStops];
+		this.distanceFromPreviousStop = new double[nOfRouteStops];
+		int[] stopRouteStopCounts = new int[this.stops.length];
+		int rsIndex = 0;
+		int depIndex = 0;
+		for (int r = 0; r < this.routes.length; r++) {
+			this.routeStopsStart[r] = rsIndex;
+			Coord prevCoord = null;
+			for (TransitRouteStop stop : this.routes[r].getStops()) {
+				// use the same fallbacks as TransitRouterNetworkTravelTimeAndDisutility for undefined offsets
+				double arrOffset = stop.getArrivalOffset();
+				double depOffset = stop.getDepartureOffset();
+				if (arrOffset == Time.UNDEFINED_TIME) {
+					arrOffset = depOffset;
+				}
+				if (depOffset == Time.UNDEFINED_TIME) {
+					depOffset = arrOffset;
+				}
+				int s = this.stopIndices.get(stop.getStopFacility());
+				this.routeStops[rsIndex] = stop;
+				this.routeStopStop[rsIndex] = s;
+				this.routeStopRoute[rsIndex] = r;
+				this.arrivalOffsets[rsIndex] = arrOffset;
+				this.departureOffsets[rsIndex] = depOffset;
+				Coord coord = stop.getStopFacility().getCoord();
+				this.distanceFromPreviousStop[rsIndex] = (prevCoord == null) ? 0.0 : CoordUtils.calcDistance(prevCoord, coord);
+				prevCoord = coord;
+				stopRouteStopCounts[s]++;
+				rsIndex++;
+			}
+			this.departuresStart[r] = depIndex;
+			for (Departure dep : this.routes[r].getDepartures().values()) {
+				this.departures[depIndex++] = dep.getDepartureTime();
+			}
+			Arrays.sort(this.departures, this.departuresStart[r], depIndex);
+		}
+		this.routeStopsStart[this.routes.length] = rsIndex;
+		this.departuresStart[this.routes.length] = depIndex;
+
+		// route stops per stop
+		this.stopRouteStopsStart = new int[this.stops.length + 1];
+		for (int s = 0; s < this.stops.length; s++) {
+			this.stopRouteStopsStart[s + 1] = this.stopRouteStopsStart[s] + stopRouteStopCounts[s];
+		}
+		this.stopRouteStops = new int[nOfRouteStops];
+		int[] fill = Arrays.copyOf(this.stopRouteStopsStart, this.stops.length);
+		for (int i = 0; i < nOfRouteStops; i++) {
+			this.stopRouteStops[fill[this.routeStopStop[i]]++] = i;
+		}
+
+		// spatial index of the stops
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (TransitStopFacility stop : this.stops) {
+			Coord c = stop.getCoord();
+			minX = Math.min(minX, c.getX());
+			minY = Math.min(minY, c.getY());
+			maxX = Math.max(maxX, c.getX());
+			maxY = Math.max(maxY, c.getY());
+		}
+		if (this.stops.length == 0) {
+			minX = minY = maxX = maxY = 0.0;
+		}
+		this.qtStops = new QuadTree<TransitStopFacility>(minX, minY, maxX, maxY);
+		for (TransitStopFacility stop : this.stops) {
+			this.qtStops.put(stop.getCoord().getX(), stop.getCoord().getY(), stop);
+		}
+
+		// walk transfers, including the transfer to the same stop
+		this.transfersStart = new int[this.stops.length + 1];
+		List<int[]> transferStops = new ArrayList<int[]>(this.stops.length);
+		List<double[]> transferDistances = new ArrayList<double[]>(this.stops.length);
+		int nOfTransfers = 0;
+		for (int s = 0; s < this.stops.length; s++) {
+			Coord c = this.stops[s].getCoord();
+			Collection<TransitStopFacility> nearbyStops = this.qtStops.get(c.getX(), c.getY(), config.getBeelineWalkConnectionDistance());
+			int[] toStops = new int[nearbyStops.size() + 1];
+			double[] distances = new double[nearbyStops.size() + 1];
+			int cnt = 0;
+			toStops[cnt++] = s;
+			for (TransitStopFacility nearbyStop : nearbyStops) {
+				int t = this.stopIndices.get(nearbyStop);
+				if (t != s) {
+					toStops[cnt] = t;
+					distances[cnt] = CoordUtils.calcDistance(c, nearbyStop.getCoord());
+					cnt++;
+				}
+			}
+			transferStops.add(Arrays.copyOf(toStops, cnt));
+			transferDistances.add(Arrays.copyOf(distances, cnt));
+			nOfTransfers += cnt;
+			this.transfersStart[s + 1] = nOfTransfers;
+		}
+		this.transferStop = new int[nOfTransfers];
+		this.transferDistance = new double[nOfTransfers];
+		for (int s = 0; s < this.stops.length; s++) {
+			System.arraycopy(transferStops.get(s), 0, this.transferStop, this.transfersStart[s], transferStops.get(s).length);
+			System.arraycopy(transferDistances.get(s), 0, this.transferDistance, this.transfersStart[s], transferDistances.get(s).length);
+		}
+
+		log.info("raptor schedule statistics:");
+		log.info(" # stops:       " + this.stops.length);
+		log.info(" # routes:      " + this.routes.length);
+		log.info(" # route stops: " + nOfRouteStops);
+		log.info(" # departures:  " + nOfDepartures);
+		log.info(" # transfers:   " + nOfTransfers);
+	}
+
+	int getStopIndex(final TransitStopFacility stop) {
+		Integer index = this.stopIndices.get(stop);
+		return (index == null) ? -1 : index.intValue();
+	}
+
+	Collection<TransitStopFacility> getNearestStops(final Coord coord, final double distance) {
+		return this.qtStops.get(coord.getX(), coord.getY(), distance);
+	}
+
+	TransitStopFacility getNearestStop(final Coord coord) {
+		return this.qtStops.get(coord.getX(), coord.getY());
+	}
+
+	/**
+	 * Returns the departure time at the terminus of the first trip of the route serving the
+	 * route stop <code>routeStop</code> at or after <code>time</code>. Treats the schedule as
+	 * repeating every day in the same way as {@link PreparedTransitSchedule#getNextDepartureTime},
+	 * thus the returned value may be larger than any departure time in the schedule.
+	 */
+	double getNextTripBase(final int routeStop, final double time) {
+		int r = this.routeStopRoute[routeStop];
+		double depOffset = this.departureOffsets[routeStop];
+		double earliestDepartureTimeAtTerminus = time - depOffset;
+		if (earliestDepartureTimeAtTerminus >= MIDNIGHT) {
+			earliestDepartureTimeAtTerminus = earliestDepartureTimeAtTerminus % MIDNIGHT;
+		}
+		if (earliestDepartureTimeAtTerminus < 0) {
+			earliestDepartureTimeAtTerminus += MIDNIGHT;
+		}
+		int from = this.departuresStart[r];
+		int to = this.departuresStart[r + 1];
+		int pos = Arrays.binarySearch(this.departures, from, to, earliestDepartureTimeAtTerminus);
+		if (pos < 0) {
+			pos = -(pos + 1);
+		}
+		if (pos >= to) {
+			pos = from; // there is no later departure time, take the first in the morning
+		}
+		double base = this.departures[pos];
+		while (base + depOffset < time) {
+			base += MIDNIGHT;
+		}
+		return base;
+	}
+
+}
@@ -0,0 +1,611 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.LegImpl;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Round-based transit router (RAPTOR, see Delling, Pajor and Werneck, "Round-Based Public Transit
+ * Routing", 2012). Instead of running a Dijkstra on the expanded {@link TransitRouterNetwork}, the
+ * routes of the schedule are scanned once per round, where round <em>k</em> finds the earliest
+ * arrival at every stop using exactly <em>k</em> transit legs. Of the resulting journeys (one per
+ * number of transit legs and egress stop), the one with the least travel disutility is returned.
+ * The disutility of a journey is calculated with the same parameters and in the same way as in
+ * {@link TransitRouterNetworkTravelTimeAndDisutility}, and the legs are created in the same way as
+ * in {@link TransitRouterImpl}.
+ *
+ * In addition, {@link #calcRoutes(Coord, Coord, double, double, Person)} answers profile queries
+ * (rRAPTOR): it returns all Pareto-optimal journeys regarding departure time, arrival time and
+ * number of transfers for a whole departure time window.
+ *
+ * Not thread-safe because of the internal search state, but instances can share a
+ * {@link RaptorSchedule}, see {@link RaptorTransitRouterFactory}.
+ */
+public class RaptorTransitRouter implements TransitRouter {
+
+	/*package*/ final static int MAX_TRANSFERS = 8;
+
+	private final static double INF = Double.POSITIVE_INFINITY;
+
+	private final TransitRouterConfig config;
+	private final RaptorSchedule schedule;
+	private final int nOfRounds;
+
+	/* labels per round and stop, round 0 only contains the access stops */
+	private final double[][] arrival;
+	private final int[][] arrivalBoardRouteStop;
+	private final int[][] arrivalAlightRouteStop;
+	private final double[][] arrivalTripBase;
+	private final int[][] arrivalRun;
+	private final double[][] boardable;
+	private final int[][] boardableParent;
+
+	/* best labels of the current run, only valid if the stamp equals the current run */
+	private final double[] runBestArrival;
+	private final int[] runBestArrivalStamp;
+	private final double[] runBestBoardable;
+	private final int[] runBestBoardableStamp;
+
+	/* best arrival at the destination using at most k transit legs */
+	private final double[] targetBound;
+	private final double[] egressTime;
+
+	private final boolean[] touched;
+	private final int[] touchedStops;
+	private int nOfTouchedStops = 0;
+	private final boolean[] marked;
+	private final int[] markedStops;
+	private int nOfMarkedStops = 0;
+	private final boolean[] improved;
+	private final int[] improvedStops;
+	private int nOfImprovedStops = 0;
+	private final int[] routeScanStart;
+	private final int[] routeQueue;
+
+	private int run = 0;
+
+	public RaptorTransitRouter(final TransitRouterConfig config, final TransitSchedule schedule) {
+		this(config, new RaptorSchedule(schedule, config));
+	}
+
+	/*package*/ RaptorTransitRouter(final TransitRouterConfig config, final RaptorSchedule schedule) {
+		this.config = config;
+		this.schedule = schedule;
+		this.nOfRounds = MAX_TRANSFERS + 2;
+		int nOfStops = schedule.stops.length;
+		this.arrival = new double[this.nOfRounds][nOfStops];
+		this.arrivalBoardRouteStop = new int[this.nOfRounds][nOfStops];
+		this.arrivalAlightRouteStop = new int[this.nOfRounds][nOfStops];
+		this.arrivalTripBase = new double[this.nOfRounds][nOfStops];
+		this.arrivalRun = new int[this.nOfRounds][nOfStops];
+		this.boardable = new double[this.nOfRounds][nOfStops];
+		this.boardableParent = new int[this.nOfRounds][nOfStops];
+		for (int k = 0; k < this.nOfRounds; k++) {
+			Arrays.fill(this.arrival[k], INF);
+			Arrays.fill(this.boardable[k], INF);
+		}
+		this.runBestArrival = new double[nOfStops];
+		this.runBestArrivalStamp = new int[nOfStops];
+		this.runBestBoardable = new double[nOfStops];
+		this.runBestBoardableStamp = new int[nOfStops];
+		this.targetBound = new double[this.nOfRounds];
+		this.egressTime = new double[nOfStops];
+		Arrays.fill(this.egressTime, INF);
+		this.touched = new boolean[nOfStops];
+		this.touchedStops = new int[nOfStops];
+		this.marked = new boolean[nOfStops];
+		this.markedStops = new int[nOfStops];
+		this.improved = new boolean[nOfStops];
+		this.improvedStops = new int[nOfStops];
+		this.routeScanStart = new int[schedule.routes.length];
+		Arrays.fill(this.routeScanStart, -1);
+		this.routeQueue = new int[schedule.routes.length];
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Coord fromCoord, final Coord toCoord, final double departureTime, final Person person) {
+		List<TransitStopFacility> accessStops = locateNearestStops(fromCoord);
+		List<TransitStopFacility> egressStops = locateNearestStops(toCoord);
+
+		initQuery(toCoord, egressStops);
+		this.run++;
+		for (TransitStopFacility stop : accessStops) {
+			setAccess(this.schedule.getStopIndex(stop), departureTime + getWalkTime(person, fromCoord, stop.getCoord()));
+		}
+		runRounds();
+
+		Journey best = null;
+		for (TransitStopFacility stop : egressStops) {
+			int s = this.schedule.getStopIndex(stop);
+			for (int k = 1; k < this.nOfRounds; k++) {
+				if (this.arrival[k][s] < INF) {
+					Journey journey = createJourney(k, s, departureTime, false, fromCoord, toCoord, person);
+					if (best == null || journey.travelDisutility < best.travelDisutility) {
+						best = journey;
+					}
+				}
+			}
+		}
+		finishQuery(egressStops);
+
+		if (best == null) {
+			// TransitRouterImpl finds a path without any transit leg if start and end share a stop
+			for (TransitStopFacility stop : accessStops) {
+				if (egressStops.contains(stop)) {
+					return createDirectWalkLegList(person, fromCoord, toCoord);
+				}
+			}
+			return null;
+		}
+		double directWalkCost = getWalkDisutility(person, fromCoord, toCoord);
+		if (directWalkCost < best.travelDisutility) {
+			return createDirectWalkLegList(person, fromCoord, toCoord);
+		}
+		return best.legs;
+	}
+
+	/**
+	 * Profile query: calculates all journeys departing at <code>fromCoord</code> between
+	 * <code>earliestDepartureTime</code> and <code>latestDepartureTime</code> which are Pareto-optimal
+	 * regarding departure time (later is better), arrival time and number of transfers. The departure
+	 * time of a journey is the latest time one can leave <code>fromCoord</code> to catch its first
+	 * vehicle. Walking directly to <code>toCoord</code> is not considered.
+	 *
+	 * @return the journeys, sorted by departure time
+	 */
+	public List<Journey> calcRoutes(final Coord fromCoord, final Coord toCoord, final double earliestDepartureTime, final double latestDepartureTime, final Person person) {
+		List<TransitStopFacility> accessStops = locateNearestStops(fromCoord);
+		List<TransitStopFacility> egressStops = locateNearestStops(toCoord);
+
+		// every departure of a route at an access stop, shifted by the access walk time, is a candidate departure time
+		double[] accessTimes = new double[accessStops.size()];
+		double[] departureTimes = new double[16];
+		int nOfDepartureTimes = 0;
+		for (int a = 0; a < accessStops.size(); a++) {
+			int s = this.schedule.getStopIndex(accessStops.get(a));
+			accessTimes[a] = getWalkTime(person, fromCoord, accessStops.get(a).getCoord());
+			for (int i = this.schedule.stopRouteStopsStart[s]; i < this.schedule.stopRouteStopsStart[s + 1]; i++) {
+				int rs = this.schedule.stopRouteStops[i];
+				int r = this.schedule.routeStopRoute[rs];
+				if (rs == this.schedule.routeStopsStart[r + 1] - 1) {
+					continue; // nobody boards at the last stop
+				}
+				for (int d = this.schedule.departuresStart[r]; d < this.schedule.departuresStart[r + 1]; d++) {
+					double time = this.schedule.departures[d] + this.schedule.departureOffsets[rs] - accessTimes[a];
+					time += Math.ceil((earliestDepartureTime - time) / RaptorSchedule.MIDNIGHT) * RaptorSchedule.MIDNIGHT;
+					for (; time <= latestDepartureTime; time += RaptorSchedule.MIDNIGHT) {
+						if (nOfDepartureTimes == departureTimes.length) {
+							departureTimes = Arrays.copyOf(departureTimes, 2 * nOfDepartureTimes);
+						}
+						departureTimes[nOfDepartureTimes++] = time;
+					}
+				}
+			}
+		}
+		Arrays.sort(departureTimes, 0, nOfDepartureTimes);
+
+		// run the departures from the latest to the earliest, keeping the labels of the later runs
+		initQuery(toCoord, egressStops);
+		List<Journey> journeys = new ArrayList<Journey>();
+		for (int i = nOfDepartureTimes - 1; i >= 0; i--) {
+			double departureTime = departureTimes[i];
+			if (i < nOfDepartureTimes - 1 && departureTime == departureTimes[i + 1]) {
+				continue;
+			}
+			this.run++;
+			for (int a = 0; a < accessStops.size(); a++) {
+				setAccess(this.schedule.getStopIndex(accessStops.get(a)), departureTime + accessTimes[a]);
+			}
+			runRounds();
+			for (TransitStopFacility stop : egressStops) {
+				int s = this.schedule.getStopIndex(stop);
+				for (int k = 1; k < this.nOfRounds; k++) {
+					if (this.arrivalRun[k][s] == this.run) {
+						journeys.add(createJourney(k, s, departureTime, true, fromCoord, toCoord, person));
+					}
+				}
+			}
+		}
+		finishQuery(egressStops);
+
+		return getParetoSet(journeys);
+	}
+
+	private List<TransitStopFacility> locateNearestStops(final Coord coord) {
+		Collection<TransitStopFacility> nearestStops = this.schedule.getNearestStops(coord, this.config.getSearchRadius());
+		if (countRouteStops(nearestStops) < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			TransitStopFacility nearestStop = this.schedule.getNearestStop(coord);
+			if (nearestStop == null) {
+				return Collections.emptyList();
+			}
+			double distance = CoordUtils.calcDistance(coord, nearestStop.getCoord());
+			nearestStops = this.schedule.getNearestStops(coord, distance + this.config.getExtensionRadius());
+		}
+		return new ArrayList<TransitStopFacility>(nearestStops);
+	}
+
+	private int countRouteStops(final Collection<TransitStopFacility> stops) {
+		// TransitRouterImpl counts the nodes of its network, i.e. the route stops
+		int cnt = 0;
+		for (TransitStopFacility stop : stops) {
+			int s = this.schedule.getStopIndex(stop);
+			cnt += this.schedule.stopRouteStopsStart[s + 1] - this.schedule.stopRouteStopsStart[s];
+		}
+		return cnt;
+	}
+
+	private void initQuery(final Coord toCoord, final List<TransitStopFacility> egressStops) {
+		Arrays.fill(this.targetBound, INF);
+		for (TransitStopFacility stop : egressStops) {
+			this.egressTime[this.schedule.getStopIndex(stop)] = getWalkTime(null, stop.getCoord(), toCoord);
+		}
+	}
+
+	private void finishQuery(final List<TransitStopFacility> egressStops) {
+		for (TransitStopFacility stop : egressStops) {
+			this.egressTime[this.schedule.getStopIndex(stop)] = INF;
+		}
+		for (int i = 0; i < this.nOfTouchedStops; i++) {
+			int s = this.touchedStops[i];
+			for (int k = 0; k < this.nOfRounds; k++) {
+				this.arrival[k][s] = INF;
+				this.boardable[k][s] = INF;
+			}
+			this.touched[s] = false;
+		}
+		this.nOfTouchedStops = 0;
+	}
+
+	private void setAccess(final int s, final double time) {
+		if (time < this.boardable[0][s]) {
+			this.boardable[0][s] = time;
+			this.boardableParent[0][s] = -1;
+			this.runBestBoardable[s] = time;
+			this.runBestBoardableStamp[s] = this.run;
+			touch(s);
+			mark(s);
+		}
+	}
+
+	private void runRounds() {
+		for (int k = 1; k < this.nOfRounds && this.nOfMarkedStops > 0; k++) {
+			// collect the routes serving the stops marked in the previous round
+			int nOfRoutes = 0;
+			for (int i = 0; i < this.nOfMarkedStops; i++) {
+				int s = this.markedStops[i];
+				this.marked[s] = false;
+				for (int j = this.schedule.stopRouteStopsStart[s]; j < this.schedule.stopRouteStopsStart[s + 1]; j++) {
+					int rs = this.schedule.stopRouteStops[j];
+					int r = this.schedule.routeStopRoute[rs];
+					if (this.routeScanStart[r] < 0) {
+						this.routeQueue[nOfRoutes++] = r;
+						this.routeScanStart[r] = rs;
+					} else if (rs < this.routeScanStart[r]) {
+						this.routeScanStart[r] = rs;
+					}
+				}
+			}
+			this.nOfMarkedStops = 0;
+
+			for (int i = 0; i < nOfRoutes; i++) {
+				int r = this.routeQueue[i];
+				scanRoute(r, this.routeScanStart[r], k);
+				this.routeScanStart[r] = -1;
+			}
+
+			// walk transfers from all stops improved in this round
+			double walkSpeed = this.config.getBeelineWalkSpeed();
+			double additionalTransferTime = this.config.getAdditionalTransferTime();
+			for (int i = 0; i < this.nOfImprovedStops; i++) {
+				int s = this.improvedStops[i];
+				this.improved[s] = false;
+				double time = this.arrival[k][s];
+				for (int j = this.schedule.transfersStart[s]; j < this.schedule.transfersStart[s + 1]; j++) {
+					int t = this.schedule.transferStop[j];
+					double readyTime = time + this.schedule.transferDistance[j] / walkSpeed + additionalTransferTime;
+					if (readyTime < this.boardable[k][t]
+							&& (this.runBestBoardableStamp[t] != this.run || readyTime < this.runBestBoardable[t])) {
+						this.boardable[k][t] = readyTime;
+						this.boardableParent[k][t] = s;
+						this.runBestBoardable[t] = readyTime;
+						this.runBestBoardableStamp[t] = this.run;
+						touch(t);
+						mark(t);
+					}
+				}
+			}
+			this.nOfImprovedStops = 0;
+		}
+		// marks left over after the last round must not leak into the next run
+		for (int i = 0; i < this.nOfMarkedStops; i++) {
+			this.marked[this.markedStops[i]] = false;
+		}
+		this.nOfMarkedStops = 0;
+	}
+
+	private void scanRoute(final int r, final int firstRouteStop, final int k) {
+		final RaptorSchedule sched = this.schedule;
+		final double[] prevBoardable = this.boardable[k - 1];
+		final int lastRouteStop = sched.routeStopsStart[r + 1] - 1;
+		double tripBase = INF;
+		int boardRouteStop = -1;
+		for (int rs = firstRouteStop; rs <= lastRouteStop; rs++) {
+			int s = sched.routeStopStop[rs];
+			if (boardRouteStop >= 0) {
+				double arrivalTime = tripBase + sched.arrivalOffsets[rs];
+				if (arrivalTime < this.arrival[k][s] && arrivalTime < this.targetBound[k]
+						&& (this.runBestArrivalStamp[s] != this.run || arrivalTime < this.runBestArrival[s])) {
+					this.arrival[k][s] = arrivalTime;
+					this.arrivalBoardRouteStop[k][s] = boardRouteStop;
+					this.arrivalAlightRouteStop[k][s] = rs;
+					this.arrivalTripBase[k][s] = tripBase;
+					this.arrivalRun[k][s] = this.run;
+					this.runBestArrival[s] = arrivalTime;
+					this.runBestArrivalStamp[s] = this.run;
+					touch(s);
+					if (!this.improved[s]) {
+						this.improved[s] = true;
+						this.improvedStops[this.nOfImprovedStops++] = s;
+					}
+					double targetTime = arrivalTime + this.egressTime[s];
+					for (int j = k; j < this.nOfRounds && targetTime < this.targetBound[j]; j++) {
+						this.targetBound[j] = targetTime;
+					}
+				}
+			}
+			if (rs < lastRouteStop) {
+				double readyTime = prevBoardable[s];
+				if (readyTime < INF && (boardRouteStop < 0 || readyTime <= tripBase + sched.departureOffsets[rs])) {
+					// an earlier trip might be catched here
+					double base = sched.getNextTripBase(rs, readyTime);
+					if (boardRouteStop < 0 || base < tripBase) {
+						tripBase = base;
+						boardRouteStop = rs;
+					}
+				}
+			}
+		}
+	}
+
+	private void touch(final int s) {
+		if (!this.touched[s]) {
+			this.touched[s] = true;
+			this.touchedStops[this.nOfTouchedStops++] = s;
+		}
+	}
+
+	private void mark(final int s) {
+		if (!this.marked[s]) {
+			this.marked[s] = true;
+			this.markedStops[this.nOfMarkedStops++] = s;
+		}
+	}
+
+	/**
+	 * Traces the labels back from stop <code>s</code> in round <code>k</code> and evaluates the found
+	 * transit legs forward in time, starting at <code>departureTime</code> or, if
+	 * <code>latestDeparture</code> is set, as late as possible to catch the first vehicle.
+	 */
+	private Journey createJourney(final int k, final int s, final double departureTime, final boolean latestDeparture,
+			final Coord fromCoord, final Coord toCoord, final Person person) {
+		final RaptorSchedule sched = this.schedule;
+		int[] boardRouteStops = new int[k];
+		int[] alightRouteStops = new int[k];
+		double[] tripBases = new double[k];
+		int stop = s;
+		for (int round = k; round > 0; round--) {
+			boardRouteStops[round - 1] = this.arrivalBoardRouteStop[round][stop];
+			alightRouteStops[round - 1] = this.arrivalAlightRouteStop[round][stop];
+			tripBases[round - 1] = this.arrivalTripBase[round][stop];
+			stop = this.boardableParent[round - 1][sched.routeStopStop[boardRouteStops[round - 1]]];
+		}
+
+		List<Leg> legs = new ArrayList<Leg>();
+		TransitStopFacility firstStop = sched.routeStops[boardRouteStops[0]].getStopFacility();
+		double accessTime = getWalkTime(person, fromCoord, firstStop.getCoord());
+		double time = departureTime;
+		if (latestDeparture) {
+			time = tripBases[0] + sched.departureOffsets[boardRouteStops[0]] - accessTime;
+		}
+		double journeyDepartureTime = time;
+		double cost = getWalkDisutility(person, fromCoord, firstStop.getCoord());
+		Leg leg = new LegImpl(TransportMode.transit_walk);
+		leg.setTravelTime(accessTime);
+		legs.add(leg);
+		time += accessTime;
+		double readyTime = time;
+
+		for (int i = 0; i < k; i++) {
+			int boardRouteStop = boardRouteStops[i];
+			int alightRouteStop = alightRouteStops[i];
+			TransitStopFacility boardStop = sched.routeStops[boardRouteStop].getStopFacility();
+			TransitStopFacility alightStop = sched.routeStops[alightRouteStop].getStopFacility();
+			if (i > 0) {
+				TransitStopFacility prevStop = sched.routeStops[alightRouteStops[i - 1]].getStopFacility();
+				double distance = CoordUtils.calcDistance(prevStop.getCoord(), boardStop.getCoord());
+				double walkTime = distance / this.config.getBeelineWalkSpeed();
+				cost += - walkTime * this.config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+						- distance * this.config.getMarginalUtilityOfTravelDistancePt_utl_m()
+						- this.config.getAdditionalTransferTime() * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+						- this.config.getUtilityOfLineSwitch_utl();
+				if (prevStop != boardStop) {
+					leg = new LegImpl(TransportMode.transit_walk);
+					Route walkRoute = new GenericRouteImpl(prevStop.getLinkId(), boardStop.getLinkId());
+					walkRoute.setTravelTime(walkTime);
+					leg.setRoute(walkRoute);
+					leg.setTravelTime(walkTime);
+					legs.add(leg);
+				}
+				time += walkTime;
+				readyTime = time + this.config.getAdditionalTransferTime();
+			}
+			double vehicleArrivalTime = tripBases[i] + sched.arrivalOffsets[boardRouteStop];
+			double arrivalTime = tripBases[i] + sched.arrivalOffsets[alightRouteStop];
+			double waitTime = Math.max(0.0, vehicleArrivalTime - readyTime);
+			double inVehicleTime = arrivalTime - readyTime - waitTime;
+			double distance = 0.0;
+			for (int rs = boardRouteStop + 1; rs <= alightRouteStop; rs++) {
+				distance += sched.distanceFromPreviousStop[rs];
+			}
+			cost += - inVehicleTime * this.config.getMarginalUtilityOfTravelTimePt_utl_s()
+					- waitTime * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+					- distance * this.config.getMarginalUtilityOfTravelDistancePt_utl_m();
+
+			int r = sched.routeStopRoute[boardRouteStop];
+			leg = new LegImpl(TransportMode.pt);
+			ExperimentalTransitRoute ptRoute = new ExperimentalTransitRoute(boardStop, sched.lines[r], sched.routes[r], alightStop);
+			ptRoute.setTravelTime(arrivalTime - time);
+			leg.setRoute(ptRoute);
+			leg.setTravelTime(arrivalTime - time);
+			legs.add(leg);
+			time = arrivalTime;
+		}
+
+		TransitStopFacility lastStop = sched.routeStops[alightRouteStops[k - 1]].getStopFacility();
+		double egressWalkTime = getWalkTime(person, lastStop.getCoord(), toCoord);
+		cost += getWalkDisutility(person, lastStop.getCoord(), toCoord);
+		leg = new LegImpl(TransportMode.transit_walk);
+		leg.setTravelTime(egressWalkTime);
+		legs.add(leg);
+		time += egressWalkTime;
+
+		return new Journey(journeyDepartureTime, time, k - 1, legs, cost);
+	}
+
+	private static List<Journey> getParetoSet(final List<Journey> journeys) {
+		List<Journey> sorted = new ArrayList<Journey>(journeys);
+		Collections.sort(sorted, new Comparator<Journey>() {
+			@Override
+			public int compare(final Journey j1, final Journey j2) {
+				int cmp = Double.compare(j2.departureTime, j1.departureTime);
+				if (cmp == 0) {
+					cmp = Double.compare(j1.arrivalTime, j2.arrivalTime);
+				}
+				if (cmp == 0) {
+					cmp = Integer.compare(j1.nOfTransfers, j2.nOfTransfers);
+				}
+				if (cmp == 0) {
+					cmp = Double.compare(j1.travelDisutility, j2.travelDisutility);
+				}
+				return cmp;
+			}
+		});
+		// a dominating journey always comes before the journeys it dominates
+		List<Journey> paretoSet = new ArrayList<Journey>();
+		for (Journey journey : sorted) {
+			boolean dominated = false;
+			for (Journey other : paretoSet) {
+				if (other.departureTime >= journey.departureTime && other.arrivalTime <= journey.arrivalTime
+						&& other.nOfTransfers <= journey.nOfTransfers) {
+					dominated = true;
+					break;
+				}
+			}
+			if (!dominated) {
+				paretoSet.add(journey);
+			}
+		}
+		Collections.reverse(paretoSet);
+		return paretoSet;
+	}
+
+	private List<Leg> createDirectWalkLegList(final Person person, final Coord fromCoord, final Coord toCoord) {
+		List<Leg> legs = new ArrayList<Leg>();
+		Leg leg = new LegImpl(TransportMode.transit_walk);
+		double walkTime = getWalkTime(person, fromCoord, toCoord);
+		leg.setTravelTime(walkTime);
+		Route walkRoute = new GenericRouteImpl(null, null);
+		walkRoute.setTravelTime(walkTime);
+		leg.setRoute(walkRoute);
+		legs.add(leg);
+		return legs;
+	}
+
+	private double getWalkTime(final Person person, final Coord coord, final Coord toCoord) {
+		return CoordUtils.calcDistance(coord, toCoord) / this.config.getBeelineWalkSpeed();
+	}
+
+	private double getWalkDisutility(final Person person, final Coord coord, final Coord toCoord) {
+		// same as TransitRouterNetworkTravelTimeAndDisutility.getTravelDisutility()
+		return - getWalkTime(person, coord, toCoord) * this.config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+				- CoordUtils.calcDistance(coord, toCoord) * this.config.getMarginalUtilityOfTravelDistancePt_utl_m();
+	}
+
+	/**
+	 * A journey as found by a profile query.
+	 */
+	public static final class Journey {
+
+		private final double departureTime;
+		private final double arrivalTime;
+		private final int nOfTransfers;
+		private final List<Leg> legs;
+		private final double travelDisutility;
+
+		/*package*/ Journey(final double departureTime, final double arrivalTime, final int nOfTransfers, final List<Leg> legs, final double travelDisutility) {
+			this.departureTime = departureTime;
+			this.arrivalTime = arrivalTime;
+			this.nOfTransfers = nOfTransfers;
+			this.legs = legs;
+			this.travelDisutility = travelDisutility;
+		}
+
+		public double getDepartureTime() {
+			return this.departureTime;
+		}
+
+		public double getArrivalTime() {
+			return this.arrivalTime;
+		}
+
+		public int getNumberOfTransfers() {
+			return this.nOfTransfers;
+		}
+
+		public List<Leg> getLegs() {
+			return this.legs;
+		}
+
+		public double getTravelDisutility() {
+			return this.travelDisutility;
+		}
+
+	}
+
+}
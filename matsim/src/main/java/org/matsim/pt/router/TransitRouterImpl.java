@@ -31,7 +31,6 @@ import org.matsim.core.population.LegImpl;
 import org.matsim.core.population.routes.GenericRouteImpl;
 import org.matsim.core.router.util.LeastCostPathCalculator.Path;
 import org.matsim.core.router.util.TravelTime;
-import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.pt.router.MultiNodeDijkstra.InitialNode;
 import org.matsim.pt.router.TransitRouterNetwork.TransitRouterNetworkLink;
@@ -49,6 +48,7 @@ import java.util.*;
 public class TransitRouterImpl implements TransitRouter {
 
     private final TransitRouterNetwork transitNetwork;
+    private final TransitRouterNodeGrid nodeGrid;
 
     private final MultiNodeDijkstra dijkstra;
     private final TransitRouterConfig config;
@@ -65,6 +65,7 @@ public class TransitRouterImpl implements TransitRouter {
         this.config = config;
         this.travelDisutility = transitRouterNetworkTravelTimeAndDisutility;
         this.transitNetwork = TransitRouterNetwork.createFromSchedule(schedule, config.getBeelineWalkConnectionDistance());
+        this.nodeGrid = new TransitRouterNodeGrid(this.transitNetwork, config.getSearchRadius());
         this.dijkstra = new MultiNodeDijkstra(this.transitNetwork, this.travelDisutility, this.travelTime);
     }
 
@@ -74,8 +75,23 @@ public class TransitRouterImpl implements TransitRouter {
             final TransitRouterNetwork routerNetwork,
             final TravelTime travelTime,
             final TransitTravelDisutility travelDisutility) {
+        this(config, preparedTransitSchedule, routerNetwork, new TransitRouterNodeGrid(routerNetwork, config.getSearchRadius()),
+                travelTime, travelDisutility);
+    }
+
+    /**
+     * Use this constructor to share the {@link TransitRouterNodeGrid} among all routers working on the same network.
+     */
+    public TransitRouterImpl(
+            final TransitRouterConfig config,
+            final PreparedTransitSchedule preparedTransitSchedule,
+            final TransitRouterNetwork routerNetwork,
+            final TransitRouterNodeGrid nodeGrid,
+            final TravelTime travelTime,
+            final TransitTravelDisutility travelDisutility) {
         this.config = config;
         this.transitNetwork = routerNetwork;
+        this.nodeGrid = nodeGrid;
         this.travelTime = travelTime;
         this.travelDisutility = travelDisutility;
         this.dijkstra = new MultiNodeDijkstra(this.transitNetwork, this.travelDisutility, this.travelTime);
@@ -83,13 +99,7 @@ public class TransitRouterImpl implements TransitRouter {
     }
 
     private Map<Node, InitialNode> locateWrappedNearestTransitNodes(Person person, Coord coord, double departureTime) {
-        Collection<TransitRouterNetworkNode> nearestNodes = this.transitNetwork.getNearestNodes(coord, this.config.getSearchRadius());
-        if (nearestNodes.size() < 2) {
-            // also enlarge search area if only one stop found, maybe a second one is near the border of the search area
-            TransitRouterNetworkNode nearestNode = this.transitNetwork.getNearestNode(coord);
-            double distance = CoordUtils.calcDistance(coord, nearestNode.stop.getStopFacility().getCoord());
-            nearestNodes = this.transitNetwork.getNearestNodes(coord, distance + this.config.getExtensionRadius());
-        }
+        Collection<TransitRouterNetworkNode> nearestNodes = this.nodeGrid.getNearestNodes(coord, this.config.getSearchRadius(), this.config.getExtensionRadius());
         Map<Node, InitialNode> wrappedNearestNodes = new LinkedHashMap<>();
         for (TransitRouterNetworkNode node : nearestNodes) {
             Coord toCoord = node.stop.getStopFacility().getCoord();
@@ -35,6 +35,7 @@ public class TransitRouterImplFactory implements Provider<TransitRouter> {
 
 	private final TransitRouterConfig config;
 	private final TransitRouterNetwork routerNetwork;
+	private final TransitRouterNodeGrid nodeGrid;
 	private final PreparedTransitSchedule preparedTransitSchedule;
 
 	@Inject
@@ -49,13 +50,14 @@ public class TransitRouterImplFactory implements Provider<TransitRouter> {
 	public TransitRouterImplFactory(final TransitSchedule schedule, final TransitRouterConfig config) {
 		this.config = config;
 		this.routerNetwork = TransitRouterNetwork.createFromSchedule(schedule, this.config.getBeelineWalkConnectionDistance());
+		this.nodeGrid = new TransitRouterNodeGrid(this.routerNetwork, this.config.getSearchRadius());
 		this.preparedTransitSchedule = new PreparedTransitSchedule(schedule);
 	}
 
 	@Override
 	public TransitRouter get() {
 		TransitRouterNetworkTravelTimeAndDisutility ttCalculator = new TransitRouterNetworkTravelTimeAndDisutility(this.config, this.preparedTransitSchedule);
-		return new TransitRouterImpl(this.config, this.preparedTransitSchedule, this.routerNetwork, ttCalculator, ttCalculator);
+		return new TransitRouterImpl(this.config, this.preparedTransitSchedule, this.routerNetwork, this.nodeGrid, ttCalculator, ttCalculator);
 	}
 	
 }
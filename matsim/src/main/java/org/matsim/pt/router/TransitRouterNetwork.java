@@ -20,10 +20,10 @@
 
 package org.matsim.pt.router;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -36,7 +36,6 @@ import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.utils.collections.IdentifiableArrayMap;
 import org.matsim.core.utils.collections.QuadTree;
-import org.matsim.core.utils.collections.Tuple;
 import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.core.utils.misc.Time;
@@ -44,6 +43,7 @@ import org.matsim.pt.transitSchedule.api.TransitLine;
 import org.matsim.pt.transitSchedule.api.TransitRoute;
 import org.matsim.pt.transitSchedule.api.TransitRouteStop;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
 /**
  * Converting the TransitRouterNetwork into a {@link org.matsim.core.router.util.RoutingNetwork} might
@@ -60,6 +60,7 @@ public final class TransitRouterNetwork implements Network {
 	private final Map<Id<Link>, TransitRouterNetworkLink> links = new LinkedHashMap<Id<Link>, TransitRouterNetworkLink>();
 	private final Map<Id<Node>, TransitRouterNetworkNode> nodes = new LinkedHashMap<Id<Node>, TransitRouterNetworkNode>();
 	private QuadTree<TransitRouterNetworkNode> qtNodes = null;
+	private TransferTable transferTable = null;
 
 	private long nextNodeId = 0;
 	private long nextLinkId = 0;
@@ -362,6 +363,14 @@ public final class TransitRouterNetwork implements Network {
 		throw new UnsupportedOperationException();
 	}
 
+	/**
+	 * @return the walk transfers between the nodes of this network, or <code>null</code> if the network
+	 * was not created by {@link #createFromSchedule(TransitSchedule, double)}.
+	 */
+	public TransferTable getTransferTable() {
+		return this.transferTable;
+	}
+
 	public static TransitRouterNetwork createFromSchedule(final TransitSchedule schedule, final double maxBeelineWalkConnectionDistance) {
 		log.info("start creating transit network");
 		final TransitRouterNetwork network = new TransitRouterNetwork();
@@ -391,31 +400,107 @@ public final class TransitRouterNetwork implements Network {
 		// links come in. mrieser, dec'10
 		log.info("add transfer links");
 
-		List<Tuple<TransitRouterNetworkNode, TransitRouterNetworkNode>> toBeAdded = new LinkedList<Tuple<TransitRouterNetworkNode, TransitRouterNetworkNode>>();
-		// connect all stops with walking links if they're located less than beelineWalkConnectionDistance from each other
-		for (TransitRouterNetworkNode node : network.getNodes().values()) {
+		// connect all stops with walking links if they're located less than beelineWalkConnectionDistance from each other.
+		// the candidates are only searched once per stop facility, not once per node.
+		TransitRouterNetworkNode[] nodeArray = network.nodes.values().toArray(new TransitRouterNetworkNode[network.nodes.size()]);
+		Map<TransitRouterNetworkNode, Integer> nodeIndices = new IdentityHashMap<TransitRouterNetworkNode, Integer>();
+		for (int i = 0; i < nodeArray.length; i++) {
+			nodeIndices.put(nodeArray[i], i);
+		}
+		Map<TransitStopFacility, Collection<TransitRouterNetworkNode>> nearbyNodesCache = new IdentityHashMap<TransitStopFacility, Collection<TransitRouterNetworkNode>>();
+		TransferTable.Builder transfers = new TransferTable.Builder();
+		for (int i = 0; i < nodeArray.length; i++) {
+			TransitRouterNetworkNode node = nodeArray[i];
 			if (node.getInLinks().size() > 0) { // only add links from this node to other nodes if agents actually can arrive here
-				for (TransitRouterNetworkNode node2 : network.getNearestNodes(node.stop.getStopFacility().getCoord(), maxBeelineWalkConnectionDistance)) {
+				TransitStopFacility facility = node.stop.getStopFacility();
+				Collection<TransitRouterNetworkNode> nearbyNodes = nearbyNodesCache.get(facility);
+				if (nearbyNodes == null) {
+					nearbyNodes = network.getNearestNodes(facility.getCoord(), maxBeelineWalkConnectionDistance);
+					nearbyNodesCache.put(facility, nearbyNodes);
+				}
+				for (TransitRouterNetworkNode node2 : nearbyNodes) {
 					if ((node != node2) && (node2.getOutLinks().size() > 0)) { // only add links to other nodes when agents can depart there
-						if ((node.line != node2.line) || (node.stop.getStopFacility() != node2.stop.getStopFacility())) {
+						if ((node.line != node2.line) || (facility != node2.stop.getStopFacility())) {
 							// do not yet add them to the network, as this would change in/out-links
-							toBeAdded.add(new Tuple<TransitRouterNetworkNode, TransitRouterNetworkNode>(node, node2));
+							transfers.add(i, nodeIndices.get(node2), CoordUtils.calcDistance(facility.getCoord(), node2.stop.getStopFacility().getCoord()));
 						}
 					}
 				}
 			}
 		}
-		log.info(toBeAdded.size() + " transfer links to be added.");
-		for (Tuple<TransitRouterNetworkNode, TransitRouterNetworkNode> tuple : toBeAdded) {
-			network.createLink(tuple.getFirst(), tuple.getSecond(), null, null);
+		network.transferTable = transfers.build();
+		log.info(network.transferTable.size() + " transfer links to be added.");
+		for (int i = 0; i < network.transferTable.size(); i++) {
+			network.createLink(nodeArray[network.transferTable.fromNodes[i]], nodeArray[network.transferTable.toNodes[i]], null, null);
 			linkCounter.incCounter();
 		}
 
 		log.info("transit router network statistics:");
 		log.info(" # nodes: " + network.getNodes().size());
 		log.info(" # links total:     " + network.getLinks().size());
-		log.info(" # transfer links:  " + toBeAdded.size());
+		log.info(" # transfer links:  " + network.transferTable.size());
 
 		return network;
 	}
+
+	/**
+	 * The walk transfers of a network in compact arrays, built once per schedule. Transfer <code>i</code>
+	 * leads from node <code>getFromNode(i)</code> to node <code>getToNode(i)</code>, where nodes are
+	 * numbered in the iteration order of {@link TransitRouterNetwork#getNodes()}, and has the beeline
+	 * distance <code>getDistance(i)</code>. Immutable, and thus shared by all routers that use the same
+	 * network, e.g. the ones created by {@link TransitRouterImplFactory}.
+	 */
+	public static final class TransferTable {
+
+		final int[] fromNodes;
+		final int[] toNodes;
+		final float[] distances;
+
+		TransferTable(final int[] fromNodes, final int[] toNodes, final float[] distances) {
+			this.fromNodes = fromNodes;
+			this.toNodes = toNodes;
+			this.distances = distances;
+		}
+
+		public int size() {
+			return this.fromNodes.length;
+		}
+
+		public int getFromNode(final int transfer) {
+			return this.fromNodes[transfer];
+		}
+
+		public int getToNode(final int transfer) {
+			return this.toNodes[transfer];
+		}
+
+		public float getDistance(final int transfer) {
+			return this.distances[transfer];
+		}
+
+		static final class Builder {
+			private int[] fromNodes = new int[1024];
+			private int[] toNodes = new int[1024];
+			private float[] distances = new float[1024];
+			private int size = 0;
+
+			void add(final int fromNode, final int toNode, final double distance) {
+				if (this.size == this.fromNodes.length) {
+					int newLength = 2 * this.size;
+					this.fromNodes = Arrays.copyOf(this.fromNodes, newLength);
+					this.toNodes = Arrays.copyOf(this.toNodes, newLength);
+					this.distances = Arrays.copyOf(this.distances, newLength);
+				}
+				this.fromNodes[this.size] = fromNode;
+				this.toNodes[this.size] = toNode;
+				this.distances[this.size] = (float) distance;
+				this.size++;
+			}
+
+			TransferTable build() {
+				return new TransferTable(Arrays.copyOf(this.fromNodes, this.size), Arrays.copyOf(this.toNodes, this.size),
+						Arrays.copyOf(this.distances, this.size));
+			}
+		}
+	}
 }
@@ -0,0 +1,133 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitRouterNodeGrid.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.CoordImpl;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.router.TransitRouterNetwork.TransitRouterNetworkNode;
+
+/**
+ * Answers the "which transit nodes are near to this coordinate" queries of {@link TransitRouterImpl}
+ * from a regular grid instead of running a radius search on the QuadTree of the
+ * {@link TransitRouterNetwork} for every query. For every grid cell a query was made in, the nodes
+ * within <code>maxSearchRadius</code> of any point of the cell are stored as candidates, so later
+ * queries in the same cell only need to check the distance to these few candidates. The result is
+ * the same as the one of the QuadTree search, including the order of the nodes.
+ *
+ * Thread-safe, so one instance can be shared by all routers using the same network.
+ */
+public final class TransitRouterNodeGrid {
+
+	private final TransitRouterNetwork network;
+	private final double maxSearchRadius;
+	private final double cellSize;
+	private final double candidateRadius;
+
+	/*
+	 * Cells are only created when first needed, so the grid does not depend on the extent of the
+	 * network and only covers the areas where agents actually start or end their trips. Creating
+	 * a cell is idempotent, so it does not matter if two threads happen to create the same one.
+	 */
+	private final Map<Long, Cell> cells = new ConcurrentHashMap<Long, Cell>();
+
+	/**
+	 * @param maxSearchRadius the largest search radius the grid is used for, queries with larger radii
+	 * are passed on to the network.
+	 */
+	public TransitRouterNodeGrid(final TransitRouterNetwork network, final double maxSearchRadius) {
+		this.network = network;
+		this.maxSearchRadius = maxSearchRadius;
+		this.cellSize = Math.max(maxSearchRadius, 1.0);
+		this.candidateRadius = maxSearchRadius + this.cellSize * Math.sqrt(0.5);
+	}
+
+	/**
+	 * @return all nodes within <code>searchRadius</code> of <code>coord</code>. If there are less than
+	 * two such nodes, all nodes within <code>extensionRadius</code> plus the distance to the nearest
+	 * node are returned.
+	 */
+	public Collection<TransitRouterNetworkNode> getNearestNodes(final Coord coord, final double searchRadius, final double extensionRadius) {
+		Collection<TransitRouterNetworkNode> nearestNodes;
+		if (searchRadius <= this.maxSearchRadius) {
+			Cell cell = getCell(coord);
+			List<TransitRouterNetworkNode> nodes = new ArrayList<TransitRouterNetworkNode>();
+			double x = coord.getX();
+			double y = coord.getY();
+			for (int i = 0; i < cell.nodes.length; i++) {
+				double dx = cell.x[i] - x;
+				double dy = cell.y[i] - y;
+				// the same distance calculation as in QuadTree
+				if (Math.sqrt(dx * dx + dy * dy) <= searchRadius) {
+					nodes.add(cell.nodes[i]);
+				}
+			}
+			nearestNodes = nodes;
+		} else {
+			nearestNodes = this.network.getNearestNodes(coord, searchRadius);
+		}
+		if (nearestNodes.size() < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			TransitRouterNetworkNode nearestNode = this.network.getNearestNode(coord);
+			double distance = CoordUtils.calcDistance(coord, nearestNode.stop.getStopFacility().getCoord());
+			return this.network.getNearestNodes(coord, distance + extensionRadius);
+		}
+		return nearestNodes;
+	}
+
+	private Cell getCell(final Coord coord) {
+		long ix = (long) Math.floor(coord.getX() / this.cellSize);
+		long iy = (long) Math.floor(coord.getY() / this.cellSize);
+		Long key = Long.valueOf((ix << 32) ^ (iy & 0xffffffffL));
+		Cell cell = this.cells.get(key);
+		if (cell == null) {
+			double centerX = (ix + 0.5) * this.cellSize;
+			double centerY = (iy + 0.5) * this.cellSize;
+			cell = new Cell(this.network.getNearestNodes(new CoordImpl(centerX, centerY), this.candidateRadius));
+			this.cells.put(key, cell);
+		}
+		return cell;
+	}
+
+	private static final class Cell {
+		final TransitRouterNetworkNode[] nodes;
+		final double[] x;
+		final double[] y;
+
+		Cell(final Collection<TransitRouterNetworkNode> candidates) {
+			this.nodes = candidates.toArray(new TransitRouterNetworkNode[candidates.size()]);
+			this.x = new double[this.nodes.length];
+			this.y = new double[this.nodes.length];
+			for (int i = 0; i < this.nodes.length; i++) {
+				Coord c = this.nodes[i].stop.getStopFacility().getCoord();
+				this.x[i] = c.getX();
+				this.y[i] = c.getY();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ConvertEvents.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run;
+
+import java.util.Locale;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.algorithms.EventWriterTXT;
+import org.matsim.core.events.algorithms.EventWriterXML;
+
+/**
+ * Converts an events file from one format into another, e.g. from the binary format written by
+ * {@link EventWriterBinary} to xml and back. The formats are recognized from the file name extensions
+ * (<code>.xml</code>, <code>.xml.gz</code>, <code>.txt</code>, <code>.txt.gz</code> and <code>.bin</code>).
+ */
+public class ConvertEvents {
+
+	public static void convert(final String inputFilename, final String outputFilename) {
+		EventWriter writer = createWriter(outputFilename);
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(writer);
+		new MatsimEventsReader(events).readFile(inputFilename);
+		writer.closeFile();
+	}
+
+	private static EventWriter createWriter(final String filename) {
+		String lcFilename = filename.toLowerCase(Locale.ROOT);
+		if (lcFilename.endsWith(".bin")) {
+			return new EventWriterBinary(filename);
+		} else if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
+			return new EventWriterXML(filename);
+		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
+			return new EventWriterTXT(filename);
+		}
+		throw new IllegalArgumentException("Cannot recognize the format of the events-file " + filename);
+	}
+
+	public static void main(final String[] args) {
+		if (args.length != 2) {
+			System.out.println("Usage: ConvertEvents input-events-file output-events-file");
+			System.out.println("The file formats are recognized by their extension: .xml(.gz), .txt(.gz) or .bin");
+			System.exit(1);
+		}
+		convert(args[0], args[1]);
+	}
+
+}
@@ -67,7 +67,60 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 	
+	@Test
+	public void testIndex() {
+		Id<TIndexed> id1 = Id.create("1", TIndexed.class);
+		Id<TIndexed> id2 = Id.create("2", TIndexed.class);
+		Id<TIndexed> id1again = Id.create("1", TIndexed.class);
+
+		Assert.assertEquals(0, id1.index());
+		Assert.assertEquals(1, id2.index());
+		Assert.assertEquals(0, id1again.index());
+		Assert.assertEquals(2, Id.getNumberOfIds(TIndexed.class));
+		Assert.assertSame(id2, Id.get(1, TIndexed.class));
+		Assert.assertSame(id1, Id.get("1", TIndexed.class));
+		Assert.assertNull(Id.get(2, TIndexed.class));
+		Assert.assertNull(Id.get("3", TIndexed.class));
+
+		for (int i = 0; i < 100; i++) {
+			Id<TIndexed> id = Id.create("x" + i, TIndexed.class);
+			Assert.assertEquals(2 + i, id.index());
+			Assert.assertSame(id, Id.get(id.index(), TIndexed.class));
+		}
+	}
+
+	@Test
+	public void testIdsOfType() {
+		Id.IdsOfType<TIndexedCached> ids = Id.getIdsOfType(TIndexedCached.class);
+		Assert.assertSame(ids, Id.getIdsOfType(TIndexedCached.class));
+		Assert.assertEquals(0, ids.size());
+		Assert.assertNull(ids.get(0));
+
+		// ids created after the lookup are visible, also after the array had to grow
+		for (int i = 0; i < 40; i++) {
+			Id<TIndexedCached> id = Id.create(i, TIndexedCached.class);
+			Assert.assertSame(id, ids.get(i));
+		}
+		Assert.assertEquals(40, ids.size());
+		Assert.assertNull(ids.get(40));
+		Assert.assertNull(ids.get(-1));
+	}
+
+	@Test
+	public void testIndex_otherImplementation() {
+		Id<TIndexed> id = new Id<TIndexed>() {
+			@Override
+			public String toString() {
+				return "other";
+			}
+		};
+		Assert.assertEquals(-1, id.index());
+		Assert.assertNull(Id.get(id.index(), TIndexed.class));
+	}
+
 	private static class TLink {}
 	private static class TNode {}
+	private static class TIndexed {}
+	private static class TIndexedCached {}
 	
 }
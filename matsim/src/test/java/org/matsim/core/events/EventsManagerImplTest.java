@@ -19,12 +19,23 @@
 
 package org.matsim.core.events;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.events.handler.SingleThreadedEventHandler;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser
@@ -63,6 +74,73 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_HandlerWithSeveralMethods() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		MultipleEventsHandler handler = new MultipleEventsHandler();
+		manager.addHandler(handler);
+		manager.processEvent(new MyEvent(1.0));
+		manager.processEvent(new OtherEvent(2.0));
+		manager.processEvent(new OtherEvent(3.0));
+		manager.processEvent(new LinkEnterEvent(4.0, Id.create(1, Person.class), Id.create(1, Link.class), Id.create(1, Vehicle.class)));
+		Assert.assertEquals(1, handler.myEvents);
+		Assert.assertEquals(2, handler.otherEvents);
+		Assert.assertEquals(1, handler.linkEnterEvents);
+	}
+
+	@Test
+	public void testProcessEvent_EventSubclass() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		CountingMyEventHandler myHandler = new CountingMyEventHandler();
+		SubEventHandler subHandler = new SubEventHandler();
+		MultipleEventsHandler linkEnterHandler = new MultipleEventsHandler();
+		manager.addHandler(myHandler);
+		manager.addHandler(subHandler);
+		manager.addHandler(linkEnterHandler);
+
+		manager.processEvent(new MySubEvent(1.0));
+		Assert.assertEquals("handler of the super class was not called.", 1, myHandler.counter);
+		// the sub event handler also handles MyEvent, and is called once for each of its two methods
+		Assert.assertEquals(1, subHandler.myEvents);
+		Assert.assertEquals(1, subHandler.subEvents);
+
+		manager.processEvent(new MyEvent(2.0));
+		Assert.assertEquals(2, myHandler.counter);
+		Assert.assertEquals(2, subHandler.myEvents);
+		Assert.assertEquals(1, subHandler.subEvents);
+
+		// sub classes of core events go through the same calls as the core events themselves
+		manager.processEvent(new MyLinkEnterEvent(3.0));
+		Assert.assertEquals(1, linkEnterHandler.linkEnterEvents);
+	}
+
+	@Test
+	public void testProcessEvent_SingleThreadedEventHandler() throws InterruptedException {
+		final EventsManager manager = EventsUtils.createEventsManager();
+		ThreadRecordingHandler singleThreadedHandler = new SingleThreadedRecordingHandler();
+		ThreadRecordingHandler handler = new ThreadRecordingHandler();
+		manager.addHandler(singleThreadedHandler);
+		manager.addHandler(handler);
+
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (int i = 0; i < 1000; i++) {
+					manager.processEvent(new MyEvent(i));
+				}
+			}
+		});
+		thread.start();
+		thread.join();
+
+		Assert.assertEquals(1000, singleThreadedHandler.counter);
+		Assert.assertEquals(Collections.singleton(thread), singleThreadedHandler.threads);
+		Assert.assertEquals("single threaded handler was called while holding a lock on it.", 0, singleThreadedHandler.lockedCalls);
+		Assert.assertEquals(1000, handler.counter);
+		Assert.assertEquals(Collections.singleton(thread), handler.threads);
+		Assert.assertEquals("handler was called without holding a lock on it.", 1000, handler.lockedCalls);
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -102,4 +180,91 @@ public class EventsManagerImplTest {
 			System.out.println(i);
 		}
 	}
+
+	/*package*/ static class MySubEvent extends MyEvent {
+		public MySubEvent(final double time) {
+			super(time);
+		}
+	}
+
+	/*package*/ static class OtherEvent extends Event {
+		public OtherEvent(final double time) {
+			super(time);
+		}
+		@Override
+		public String getEventType() {
+			return "otherEvent";
+		}
+	}
+
+	/*package*/ static class MyLinkEnterEvent extends LinkEnterEvent {
+		public MyLinkEnterEvent(final double time) {
+			super(time, Id.create(1, Person.class), Id.create(1, Link.class), Id.create(1, Vehicle.class));
+		}
+	}
+
+	/*package*/ static interface MySubEventHandler extends EventHandler {
+		public void handleEvent(final MySubEvent e);
+	}
+
+	/*package*/ static interface OtherEventHandler extends EventHandler {
+		public void handleEvent(final OtherEvent e);
+	}
+
+	/*package*/ static class MultipleEventsHandler implements MyEventHandler, OtherEventHandler, LinkEnterEventHandler {
+		/*package*/ int myEvents = 0;
+		/*package*/ int otherEvents = 0;
+		/*package*/ int linkEnterEvents = 0;
+		@Override
+		public void reset(final int iteration) {
+		}
+		@Override
+		public void handleEvent(final MyEvent e) {
+			this.myEvents++;
+		}
+		@Override
+		public void handleEvent(final OtherEvent e) {
+			this.otherEvents++;
+		}
+		@Override
+		public void handleEvent(final LinkEnterEvent e) {
+			this.linkEnterEvents++;
+		}
+	}
+
+	/*package*/ static class SubEventHandler implements MyEventHandler, MySubEventHandler {
+		/*package*/ int myEvents = 0;
+		/*package*/ int subEvents = 0;
+		@Override
+		public void reset(final int iteration) {
+		}
+		@Override
+		public void handleEvent(final MyEvent e) {
+			this.myEvents++;
+		}
+		@Override
+		public void handleEvent(final MySubEvent e) {
+			this.subEvents++;
+		}
+	}
+
+	/*package*/ static class ThreadRecordingHandler implements MyEventHandler {
+		/*package*/ int counter = 0;
+		/*package*/ int lockedCalls = 0;
+		/*package*/ final Set<Thread> threads = new HashSet<Thread>();
+		@Override
+		public void reset(final int iteration) {
+		}
+		@Override
+		public void handleEvent(final MyEvent e) {
+			this.counter++;
+			this.threads.add(Thread.currentThread());
+			if (Thread.holdsLock(this)) {
+				this.lockedCalls++;
+			}
+		}
+	}
+
+	/*package*/ static class SingleThreadedRecordingHandler extends ThreadRecordingHandler implements SingleThreadedEventHandler {
+	}
 }
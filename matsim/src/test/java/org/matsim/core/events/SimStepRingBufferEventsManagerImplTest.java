@@ -0,0 +1,201 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SimStepRingBufferEventsManagerImplTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+
+public class SimStepRingBufferEventsManagerImplTest {
+
+	private final Id<Person> personId = Id.create("1", Person.class);
+	private final Id<Link> linkId = Id.create("1", Link.class);
+
+	@Test
+	public void testAllEventsProcessedAfterSimStep() {
+		// small buffer, so that it wraps around many times:
+		SimStepRingBufferEventsManagerImpl events = new SimStepRingBufferEventsManagerImpl(3, 16);
+		CountingHandler[] handlers = new CountingHandler[5];
+		for (int i = 0; i < handlers.length; i++) {
+			handlers[i] = new CountingHandler();
+			events.addHandler(handlers[i]);
+		}
+		events.initProcessing();
+		int expected = 0;
+		for (int time = 0; time < 100; time++) {
+			for (int i = 0; i < time; i++) {
+				events.processEvent(new LinkEnterEvent(time, personId, linkId, null));
+				expected++;
+			}
+			events.afterSimStep(time);
+			for (CountingHandler handler : handlers) {
+				Assert.assertEquals(expected, handler.counter.get());
+			}
+		}
+		events.finishProcessing();
+	}
+
+	@Test
+	public void testEventsFromSeveralThreads() throws InterruptedException {
+		final SimStepRingBufferEventsManagerImpl events = new SimStepRingBufferEventsManagerImpl(2, 64);
+		CountingHandler handler1 = new CountingHandler();
+		CountingHandler handler2 = new CountingHandler();
+		events.addHandler(handler1);
+		events.addHandler(handler2);
+		events.initProcessing();
+		Thread[] producers = new Thread[4];
+		for (int t = 0; t < producers.length; t++) {
+			producers[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						events.processEvent(new LinkEnterEvent(0.0, personId, linkId, null));
+					}
+				}
+			});
+			producers[t].start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		events.afterSimStep(0.0);
+		Assert.assertEquals(40000, handler1.counter.get());
+		Assert.assertEquals(40000, handler2.counter.get());
+		events.finishProcessing();
+	}
+
+	@Test
+	public void testEventsCreatedByHandlers() {
+		EventsManager events = new SimStepRingBufferEventsManagerImpl(2, 1024);
+		CountingHandler counter = new CountingHandler();
+		LeavingHandler leaving = new LeavingHandler(events);
+		events.addHandler(leaving);
+		events.addHandler(counter);
+		events.initProcessing();
+		for (int i = 0; i < 100; i++) {
+			events.processEvent(new LinkEnterEvent(0.0, personId, linkId, null));
+		}
+		events.afterSimStep(0.0);
+		// the events created by the handler are part of the same time step:
+		Assert.assertEquals(100, counter.counter.get());
+		Assert.assertEquals(100, counter.leaveCounter.get());
+		events.finishProcessing();
+
+		// after the mobsim, events are processed directly:
+		events.processEvent(new LinkLeaveEvent(1.0, personId, linkId, null));
+		Assert.assertEquals(101, counter.leaveCounter.get());
+	}
+
+	@Test(timeout = 60000)
+	public void testEventsCreatedByHandlersOnSeveralThreads() {
+		// the buffer is full most of the time, while the handlers on both threads create events:
+		EventsManager events = new SimStepRingBufferEventsManagerImpl(2, 64);
+		CountingHandler counter = new CountingHandler();
+		events.addHandler(new LeavingHandler(events));
+		events.addHandler(new LeavingHandler(events));
+		events.addHandler(counter);
+		events.initProcessing();
+		for (int time = 0; time < 100; time++) {
+			for (int i = 0; i < 30; i++) {
+				events.processEvent(new LinkEnterEvent(time, personId, linkId, null));
+			}
+			events.afterSimStep(time);
+			Assert.assertEquals(30 * (time + 1), counter.counter.get());
+			Assert.assertEquals(2 * 30 * (time + 1), counter.leaveCounter.get());
+		}
+		events.finishProcessing();
+	}
+
+	@Test
+	public void testExceptionInHandler() {
+		EventsManager events = new SimStepRingBufferEventsManagerImpl(2, 16);
+		events.addHandler(new CrashingHandler());
+		events.addHandler(new CountingHandler());
+		events.initProcessing();
+		for (int i = 0; i < 100; i++) {
+			try {
+				events.processEvent(new LinkEnterEvent(0.0, personId, linkId, null));
+			} catch (RuntimeException e) {
+				// may happen when the buffer is full and the crashed thread will never catch up
+				break;
+			}
+		}
+		events.afterSimStep(0.0);
+		try {
+			events.finishProcessing();
+			Assert.fail("expected exception, got none.");
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler {
+		final AtomicInteger counter = new AtomicInteger();
+		final AtomicInteger leaveCounter = new AtomicInteger();
+		@Override
+		public void reset(int iteration) {
+			this.counter.set(0);
+			this.leaveCounter.set(0);
+		}
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.counter.incrementAndGet();
+		}
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.leaveCounter.incrementAndGet();
+		}
+	}
+
+	private static class LeavingHandler implements LinkEnterEventHandler {
+		private final EventsManager events;
+		LeavingHandler(EventsManager events) {
+			this.events = events;
+		}
+		@Override
+		public void reset(int iteration) {
+		}
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.events.processEvent(new LinkLeaveEvent(event.getTime(), event.getPersonId(), event.getLinkId(), null));
+		}
+	}
+
+	private static class CrashingHandler implements LinkEnterEventHandler {
+		@Override
+		public void reset(int iteration) {
+		}
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			throw new IllegalStateException("crashing on purpose");
+		}
+	}
+
+}
@@ -0,0 +1,170 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.run.ConvertEvents;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead() {
+		List<Event> original = createEvents();
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		for (Event event : original) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+		Assert.assertTrue(new File(filename).exists());
+
+		assertSameEvents(original, readEvents(filename));
+	}
+
+	@Test
+	public void testWriteRead_multipleBlocks() {
+		List<Event> original = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			original.addAll(createEvents());
+		}
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename, 3);
+		for (Event event : original) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		assertSameEvents(original, readEvents(filename));
+	}
+
+	/**
+	 * Numbers are written as doubles and must come back as the same strings, also when a column that started out
+	 * numeric later gets other values, within a block or in a later block.
+	 */
+	@Test
+	public void testWriteRead_numericAttributes() {
+		String[] values = { "1.5", "-2.25E-5", "3", "1.0", "NaN", "4.75", "link<1", "1.5", null, "0.1" };
+		List<Event> original = new ArrayList<>();
+		for (int i = 0; i < values.length; i++) {
+			GenericEvent event = new GenericEvent("custom", 100.0 + i);
+			event.getAttributes().put("number", Double.toString(0.1 * i));
+			event.getAttributes().put("mixed", values[i]);
+			original.add(event);
+		}
+		original.add(new PersonMoneyEvent(200.0, Id.create("agent 1", Person.class), 1e300));
+		original.add(new PersonMoneyEvent(201.0, Id.create("agent 1", Person.class), -0.0));
+		for (int blockSize : new int[] { 3, EventWriterBinary.DEFAULT_BLOCK_SIZE }) {
+			String filename = this.utils.getOutputDirectory() + "testEvents" + blockSize + ".bin";
+			EventWriterBinary writer = new EventWriterBinary(filename, blockSize);
+			for (Event event : original) {
+				writer.handleEvent(event);
+			}
+			writer.closeFile();
+
+			assertSameEvents(original, readEvents(filename));
+		}
+	}
+
+	@Test
+	public void testConvertXml() {
+		List<Event> original = createEvents();
+		String xmlFilename = this.utils.getOutputDirectory() + "testEvents.xml";
+		EventWriterXML xmlWriter = new EventWriterXML(xmlFilename);
+		for (Event event : original) {
+			xmlWriter.handleEvent(event);
+		}
+		xmlWriter.closeFile();
+
+		String binFilename = this.utils.getOutputDirectory() + "testEvents.bin";
+		ConvertEvents.convert(xmlFilename, binFilename);
+		String xmlFilename2 = this.utils.getOutputDirectory() + "testEvents2.xml";
+		ConvertEvents.convert(binFilename, xmlFilename2);
+
+		assertSameEvents(readEvents(xmlFilename), readEvents(binFilename));
+		assertSameEvents(readEvents(xmlFilename), readEvents(xmlFilename2));
+	}
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		Id<Person> person1 = Id.create("agent 1", Person.class);
+		Id<Person> person2 = Id.create("agent\"2", Person.class);
+		Id<Link> link1 = Id.create("link<1", Link.class);
+		Id<Link> link2 = Id.create("link&2", Link.class);
+		Id<Vehicle> vehicle1 = Id.create("vehicle>1", Vehicle.class);
+		events.add(new ActivityEndEvent(21600.0, person1, link1, null, "home"));
+		events.add(new PersonDepartureEvent(21600.0, person1, link1, "car"));
+		events.add(new LinkLeaveEvent(21601.5, person1, link1, vehicle1));
+		events.add(new LinkEnterEvent(21601.5, person1, link2, vehicle1));
+		events.add(new LinkEnterEvent(21602.0, person2, link2, null));
+		events.add(new PersonMoneyEvent(21700.0, person2, -1.2345678901234));
+		events.add(new PersonStuckEvent(21800.0, person2, null, "walk"));
+		GenericEvent generic = new GenericEvent("custom", 21900.25);
+		generic.getAttributes().put("some", "thing with \u00e4\u00f6\u00fc");
+		generic.getAttributes().put("link", "link<1");
+		events.add(generic);
+		GenericEvent generic2 = new GenericEvent("custom", 21901.0);
+		generic2.getAttributes().put("other", "attributes");
+		events.add(generic2);
+		return events;
+	}
+
+	private static List<Event> readEvents(final String filename) {
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+		return collector.getEvents();
+	}
+
+	private static void assertSameEvents(final List<Event> expected, final List<Event> actual) {
+		Assert.assertEquals("wrong number of events.", expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+			Assert.assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+		}
+	}
+
+}
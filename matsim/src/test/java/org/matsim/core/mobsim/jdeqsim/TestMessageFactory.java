@@ -4,6 +4,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.config.groups.PlansConfigGroup.ActivityDurationInterpretation;
+import org.matsim.core.mobsim.jdeqsim.util.DummyMessage;
 import org.matsim.core.population.PersonImpl;
 import org.matsim.testcases.MatsimTestCase;
 
@@ -11,113 +12,153 @@ public class TestMessageFactory extends MatsimTestCase{
 	
 	// check if gc turned on
 	public void testMessageFactory1(){
-		MessageFactory.GC_ALL_MESSAGES();
+		MessageFactory factory=new MessageFactory();
 		SimulationParameters.setGC_MESSAGES(true);
-		MessageFactory.disposeEndLegMessage(new EndLegMessage(null,null));
-		MessageFactory.disposeEnterRoadMessage(new EnterRoadMessage(null,null));
-		MessageFactory.disposeStartingLegMessage(new StartingLegMessage(null,null));
-		MessageFactory.disposeLeaveRoadMessage(new LeaveRoadMessage(null,null));
-		MessageFactory.disposeEndRoadMessage(new EndRoadMessage(null,null));
-		MessageFactory.disposeDeadlockPreventionMessage(new DeadlockPreventionMessage(null,null));
+		factory.disposeEndLegMessage(new EndLegMessage(null,null));
+		factory.disposeEnterRoadMessage(new EnterRoadMessage(null,null));
+		factory.disposeStartingLegMessage(new StartingLegMessage(null,null));
+		factory.disposeLeaveRoadMessage(new LeaveRoadMessage(null,null));
+		factory.disposeEndRoadMessage(new EndRoadMessage(null,null));
+		factory.disposeDeadlockPreventionMessage(new DeadlockPreventionMessage(null,null));
 		
-		assertEquals(0, MessageFactory.getEndLegMessageQueue().size());
-		assertEquals(0, MessageFactory.getEnterRoadMessageQueue().size());
-		assertEquals(0, MessageFactory.getStartingLegMessageQueue().size());
-		assertEquals(0, MessageFactory.getLeaveRoadMessageQueue().size());
-		assertEquals(0, MessageFactory.getEndRoadMessageQueue().size());
-		assertEquals(0, MessageFactory.getEndLegMessageQueue().size());
+		assertEquals(0, factory.getEndLegMessageQueue().size());
+		assertEquals(0, factory.getEnterRoadMessageQueue().size());
+		assertEquals(0, factory.getStartingLegMessageQueue().size());
+		assertEquals(0, factory.getLeaveRoadMessageQueue().size());
+		assertEquals(0, factory.getEndRoadMessageQueue().size());
+		assertEquals(0, factory.getEndLegMessageQueue().size());
 	}
 	
 	// check when gc turned off
 	public void testMessageFactory2(){
-		MessageFactory.GC_ALL_MESSAGES();
+		MessageFactory factory=new MessageFactory();
 		SimulationParameters.setGC_MESSAGES(false);
-		MessageFactory.disposeEndLegMessage(new EndLegMessage(null,null));
-		MessageFactory.disposeEnterRoadMessage(new EnterRoadMessage(null,null));
-		MessageFactory.disposeStartingLegMessage(new StartingLegMessage(null,null));
-		MessageFactory.disposeLeaveRoadMessage(new LeaveRoadMessage(null,null));
-		MessageFactory.disposeEndRoadMessage(new EndRoadMessage(null,null));
-		MessageFactory.disposeDeadlockPreventionMessage(new DeadlockPreventionMessage(null,null));
+		factory.disposeEndLegMessage(new EndLegMessage(null,null));
+		factory.disposeEnterRoadMessage(new EnterRoadMessage(null,null));
+		factory.disposeStartingLegMessage(new StartingLegMessage(null,null));
+		factory.disposeLeaveRoadMessage(new LeaveRoadMessage(null,null));
+		factory.disposeEndRoadMessage(new EndRoadMessage(null,null));
+		factory.disposeDeadlockPreventionMessage(new DeadlockPreventionMessage(null,null));
 		
-		assertEquals(1, MessageFactory.getEndLegMessageQueue().size());
-		assertEquals(1, MessageFactory.getEnterRoadMessageQueue().size());
-		assertEquals(1, MessageFactory.getStartingLegMessageQueue().size());
-		assertEquals(1, MessageFactory.getLeaveRoadMessageQueue().size());
-		assertEquals(1, MessageFactory.getEndRoadMessageQueue().size());
-		assertEquals(1, MessageFactory.getEndLegMessageQueue().size());
+		assertEquals(1, factory.getEndLegMessageQueue().size());
+		assertEquals(1, factory.getEnterRoadMessageQueue().size());
+		assertEquals(1, factory.getStartingLegMessageQueue().size());
+		assertEquals(1, factory.getLeaveRoadMessageQueue().size());
+		assertEquals(1, factory.getEndRoadMessageQueue().size());
+		assertEquals(1, factory.getEndLegMessageQueue().size());
 	}
 	
 	// check check use of Message factory
 	public void testMessageFactory3(){
-		MessageFactory.GC_ALL_MESSAGES();
+		MessageFactory factory=new MessageFactory();
 		SimulationParameters.setGC_MESSAGES(false);
-		MessageFactory.disposeEndLegMessage(new EndLegMessage(null,null));
-		MessageFactory.disposeEnterRoadMessage(new EnterRoadMessage(null,null));
-		MessageFactory.disposeStartingLegMessage(new StartingLegMessage(null,null));
-		MessageFactory.disposeLeaveRoadMessage(new LeaveRoadMessage(null,null));
-		MessageFactory.disposeEndRoadMessage(new EndRoadMessage(null,null));
-		MessageFactory.disposeDeadlockPreventionMessage(new DeadlockPreventionMessage(null,null));
+		factory.disposeEndLegMessage(new EndLegMessage(null,null));
+		factory.disposeEnterRoadMessage(new EnterRoadMessage(null,null));
+		factory.disposeStartingLegMessage(new StartingLegMessage(null,null));
+		factory.disposeLeaveRoadMessage(new LeaveRoadMessage(null,null));
+		factory.disposeEndRoadMessage(new EndRoadMessage(null,null));
+		factory.disposeDeadlockPreventionMessage(new DeadlockPreventionMessage(null,null));
 		
-		MessageFactory.getEndLegMessage(null, null);
-		MessageFactory.getEnterRoadMessage(null, null);
-		MessageFactory.getStartingLegMessage(null, null);
-		MessageFactory.getLeaveRoadMessage(null, null);
-		MessageFactory.getEndRoadMessage(null, null);
-		MessageFactory.getDeadlockPreventionMessage(null, null);
+		factory.getEndLegMessage(null, null);
+		factory.getEnterRoadMessage(null, null);
+		factory.getStartingLegMessage(null, null);
+		factory.getLeaveRoadMessage(null, null);
+		factory.getEndRoadMessage(null, null);
+		factory.getDeadlockPreventionMessage(null, null);
 		
-		assertEquals(0, MessageFactory.getEndLegMessageQueue().size());
-		assertEquals(0, MessageFactory.getEnterRoadMessageQueue().size());
-		assertEquals(0, MessageFactory.getStartingLegMessageQueue().size());
-		assertEquals(0, MessageFactory.getLeaveRoadMessageQueue().size());
-		assertEquals(0, MessageFactory.getEndRoadMessageQueue().size());
-		assertEquals(0, MessageFactory.getEndLegMessageQueue().size());
+		assertEquals(0, factory.getEndLegMessageQueue().size());
+		assertEquals(0, factory.getEnterRoadMessageQueue().size());
+		assertEquals(0, factory.getStartingLegMessageQueue().size());
+		assertEquals(0, factory.getLeaveRoadMessageQueue().size());
+		assertEquals(0, factory.getEndRoadMessageQueue().size());
+		assertEquals(0, factory.getEndLegMessageQueue().size());
 	}
 	
 	// check initialization using constructer
 	public void testMessageFactory5(){
-		MessageFactory.GC_ALL_MESSAGES();
+		MessageFactory factory=new MessageFactory();
 		SimulationParameters.setGC_MESSAGES(true);
 		Scheduler scheduler=new Scheduler(new MessageQueue());
 		PersonImpl person= new PersonImpl(Id.create("abc", Person.class));
 		Vehicle vehicle=new Vehicle(scheduler, person, PlansConfigGroup.ActivityDurationInterpretation.minOfDurationAndEndTime );
 		
-		assertEquals(true,MessageFactory.getEndLegMessage(scheduler, vehicle).scheduler==scheduler);
-		assertEquals(true,MessageFactory.getEnterRoadMessage(scheduler, vehicle).scheduler==scheduler);
-		assertEquals(true,MessageFactory.getStartingLegMessage(scheduler, vehicle).scheduler==scheduler);
-		assertEquals(true,MessageFactory.getLeaveRoadMessage(scheduler, vehicle).scheduler==scheduler);
-		assertEquals(true,MessageFactory.getEndRoadMessage(scheduler, vehicle).scheduler==scheduler);
-		assertEquals(true,MessageFactory.getDeadlockPreventionMessage(scheduler, vehicle).scheduler==scheduler);
+		assertEquals(true,factory.getEndLegMessage(scheduler, vehicle).scheduler==scheduler);
+		assertEquals(true,factory.getEnterRoadMessage(scheduler, vehicle).scheduler==scheduler);
+		assertEquals(true,factory.getStartingLegMessage(scheduler, vehicle).scheduler==scheduler);
+		assertEquals(true,factory.getLeaveRoadMessage(scheduler, vehicle).scheduler==scheduler);
+		assertEquals(true,factory.getEndRoadMessage(scheduler, vehicle).scheduler==scheduler);
+		assertEquals(true,factory.getDeadlockPreventionMessage(scheduler, vehicle).scheduler==scheduler);
 		
-		assertEquals(true,MessageFactory.getEndLegMessage(scheduler, vehicle).vehicle==vehicle);
-		assertEquals(true,MessageFactory.getEnterRoadMessage(scheduler, vehicle).vehicle==vehicle);
-		assertEquals(true,MessageFactory.getStartingLegMessage(scheduler, vehicle).vehicle==vehicle);
-		assertEquals(true,MessageFactory.getLeaveRoadMessage(scheduler, vehicle).vehicle==vehicle);
-		assertEquals(true,MessageFactory.getEndRoadMessage(scheduler, vehicle).vehicle==vehicle);
-		assertEquals(true,MessageFactory.getDeadlockPreventionMessage(scheduler, vehicle).vehicle==vehicle);
+		assertEquals(true,factory.getEndLegMessage(scheduler, vehicle).vehicle==vehicle);
+		assertEquals(true,factory.getEnterRoadMessage(scheduler, vehicle).vehicle==vehicle);
+		assertEquals(true,factory.getStartingLegMessage(scheduler, vehicle).vehicle==vehicle);
+		assertEquals(true,factory.getLeaveRoadMessage(scheduler, vehicle).vehicle==vehicle);
+		assertEquals(true,factory.getEndRoadMessage(scheduler, vehicle).vehicle==vehicle);
+		assertEquals(true,factory.getDeadlockPreventionMessage(scheduler, vehicle).vehicle==vehicle);
 	}
 	
 	// check initialization using rest
 	public void testMessageFactory6(){
-		MessageFactory.GC_ALL_MESSAGES();
+		MessageFactory factory=new MessageFactory();
 		SimulationParameters.setGC_MESSAGES(false);
 		Scheduler scheduler=new Scheduler(new MessageQueue());
 		PersonImpl person= new PersonImpl(Id.create("abc", Person.class));
 		Vehicle vehicle=new Vehicle(scheduler, person, PlansConfigGroup.ActivityDurationInterpretation.minOfDurationAndEndTime );
 		
-		assertEquals(true,MessageFactory.getEndLegMessage(scheduler, vehicle).scheduler==scheduler);
-		assertEquals(true,MessageFactory.getEnterRoadMessage(scheduler, vehicle).scheduler==scheduler);
-		assertEquals(true,MessageFactory.getStartingLegMessage(scheduler, vehicle).scheduler==scheduler);
-		assertEquals(true,MessageFactory.getLeaveRoadMessage(scheduler, vehicle).scheduler==scheduler);
-		assertEquals(true,MessageFactory.getEndRoadMessage(scheduler, vehicle).scheduler==scheduler);
-		assertEquals(true,MessageFactory.getDeadlockPreventionMessage(scheduler, vehicle).scheduler==scheduler);
+		assertEquals(true,factory.getEndLegMessage(scheduler, vehicle).scheduler==scheduler);
+		assertEquals(true,factory.getEnterRoadMessage(scheduler, vehicle).scheduler==scheduler);
+		assertEquals(true,factory.getStartingLegMessage(scheduler, vehicle).scheduler==scheduler);
+		assertEquals(true,factory.getLeaveRoadMessage(scheduler, vehicle).scheduler==scheduler);
+		assertEquals(true,factory.getEndRoadMessage(scheduler, vehicle).scheduler==scheduler);
+		assertEquals(true,factory.getDeadlockPreventionMessage(scheduler, vehicle).scheduler==scheduler);
 		
-		assertEquals(true,MessageFactory.getEndLegMessage(scheduler, vehicle).vehicle==vehicle);
-		assertEquals(true,MessageFactory.getEnterRoadMessage(scheduler, vehicle).vehicle==vehicle);
-		assertEquals(true,MessageFactory.getStartingLegMessage(scheduler, vehicle).vehicle==vehicle);
-		assertEquals(true,MessageFactory.getLeaveRoadMessage(scheduler, vehicle).vehicle==vehicle);
-		assertEquals(true,MessageFactory.getEndRoadMessage(scheduler, vehicle).vehicle==vehicle);
-		assertEquals(true,MessageFactory.getDeadlockPreventionMessage(scheduler, vehicle).vehicle==vehicle);
+		assertEquals(true,factory.getEndLegMessage(scheduler, vehicle).vehicle==vehicle);
+		assertEquals(true,factory.getEnterRoadMessage(scheduler, vehicle).vehicle==vehicle);
+		assertEquals(true,factory.getStartingLegMessage(scheduler, vehicle).vehicle==vehicle);
+		assertEquals(true,factory.getLeaveRoadMessage(scheduler, vehicle).vehicle==vehicle);
+		assertEquals(true,factory.getEndRoadMessage(scheduler, vehicle).vehicle==vehicle);
+		assertEquals(true,factory.getDeadlockPreventionMessage(scheduler, vehicle).vehicle==vehicle);
 	}
-	
-	
+
+	// messages handed back after use are re-used, revived and do not reference their old vehicle anymore
+	public void testDisposeMessage(){
+		MessageFactory factory=new MessageFactory();
+		SimulationParameters.setGC_MESSAGES(false);
+		Scheduler scheduler=new Scheduler(new MessageQueue());
+		PersonImpl person= new PersonImpl(Id.create("abc", Person.class));
+		Vehicle vehicle=new Vehicle(scheduler, person, PlansConfigGroup.ActivityDurationInterpretation.minOfDurationAndEndTime );
+
+		DeadlockPreventionMessage message=factory.getDeadlockPreventionMessage(scheduler, vehicle);
+		message.killMessage();
+		factory.disposeMessage(message);
+		assertEquals(1, factory.getDeadlockPreventionMessageQueue().size());
+		assertEquals(null, message.vehicle);
+
+		assertEquals(true, factory.getDeadlockPreventionMessage(scheduler, vehicle)==message);
+		assertEquals(true, message.isAlive());
+		assertEquals(true, message.vehicle==vehicle);
+
+		// other message types are not pooled
+		factory.disposeMessage(new DummyMessage());
+		assertEquals(0, factory.getDeadlockPreventionMessageQueue().size());
+	}
+
+	// every scheduler recycles its messages in the pools of its own queue
+	public void testMessageFactoryPerScheduler(){
+		SimulationParameters.setGC_MESSAGES(false);
+		MessageQueue queue1=new MessageQueue();
+		Scheduler scheduler1=new Scheduler(queue1);
+		Scheduler scheduler2=new Scheduler(new MessageQueue());
+		assertEquals(false, scheduler1.getMessageFactory()==scheduler2.getMessageFactory());
+		PersonImpl person= new PersonImpl(Id.create("abc", Person.class));
+		Vehicle vehicle=new Vehicle(scheduler1, person, PlansConfigGroup.ActivityDurationInterpretation.minOfDurationAndEndTime );
+
+		DeadlockPreventionMessage message=scheduler1.getMessageFactory().getDeadlockPreventionMessage(scheduler1, vehicle);
+		queue1.putMessage(message);
+		queue1.removeMessage(message);
+		assertEquals(null, queue1.getNextMessage());
+		assertEquals(1, scheduler1.getMessageFactory().getDeadlockPreventionMessageQueue().size());
+		assertEquals(0, scheduler2.getMessageFactory().getDeadlockPreventionMessageQueue().size());
+	}
+
 }
@@ -1,5 +1,10 @@
 package org.matsim.core.mobsim.jdeqsim;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
 import org.matsim.core.mobsim.jdeqsim.util.DummyMessage;
 import org.matsim.testcases.MatsimTestCase;
 
@@ -127,7 +132,58 @@ public class TestMessageQueue extends MatsimTestCase {
 		assertEquals(0, mq.getQueueSize());
 		assertEquals(true, mq.isEmpty());
 	}
-	
-	
-	
+
+	// messages with the same time and priority leave the queue in the order they were put into it
+	public void testSameTimeAndPriorityKeepsOrder(){
+		MessageQueue mq=new MessageQueue();
+		List<Message> messages=new ArrayList<Message>();
+		for (int i=0;i<10;i++){
+			Message m=new DummyMessage();
+			m.setMessageArrivalTime(3.5);
+			mq.putMessage(m);
+			messages.add(m);
+		}
+		for (Message m:messages){
+			assertEquals(true, mq.getNextMessage()==m);
+		}
+		assertEquals(true, mq.isEmpty());
+	}
+
+	// messages far in the future, or before the current time, and messages put while the queue is being emptied
+	public void testCalendarOrder(){
+		Random random=new Random(4711);
+		MessageQueue mq=new MessageQueue();
+		List<Double> expected=new ArrayList<Double>();
+		for (int i=0;i<2000;i++){
+			double time = i%10==0 ? random.nextDouble()*1e7 : random.nextDouble()*30*3600;
+			putMessage(mq, time);
+			expected.add(time);
+		}
+		Collections.sort(expected);
+		double lastTime=Double.NEGATIVE_INFINITY;
+		int polled=0;
+		Message m;
+		while ((m=mq.getNextMessage())!=null){
+			assertTrue(m.getMessageArrivalTime()>=lastTime);
+			lastTime=m.getMessageArrivalTime();
+			assertEquals(expected.remove(0).doubleValue(), lastTime, 0.0);
+			polled++;
+			if (polled%3==0){
+				// as during the simulation: the new message is not earlier than the current one
+				double time = lastTime + (polled%2==0 ? 0.0 : random.nextDouble()*7200);
+				putMessage(mq, time);
+				expected.add(time);
+			}
+			Collections.sort(expected);
+		}
+		assertEquals(0, expected.size());
+		assertEquals(0, mq.getQueueSize());
+	}
+
+	private static void putMessage(MessageQueue mq, double time){
+		Message m=new DummyMessage();
+		m.setMessageArrivalTime(time);
+		mq.putMessage(m);
+	}
+
 }
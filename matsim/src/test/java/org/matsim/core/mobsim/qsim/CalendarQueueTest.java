@@ -0,0 +1,126 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CalendarQueueTest {
+
+	private static final Comparator<Integer> REVERSE = new Comparator<Integer>() {
+		@Override
+		public int compare(Integer o1, Integer o2) {
+			return o2.compareTo(o1);
+		}
+	};
+
+	@Test
+	public void testPollDue_Order() {
+		CalendarQueue<Integer> queue = new CalendarQueue<>(REVERSE, 16);
+		queue.add(1, 10.0);
+		queue.add(2, 10.0);
+		queue.add(3, 9.5);
+		queue.add(4, 10.5);
+		queue.add(5, 100.0); // more than one round ahead
+
+		Assert.assertEquals(0, queue.pollDue(9.0));
+		Assert.assertEquals(9.5, queue.getEarliestTime(), 0.0);
+		Assert.assertEquals(3, queue.pollDue(10.0));
+		Assert.assertEquals(3, queue.getDue(0).intValue());
+		Assert.assertEquals(2, queue.getDue(1).intValue());
+		Assert.assertEquals(1, queue.getDue(2).intValue());
+		Assert.assertEquals(10.5, queue.getEarliestTime(), 0.0);
+		Assert.assertEquals(1, queue.pollDue(11.0));
+		Assert.assertEquals(4, queue.getDue(0).intValue());
+		Assert.assertEquals(100.0, queue.getEarliestTime(), 0.0);
+		Assert.assertEquals(0, queue.pollDue(99.0));
+		Assert.assertEquals(1, queue.pollDue(100.0));
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertEquals(Double.POSITIVE_INFINITY, queue.getEarliestTime(), 0.0);
+	}
+
+	@Test
+	public void testRemoveAndEntriesBeforeCurrentTime() {
+		CalendarQueue<Integer> queue = new CalendarQueue<>(REVERSE, 16);
+		queue.pollDue(50.0);
+		CalendarQueue.Entry<Integer> e1 = queue.add(1, 60.0);
+		queue.add(2, 20.0); // already in the past: due with the next poll
+		Assert.assertTrue(queue.remove(e1));
+		Assert.assertFalse(queue.remove(e1));
+		Assert.assertEquals(1, queue.size());
+		Assert.assertEquals(1, queue.pollDue(51.0));
+		Assert.assertEquals(2, queue.getDue(0).intValue());
+		Assert.assertEquals(0, queue.pollDue(100.0));
+	}
+
+	/**
+	 * Compares against a priority queue with the same ordering, with random time steps (also smaller and larger than
+	 * the buckets), random removals and jumps over many rounds of the wheel.
+	 */
+	@Test
+	public void testAgainstPriorityQueue() {
+		Random random = new Random(4711);
+		final double[] times = new double[5000];
+		CalendarQueue<Integer> queue = new CalendarQueue<>(REVERSE, 64);
+		PriorityQueue<Integer> reference = new PriorityQueue<>(100, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int cmp = Double.compare(times[o1], times[o2]);
+				return cmp != 0 ? cmp : o2.compareTo(o1);
+			}
+		});
+		List<CalendarQueue.Entry<Integer>> entries = new ArrayList<>();
+
+		double now = 0.0;
+		int next = 0;
+		while (now < 20000.0) {
+			for (int i = random.nextInt(4); i > 0 && next < times.length; i--) {
+				double time = now + (random.nextBoolean() ? random.nextInt(300) : random.nextDouble() * 5000.0);
+				times[next] = time;
+				reference.add(next);
+				entries.add(queue.add(next, time));
+				next++;
+			}
+			if (random.nextInt(10) == 0 && !entries.isEmpty()) {
+				CalendarQueue.Entry<Integer> entry = entries.get(random.nextInt(entries.size()));
+				Assert.assertEquals(reference.remove(entry.getElement()), queue.remove(entry));
+			}
+
+			Assert.assertEquals(reference.isEmpty() ? Double.POSITIVE_INFINITY : times[reference.peek()], queue.getEarliestTime(), 0.0);
+
+			double step = random.nextInt(20) == 0 ? random.nextDouble() * 1000.0 : 0.25 * (1 + random.nextInt(8));
+			now += step;
+			int n = queue.pollDue(now);
+			for (int i = 0; i < n; i++) {
+				Assert.assertEquals(reference.poll(), queue.getDue(i));
+			}
+			Assert.assertTrue(reference.isEmpty() || times[reference.peek()] > now);
+			Assert.assertEquals(reference.size(), queue.size());
+		}
+	}
+
+}
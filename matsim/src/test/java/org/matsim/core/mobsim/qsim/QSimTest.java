@@ -41,6 +41,8 @@ import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
 import org.matsim.core.mobsim.qsim.agents.AgentFactory;
 import org.matsim.core.mobsim.qsim.agents.DefaultAgentFactory;
 import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
@@ -1391,6 +1393,166 @@ public class QSimTest {
 		}
 	}
 
+	/**
+	 * Runs the same day with and without skipping idle time steps.  The events must be the same, but far fewer time steps
+	 * must be simulated with skipping.
+	 */
+	@Test
+	public void testSkippingIdleTimeSteps() {
+		List<String> events = new ArrayList<>();
+		List<String> eventsSkipping = new ArrayList<>();
+		int steps = runDayForTimeSkipping(false, events);
+		int stepsSkipping = runDayForTimeSkipping(true, eventsSkipping);
+
+		Assert.assertEquals("different events with skipping idle time steps.", events, eventsSkipping);
+		Assert.assertTrue("too few time steps simulated without skipping.", steps > 3*3600);
+		Assert.assertTrue("too many time steps simulated with skipping.", stepsSkipping < 100);
+	}
+
+	private int runDayForTimeSkipping(boolean skipping, List<String> eventStrings) {
+		Fixture f = new Fixture();
+		f.config.qsim().setSkippingIdleTimeSteps(skipping);
+		f.config.qsim().setEndTime(12*3600 + 0.5);
+
+		for (int i = 0; i < 3; i++) {
+			PersonImpl person = new PersonImpl(Id.create(i, Person.class));
+			PlanImpl plan = person.createAndAddPlan(true);
+			ActivityImpl a1 = plan.createAndAddActivity("h", f.link1.getId());
+			a1.setEndTime((6+i)*3600 + 0.5);
+			LegImpl leg = plan.createAndAddLeg(TransportMode.car);
+			NetworkRoute route = (NetworkRoute) ((PopulationFactoryImpl) f.scenario.getPopulation().getFactory()).createRoute(TransportMode.car, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			ActivityImpl a2 = plan.createAndAddActivity("w", f.link3.getId());
+			a2.setEndTime((9+i)*3600);
+			LegImpl leg2 = plan.createAndAddLeg("other");
+			Route route2 = f.scenario.getPopulation().getFactory().createRoute("undefined", f.link3.getId(), f.link1.getId());
+			route2.setTravelTime(1800.0);
+			leg2.setRoute(route2);
+			plan.createAndAddActivity("h", f.link1.getId());
+			f.plans.addPerson(person);
+		}
+		// this one is still at work when the simulation ends
+		PersonImpl person = new PersonImpl(Id.create("late", Person.class));
+		PlanImpl plan = person.createAndAddPlan(true);
+		plan.createAndAddActivity("h", f.link1.getId()).setEndTime(5*3600);
+		LegImpl leg = plan.createAndAddLeg("other");
+		Route route = f.scenario.getPopulation().getFactory().createRoute("undefined", f.link1.getId(), f.link3.getId());
+		route.setTravelTime(60.0);
+		leg.setRoute(route);
+		plan.createAndAddActivity("w", f.link3.getId()).setEndTime(20*3600);
+		f.plans.addPerson(person);
+
+		final List<String> strings = eventStrings;
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				strings.add(event.toString());
+			}
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+
+		final int[] steps = new int[1];
+		QSim sim = createQSim(f, events);
+		sim.addQueueSimulationListeners(new MobsimAfterSimStepListener() {
+			@Override
+			public void notifyMobsimAfterSimStep(@SuppressWarnings("rawtypes") MobsimAfterSimStepEvent e) {
+				steps[0]++;
+			}
+		});
+		sim.run();
+		return steps[0];
+	}
+
+	/**
+	 * Many agents leave at the same time, on two links and with two modes.  The events with parallel departures must
+	 * be the same as without.  The events of the main thread (activity ends, departures, entering vehicles, ...) must
+	 * come in the same order.  Since the netsim runners emit their events concurrently, their events are only
+	 * compared per time step.
+	 */
+	@Test
+	public void testParallelDepartures() {
+		List<List<String>> events = runDayForParallelDepartures(false);
+		List<List<String>> eventsParallel = runDayForParallelDepartures(true);
+		Assert.assertTrue(events.get(0).size() > 1000);
+		Assert.assertEquals("different events of the main thread with parallel departures.", events.get(0), eventsParallel.get(0));
+		Assert.assertEquals("different events of the netsim runners with parallel departures.", events.get(1), eventsParallel.get(1));
+	}
+
+	/**
+	 * @return the events emitted by the main thread, in their order, and the events of all other threads, sorted per
+	 * time step
+	 */
+	private List<List<String>> runDayForParallelDepartures(boolean parallel) {
+		Fixture f = new Fixture();
+		f.config.qsim().setNumberOfThreads(2);
+		f.config.qsim().setUsingParallelDepartures(parallel);
+
+		for (int i = 0; i < 300; i++) {
+			PersonImpl person = new PersonImpl(Id.create(i, Person.class));
+			PlanImpl plan = person.createAndAddPlan(true);
+			Link startLink = (i % 2 == 0) ? f.link1 : f.link2;
+			ActivityImpl a1 = plan.createAndAddActivity("h", startLink.getId());
+			a1.setEndTime(6*3600 + (i % 3) * 60);
+			if (i % 7 == 0) {
+				LegImpl leg = plan.createAndAddLeg("other");
+				Route route = f.scenario.getPopulation().getFactory().createRoute("undefined", startLink.getId(), f.link3.getId());
+				route.setTravelTime(300.0);
+				leg.setRoute(route);
+			} else {
+				LegImpl leg = plan.createAndAddLeg(TransportMode.car);
+				NetworkRoute route = (NetworkRoute) ((PopulationFactoryImpl) f.scenario.getPopulation().getFactory()).createRoute(TransportMode.car, startLink.getId(), f.link3.getId());
+				route.setLinkIds(startLink.getId(), startLink == f.link1 ? f.linkIds2 : f.linkIdsNone, f.link3.getId());
+				leg.setRoute(route);
+			}
+			plan.createAndAddActivity("w", f.link3.getId());
+			f.plans.addPerson(person);
+		}
+
+		final Thread mainThread = Thread.currentThread();
+		final List<String> mainThreadEvents = new ArrayList<>();
+		final List<Event> otherEvents = new ArrayList<>();
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				if (Thread.currentThread() == mainThread) {
+					mainThreadEvents.add(event.toString());
+				} else {
+					synchronized (otherEvents) {
+						otherEvents.add(event);
+					}
+				}
+			}
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		QSim sim = createQSim(f, events);
+		sim.run();
+
+		List<String> otherStrings = new ArrayList<>();
+		int from = 0;
+		for (int i = 1; i <= otherEvents.size(); i++) {
+			if (i == otherEvents.size() || otherEvents.get(i).getTime() != otherEvents.get(from).getTime()) {
+				List<String> step = new ArrayList<>();
+				for (Event event : otherEvents.subList(from, i)) {
+					step.add(event.toString());
+				}
+				Collections.sort(step);
+				otherStrings.addAll(step);
+				from = i;
+			}
+		}
+		List<List<String>> result = new ArrayList<>();
+		result.add(mainThreadEvents);
+		result.add(otherStrings);
+		return result;
+	}
+
 	/**
 	 * Initializes some commonly used data in the tests.
 	 *
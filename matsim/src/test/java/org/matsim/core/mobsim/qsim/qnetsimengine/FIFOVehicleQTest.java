@@ -0,0 +1,125 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FIFOVehicleQTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleImpl;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleTypeImpl;
+
+public class FIFOVehicleQTest {
+
+	private static final VehicleType TYPE = new VehicleTypeImpl(Id.create("defaultVehicleType", VehicleType.class));
+
+	@Test
+	public void testOfferPoll_firstInFirstOut() {
+		FIFOVehicleQ queue = new FIFOVehicleQ(2);
+		QVehicle[] vehicles = createVehicles(5);
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertNull(queue.peek());
+		Assert.assertNull(queue.poll());
+
+		// more vehicles than the initial capacity, so the ring buffer has to grow
+		for (QVehicle veh : vehicles) {
+			Assert.assertTrue(queue.offer(veh));
+		}
+		Assert.assertEquals(5, queue.size());
+		Assert.assertSame(vehicles[0], queue.peek());
+
+		Iterator<QVehicle> iter = queue.iterator();
+		for (QVehicle veh : vehicles) {
+			Assert.assertSame(veh, iter.next());
+		}
+		Assert.assertFalse(iter.hasNext());
+
+		for (QVehicle veh : vehicles) {
+			Assert.assertSame(veh, queue.poll());
+		}
+		Assert.assertTrue(queue.isEmpty());
+		Assert.assertNull(queue.poll());
+	}
+
+	@Test
+	public void testOfferPoll_wrapAround() {
+		FIFOVehicleQ queue = new FIFOVehicleQ(4);
+		QVehicle[] vehicles = createVehicles(10);
+		// keep at most three vehicles in the queue, so the head wraps around the end of the buffer several times
+		int polled = 0;
+		for (int i = 0; i < vehicles.length; i++) {
+			queue.offer(vehicles[i]);
+			if (queue.size() == 3) {
+				Assert.assertSame(vehicles[polled++], queue.poll());
+			}
+		}
+		while (!queue.isEmpty()) {
+			Assert.assertSame(vehicles[polled++], queue.poll());
+		}
+		Assert.assertEquals(vehicles.length, polled);
+	}
+
+	@Test
+	public void testAddFirst() {
+		FIFOVehicleQ queue = new FIFOVehicleQ();
+		QVehicle[] vehicles = createVehicles(3);
+		queue.add(vehicles[0]);
+		queue.add(vehicles[1]);
+		// transit vehicles are put in front of the queue
+		queue.addFirst(vehicles[2]);
+		Assert.assertSame(vehicles[2], queue.poll());
+		Assert.assertSame(vehicles[0], queue.poll());
+		Assert.assertSame(vehicles[1], queue.poll());
+	}
+
+	@Test
+	public void testRemove() {
+		FIFOVehicleQ queue = new FIFOVehicleQ(4);
+		QVehicle[] vehicles = createVehicles(4);
+		for (QVehicle veh : vehicles) {
+			queue.add(veh);
+		}
+		// the head, as when a vehicle moves to the buffer
+		Assert.assertTrue(queue.remove(vehicles[0]));
+		// a vehicle in the middle, as with seepage
+		Assert.assertTrue(queue.remove(vehicles[2]));
+		Assert.assertFalse(queue.remove(vehicles[2]));
+		Assert.assertEquals(2, queue.size());
+		Assert.assertSame(vehicles[1], queue.poll());
+		Assert.assertSame(vehicles[3], queue.poll());
+
+		queue.add(vehicles[0]);
+		queue.clear();
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	private static QVehicle[] createVehicles(final int count) {
+		QVehicle[] vehicles = new QVehicle[count];
+		for (int i = 0; i < count; i++) {
+			vehicles[i] = new QVehicle(new VehicleImpl(Id.create(i, Vehicle.class), TYPE));
+		}
+		return vehicles;
+	}
+
+}
@@ -0,0 +1,60 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * GridNetworkFixture.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.utils.geometry.CoordImpl;
+
+/**
+ * A square grid of nodes 100m apart, with links in both directions between neighbouring nodes.  Node ids are
+ * <code>x_y</code>, with x and y counting from 0.
+ */
+/*package*/ final class GridNetworkFixture {
+
+	private GridNetworkFixture() {
+	}
+
+	/*package*/ static void fillGridNetwork(final NetworkImpl network, final int size) {
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = network.createAndAddNode(Id.create(x + "_" + y, Node.class), new CoordImpl(x * 100, y * 100));
+			}
+		}
+		int linkCnt = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					network.createAndAddLink(Id.create(linkCnt++, Link.class), nodes[x][y], nodes[x + 1][y], 100, 10, 1000, 1);
+					network.createAndAddLink(Id.create(linkCnt++, Link.class), nodes[x + 1][y], nodes[x][y], 100, 10, 1000, 1);
+				}
+				if (y + 1 < size) {
+					network.createAndAddLink(Id.create(linkCnt++, Link.class), nodes[x][y], nodes[x][y + 1], 100, 10, 1000, 1);
+					network.createAndAddLink(Id.create(linkCnt++, Link.class), nodes[x][y + 1], nodes[x][y], 100, 10, 1000, 1);
+				}
+			}
+		}
+	}
+
+}
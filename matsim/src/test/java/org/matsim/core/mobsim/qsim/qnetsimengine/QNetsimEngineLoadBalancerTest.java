@@ -0,0 +1,158 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineLoadBalancerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class QNetsimEngineLoadBalancerTest {
+
+	private static final int GRID = 6;
+
+	@Test
+	public void testActiveElementsAreKeptWhenRebalancing() {
+		QNetwork network = createGridQNetwork();
+		FixedBusyTimeRunner busy = new FixedBusyTimeRunner(3000);
+		FixedBusyTimeRunner lazy = new FixedBusyTimeRunner(1000);
+		List<QNetsimEngineRunner> runners = new ArrayList<>();
+		runners.add(busy);
+		runners.add(lazy);
+
+		// left half of the grid to the busy runner, right half to the lazy one; activate every second node and link
+		for (QNode node : network.getNetsimNodes().values()) {
+			QNetsimEngineRunner runner = node.getNode().getCoord().getX() < GRID / 2 * 100 ? busy : lazy;
+			node.setNetElementActivator(runner);
+			node.simStepsCounter = 1;
+			for (Link outLink : node.getNode().getOutLinks().values()) {
+				((AbstractQLink) network.getNetsimLink(outLink.getId())).setNetElementActivator(runner);
+			}
+		}
+		int cnt = 0;
+		for (QNode node : network.getNetsimNodes().values()) {
+			if (cnt++ % 2 == 0) {
+				node.activateNode();
+			}
+		}
+		for (QLinkInternalI qLink : network.getNetsimLinks().values()) {
+			if (cnt++ % 2 == 0) {
+				((AbstractQLink) qLink).activateLink();
+			}
+		}
+		int activeNodes = busy.getNumberOfSimulatedNodes() + lazy.getNumberOfSimulatedNodes();
+		int activeLinks = busy.getNumberOfSimulatedLinks() + lazy.getNumberOfSimulatedLinks();
+		int busyNodes = countNodes(network, busy);
+
+		QNetsimEngineLoadBalancer balancer = new QNetsimEngineLoadBalancer(network, runners, 1.2);
+		for (int i = 0; i < QNetsimEngineLoadBalancer.CHECK_PERIOD; i++) {
+			balancer.rebalanceIfNecessary(i);
+		}
+
+		Assert.assertEquals(1, balancer.getNumberOfMigrations());
+		Assert.assertTrue("no nodes were moved to the lazy runner", countNodes(network, busy) < busyNodes);
+		Assert.assertEquals(activeNodes, busy.getNumberOfSimulatedNodes() + lazy.getNumberOfSimulatedNodes());
+		Assert.assertEquals(activeLinks, busy.getNumberOfSimulatedLinks() + lazy.getNumberOfSimulatedLinks());
+		for (QNetsimEngineRunner runner : runners) {
+			int expectedNodes = 0;
+			for (QNode node : network.getNetsimNodes().values()) {
+				if (node.getNetElementActivator() == runner && node.isActive()) {
+					expectedNodes++;
+				}
+			}
+			int expectedLinks = 0;
+			for (QLinkInternalI qLink : network.getNetsimLinks().values()) {
+				AbstractQLink link = (AbstractQLink) qLink;
+				QNode fromNode = network.getNetsimNodes().get(link.getLink().getFromNode().getId());
+				Assert.assertSame("link is not handled by the runner of its from-node", fromNode.getNetElementActivator(), link.getNetElementActivator());
+				if (link.getNetElementActivator() == runner && link.active) {
+					expectedLinks++;
+				}
+			}
+			Assert.assertEquals(expectedNodes, runner.getNumberOfSimulatedNodes());
+			Assert.assertEquals(expectedLinks, runner.getNumberOfSimulatedLinks());
+		}
+	}
+
+	@Test
+	public void testNoMigrationWhenBalanced() {
+		QNetwork network = createGridQNetwork();
+		List<QNetsimEngineRunner> runners = new ArrayList<>();
+		runners.add(new FixedBusyTimeRunner(1100));
+		runners.add(new FixedBusyTimeRunner(1000));
+		for (QNode node : network.getNetsimNodes().values()) {
+			QNetsimEngineRunner runner = runners.get(node.getNode().getCoord().getX() < GRID / 2 * 100 ? 0 : 1);
+			node.setNetElementActivator(runner);
+			node.simStepsCounter = 1;
+		}
+
+		QNetsimEngineLoadBalancer balancer = new QNetsimEngineLoadBalancer(network, runners, 1.2);
+		for (int i = 0; i < QNetsimEngineLoadBalancer.CHECK_PERIOD; i++) {
+			balancer.rebalanceIfNecessary(i);
+		}
+
+		Assert.assertEquals(0, balancer.getNumberOfMigrations());
+		Assert.assertEquals(GRID * GRID / 2, countNodes(network, runners.get(0)));
+	}
+
+	private static int countNodes(QNetwork network, QNetsimEngineRunner runner) {
+		int cnt = 0;
+		for (QNode node : network.getNetsimNodes().values()) {
+			if (node.getNetElementActivator() == runner) {
+				cnt++;
+			}
+		}
+		return cnt;
+	}
+
+	private static QNetwork createGridQNetwork() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		GridNetworkFixture.fillGridNetwork((NetworkImpl) scenario.getNetwork(), GRID);
+		QSim qsim = (QSim) QSimUtils.createDefaultQSim(scenario, EventsUtils.createEventsManager());
+		return (QNetwork) qsim.getNetsimNetwork();
+	}
+
+	/**
+	 * Reports the same wall time for every check period instead of measuring it.
+	 */
+	private static final class FixedBusyTimeRunner extends QNetsimEngineRunner {
+		private final long busyNanos;
+
+		FixedBusyTimeRunner(long busyNanos) {
+			this.busyNanos = busyNanos;
+		}
+
+		@Override
+		long getAndResetBusyTime() {
+			return this.busyNanos;
+		}
+	}
+
+}
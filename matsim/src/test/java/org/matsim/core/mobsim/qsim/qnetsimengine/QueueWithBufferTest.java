@@ -0,0 +1,205 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QueueWithBufferTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.population.ActivityImpl;
+import org.matsim.core.population.LegImpl;
+import org.matsim.core.population.PersonImpl;
+import org.matsim.core.population.PlanImpl;
+import org.matsim.core.population.routes.LinkNetworkRouteImpl;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.geometry.CoordImpl;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleImpl;
+import org.matsim.vehicles.VehicleType;
+import org.matsim.vehicles.VehicleTypeImpl;
+
+/**
+ * Tests the vehicle queue, the buffer and the holes of {@link QueueWithBuffer} on a single link.
+ */
+public class QueueWithBufferTest {
+
+	/**
+	 * Vehicles leave the link in the order they entered it, one per time step as given by the flow capacity.
+	 */
+	@Test
+	public void testBufferFlow() {
+		Fixture f = new Fixture(TrafficDynamics.queue);
+		List<QVehicle> vehicles = f.addVehicles(5);
+		List<QVehicle> left = new ArrayList<>();
+		List<Double> leaveTimes = new ArrayList<>();
+		for (double now = 1.0; now < 100.0; now++) {
+			f.step(now, left, leaveTimes);
+		}
+
+		Assert.assertEquals(vehicles, left);
+		// free speed travel time is 10s, flow capacity is 1 veh/s
+		Assert.assertEquals(10.0, leaveTimes.get(0), 0.0);
+		for (int i = 1; i < leaveTimes.size(); i++) {
+			Assert.assertEquals(leaveTimes.get(i - 1) + 1.0, leaveTimes.get(i), 0.0);
+		}
+		Assert.assertEquals(0, f.road.vehInQueueCount());
+		Assert.assertTrue(f.road.isNotOfferingVehicle());
+	}
+
+	/**
+	 * Every leaving vehicle sends a hole upstream.  Holes that have arrived upstream are used again for the next leaving
+	 * vehicles instead of creating new ones.
+	 */
+	@Test
+	public void testHolesAreRecycled() {
+		Fixture f = new Fixture(TrafficDynamics.withHoles);
+		List<QVehicle> vehicles = f.addVehicles(3);
+		List<QVehicle> left = new ArrayList<>();
+		List<Double> leaveTimes = new ArrayList<>();
+		for (double now = 1.0; now < 15.0; now++) {
+			f.step(now, left, leaveTimes);
+		}
+		Assert.assertEquals(vehicles, left);
+		Assert.assertEquals(3, f.road.holesInQueueCount());
+		Assert.assertEquals(0, f.road.unusedHolesCount());
+
+		// holes travel with 15km/h, i.e. need 18s for the 75m of the link
+		for (double now = 15.0; now < 60.0; now++) {
+			f.step(now, left, leaveTimes);
+		}
+		Assert.assertEquals(0, f.road.holesInQueueCount());
+		Assert.assertEquals(3, f.road.unusedHolesCount());
+		Assert.assertTrue(f.road.isAcceptingFromUpstream());
+
+		f.sim.getSimTimer().setTime(60.0);
+		QVehicle veh = f.addVehicles(1).get(0);
+		for (double now = 61.0; now < 75.0; now++) {
+			f.step(now, left, leaveTimes);
+		}
+		Assert.assertSame(veh, left.get(3));
+		Assert.assertEquals(1, f.road.holesInQueueCount());
+		Assert.assertEquals(2, f.road.unusedHolesCount());
+	}
+
+	private static final class Fixture {
+		final QSim sim;
+		final Link link1;
+		final Link link2;
+		final QLinkImpl qlink1;
+		final QueueWithBuffer road;
+		private int vehicleCount = 0;
+
+		Fixture(final TrafficDynamics trafficDynamics) {
+			Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+			scenario.getConfig().qsim().setTrafficDynamics(trafficDynamics);
+			NetworkImpl network = (NetworkImpl) scenario.getNetwork();
+			network.setCapacityPeriod(3600.0);
+			Node node1 = network.createAndAddNode(Id.create("1", Node.class), new CoordImpl(0, 0));
+			Node node2 = network.createAndAddNode(Id.create("2", Node.class), new CoordImpl(75, 0));
+			Node node3 = network.createAndAddNode(Id.create("3", Node.class), new CoordImpl(150, 0));
+			// 10 vehicles storage capacity, 10s free speed travel time, 1 veh/s flow capacity
+			this.link1 = network.createAndAddLink(Id.create("1", Link.class), node1, node2, 75.0, 7.5, 3600.0, 1.0);
+			this.link2 = network.createAndAddLink(Id.create("2", Link.class), node2, node3, 75.0, 7.5, 3600.0, 1.0);
+			this.sim = (QSim) QSimUtils.createDefaultQSim(scenario, EventsUtils.createEventsManager());
+			QNetwork qnetwork = (QNetwork) this.sim.getNetsimNetwork();
+			this.qlink1 = (QLinkImpl) qnetwork.getNetsimLink(this.link1.getId());
+			this.road = (QueueWithBuffer) this.qlink1.road;
+			NetElementActivator activator = new NetElementActivator() {
+				@Override
+				protected void activateNode(QNode node) {
+				}
+				@Override
+				int getNumberOfSimulatedNodes() {
+					return 0;
+				}
+				@Override
+				protected void activateLink(QLinkInternalI link) {
+				}
+				@Override
+				int getNumberOfSimulatedLinks() {
+					return 0;
+				}
+			};
+			for (QNode node : qnetwork.getNetsimNodes().values()) {
+				node.setNetElementActivator(activator);
+			}
+			for (QLinkInternalI link : qnetwork.getNetsimLinks().values()) {
+				((QLinkImpl) link).setNetElementActivator(activator);
+			}
+			this.sim.getSimTimer().setTime(0.0);
+		}
+
+		/**
+		 * Adds vehicles driving from link 1 to link 2 at the upstream end of link 1.
+		 */
+		List<QVehicle> addVehicles(final int count) {
+			VehicleType type = new VehicleTypeImpl(Id.create("defaultVehicleType", VehicleType.class));
+			List<QVehicle> vehicles = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				int n = this.vehicleCount++;
+				QVehicle veh = new QVehicle(new VehicleImpl(Id.create(n, Vehicle.class), type));
+				PersonImpl person = new PersonImpl(Id.create(n, Person.class));
+				PlanImpl plan = new PlanImpl();
+				person.addPlan(plan);
+				plan.addActivity(new ActivityImpl("home", this.link1.getId()));
+				Leg leg = new LegImpl(TransportMode.car);
+				leg.setRoute(new LinkNetworkRouteImpl(this.link1.getId(), this.link2.getId()));
+				plan.addLeg(leg);
+				plan.addActivity(new ActivityImpl("work", this.link2.getId()));
+				PersonDriverAgentImpl driver = new PersonDriverAgentImpl(plan, this.sim);
+				this.sim.insertAgentIntoMobsim(driver);
+				driver.endActivityAndComputeNextState(0);
+				veh.setDriver(driver);
+				this.qlink1.addFromUpstream(veh);
+				vehicles.add(veh);
+			}
+			return vehicles;
+		}
+
+		/**
+		 * Moves vehicles from the lane to the buffer, and takes all vehicles out of the buffer, as the node would do.
+		 */
+		void step(final double now, final List<QVehicle> left, final List<Double> leaveTimes) {
+			this.sim.getSimTimer().setTime(now);
+			this.qlink1.doSimStep(now);
+			while (!this.qlink1.isNotOfferingVehicle()) {
+				left.add(this.qlink1.popFirstVehicle());
+				leaveTimes.add(now);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpaceFillingCurveNetworkPartitionerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkImpl;
+
+public class SpaceFillingCurveNetworkPartitionerTest {
+
+	private static final int GRID = 20;
+	private static final int PARTITIONS = 4;
+
+	@Test
+	public void testBalancedPartitions() {
+		NetworkImpl network = createGridNetwork();
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		int[] partitions = new SpaceFillingCurveNetworkPartitioner().partition(nodes, PARTITIONS);
+
+		Assert.assertEquals(nodes.size(), partitions.length);
+		double[] load = new double[PARTITIONS];
+		double totalLoad = 0.0;
+		for (int i = 0; i < partitions.length; i++) {
+			Assert.assertTrue(partitions[i] >= 0 && partitions[i] < PARTITIONS);
+			double nodeLoad = NetworkPartitionerUtils.getExpectedLoad(nodes.get(i));
+			load[partitions[i]] += nodeLoad;
+			totalLoad += nodeLoad;
+		}
+		for (int p = 0; p < PARTITIONS; p++) {
+			Assert.assertEquals("partition " + p + " is not balanced", totalLoad / PARTITIONS, load[p], 0.05 * totalLoad / PARTITIONS);
+		}
+	}
+
+	@Test
+	public void testFewerCutLinksThanRoundRobin() {
+		NetworkImpl network = createGridNetwork();
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		int cutSfc = countCutLinks(network, nodes, new SpaceFillingCurveNetworkPartitioner().partition(nodes, PARTITIONS));
+		int cutRoundRobin = countCutLinks(network, nodes, new RoundRobinNetworkPartitioner().partition(nodes, PARTITIONS));
+		Assert.assertTrue("space filling curve cuts " + cutSfc + " links, round robin " + cutRoundRobin, cutSfc < cutRoundRobin / 4);
+	}
+
+	@Test
+	public void testHilbertIndexNeighbours() {
+		// consecutive positions on the curve are always direct neighbours in the grid:
+		Assert.assertEquals(0, SpaceFillingCurveNetworkPartitioner.hilbertIndex(0, 0));
+		long d00 = SpaceFillingCurveNetworkPartitioner.hilbertIndex(0, 0);
+		long d01 = SpaceFillingCurveNetworkPartitioner.hilbertIndex(0, 1);
+		long d10 = SpaceFillingCurveNetworkPartitioner.hilbertIndex(1, 0);
+		Assert.assertTrue(Math.abs(d01 - d00) == 1 || Math.abs(d10 - d00) == 1);
+	}
+
+	private static int countCutLinks(NetworkImpl network, List<Node> nodes, int[] partitions) {
+		Map<Id<Node>, Integer> partitionOfNode = new HashMap<>();
+		for (int i = 0; i < nodes.size(); i++) {
+			partitionOfNode.put(nodes.get(i).getId(), partitions[i]);
+		}
+		int cut = 0;
+		for (Link link : network.getLinks().values()) {
+			if (!partitionOfNode.get(link.getFromNode().getId()).equals(partitionOfNode.get(link.getToNode().getId()))) {
+				cut++;
+			}
+		}
+		return cut;
+	}
+
+	private static NetworkImpl createGridNetwork() {
+		NetworkImpl network = NetworkImpl.createNetwork();
+		GridNetworkFixture.fillGridNetwork(network, GRID);
+		return network;
+	}
+
+}
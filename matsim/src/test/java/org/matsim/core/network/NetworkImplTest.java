@@ -224,4 +224,28 @@ public class NetworkImplTest extends AbstractNetworkTest {
 		Assert.assertEquals(node2, n);
 	}
 
+	@Test
+	public void testAddNode_afterBuildingNodeIndex() {
+		NetworkImpl network = new NetworkImpl();
+		for (int i = 0; i < 100; i++) {
+			network.addNode(new NodeImpl(Id.create(i, Node.class), new CoordImpl(100 * (i % 10), 100 * (i / 10))));
+		}
+		Assert.assertEquals(100, network.getNodeIndex().size());
+
+		// nodes added between queries must be found although the index is not rebuilt for each of them
+		for (int i = 0; i < 150; i++) {
+			NodeImpl node = new NodeImpl(Id.create("new" + i, Node.class), new CoordImpl(50 + 5 * i, 2000));
+			network.addNode(node);
+			Assert.assertEquals(node, network.getNearestNode(new CoordImpl(50 + 5 * i, 2001)));
+			Assert.assertTrue(network.getNearestNodes(new CoordImpl(50 + 5 * i, 2001), 1.5).contains(node));
+			Assert.assertEquals(node, network.getKNearestNodes(new CoordImpl(50 + 5 * i, 2001), 3).get(0));
+			Assert.assertEquals(3, network.getKNearestNodes(new CoordImpl(50 + 5 * i, 2001), 3).size());
+		}
+		Assert.assertEquals(500, network.getNearestNode(new CoordImpl(460, 940)).getCoord().getX(), 1e-8);
+
+		Node removed = network.removeNode(Id.create("new149", Node.class));
+		Assert.assertNotSame(removed, network.getNearestNode(new CoordImpl(50 + 5 * 149, 2001)));
+		Assert.assertEquals(249, network.getNodeIndex().size());
+	}
+
 }
@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ArrayNetworkRouteTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.network.NetworkImpl;
+
+public class ArrayNetworkRouteTest extends AbstractNetworkRouteTest {
+
+	@Override
+	public NetworkRoute getNetworkRouteInstance(final Id<Link> fromLinkId, final Id<Link> toLinkId, final NetworkImpl network) {
+		return new ArrayNetworkRouteImpl(fromLinkId, toLinkId, new LinkIdSequencePool());
+	}
+
+	@Test
+	public void testClone() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		List<Id<Link>> srcRoute = linkIds(3, 4);
+		ArrayNetworkRouteImpl route1 = new ArrayNetworkRouteImpl(id1, id2, new LinkIdSequencePool());
+		route1.setLinkIds(id1, srcRoute, id2);
+
+		ArrayNetworkRouteImpl route2 = route1.clone();
+
+		srcRoute.add(Id.create(5, Link.class));
+		route1.setLinkIds(id1, srcRoute, id2);
+
+		Assert.assertEquals(3, route1.getLinkIds().size());
+		Assert.assertEquals(2, route2.getLinkIds().size());
+		Assert.assertEquals(linkIds(3, 4), route2.getLinkIds());
+	}
+
+	@Test
+	public void testSetLinkIds_sharedBetweenRoutes() {
+		LinkIdSequencePool pool = new LinkIdSequencePool();
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		ArrayNetworkRouteImpl route1 = new ArrayNetworkRouteImpl(id1, id2, pool);
+		ArrayNetworkRouteImpl route2 = new ArrayNetworkRouteImpl(id1, id2, pool);
+		ArrayNetworkRouteImpl route3 = new ArrayNetworkRouteImpl(id1, id2, pool);
+		route1.setLinkIds(id1, linkIds(3, 4, 5), id2);
+		route2.setLinkIds(id1, linkIds(3, 4, 5), id2);
+		route3.setLinkIds(id1, linkIds(3, 5, 4), id2);
+
+		Assert.assertSame(route1.getLinkIds(), route2.getLinkIds());
+		Assert.assertNotSame(route1.getLinkIds(), route3.getLinkIds());
+		Assert.assertEquals(linkIds(3, 4, 5), route1.getLinkIds());
+		Assert.assertEquals(linkIds(3, 5, 4), route3.getLinkIds());
+		Assert.assertEquals(2, pool.size());
+
+		// the sub route is the same sequence as the one of another route
+		ArrayNetworkRouteImpl route4 = new ArrayNetworkRouteImpl(id1, id2, pool);
+		route4.setLinkIds(id1, linkIds(4), id2);
+		Assert.assertSame(route4.getLinkIds(), route1.getSubRoute(Id.create(3, Link.class), Id.create(5, Link.class)).getLinkIds());
+		Assert.assertEquals(3, pool.size());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testGetLinkIds_unmodifiable() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		ArrayNetworkRouteImpl route = new ArrayNetworkRouteImpl(id1, id2, new LinkIdSequencePool());
+		route.setLinkIds(id1, linkIds(3, 4), id2);
+		route.getLinkIds().add(id1);
+	}
+
+	private static List<Id<Link>> linkIds(final int... ids) {
+		List<Id<Link>> list = new ArrayList<Id<Link>>();
+		for (int id : ids) {
+			list.add(Id.create(id, Link.class));
+		}
+		return list;
+	}
+
+}
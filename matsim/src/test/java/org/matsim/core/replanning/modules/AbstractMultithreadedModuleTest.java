@@ -20,12 +20,15 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningScheduling;
 import org.matsim.population.algorithms.PlanAlgorithm;
 
 /**
@@ -60,6 +63,35 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testCrashingThread_dynamicScheduling() {
+		try {
+			DummyCrashingModule testee = new DummyCrashingModule(2, ReplanningScheduling.dynamic);
+			testee.prepareReplanning(null);
+			for (int i = 0; i < 20; i++) {
+				testee.handlePlan(null);
+			}
+			testee.finishReplanning();
+			Assert.fail("expected exception, got none.");
+		} catch (Exception e) {
+			log.info("Catched expected exception.", e);
+		}
+	}
+
+	@Test
+	public void testDynamicScheduling() {
+		AtomicInteger counter = new AtomicInteger(0);
+		CountingModule testee = new CountingModule(3, counter);
+		for (int iteration = 0; iteration < 2; iteration++) {
+			testee.prepareReplanning(null);
+			for (int i = 0; i < 1001; i++) {
+				testee.handlePlan(null);
+			}
+			testee.finishReplanning();
+			Assert.assertEquals((iteration + 1) * 1001, counter.get());
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -74,12 +106,32 @@ public class AbstractMultithreadedModuleTest {
 		public DummyCrashingModule(final int nOfThreads) {
 			super(nOfThreads);
 		}
+		public DummyCrashingModule(final int nOfThreads, final ReplanningScheduling scheduling) {
+			super(nOfThreads, scheduling);
+		}
 		@Override
 		public PlanAlgorithm getPlanAlgoInstance() {
 			return new CrashingPlanAlgo();
 		}
 	}
 
+	private static class CountingModule extends AbstractMultithreadedModule {
+		private final AtomicInteger counter;
+		public CountingModule(final int nOfThreads, final AtomicInteger counter) {
+			super(nOfThreads, ReplanningScheduling.dynamic);
+			this.counter = counter;
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			return new PlanAlgorithm() {
+				@Override
+				public void run(Plan plan) {
+					CountingModule.this.counter.incrementAndGet();
+				}
+			};
+		}
+	}
+
 	private static class CrashingPlanAlgo implements PlanAlgorithm {
 		@Override
 		public void run(Plan plan) {
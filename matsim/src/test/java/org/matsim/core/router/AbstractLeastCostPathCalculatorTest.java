@@ -98,7 +98,7 @@ public abstract class AbstractLeastCostPathCalculatorTest extends MatsimTestCase
 		MultiModeFixture f = new MultiModeFixture();
 		LeastCostPathCalculator routerAlgo = getLeastCostPathCalculator(f.network);
 		if (routerAlgo instanceof IntermodalLeastCostPathCalculator) {
-			Dijkstra d = (Dijkstra) routerAlgo;
+			IntermodalLeastCostPathCalculator d = (IntermodalLeastCostPathCalculator) routerAlgo;
 
 			d.setModeRestriction(createHashSet(TransportMode.car));
 			Path p = d.calcLeastCostPath(f.nodes[0], f.nodes[1], 6.0*3600.0, null, null);
@@ -121,7 +121,7 @@ public abstract class AbstractLeastCostPathCalculatorTest extends MatsimTestCase
 		MultiModeFixture f = new MultiModeFixture();
 		LeastCostPathCalculator routerAlgo = getLeastCostPathCalculator(f.network);
 		if (routerAlgo instanceof IntermodalLeastCostPathCalculator) {
-			Dijkstra d = (Dijkstra) routerAlgo;
+			IntermodalLeastCostPathCalculator d = (IntermodalLeastCostPathCalculator) routerAlgo;
 
 			d.setModeRestriction(createHashSet(TransportMode.car));
 			Path p = d.calcLeastCostPath(f.nodes[0], f.nodes[7], 6.0*3600.0, null, null);
@@ -144,7 +144,7 @@ public abstract class AbstractLeastCostPathCalculatorTest extends MatsimTestCase
 		MultiModeFixture f = new MultiModeFixture();
 		LeastCostPathCalculator routerAlgo = getLeastCostPathCalculator(f.network);
 		if (routerAlgo instanceof IntermodalLeastCostPathCalculator) {
-			Dijkstra d = (Dijkstra) routerAlgo;
+			IntermodalLeastCostPathCalculator d = (IntermodalLeastCostPathCalculator) routerAlgo;
 
 			d.setModeRestriction(createHashSet(TransportMode.car, "bus"));
 			Path p = d.calcLeastCostPath(f.nodes[0], f.nodes[2], 6.0*3600.0, null, null);
@@ -164,7 +164,7 @@ public abstract class AbstractLeastCostPathCalculatorTest extends MatsimTestCase
 		MultiModeFixture f = new MultiModeFixture();
 		LeastCostPathCalculator routerAlgo = getLeastCostPathCalculator(f.network);
 		if (routerAlgo instanceof IntermodalLeastCostPathCalculator) {
-			Dijkstra d = (Dijkstra) routerAlgo;
+			IntermodalLeastCostPathCalculator d = (IntermodalLeastCostPathCalculator) routerAlgo;
 
 			d.setModeRestriction(new HashSet<String>());
 			Path p = d.calcLeastCostPath(f.nodes[0], f.nodes[1], 6.0*3600.0, null, null);
@@ -183,7 +183,7 @@ public abstract class AbstractLeastCostPathCalculatorTest extends MatsimTestCase
 		MultiModeFixture f = new MultiModeFixture();
 		LeastCostPathCalculator routerAlgo = getLeastCostPathCalculator(f.network);
 		if (routerAlgo instanceof IntermodalLeastCostPathCalculator) {
-			Dijkstra d = (Dijkstra) routerAlgo;
+			IntermodalLeastCostPathCalculator d = (IntermodalLeastCostPathCalculator) routerAlgo;
 
 			d.setModeRestriction(null);
 			Path p = d.calcLeastCostPath(f.nodes[0], f.nodes[1], 6.0*3600.0, null, null);
@@ -204,7 +204,7 @@ public abstract class AbstractLeastCostPathCalculatorTest extends MatsimTestCase
 		MultiModeFixture f = new MultiModeFixture();
 		LeastCostPathCalculator routerAlgo = getLeastCostPathCalculator(f.network);
 		if (routerAlgo instanceof IntermodalLeastCostPathCalculator) {
-			Dijkstra d = (Dijkstra) routerAlgo;
+			IntermodalLeastCostPathCalculator d = (IntermodalLeastCostPathCalculator) routerAlgo;
 
 			d.setModeRestriction(createHashSet("bus"));
 			Path p = d.calcLeastCostPath(f.nodes[1], f.nodes[6], 6.0*3600.0, null, null);
@@ -224,7 +224,7 @@ public abstract class AbstractLeastCostPathCalculatorTest extends MatsimTestCase
 		MultiModeFixture f = new MultiModeFixture();
 		LeastCostPathCalculator routerAlgo = getLeastCostPathCalculator(f.network);
 		if (routerAlgo instanceof IntermodalLeastCostPathCalculator) {
-			Dijkstra d = (Dijkstra) routerAlgo;
+			IntermodalLeastCostPathCalculator d = (IntermodalLeastCostPathCalculator) routerAlgo;
 
 			d.setModeRestriction(createHashSet("car"));
 			Path p = d.calcLeastCostPath(f.nodes[1], f.nodes[6], 6.0*3600.0, null, null);
@@ -245,7 +245,7 @@ public abstract class AbstractLeastCostPathCalculatorTest extends MatsimTestCase
 		MultiModeFixture f = new MultiModeFixture();
 		LeastCostPathCalculator routerAlgo = getLeastCostPathCalculator(f.network);
 		if (routerAlgo instanceof IntermodalLeastCostPathCalculator) {
-			Dijkstra d = (Dijkstra) routerAlgo;
+			IntermodalLeastCostPathCalculator d = (IntermodalLeastCostPathCalculator) routerAlgo;
 
 			d.setModeRestriction(createHashSet("bus"));
 			Path p = d.calcLeastCostPath(f.nodes[1], f.nodes[2], 6.0*3600.0, null, null);
@@ -265,7 +265,7 @@ public abstract class AbstractLeastCostPathCalculatorTest extends MatsimTestCase
 		MultiModeFixture f = new MultiModeFixture();
 		LeastCostPathCalculator routerAlgo = getLeastCostPathCalculator(f.network);
 		if (routerAlgo instanceof IntermodalLeastCostPathCalculator) {
-			Dijkstra d = (Dijkstra) routerAlgo;
+			IntermodalLeastCostPathCalculator d = (IntermodalLeastCostPathCalculator) routerAlgo;
 
 			d.setModeRestriction(createHashSet(TransportMode.car));
 			Path p = d.calcLeastCostPath(f.nodes[4], f.nodes[3], 6.0*3600.0, null, null);
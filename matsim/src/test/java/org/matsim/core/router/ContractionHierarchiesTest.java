@@ -0,0 +1,125 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutility;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.utils.geometry.CoordImpl;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	/**
+	 * Compares the costs of the paths with the ones found by Dijkstra on a grid network with random link lengths,
+	 * where there are many different paths of similar cost.
+	 */
+	public void testCalcLeastCostPath_SameCostsAsDijkstra() {
+		loadConfig(null);
+		RandomGridNetworkFixture grid = new RandomGridNetworkFixture(20, 0.9, false, 4711);
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator[] routers = { getLeastCostPathCalculator(grid.network) };
+		RandomGridNetworkFixture.assertSameCostsAsDijkstra(grid.network, grid.nodes, travelTimeCostCalculator, travelTimeCostCalculator,
+				routers, 200, 42);
+	}
+
+	/**
+	 * Two travel disutility objects of the same class may give different disutilities, so they must not share
+	 * their hierarchies.
+	 */
+	public void testCalcLeastCostPath_HierarchyPerTravelDisutility() {
+		loadConfig(null);
+		NetworkImpl network = NetworkImpl.createNetwork();
+		Node node1 = network.createAndAddNode(Id.create("1", Node.class), new CoordImpl(0, 0));
+		Node node2 = network.createAndAddNode(Id.create("2", Node.class), new CoordImpl(1000, 1000));
+		Node node3 = network.createAndAddNode(Id.create("3", Node.class), new CoordImpl(1000, -1000));
+		Node node4 = network.createAndAddNode(Id.create("4", Node.class), new CoordImpl(2000, 0));
+		Link link12 = network.createAndAddLink(Id.create("12", Link.class), node1, node2, 1000.0, 10.0, 1000.0, 1.0);
+		network.createAndAddLink(Id.create("24", Link.class), node2, node4, 1000.0, 10.0, 1000.0, 1.0);
+		Link link13 = network.createAndAddLink(Id.create("13", Link.class), node1, node3, 1000.0, 10.0, 1000.0, 1.0);
+		network.createAndAddLink(Id.create("34", Link.class), node3, node4, 1000.0, 10.0, 1000.0, 1.0);
+
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory();
+		LeastCostPathCalculator ch1 = factory.createPathCalculator(network, new PenalizingDisutility(link12), travelTime);
+		LeastCostPathCalculator ch2 = factory.createPathCalculator(network, new PenalizingDisutility(link13), travelTime);
+		Path path1 = ch1.calcLeastCostPath(node1, node4, 8.0 * 3600, null, null);
+		Path path2 = ch2.calcLeastCostPath(node1, node4, 8.0 * 3600, null, null);
+		assertEquals(link13, path1.links.get(0));
+		assertEquals(link12, path2.links.get(0));
+	}
+
+	public void testCreatePathCalculator_RandomizingTravelDisutility() {
+		loadConfig(null);
+		NetworkImpl network = NetworkImpl.createNetwork();
+		Node node1 = network.createAndAddNode(Id.create("1", Node.class), new CoordImpl(0, 0));
+		Node node2 = network.createAndAddNode(Id.create("2", Node.class), new CoordImpl(1000, 0));
+		network.createAndAddLink(Id.create("12", Link.class), node1, node2, 1000.0, 10.0, 1000.0, 1.0);
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		RandomizingTimeDistanceTravelDisutility.Builder builder = new RandomizingTimeDistanceTravelDisutility.Builder();
+		builder.setSigma(3.);
+		TravelDisutility randomizing = builder.createTravelDisutility(travelTime, new PlanCalcScoreConfigGroup());
+		try {
+			new ContractionHierarchiesFactory().createPathCalculator(network, randomizing, travelTime);
+			fail("expected IllegalArgumentException, got none.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * The link length as disutility, but a high disutility for one link.
+	 */
+	private static class PenalizingDisutility implements TravelDisutility {
+		private final Link penalizedLink;
+
+		PenalizingDisutility(final Link penalizedLink) {
+			this.penalizedLink = penalizedLink;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			return link == this.penalizedLink ? 100 * link.getLength() : link.getLength();
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength();
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FastRoutersTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.FastAStarEuclideanFactory;
+import org.matsim.core.router.util.FastAStarLandmarksFactory;
+import org.matsim.core.router.util.FastDijkstraFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.PreProcessDijkstra;
+import org.matsim.core.utils.geometry.CoordImpl;
+import org.matsim.testcases.MatsimTestCase;
+
+/**
+ * Compares the routers working on the shared {@link org.matsim.core.router.util.RoutingGraph} with {@link Dijkstra}.
+ */
+public class FastRoutersTest extends MatsimTestCase {
+
+	private NetworkImpl network;
+	private Node[] nodes;
+	private FreespeedTravelTimeAndDisutility travelTimeCostCalculator;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		int deadEnds = 10;
+		RandomGridNetworkFixture grid = new RandomGridNetworkFixture(20, 0.85, false, 4711);
+		this.network = grid.network;
+		this.nodes = new Node[grid.nodes.length + 2 * deadEnds];
+		System.arraycopy(grid.nodes, 0, this.nodes, 0, grid.nodes.length);
+		// chains of two nodes hanging off the grid, to have some dead ends
+		for (int i = grid.nodes.length; i < this.nodes.length; i += 2) {
+			Node entry = grid.nodes[grid.random.nextInt(grid.nodes.length)];
+			this.nodes[i] = this.network.createAndAddNode(Id.create(i, Node.class), new CoordImpl(entry.getCoord().getX() + 30, entry.getCoord().getY() + 30));
+			this.nodes[i + 1] = this.network.createAndAddNode(Id.create(i + 1, Node.class), new CoordImpl(entry.getCoord().getX() + 60, entry.getCoord().getY() + 60));
+			Node[] chain = { entry, this.nodes[i], this.nodes[i + 1] };
+			for (int j = 0; j < 2; j++) {
+				grid.addLink(chain[j], chain[j + 1], 50, 10.0);
+				grid.addLink(chain[j + 1], chain[j], 50, 10.0);
+			}
+		}
+		this.travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.network = null;
+		this.nodes = null;
+		this.travelTimeCostCalculator = null;
+		super.tearDown();
+	}
+
+	public void testFastDijkstra_SameCostsAsDijkstra() {
+		PreProcessDijkstra preProcessData = new PreProcessDijkstra();
+		preProcessData.run(this.network);
+		assertSameCostsAsDijkstra(new FastDijkstraFactory(preProcessData));
+		assertSameCostsAsDijkstra(new FastDijkstraFactory());
+	}
+
+	public void testFastAStarEuclidean_SameCostsAsDijkstra() {
+		assertSameCostsAsDijkstra(new FastAStarEuclideanFactory(this.network, this.travelTimeCostCalculator));
+	}
+
+	public void testFastAStarLandmarks_SameCostsAsDijkstra() {
+		assertSameCostsAsDijkstra(new FastAStarLandmarksFactory(this.network, this.travelTimeCostCalculator));
+	}
+
+	/**
+	 * Uses two routers of the same factory alternately, so that they share the routing graph.
+	 */
+	private void assertSameCostsAsDijkstra(final LeastCostPathCalculatorFactory factory) {
+		LeastCostPathCalculator[] routers = {
+				factory.createPathCalculator(this.network, this.travelTimeCostCalculator, this.travelTimeCostCalculator),
+				factory.createPathCalculator(this.network, this.travelTimeCostCalculator, this.travelTimeCostCalculator) };
+		RandomGridNetworkFixture.assertSameCostsAsDijkstra(this.network, this.nodes, this.travelTimeCostCalculator,
+				this.travelTimeCostCalculator, routers, 300, 42);
+	}
+
+}
@@ -0,0 +1,111 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RandomGridNetworkFixture.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.geometry.CoordImpl;
+
+/**
+ * A square grid of nodes 100m apart.  Each link between neighboring nodes only exists with a given probability and
+ * has a random length, so there are many different paths of similar cost.  Used to compare routers with
+ * {@link Dijkstra}.
+ */
+public class RandomGridNetworkFixture {
+
+	public final NetworkImpl network = NetworkImpl.createNetwork();
+	/** the nodes of the grid, row by row; the id of a node is its index */
+	public final Node[] nodes;
+	/** the random numbers used to build the grid, for adding further random elements to the network */
+	public final Random random;
+	private int linkCount = 0;
+
+	/**
+	 * @param size the number of nodes per row and column
+	 * @param linkProbability the probability that a link between two neighboring nodes exists
+	 * @param randomFreespeed if <code>true</code>, the free speeds of the links are drawn between 5 and 15 m/s,
+	 * otherwise they are 10 m/s
+	 */
+	public RandomGridNetworkFixture(final int size, final double linkProbability, final boolean randomFreespeed, final long seed) {
+		this.random = new Random(seed);
+		this.nodes = new Node[size * size];
+		for (int i = 0; i < this.nodes.length; i++) {
+			this.nodes[i] = this.network.createAndAddNode(Id.create(i, Node.class), new CoordImpl(100 * (i % size), 100 * (i / size)));
+		}
+		for (int i = 0; i < this.nodes.length; i++) {
+			int[] neighbors = { (i % size < size - 1) ? i + 1 : -1, (i % size > 0) ? i - 1 : -1, i + size, i - size };
+			for (int j : neighbors) {
+				if (j >= 0 && j < this.nodes.length && this.random.nextDouble() < linkProbability) {
+					double length = 100 + 50 * this.random.nextDouble();
+					double freespeed = randomFreespeed ? 5 + 10 * this.random.nextDouble() : 10.0;
+					addLink(this.nodes[i], this.nodes[j], length, freespeed);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a link with the next free link id.
+	 */
+	public Link addLink(final Node fromNode, final Node toNode, final double length, final double freespeed) {
+		return this.network.createAndAddLink(Id.create(this.linkCount++, Link.class), fromNode, toNode, length, freespeed, 1000.0, 1.0);
+	}
+
+	/**
+	 * Routes between random pairs of the given nodes, and checks that the routers (used alternately) find paths of the
+	 * same cost and travel time as {@link Dijkstra}.
+	 */
+	public static void assertSameCostsAsDijkstra(final Network network, final Node[] nodes, final TravelDisutility travelCosts,
+			final TravelTime travelTimes, final LeastCostPathCalculator[] routers, final int numberOfRoutes, final long seed) {
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelCosts, travelTimes);
+		Random random = new Random(seed);
+		for (int i = 0; i < numberOfRoutes; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8.0 * 3600, null, null);
+			Path path = routers[i % routers.length].calcLeastCostPath(from, to, 8.0 * 3600, null, null);
+			if (expected == null) {
+				Assert.assertNull(path);
+				continue;
+			}
+			Assert.assertEquals(expected.travelCost, path.travelCost, 1e-8);
+			Assert.assertEquals(expected.travelTime, path.travelTime, 1e-8);
+			Assert.assertEquals(from, path.nodes.get(0));
+			Assert.assertEquals(to, path.nodes.get(path.nodes.size() - 1));
+			Assert.assertEquals(path.nodes.size(), path.links.size() + 1);
+			for (int l = 0; l < path.links.size(); l++) {
+				Assert.assertEquals(path.nodes.get(l), path.links.get(l).getFromNode());
+				Assert.assertEquals(path.nodes.get(l + 1), path.links.get(l).getToNode());
+			}
+		}
+	}
+
+}
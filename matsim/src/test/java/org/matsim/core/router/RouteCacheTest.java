@@ -0,0 +1,161 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RouteCacheTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.controler.events.AfterMobsimEvent;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.utils.geometry.CoordImpl;
+import org.matsim.vehicles.Vehicle;
+
+public class RouteCacheTest {
+
+	@Test
+	public void testCalcLeastCostPath_cachedPerTimeBinAndMode() {
+		NetworkImpl network = NetworkImpl.createNetwork();
+		Node node1 = network.createAndAddNode(Id.create(1, Node.class), new CoordImpl(0, 0));
+		Node node2 = network.createAndAddNode(Id.create(2, Node.class), new CoordImpl(1000, 0));
+		Node node3 = network.createAndAddNode(Id.create(3, Node.class), new CoordImpl(2000, 0));
+		FreespeedTravelTimeAndDisutility disutility = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		CountingPathCalculator counter = new CountingPathCalculator();
+
+		RouteCache cache = new RouteCache(900.0, 100);
+		LeastCostPathCalculator car = cache.createCachingPathCalculator(counter, TransportMode.car, network, disutility);
+		LeastCostPathCalculator ride = cache.createCachingPathCalculator(counter, TransportMode.ride, network, disutility);
+
+		LeastCostPathCalculator.Path path = car.calcLeastCostPath(node1, node2, 7 * 3600, null, null);
+		Assert.assertSame(path, car.calcLeastCostPath(node1, node2, 7 * 3600 + 800, null, null));
+		Assert.assertEquals(1, counter.calls);
+		Assert.assertNotSame(path, car.calcLeastCostPath(node1, node2, 7 * 3600 + 900, null, null));
+		Assert.assertNotSame(path, ride.calcLeastCostPath(node1, node2, 7 * 3600, null, null));
+		Assert.assertNotSame(path, car.calcLeastCostPath(node1, node3, 7 * 3600, null, null));
+		Assert.assertEquals(4, counter.calls);
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(4, cache.getMisses());
+		Assert.assertEquals(4, cache.size());
+
+		cache.reset();
+		Assert.assertEquals(0, cache.size());
+		Assert.assertEquals(0, cache.getHits());
+		Assert.assertNotSame(path, car.calcLeastCostPath(node1, node2, 7 * 3600, null, null));
+		Assert.assertEquals(5, counter.calls);
+	}
+
+	@Test
+	public void testCalcLeastCostPath_maxSize() {
+		NetworkImpl network = NetworkImpl.createNetwork();
+		Node node1 = network.createAndAddNode(Id.create(1, Node.class), new CoordImpl(0, 0));
+		Node node2 = network.createAndAddNode(Id.create(2, Node.class), new CoordImpl(1000, 0));
+		FreespeedTravelTimeAndDisutility disutility = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		CountingPathCalculator counter = new CountingPathCalculator();
+
+		RouteCache cache = new RouteCache(900.0, 1);
+		LeastCostPathCalculator car = cache.createCachingPathCalculator(counter, TransportMode.car, network, disutility);
+		car.calcLeastCostPath(node1, node2, 0, null, null);
+		car.calcLeastCostPath(node2, node1, 0, null, null);
+		car.calcLeastCostPath(node2, node1, 0, null, null);
+		car.calcLeastCostPath(node1, node2, 0, null, null);
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals(3, counter.calls);
+	}
+
+	@Test
+	public void testCreateCachingPathCalculator_disabled() {
+		CountingPathCalculator counter = new CountingPathCalculator();
+		RouteCache cache = new RouteCache(0.0, 100);
+		Assert.assertFalse(cache.isEnabled());
+		Assert.assertSame(counter, cache.createCachingPathCalculator(counter, TransportMode.car, NetworkImpl.createNetwork(),
+				new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup())));
+	}
+
+	@Test
+	public void testCreateCachingPathCalculator_personDependentDisutility() {
+		NetworkImpl network = NetworkImpl.createNetwork();
+		Node node1 = network.createAndAddNode(Id.create(1, Node.class), new CoordImpl(0, 0));
+		Node node2 = network.createAndAddNode(Id.create(2, Node.class), new CoordImpl(1000, 0));
+		network.createAndAddLink(Id.create("12", Link.class), node1, node2, 1000.0, 10.0, 1000.0, 1.0);
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		RandomizingTimeDistanceTravelDisutility.Builder builder = new RandomizingTimeDistanceTravelDisutility.Builder();
+		builder.setSigma(3.);
+		TravelDisutility randomizing = builder.createTravelDisutility(travelTime, new PlanCalcScoreConfigGroup());
+		CountingPathCalculator counter = new CountingPathCalculator();
+
+		RouteCache cache = new RouteCache(900.0, 100);
+		Assert.assertSame(counter, cache.createCachingPathCalculator(counter, TransportMode.car, network, randomizing));
+		Assert.assertNotSame(counter, cache.createCachingPathCalculator(counter, TransportMode.car, network, travelTime));
+	}
+
+	@Test
+	public void testCalcLeastCostPath_notCachedDuringMobsim() {
+		NetworkImpl network = NetworkImpl.createNetwork();
+		Node node1 = network.createAndAddNode(Id.create(1, Node.class), new CoordImpl(0, 0));
+		Node node2 = network.createAndAddNode(Id.create(2, Node.class), new CoordImpl(1000, 0));
+		FreespeedTravelTimeAndDisutility disutility = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		CountingPathCalculator counter = new CountingPathCalculator();
+
+		RouteCache cache = new RouteCache(900.0, 100);
+		LeastCostPathCalculator car = cache.createCachingPathCalculator(counter, TransportMode.car, network, disutility);
+		car.calcLeastCostPath(node1, node2, 0, null, null);
+		Assert.assertEquals(1, cache.size());
+
+		// the travel times change during the mobsim, so the cache is cleared and not used for within-day replanning
+		cache.notifyBeforeMobsim(new BeforeMobsimEvent(null, 0));
+		Assert.assertEquals(0, cache.size());
+		car.calcLeastCostPath(node1, node2, 0, null, null);
+		car.calcLeastCostPath(node1, node2, 0, null, null);
+		Assert.assertEquals(3, counter.calls);
+		Assert.assertEquals(0, cache.size());
+
+		cache.notifyAfterMobsim(new AfterMobsimEvent(null, 0));
+		car.calcLeastCostPath(node1, node2, 0, null, null);
+		car.calcLeastCostPath(node1, node2, 0, null, null);
+		Assert.assertEquals(4, counter.calls);
+		Assert.assertEquals(1, cache.size());
+	}
+
+	private static class CountingPathCalculator implements LeastCostPathCalculator {
+		int calls = 0;
+
+		@Override
+		public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+			this.calls++;
+			ArrayList<Node> nodes = new ArrayList<Node>();
+			nodes.add(fromNode);
+			nodes.add(toNode);
+			return new Path(nodes, new ArrayList<Link>(), 0.0, 0.0);
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeMatrixCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.utils.geometry.CoordImpl;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class TravelTimeMatrixCalculatorTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testCalculate_sameAsDijkstra() {
+		NetworkImpl network = createNetwork();
+		List<Node> origins = new ArrayList<Node>();
+		List<Node> destinations = new ArrayList<Node>();
+		Random random = new Random(4711);
+		for (int i = 0; i < 23; i++) {
+			origins.add(network.getNodes().get(Id.create(random.nextInt(225), Node.class)));
+		}
+		for (int i = 0; i < 17; i++) {
+			destinations.add(network.getNodes().get(Id.create(random.nextInt(225), Node.class)));
+		}
+		// an unreachable destination, and the same node twice
+		destinations.add(network.getNodes().get(Id.create("isolated", Node.class)));
+		destinations.add(destinations.get(0));
+
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		TravelTimeMatrixCalculator calculator = new TravelTimeMatrixCalculator(network, tc, tc, 3);
+		calculator.setBlockSize(5);
+		final double[][] costs = new double[origins.size()][destinations.size()];
+		final int[] nextOrigin = { 0 };
+		final TravelTimeMatrix matrix = new TravelTimeMatrix(origins.size(), destinations.size());
+		calculator.calculate(origins, destinations, 7 * 3600, new TravelTimeMatrixCalculator.RowHandler() {
+			@Override
+			public void handleRow(int origin, float[] travelTimes, float[] travelCosts) {
+				Assert.assertEquals("rows must be passed in the order of the origins", nextOrigin[0]++, origin);
+				for (int d = 0; d < travelCosts.length; d++) {
+					costs[origin][d] = travelCosts[d];
+				}
+				matrix.handleRow(origin, travelTimes, travelCosts);
+			}
+		});
+		Assert.assertEquals(origins.size(), nextOrigin[0]);
+
+		Dijkstra dijkstra = new Dijkstra(network, tc, tc);
+		for (int o = 0; o < origins.size(); o++) {
+			for (int d = 0; d < destinations.size(); d++) {
+				Path path = dijkstra.calcLeastCostPath(origins.get(o), destinations.get(d), 7 * 3600, null, null);
+				if (path == null) {
+					Assert.assertEquals(Float.POSITIVE_INFINITY, matrix.getTravelTime(o, d), 0.0);
+					Assert.assertEquals(Double.POSITIVE_INFINITY, costs[o][d], 0.0);
+				} else {
+					Assert.assertEquals(path.travelTime, matrix.getTravelTime(o, d), 1e-3);
+					Assert.assertEquals(path.travelCost, costs[o][d], 1e-3);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testWriteFile_readFile() {
+		NetworkImpl network = createNetwork();
+		List<Node> nodes = new ArrayList<Node>(network.getNodes().values());
+		FreespeedTravelTimeAndDisutility tc = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		TravelTimeMatrixCalculator calculator = new TravelTimeMatrixCalculator(network, tc, tc, 2);
+		TravelTimeMatrix matrix = calculator.calculate(nodes.subList(0, 30), nodes, 0);
+
+		String written = this.utils.getOutputDirectory() + "written.bin";
+		matrix.writeFile(written);
+		String streamed = this.utils.getOutputDirectory() + "streamed.bin";
+		TravelTimeMatrixFileWriter writer = new TravelTimeMatrixFileWriter(streamed, 30, nodes.size());
+		calculator.calculate(nodes.subList(0, 30), nodes, 0, writer);
+		writer.close();
+
+		for (String filename : new String[] { written, streamed }) {
+			TravelTimeMatrix read = TravelTimeMatrix.readFile(filename);
+			Assert.assertEquals(30, read.getNumberOfOrigins());
+			Assert.assertEquals(nodes.size(), read.getNumberOfDestinations());
+			for (int o = 0; o < 30; o++) {
+				for (int d = 0; d < nodes.size(); d++) {
+					Assert.assertEquals(matrix.getTravelTime(o, d), read.getTravelTime(o, d), 0.0);
+				}
+			}
+		}
+	}
+
+	private static NetworkImpl createNetwork() {
+		NetworkImpl network = new RandomGridNetworkFixture(15, 0.8, true, 42).network;
+		network.createAndAddNode(Id.create("isolated", Node.class), new CoordImpl(-500, -500));
+		return network;
+	}
+
+}
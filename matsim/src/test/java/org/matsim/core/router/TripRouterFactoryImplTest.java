@@ -37,6 +37,7 @@ import org.matsim.core.population.PersonImpl;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.router.util.ContractionHierarchiesFactory;
 import org.matsim.core.router.util.DijkstraFactory;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.utils.geometry.CoordImpl;
@@ -223,6 +224,77 @@ public class TripRouterFactoryImplTest {
 				r.getLinkIds().get( 0 ));
 	}
 
+	/**
+	 * Each trip router gets its own travel disutility object, but the trip routers of one provider should still share
+	 * their contraction hierarchies, as the disutilities come from the same factory and travel time.
+	 */
+	@Test
+	public void testContractionHierarchiesSharedByTripRouters() throws Exception {
+		Config config = ConfigUtils.createConfig();
+		Scenario scenario = ScenarioUtils.createScenario( config );
+		Network net = scenario.getNetwork();
+
+		Node n1 = net.getFactory().createNode( Id.create( 1, Node.class) , new CoordImpl( 0 , 0 ) );
+		Node n2 = net.getFactory().createNode( Id.create( 2, Node.class) , new CoordImpl( 0 , 0 ) );
+		Node n3 = net.getFactory().createNode( Id.create( 3, Node.class) , new CoordImpl( 0 , 0 ) );
+		Node n4 = net.getFactory().createNode( Id.create( 4, Node.class) , new CoordImpl( 0 , 0 ) );
+
+		Link l1 = net.getFactory().createLink( Id.create( "l1", Link.class ) , n1 , n2 );
+		Link l2long = net.getFactory().createLink( Id.create( "l2long", Link.class ) , n2 , n3 );
+		Link l2short = net.getFactory().createLink( Id.create( "l2short", Link.class ) , n2 , n3 );
+		Link l3 = net.getFactory().createLink( Id.create( "l3", Link.class ) , n3 , n4 );
+
+		l2long.setLength( 1000 );
+		l2short.setLength( 10 );
+
+		net.addNode( n1 );
+		net.addNode( n2 );
+		net.addNode( n3 );
+		net.addNode( n4 );
+
+		net.addLink( l1 );
+		net.addLink( l2long );
+		net.addLink( l2short );
+		net.addLink( l3 );
+
+		ContractionHierarchiesFactory chFactory = new ContractionHierarchiesFactory();
+		Provider<TripRouter> factory =
+			new TripRouterProviderImpl(
+					scenario,
+					new OnlyTimeDependentTravelDisutilityFactory(),
+					new FreespeedTravelTimeAndDisutility( config.planCalcScore() ),
+					chFactory,
+					new TransitRouterImplFactory(
+						new TransitScheduleFactoryImpl().createTransitSchedule() ,
+						new TransitRouterConfig(
+							config.planCalcScore(),
+							config.plansCalcRoute(),
+							config.transitRouter(),
+							config.vspExperimental())) );
+
+		TripRouter router1 = factory.get();
+		TripRouter router2 = factory.get();
+
+		for ( TripRouter router : new TripRouter[] { router1, router2 } ) {
+			List<? extends PlanElement> trip = router.calcRoute(
+					TransportMode.car,
+					new LinkFacility( l1 ),
+					new LinkFacility( l3 ),
+					0,
+					new PersonImpl( Id.create( "toto", Person.class ) ));
+			NetworkRoute r = (NetworkRoute) ((Leg) trip.get( 0 )).getRoute();
+			Assert.assertEquals(
+					"unexpected route "+r.getLinkIds(),
+					Collections.singletonList( l2short.getId() ),
+					r.getLinkIds() );
+		}
+
+		Assert.assertEquals(
+				"the trip routers do not share their hierarchy",
+				1,
+				chFactory.getNumberOfHierarchies() );
+	}
+
 	private static class LinkFacility implements Facility {
 		private final Link l;
 
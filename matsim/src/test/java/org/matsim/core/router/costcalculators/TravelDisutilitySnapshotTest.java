@@ -0,0 +1,179 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelDisutilitySnapshotTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.costcalculators;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.population.PersonImpl;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.geometry.CoordImpl;
+import org.matsim.vehicles.Vehicle;
+
+public class TravelDisutilitySnapshotTest {
+
+	@Test
+	public void testGetLinkTravelDisutility_sameAsWithoutSnapshot() {
+		NetworkImpl network = createNetwork();
+		PlanCalcScoreConfigGroup scoring = createScoringConfig();
+		TravelTime travelTime = new TimeBinTravelTime(1.0);
+
+		TravelDisutilitySnapshot snapshot = new TravelDisutilitySnapshot(network, 900, 3 * 3600, 2);
+		TabulatedTravelDisutility tabulated = snapshot.createTravelDisutility(travelTime, scoring, 0.);
+		TravelDisutility expected = new RandomizingTimeDistanceTravelDisutility(travelTime, scoring, 0.);
+
+		for (Link link : network.getLinks().values()) {
+			for (double time = 0; time < 5 * 3600; time += 450) {
+				// after the last time bin, the values of the last bin are used
+				double binTime = Math.min(time, 3 * 3600);
+				Assert.assertEquals(expected.getLinkTravelDisutility(link, binTime, null, null),
+						tabulated.getLinkTravelDisutility(link, time, null, null), 1e-4);
+				Assert.assertEquals(travelTime.getLinkTravelTime(link, binTime, null, null),
+						tabulated.getTravelTime().getLinkTravelTime(link, time, null, null), 1e-4);
+			}
+			Assert.assertEquals(expected.getLinkMinimumTravelDisutility(link), tabulated.getLinkMinimumTravelDisutility(link), 1e-10);
+		}
+	}
+
+	@Test
+	public void testReset() {
+		NetworkImpl network = createNetwork();
+		PlanCalcScoreConfigGroup scoring = createScoringConfig();
+		Link link = network.getLinks().get(Id.create(1, Link.class));
+		TimeBinTravelTime travelTime = new TimeBinTravelTime(1.0);
+
+		TravelDisutilitySnapshot snapshot = new TravelDisutilitySnapshot(network, 900, 3 * 3600, 1);
+		TabulatedTravelDisutility first = snapshot.createTravelDisutility(travelTime, scoring, 0.);
+		// the tables of the iteration are kept, even if the travel times change
+		travelTime.factor = 2.0;
+		TabulatedTravelDisutility second = snapshot.createTravelDisutility(travelTime, scoring, 0.);
+		Assert.assertEquals(first.getTravelTime().getLinkTravelTime(link, 0, null, null),
+				second.getTravelTime().getLinkTravelTime(link, 0, null, null), 1e-10);
+
+		snapshot.reset();
+		TabulatedTravelDisutility third = snapshot.createTravelDisutility(travelTime, scoring, 0.);
+		Assert.assertEquals(2 * first.getTravelTime().getLinkTravelTime(link, 0, null, null),
+				third.getTravelTime().getLinkTravelTime(link, 0, null, null), 1e-4);
+		// the old instances still use the old tables
+		Assert.assertEquals(first.getTravelTime().getLinkTravelTime(link, 0, null, null),
+				second.getTravelTime().getLinkTravelTime(link, 0, null, null), 1e-10);
+	}
+
+	@Test
+	public void testOtherTravelTimes() {
+		NetworkImpl network = createNetwork();
+		PlanCalcScoreConfigGroup scoring = createScoringConfig();
+		Link link = network.getLinks().get(Id.create(1, Link.class));
+
+		TravelDisutilitySnapshot snapshot = new TravelDisutilitySnapshot(network, 900, 3 * 3600, 1);
+		TravelTime travelTime1 = new TimeBinTravelTime(1.0);
+		TravelTime travelTime2 = new TimeBinTravelTime(2.0);
+		TabulatedTravelDisutility first = snapshot.createTravelDisutility(travelTime1, scoring, 0.);
+		// other travel times, e.g. of another network mode, get their own tables
+		TabulatedTravelDisutility second = snapshot.createTravelDisutility(travelTime2, scoring, 0.);
+		Assert.assertEquals(travelTime1.getLinkTravelTime(link, 0, null, null),
+				first.getTravelTime().getLinkTravelTime(link, 0, null, null), 1e-4);
+		Assert.assertEquals(travelTime2.getLinkTravelTime(link, 0, null, null),
+				second.getTravelTime().getLinkTravelTime(link, 0, null, null), 1e-4);
+		Assert.assertEquals(new RandomizingTimeDistanceTravelDisutility(travelTime2, scoring, 0.).getLinkTravelDisutility(link, 0, null, null),
+				second.getLinkTravelDisutility(link, 0, null, null), 1e-4);
+
+		// and the first travel times still use theirs
+		TabulatedTravelDisutility third = snapshot.createTravelDisutility(travelTime1, scoring, 0.);
+		Assert.assertEquals(travelTime1.getLinkTravelTime(link, 0, null, null),
+				third.getTravelTime().getLinkTravelTime(link, 0, null, null), 1e-4);
+	}
+
+	@Test
+	public void testGetLinkTravelDisutility_linkAddedLater() {
+		NetworkImpl network = createNetwork();
+		PlanCalcScoreConfigGroup scoring = createScoringConfig();
+		TravelTime travelTime = new TimeBinTravelTime(1.0);
+		TravelDisutilitySnapshot snapshot = new TravelDisutilitySnapshot(network, 900, 3 * 3600, 1);
+		TabulatedTravelDisutility tabulated = snapshot.createTravelDisutility(travelTime, scoring, 0.);
+
+		Link link = network.createAndAddLink(Id.create(3, Link.class), network.getNodes().get(Id.create(3, Node.class)),
+				network.getNodes().get(Id.create(1, Node.class)), 500, 10, 1000, 1);
+		TravelDisutility expected = new RandomizingTimeDistanceTravelDisutility(travelTime, scoring, 0.);
+		Assert.assertEquals(expected.getLinkTravelDisutility(link, 1000, null, null), tabulated.getLinkTravelDisutility(link, 1000, null, null), 1e-10);
+		Assert.assertEquals(travelTime.getLinkTravelTime(link, 1000, null, null), tabulated.getTravelTime().getLinkTravelTime(link, 1000, null, null), 1e-10);
+	}
+
+	@Test
+	public void testGetLinkTravelDisutility_randomized() {
+		NetworkImpl network = createNetwork();
+		PlanCalcScoreConfigGroup scoring = createScoringConfig();
+		TravelTime travelTime = new TimeBinTravelTime(1.0);
+		TravelDisutilitySnapshot snapshot = new TravelDisutilitySnapshot(network, 900, 3 * 3600, 1);
+		TabulatedTravelDisutility tabulated = snapshot.createTravelDisutility(travelTime, scoring, 3.);
+		RandomizingTimeDistanceTravelDisutility plain = new RandomizingTimeDistanceTravelDisutility(travelTime, scoring, 0.);
+
+		for (int i = 0; i < 5; i++) {
+			Person person = new PersonImpl(Id.create(i, Person.class));
+			for (Link link : network.getLinks().values()) {
+				double disutility = tabulated.getLinkTravelDisutility(link, 3600, person, null);
+				double logNormalRnd = (Double) person.getCustomAttributes().get("logNormalRnd");
+				double travelTimeCost = plain.getMarginalCostOfTime() * travelTime.getLinkTravelTime(link, 3600, person, null);
+				Assert.assertEquals(travelTimeCost + logNormalRnd * plain.getMarginalCostOfDistance() * link.getLength(), disutility, 1e-3);
+			}
+		}
+	}
+
+	private static NetworkImpl createNetwork() {
+		NetworkImpl network = NetworkImpl.createNetwork();
+		Node node1 = network.createAndAddNode(Id.create(1, Node.class), new CoordImpl(0, 0));
+		Node node2 = network.createAndAddNode(Id.create(2, Node.class), new CoordImpl(1000, 0));
+		Node node3 = network.createAndAddNode(Id.create(3, Node.class), new CoordImpl(2000, 0));
+		network.createAndAddLink(Id.create(1, Link.class), node1, node2, 1000, 10, 1000, 1);
+		network.createAndAddLink(Id.create(2, Link.class), node2, node3, 2500, 25, 1000, 1);
+		return network;
+	}
+
+	private static PlanCalcScoreConfigGroup createScoringConfig() {
+		PlanCalcScoreConfigGroup scoring = new PlanCalcScoreConfigGroup();
+		scoring.setMonetaryDistanceCostRateCar(-0.0002);
+		scoring.setMarginalUtilityOfMoney(1.0);
+		return scoring;
+	}
+
+	/**
+	 * Free speed travel time, increasing with every time bin of 15 minutes.
+	 */
+	private static class TimeBinTravelTime implements TravelTime {
+		private double factor;
+
+		TimeBinTravelTime(final double factor) {
+			this.factor = factor;
+		}
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			return this.factor * (1 + (int) (time / 900)) * link.getLength() / link.getFreespeed();
+		}
+	}
+
+}
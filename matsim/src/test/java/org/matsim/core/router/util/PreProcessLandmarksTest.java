@@ -0,0 +1,169 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PreProcessLandmarksTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkImpl;
+import org.matsim.core.router.RandomGridNetworkFixture;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.testcases.MatsimTestCase;
+
+public class PreProcessLandmarksTest extends MatsimTestCase {
+
+	private NetworkImpl network;
+	private Link[] links;
+	private FreespeedTravelTimeAndDisutility costFunction;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.network = new RandomGridNetworkFixture(15, 0.9, false, 4711).network;
+		this.links = this.network.getLinks().values().toArray(new Link[this.network.getLinks().size()]);
+		this.costFunction = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		this.network = null;
+		this.links = null;
+		this.costFunction = null;
+		super.tearDown();
+	}
+
+	public void testRun_unchangedNetwork() {
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(this.costFunction, 8);
+		preProcessData.run(this.network);
+		assertEquals(8, preProcessData.getNumberOfRecomputedLandmarks());
+		Node[] landmarks = preProcessData.getLandmarks();
+
+		preProcessData.run(this.network);
+		assertEquals(0, preProcessData.getNumberOfRecomputedLandmarks());
+		assertEquals(0, preProcessData.getNumberOfUpdatedLandmarks());
+		for (int i = 0; i < landmarks.length; i++) {
+			assertSame(landmarks[i], preProcessData.getLandmarks()[i]);
+		}
+		assertSameCosts(createPreProcessData(), preProcessData);
+	}
+
+	public void testRun_decreasedCosts() {
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(this.costFunction, 8);
+		preProcessData.run(this.network);
+		for (int i = 0; i < this.links.length; i += 7) {
+			this.links[i].setFreespeed(20.0);
+		}
+		preProcessData.run(this.network);
+		assertEquals(0, preProcessData.getNumberOfRecomputedLandmarks());
+		assertEquals(8, preProcessData.getNumberOfUpdatedLandmarks());
+		assertSameCosts(createPreProcessData(), preProcessData);
+	}
+
+	public void testRun_increasedCosts() {
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(this.costFunction, 8);
+		preProcessData.run(this.network);
+		for (int i = 0; i < this.links.length; i += 7) {
+			this.links[i].setFreespeed(5.0);
+		}
+		preProcessData.run(this.network);
+		assertTrue(preProcessData.getNumberOfRecomputedLandmarks() > 0);
+		assertSameCosts(createPreProcessData(), preProcessData);
+	}
+
+	/**
+	 * Small increases are ignored, the costs must still be lower bounds which fulfill the triangle inequality.
+	 */
+	public void testRun_slightlyIncreasedCosts() {
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(this.costFunction, 8);
+		preProcessData.setCostChangeTolerance(0.1);
+		preProcessData.run(this.network);
+		for (int i = 0; i < this.links.length; i += 3) {
+			this.links[i].setFreespeed(9.5);
+		}
+		preProcessData.run(this.network);
+		assertEquals(0, preProcessData.getNumberOfRecomputedLandmarks());
+		assertEquals(0, preProcessData.getNumberOfUpdatedLandmarks());
+
+		PreProcessLandmarks expected = createPreProcessData();
+		for (Node node : this.network.getNodes().values()) {
+			PreProcessLandmarks.LandmarksData data = (PreProcessLandmarks.LandmarksData) preProcessData.getNodeData(node);
+			PreProcessLandmarks.LandmarksData expectedData = (PreProcessLandmarks.LandmarksData) expected.getNodeData(node);
+			for (int i = 0; i < 8; i++) {
+				assertTrue(data.getFromLandmarkTravelTime(i) <= expectedData.getFromLandmarkTravelTime(i) + 1e-9);
+				assertTrue(data.getToLandmarkTravelTime(i) <= expectedData.getToLandmarkTravelTime(i) + 1e-9);
+			}
+		}
+		for (Link link : this.links) {
+			PreProcessLandmarks.LandmarksData from = (PreProcessLandmarks.LandmarksData) preProcessData.getNodeData(link.getFromNode());
+			PreProcessLandmarks.LandmarksData to = (PreProcessLandmarks.LandmarksData) preProcessData.getNodeData(link.getToNode());
+			double cost = this.costFunction.getLinkMinimumTravelDisutility(link);
+			for (int i = 0; i < 8; i++) {
+				assertTrue(to.getFromLandmarkTravelTime(i) <= from.getFromLandmarkTravelTime(i) + cost + 1e-9);
+				assertTrue(from.getToLandmarkTravelTime(i) <= to.getToLandmarkTravelTime(i) + cost + 1e-9);
+			}
+		}
+	}
+
+	/**
+	 * Small increases are compared against the costs the landmarks were computed with, so that several of them add
+	 * up and eventually lead to a re-computation.
+	 */
+	public void testRun_repeatedlySlightlyIncreasedCosts() {
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(this.costFunction, 8);
+		preProcessData.setCostChangeTolerance(0.1);
+		preProcessData.run(this.network);
+		for (int i = 0; i < this.links.length; i += 3) {
+			this.links[i].setFreespeed(9.5);
+		}
+		preProcessData.run(this.network);
+		assertEquals(0, preProcessData.getNumberOfRecomputedLandmarks());
+
+		// 5.6% more than in the last call, but 11.1% more than the landmark costs were computed with
+		for (int i = 0; i < this.links.length; i += 3) {
+			this.links[i].setFreespeed(9.0);
+		}
+		preProcessData.run(this.network);
+		assertTrue(preProcessData.getNumberOfRecomputedLandmarks() > 0);
+		assertSameCosts(createPreProcessData(), preProcessData);
+	}
+
+	private PreProcessLandmarks createPreProcessData() {
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(this.costFunction, 8);
+		preProcessData.run(this.network);
+		return preProcessData;
+	}
+
+	private void assertSameCosts(final PreProcessLandmarks expected, final PreProcessLandmarks actual) {
+		Node[] landmarks = expected.getLandmarks();
+		for (int i = 0; i < landmarks.length; i++) {
+			assertSame(landmarks[i], actual.getLandmarks()[i]);
+		}
+		for (Node node : this.network.getNodes().values()) {
+			PreProcessLandmarks.LandmarksData expectedData = (PreProcessLandmarks.LandmarksData) expected.getNodeData(node);
+			PreProcessLandmarks.LandmarksData data = (PreProcessLandmarks.LandmarksData) actual.getNodeData(node);
+			for (int i = 0; i < landmarks.length; i++) {
+				assertEquals(expectedData.getFromLandmarkTravelTime(i), data.getFromLandmarkTravelTime(i), 1e-9);
+				assertEquals(expectedData.getToLandmarkTravelTime(i), data.getToLandmarkTravelTime(i), 1e-9);
+			}
+		}
+	}
+
+}
@@ -157,6 +157,48 @@ public class EventsToScoreTest extends MatsimTestCase {
 		}
 	}
 
+	/**
+	 * Tests that scores are the same when the scoring functions are finished in parallel and no experienced
+	 * plans are recorded.
+	 */
+	public void testParallelFinish_withoutExperiencedPlans() {
+		Config config = ConfigUtils.createConfig() ;
+		config.global().setNumberOfThreads(4);
+		config.planCalcScore().setFinishScoringFunctionsInParallel(true);
+		config.planCalcScore().setMarginalUtilityOfMoney(1.);
+
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < 5000; i++) {
+			PersonImpl person = new PersonImpl(Id.create("p" + i, Person.class));
+			person.addPlan(new PlanImpl());
+			population.addPerson(person);
+		}
+
+		ScoringFunctionFactory sfFactory = new CharyparNagelScoringFunctionFactory(config.planCalcScore(), null);
+		EventsToScore e2s = new EventsToScore(scenario, sfFactory, 1.0, false);
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(e2s);
+		events.resetHandlers(0);
+
+		for (int i = 0; i < 5000; i++) {
+			events.processEvent(new PersonMoneyEvent(3600.0, Id.create("p" + i, Person.class), i));
+		}
+		e2s.finish();
+
+		for (int i = 0; i < 5000; i++) {
+			Person person = population.getPersons().get(Id.create("p" + i, Person.class));
+			assertEquals(i, person.getSelectedPlan().getScore(), 1e-10);
+			assertEquals(i, e2s.getAgentScore(person.getId()), 1e-10);
+		}
+		try {
+			e2s.getAgentRecords();
+			fail("expected IllegalStateException, experienced plans are not recorded.");
+		} catch (IllegalStateException e) {
+			Logger.getLogger(EventsToScoreTest.class).info("caught expected exception.", e);
+		}
+	}
+
 	private static class MockScoringFunctionFactory implements ScoringFunctionFactory {
 
 		protected final MockScoringFunction sf = new MockScoringFunction();
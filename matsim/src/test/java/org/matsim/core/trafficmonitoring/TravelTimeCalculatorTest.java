@@ -110,6 +110,24 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 				aggregator, binSize, compareFile, false);
 	}
 
+	public final void testTravelTimeCalculator_Matrix_Optimistic() throws IOException {
+		String compareFile;
+		ScenarioImpl scenario;
+		AbstractTravelTimeAggregator aggregator;
+
+		int endTime = 30*3600;
+		int binSize = 15*60;
+		int numSlots = (endTime / binSize) + 1;
+
+		// by default: averaging travel times
+		compareFile = getClassInputDirectory() + "link10_ttimes.txt";
+		scenario = (ScenarioImpl) ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		aggregator = new OptimisticTravelTimeAggregator(numSlots, binSize);
+		assertEquals(AveragingTravelTimeGetter.class, aggregator.getTravelTimeGetter().getClass());
+		doTravelTimeCalculatorTest(scenario, new TravelTimeDataMatrixFactory(scenario.getNetwork(), numSlots),
+				aggregator, binSize, compareFile, false);
+	}
+
 	public final void testTravelTimeCalculator_HashMap_Optimistic() throws IOException {
 		String compareFile;
 		ScenarioImpl scenario;
@@ -0,0 +1,131 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		Map<Id<TA>, String> map = new IdMap<>(TA.class, 2);
+		Id<TA> id1 = Id.create("map1", TA.class);
+		Id<TA> id2 = Id.create("map2", TA.class);
+		Id<TA> id3 = Id.create("map3", TA.class);
+
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertNull(map.put(id3, "three"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("one", map.get(id1));
+		Assert.assertNull(map.get(id2));
+		Assert.assertEquals("three", map.get(id3));
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertTrue(map.containsKey(id3));
+
+		Assert.assertEquals("one", map.put(id1, "eins"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("eins", map.get(id1));
+
+		Assert.assertEquals("three", map.remove(id3));
+		Assert.assertNull(map.remove(id3));
+		Assert.assertEquals(1, map.size());
+		Assert.assertFalse(map.containsKey(id3));
+		Assert.assertNull(map.get("map1"));
+	}
+
+	@Test
+	public void testNullValues() {
+		Map<Id<TA>, String> map = new IdMap<>(TA.class);
+		Id<TA> id = Id.create("null", TA.class);
+		Assert.assertNull(map.put(id, null));
+		Assert.assertEquals(1, map.size());
+		Assert.assertTrue(map.containsKey(id));
+		Assert.assertNull(map.get(id));
+		map.remove(id);
+		Assert.assertEquals(0, map.size());
+	}
+
+	@Test
+	public void testIdsOfOtherType() {
+		IdMap<TA, String> map = new IdMap<>(TA.class);
+		Id<TA> idA = Id.create("other", TA.class);
+		Id<TB> idB = Id.create("other", TB.class);
+		Id.create("onlyB", TB.class);
+		map.put(idA, "a");
+		// ids with the same key are equal, so we expect the same behaviour as with a HashMap:
+		Assert.assertEquals("a", map.get(idB));
+		Assert.assertNull(map.get(Id.create("onlyB", TB.class)));
+	}
+
+	@Test
+	public void testIterationInIndexOrder() {
+		IdMap<TA, Integer> map = new IdMap<>(TA.class);
+		Id<TA> id1 = Id.create("iter1", TA.class);
+		Id<TA> id2 = Id.create("iter2", TA.class);
+		Id<TA> id3 = Id.create("iter3", TA.class);
+		map.put(id3, 3);
+		map.put(id1, 1);
+		map.put(id2, 2);
+
+		Iterator<Map.Entry<Id<TA>, Integer>> iter = map.entrySet().iterator();
+		Assert.assertSame(id1, iter.next().getKey());
+		Map.Entry<Id<TA>, Integer> e = iter.next();
+		Assert.assertSame(id2, e.getKey());
+		e.setValue(22);
+		iter.remove();
+		Assert.assertSame(id3, iter.next().getKey());
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertEquals(2, map.size());
+		Assert.assertNull(map.get(id2));
+		Assert.assertEquals(2, map.values().size());
+		Assert.assertTrue(map.keySet().contains(id3));
+	}
+
+	@Test
+	public void testIdSet() {
+		IdSet<TA> set = new IdSet<>(TA.class);
+		Id<TA> id1 = Id.create("set1", TA.class);
+		Id<TA> id2 = Id.create("set2", TA.class);
+		Assert.assertTrue(set.add(id2));
+		Assert.assertTrue(set.add(id1));
+		Assert.assertFalse(set.add(id1));
+		Assert.assertEquals(2, set.size());
+		Assert.assertTrue(set.contains(id1));
+		Iterator<Id<TA>> iter = set.iterator();
+		Assert.assertSame(id1, iter.next());
+		Assert.assertSame(id2, iter.next());
+		Assert.assertFalse(iter.hasNext());
+		Assert.assertTrue(set.remove(id1));
+		Assert.assertFalse(set.contains(id1));
+		Assert.assertEquals(1, set.size());
+	}
+
+	private static class TA {}
+	private static class TB {}
+
+}
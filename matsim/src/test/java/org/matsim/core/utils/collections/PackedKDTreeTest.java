@@ -0,0 +1,113 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedKDTreeTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PackedKDTreeTest {
+
+	@Test
+	public void testEmpty() {
+		PackedKDTree<String> tree = new PackedKDTree.Builder<String>().build();
+		assertEquals(0, tree.size());
+		assertNull(tree.getNearest(1.0, 2.0));
+		assertEquals(0, tree.get(1.0, 2.0, 100.0).size());
+		assertEquals(0, tree.getKNearest(1.0, 2.0, 3).size());
+	}
+
+	@Test
+	public void testQueries_comparedToBruteForce() {
+		Random random = new Random(4711);
+		final double[][] points = new double[5000][];
+		PackedKDTree.Builder<Integer> builder = new PackedKDTree.Builder<Integer>();
+		for (int i = 0; i < points.length; i++) {
+			// use a coarse grid so there are a lot of duplicate coordinates and equal distances
+			points[i] = new double[] { random.nextInt(200) * 10.0, random.nextInt(100) * 10.0 };
+			builder.put(points[i][0], points[i][1], i);
+		}
+		PackedKDTree<Integer> tree = builder.build();
+		assertEquals(points.length, tree.size());
+
+		for (int q = 0; q < 500; q++) {
+			final double x = -100 + 2200 * random.nextDouble();
+			final double y = -100 + 1200 * random.nextDouble();
+			List<Integer> expected = new ArrayList<Integer>();
+			for (int i = 0; i < points.length; i++) {
+				expected.add(i);
+			}
+			// closest first, ties broken by insertion order
+			Collections.sort(expected, new Comparator<Integer>() {
+				@Override
+				public int compare(final Integer a, final Integer b) {
+					int cmp = Double.compare(distance2(points[a], x, y), distance2(points[b], x, y));
+					return (cmp != 0) ? cmp : a.compareTo(b);
+				}
+			});
+
+			assertEquals(expected.get(0), tree.getNearest(x, y));
+			assertEquals(expected.subList(0, 17), tree.getKNearest(x, y, 17));
+
+			double radius = 50.0 * random.nextDouble();
+			HashSet<Integer> expectedInRadius = new HashSet<Integer>();
+			for (int i = 0; i < points.length; i++) {
+				if (Math.sqrt(distance2(points[i], x, y)) <= radius) {
+					expectedInRadius.add(i);
+				}
+			}
+			List<Integer> found = new ArrayList<Integer>(tree.get(x, y, radius));
+			assertEquals(expectedInRadius.size(), found.size());
+			assertEquals(expectedInRadius, new HashSet<Integer>(found));
+		}
+	}
+
+	@Test
+	public void testGetKNearest_withoutAllocation() {
+		PackedKDTree<String> tree = new PackedKDTree.Builder<String>()
+				.put(0.0, 0.0, "a").put(10.0, 0.0, "b").put(0.0, 5.0, "c").put(3.0, 4.0, "d").build();
+		int[] positions = new int[3];
+		double[] distances = new double[3];
+		assertEquals(3, tree.getKNearest(1.0, 0.0, 3, positions, distances));
+		assertEquals("a", tree.getValue(positions[0]));
+		assertEquals(1.0, distances[0], 1e-10);
+		assertEquals("d", tree.getValue(positions[1]));
+		assertEquals(Math.sqrt(20.0), distances[1], 1e-10);
+		assertEquals("c", tree.getValue(positions[2]));
+		assertEquals(Math.sqrt(26.0), distances[2], 1e-10);
+		assertEquals(4, tree.getKNearest(1.0, 0.0, 10).size());
+	}
+
+	private static double distance2(final double[] point, final double x, final double y) {
+		double dx = point[0] - x;
+		double dy = point[1] - y;
+		return dx * dx + dy * dy;
+	}
+
+}
@@ -0,0 +1,102 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedSegmentTreeTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PackedSegmentTreeTest {
+
+	@Test
+	public void testEmpty() {
+		PackedSegmentTree<String> tree = new PackedSegmentTree.Builder<String>().build();
+		assertNull(tree.getNearest(1.0, 2.0));
+	}
+
+	@Test
+	public void testLongNearSegment_smallFarAway() {
+		// the long segment's bounding box and center are far away, but the segment itself is closest
+		PackedSegmentTree<String> tree = new PackedSegmentTree.Builder<String>()
+				.put(0.0, 0.0, 10000.0, 0.0, "long").put(400.0, 300.0, 450.0, 300.0, "short").build();
+		assertEquals("long", tree.getNearest(420.0, 100.0));
+		assertEquals("short", tree.getNearest(420.0, 200.0));
+	}
+
+	@Test
+	public void testGetNearest_comparedToBruteForce() {
+		Random random = new Random(4711);
+		int n = 3000;
+		double[][] segments = new double[n][];
+		PackedSegmentTree.Builder<Integer> builder = new PackedSegmentTree.Builder<Integer>();
+		for (int i = 0; i < n; i++) {
+			double x = random.nextInt(100) * 20.0;
+			double y = random.nextInt(100) * 20.0;
+			if (i % 2 == 1) {
+				// the opposite direction of the previous segment, like the two links of a road
+				segments[i] = new double[] { segments[i - 1][2], segments[i - 1][3], segments[i - 1][0], segments[i - 1][1] };
+			} else if (i % 10 == 4) {
+				segments[i] = new double[] { x, y, x, y };
+			} else {
+				segments[i] = new double[] { x, y, x + random.nextInt(20) * 10.0 - 100.0, y + random.nextInt(20) * 10.0 - 100.0 };
+			}
+			builder.put(segments[i][0], segments[i][1], segments[i][2], segments[i][3], i);
+		}
+		PackedSegmentTree<Integer> tree = builder.build();
+		assertEquals(n, tree.size());
+		for (int q = 0; q < 1000; q++) {
+			double x = -200 + 2400 * random.nextDouble();
+			double y = -200 + 2400 * random.nextDouble();
+			int expected = -1;
+			double best = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < n; i++) {
+				double d = distanceToSegment(segments[i], x, y);
+				if (d < best) {
+					best = d;
+					expected = i;
+				}
+			}
+			assertEquals(Integer.valueOf(expected), tree.getNearest(x, y));
+		}
+	}
+
+	private static double distanceToSegment(final double[] s, final double x, final double y) {
+		double dx = s[2] - s[0];
+		double dy = s[3] - s[1];
+		double px = s[0];
+		double py = s[1];
+		if (dx != 0.0 || dy != 0.0) {
+			double u = ((x - s[0]) * dx + (y - s[1]) * dy) / (dx * dx + dy * dy);
+			if (u >= 1) {
+				px = s[2];
+				py = s[3];
+			} else if (u > 0) {
+				px = s[0] + u * dx;
+				py = s[1] + u * dy;
+			}
+		}
+		return (x - px) * (x - px) + (y - py) * (y - py);
+	}
+
+}
@@ -20,7 +20,9 @@
 package org.matsim.core.utils.io;
 
 import java.io.ByteArrayInputStream;
+import java.io.StringReader;
 import java.util.Stack;
+import java.util.TreeMap;
 
 import junit.framework.Assert;
 
@@ -131,4 +133,90 @@ public class MatsimXmlParserTest {
 		Assert.assertEquals("value+value", parser.lastAttributes.getValue("someAttribute"));
 	}
 
+	@Test
+	public void testStaxAndChunkedParsing_sameTagsAsSax() {
+		StringBuilder str = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n" +
+				"<!DOCTYPE root [\n" +
+				"<!ATTLIST item type CDATA \"default\">\n" +
+				"]>\n" +
+				"<root name=\"r\">\n" +
+				"<!-- a comment with an <item> -->\n");
+		for (int i = 0; i < 200; i++) {
+			str.append("<group id=\"" + i + "\">\n");
+			for (int j = 0; j < 5; j++) {
+				str.append("\t<item id=\"" + i + "_" + j + "\" label='a > b'>");
+				if (j == 0) {
+					str.append("<![CDATA[<item>]]>");
+				} else if (j == 1) {
+					str.append("<empty/>");
+				} else {
+					str.append("content&amp;").append(j);
+				}
+				str.append("</item>\n");
+			}
+			str.append("</group>\n");
+		}
+		str.append("</root>");
+		byte[] bytes = str.toString().getBytes();
+
+		RecordingParser sax = new RecordingParser();
+		sax.setValidating(false);
+		sax.parse(new ByteArrayInputStream(bytes));
+
+		RecordingParser stax = new RecordingParser();
+		stax.setUsingStax(true);
+		stax.parse(new ByteArrayInputStream(bytes));
+		Assert.assertEquals(sax.log.toString(), stax.log.toString());
+
+		RecordingParser chunked = new RecordingParser();
+		new ChunkedXmlParser(chunked, 4, new String[] {"group", "item"}, 100).parse(new StringReader(str.toString()));
+		Assert.assertEquals(sax.log.toString(), chunked.log.toString());
+		Assert.assertTrue(sax.log.toString().contains("start item [id=0_0, label=a > b, type=default]"));
+		Assert.assertTrue(sax.log.toString().contains("end item <item>"));
+	}
+
+	/**
+	 * An error in a chunk must end the parsing, also while the workers of later chunks wait for the calling thread.
+	 */
+	@Test(timeout = 60000)
+	public void testChunkedParsing_errorInChunk() {
+		StringBuilder str = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<root>\n");
+		for (int i = 0; i < 200; i++) {
+			str.append("<group id=\"" + i + "\">\n");
+			str.append(i == 50 ? "\t<item id=\"broken\">\n" : "\t<item id=\"" + i + "\"/>\n");
+			str.append("</group>\n");
+		}
+		str.append("</root>");
+
+		RecordingParser chunked = new RecordingParser();
+		try {
+			new ChunkedXmlParser(chunked, 4, new String[] {"group"}, 100).parse(new StringReader(str.toString()));
+			Assert.fail("expected an exception for the malformed chunk.");
+		} catch (UncheckedIOException e) {
+			Assert.assertTrue(chunked.log.toString().contains("start item [id=49]"));
+			Assert.assertFalse(chunked.log.toString().contains("start item [id=51]"));
+		}
+	}
+
+	/** records all tags, with the trimmed content as the content of enclosing elements may differ with chunked parsing */
+	private static class RecordingParser extends MatsimXmlParser {
+
+		public final StringBuilder log = new StringBuilder();
+
+		@Override
+		public void startTag(String name, Attributes atts, Stack<String> context) {
+			TreeMap<String, String> values = new TreeMap<String, String>();
+			for (int i = 0; i < atts.getLength(); i++) {
+				values.put(atts.getQName(i), atts.getValue(i));
+			}
+			this.log.append(context.size()).append(" start ").append(name).append(' ').append(values.toString().replace("{", "[").replace("}", "]")).append('\n');
+		}
+
+		@Override
+		public void endTag(String name, String content, Stack<String> context) {
+			this.log.append(context.size()).append(" end ").append(name).append(' ').append(content.trim()).append('\n');
+		}
+
+	}
+
 }
@@ -0,0 +1,215 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestCase;
+
+public class RaptorTransitRouterTest {
+
+	private static TransitRouterConfig createConfig(final Fixture f) {
+		return new TransitRouterConfig(f.scenario.getConfig().planCalcScore(),
+				f.scenario.getConfig().plansCalcRoute(), f.scenario.getConfig().transitRouter(),
+				f.scenario.getConfig().vspExperimental());
+	}
+
+	private static double getTravelTime(final List<Leg> legs) {
+		double travelTime = 0.0;
+		for (Leg leg : legs) {
+			travelTime += leg.getTravelTime();
+		}
+		return travelTime;
+	}
+
+	@Test
+	public void testSingleLine() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord toCoord = f.scenario.createCoord(16100, 5050);
+		List<Leg> legs = router.calcRoute(f.scenario.createCoord(3800, 5100), toCoord, 5.0*3600, null);
+		assertEquals(3, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.pt, legs.get(1).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("6", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		assertEquals(Id.create("blue A > I", TransitRoute.class), ptRoute.getRouteId());
+		double expectedTravelTime = 29.0 * 60 + // agent takes the *:06 course, arriving in D at *:29
+				CoordUtils.calcDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testDirectWalkCheaper() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord fromCoord = f.scenario.createCoord(4000, 3000);
+		Coord toCoord = f.scenario.createCoord(8000, 3000);
+		List<Leg> legs = router.calcRoute(fromCoord, toCoord, 5.0*3600, null);
+		assertEquals(1, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(CoordUtils.calcDistance(fromCoord, toCoord) / config.getBeelineWalkSpeed(), getTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testLineChange() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord toCoord = f.scenario.createCoord(16100, 10050);
+		List<Leg> legs = router.calcRoute(f.scenario.createCoord(3800, 5100), toCoord, 6.0*3600, null);
+		assertEquals(5, legs.size());
+		assertEquals(TransportMode.transit_walk, legs.get(0).getMode());
+		assertEquals(TransportMode.pt, legs.get(1).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(2).getMode());
+		assertEquals(TransportMode.pt, legs.get(3).getMode());
+		assertEquals(TransportMode.transit_walk, legs.get(4).getMode());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("4", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.blueLine.getId(), ptRoute.getLineId());
+		ptRoute = (ExperimentalTransitRoute) legs.get(3).getRoute();
+		assertEquals(Id.create("18", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("19", TransitStopFacility.class), ptRoute.getEgressStopId());
+		assertEquals(f.greenLine.getId(), ptRoute.getLineId());
+		double expectedTravelTime = 31.0 * 60 + // agent takes the *:06 course, arriving in C at *:18, departing at *:21, arriving in K at*:31
+				CoordUtils.calcDistance(f.schedule.getFacilities().get(Id.create("19", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testTransferWeights() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		config.setUtilityOfLineSwitch_utl(0);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		List<Leg> legs = router.calcRoute(f.scenario.createCoord(11900, 5100), f.scenario.createCoord(24100, 4950), 6.0*3600 - 5.0*60, null);
+		assertEquals(5, legs.size());
+		assertEquals(f.redLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+		assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(3).getRoute()).getLineId());
+
+		config.setUtilityOfLineSwitch_utl(300.0 * config.getMarginalUtilityOfTravelTimePt_utl_s()); // corresponds to 5 minutes transit travel time
+		legs = router.calcRoute(f.scenario.createCoord(11900, 5100), f.scenario.createCoord(24100, 4950), 6.0*3600 - 5.0*60, null);
+		assertEquals(3, legs.size());
+		assertEquals(f.blueLine.getId(), ((ExperimentalTransitRoute) legs.get(1).getRoute()).getLineId());
+	}
+
+	@Test
+	public void testAfterMidnight() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		config.setBeelineWalkSpeed(0.1); // something very slow, so the agent does not walk over night
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord toCoord = f.scenario.createCoord(16100, 5050);
+		List<Leg> legs = router.calcRoute(f.scenario.createCoord(3800, 5100), toCoord, 25.0*3600, null);
+		assertEquals(3, legs.size());
+		ExperimentalTransitRoute ptRoute = (ExperimentalTransitRoute) legs.get(1).getRoute();
+		assertEquals(Id.create("0", TransitStopFacility.class), ptRoute.getAccessStopId());
+		assertEquals(Id.create("6", TransitStopFacility.class), ptRoute.getEgressStopId());
+		double expectedTravelTime = 4*3600 + 29.0 * 60 + // arrival at 05:29 at D
+				CoordUtils.calcDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		assertEquals(expectedTravelTime, getTravelTime(legs), MatsimTestCase.EPSILON);
+	}
+
+	@Test
+	public void testSameTravelTimesAsTransitRouterImpl() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter raptor = new RaptorTransitRouter(config, f.schedule);
+		TransitRouterImpl dijkstra = new TransitRouterImpl(config, f.schedule);
+		Coord[] coords = new Coord[] {
+				f.scenario.createCoord(3800, 5100), f.scenario.createCoord(11900, 5100), f.scenario.createCoord(16100, 10050),
+				f.scenario.createCoord(24100, 4950), f.scenario.createCoord(28100, 4950), f.scenario.createCoord(36000, 5000) };
+		for (Coord fromCoord : coords) {
+			for (Coord toCoord : coords) {
+				if (fromCoord == toCoord) {
+					continue;
+				}
+				for (double time = 5.0*3600; time < 8.0*3600; time += 7.0*60) {
+					List<Leg> expected = dijkstra.calcRoute(fromCoord, toCoord, time, null);
+					List<Leg> actual = raptor.calcRoute(fromCoord, toCoord, time, null);
+					String message = "from " + fromCoord + " to " + toCoord + " at " + time;
+					assertEquals(message, getTravelTime(expected), getTravelTime(actual), MatsimTestCase.EPSILON);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testProfileQuery() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterConfig config = createConfig(f);
+		RaptorTransitRouter router = new RaptorTransitRouter(config, f.schedule);
+		Coord fromCoord = f.scenario.createCoord(3800, 5100);
+		Coord toCoord = f.scenario.createCoord(16100, 5050);
+		List<RaptorTransitRouter.Journey> journeys = router.calcRoutes(fromCoord, toCoord, 5.0*3600, 6.0*3600 - 1.0, null);
+		// the blue line departs at *:06, *:26 and *:46 in A and arrives 23 minutes later in D
+		assertEquals(3, journeys.size());
+		double accessTime = CoordUtils.calcDistance(fromCoord, f.schedule.getFacilities().get(Id.create("0", TransitStopFacility.class)).getCoord()) / config.getBeelineWalkSpeed();
+		double egressTime = CoordUtils.calcDistance(f.schedule.getFacilities().get(Id.create("6", TransitStopFacility.class)).getCoord(), toCoord) / config.getBeelineWalkSpeed();
+		for (int i = 0; i < 3; i++) {
+			RaptorTransitRouter.Journey journey = journeys.get(i);
+			double vehicleDepartureTime = 5.0*3600 + (6 + 20*i)*60;
+			assertEquals(vehicleDepartureTime - accessTime, journey.getDepartureTime(), MatsimTestCase.EPSILON);
+			assertEquals(vehicleDepartureTime + 23.0*60 + egressTime, journey.getArrivalTime(), MatsimTestCase.EPSILON);
+			assertEquals(0, journey.getNumberOfTransfers());
+			assertEquals(3, journey.getLegs().size());
+			assertEquals(journey.getArrivalTime() - journey.getDepartureTime(), getTravelTime(journey.getLegs()), MatsimTestCase.EPSILON);
+		}
+
+		// line change at C: every blue course can be combined with the next green one
+		journeys = router.calcRoutes(fromCoord, f.scenario.createCoord(16100, 10050), 6.0*3600, 7.0*3600, null);
+		assertTrue(journeys.size() >= 3);
+		for (int i = 0; i < journeys.size(); i++) {
+			RaptorTransitRouter.Journey journey = journeys.get(i);
+			assertEquals(1, journey.getNumberOfTransfers());
+			if (i > 0) {
+				assertTrue(journey.getDepartureTime() > journeys.get(i - 1).getDepartureTime());
+				assertTrue(journey.getArrivalTime() > journeys.get(i - 1).getArrivalTime());
+			}
+		}
+	}
+
+}
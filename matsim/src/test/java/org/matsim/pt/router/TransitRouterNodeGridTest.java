@@ -0,0 +1,79 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitRouterNodeGridTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2015 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Random;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.geometry.CoordImpl;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.pt.router.TransitRouterNetwork.TransitRouterNetworkLink;
+import org.matsim.pt.router.TransitRouterNetwork.TransitRouterNetworkNode;
+
+public class TransitRouterNodeGridTest {
+
+	@Test
+	public void testSameNodesAsQuadTree() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterNetwork network = TransitRouterNetwork.createFromSchedule(f.schedule, 100.0);
+		TransitRouterNodeGrid grid = new TransitRouterNodeGrid(network, 1000.0);
+		Random random = new Random(4711);
+		for (int i = 0; i < 2000; i++) {
+			Coord coord = new CoordImpl(-2000 + 42000 * random.nextDouble(), -2000 + 14000 * random.nextDouble());
+			for (double searchRadius : new double[] {300.0, 1000.0, 2500.0}) {
+				Collection<TransitRouterNetworkNode> expected = network.getNearestNodes(coord, searchRadius);
+				if (expected.size() < 2) {
+					TransitRouterNetworkNode nearestNode = network.getNearestNode(coord);
+					double distance = CoordUtils.calcDistance(coord, nearestNode.stop.getStopFacility().getCoord());
+					expected = network.getNearestNodes(coord, distance + 200.0);
+				}
+				assertEquals("at " + coord + " with radius " + searchRadius, new ArrayList<TransitRouterNetworkNode>(expected),
+						new ArrayList<TransitRouterNetworkNode>(grid.getNearestNodes(coord, searchRadius, 200.0)));
+			}
+		}
+	}
+
+	@Test
+	public void testTransferTable() {
+		Fixture f = new Fixture();
+		f.init();
+		TransitRouterNetwork network = TransitRouterNetwork.createFromSchedule(f.schedule, 100.0);
+		TransitRouterNetwork.TransferTable transfers = network.getTransferTable();
+		TransitRouterNetworkNode[] nodes = network.getNodes().values().toArray(new TransitRouterNetworkNode[0]);
+		int nOfTransferLinks = 0;
+		for (TransitRouterNetworkLink link : network.getLinks().values()) {
+			if (link.getRoute() == null) {
+				assertEquals(nodes[transfers.getFromNode(nOfTransferLinks)], link.getFromNode());
+				assertEquals(nodes[transfers.getToNode(nOfTransferLinks)], link.getToNode());
+				assertEquals(link.getLength(), transfers.getDistance(nOfTransferLinks), 1e-3);
+				nOfTransferLinks++;
+			}
+		}
+		assertEquals(nOfTransferLinks, transfers.size());
+	}
+
+}